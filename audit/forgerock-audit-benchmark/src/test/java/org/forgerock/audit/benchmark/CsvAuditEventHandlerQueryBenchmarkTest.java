@@ -0,0 +1,90 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.audit.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.forgerock.audit.handlers.csv.CsvAuditEventHandler;
+import org.forgerock.json.resource.QueryFilters;
+import org.forgerock.json.resource.QueryRequest;
+import org.forgerock.json.resource.QueryResourceHandler;
+import org.forgerock.json.resource.QueryResponse;
+import org.forgerock.json.resource.Requests;
+import org.forgerock.json.resource.ResourceResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Streaming query benchmarks for {@link CsvAuditEventHandler}, using the events pre-populated by
+ * {@link CsvAuditEventHandlerReadBenchmarkTest.ReadState}.
+ */
+public class CsvAuditEventHandlerQueryBenchmarkTest extends BenchmarkBase {
+
+    private static final int PRE_POPULATED_EVENT_COUNT = 100_000;
+    private static final int PAGE_SIZE = 100;
+    private static final String ACCESS = "access";
+
+    /** Counts the results, and never stops the query. */
+    private static final class CountingQueryResourceHandler implements QueryResourceHandler {
+        private int count;
+
+        @Override
+        public boolean handleResource(final ResourceResponse resource) {
+            ++count;
+            return true;
+        }
+    }
+
+    @Benchmark
+    public QueryResponse queryFirstPage(final CsvAuditEventHandlerReadBenchmarkTest.ReadState state)
+            throws Exception {
+        final QueryRequest queryRequest = Requests.newQueryRequest(ACCESS)
+                .setQueryFilter(QueryFilters.parse("true"))
+                .setPageSize(PAGE_SIZE);
+        return state.handler.queryEvents(null, ACCESS, queryRequest, new CountingQueryResourceHandler())
+                .getOrThrow();
+    }
+
+    @Benchmark
+    public QueryResponse queryPageAtRandomOffset(final CsvAuditEventHandlerReadBenchmarkTest.ReadState state)
+            throws Exception {
+        final QueryRequest queryRequest = Requests.newQueryRequest(ACCESS)
+                .setQueryFilter(QueryFilters.parse("true"))
+                .setPageSize(PAGE_SIZE)
+                .setPagedResultsOffset(ThreadLocalRandom.current().nextInt(PRE_POPULATED_EVENT_COUNT - PAGE_SIZE));
+        return state.handler.queryEvents(null, ACCESS, queryRequest, new CountingQueryResourceHandler())
+                .getOrThrow();
+    }
+
+    @Benchmark
+    public QueryResponse queryFirstMatch(final CsvAuditEventHandlerReadBenchmarkTest.ReadState state)
+            throws Exception {
+        final String from = String.format("%010d", ThreadLocalRandom.current().nextInt(PRE_POPULATED_EVENT_COUNT));
+        final QueryRequest queryRequest = Requests.newQueryRequest(ACCESS)
+                .setQueryFilter(QueryFilters.parse("/timestamp ge \"" + from + "\""));
+        // the handler stops the query at the first matching event
+        return state.handler.queryEvents(null, ACCESS, queryRequest, resource -> false).getOrThrow();
+    }
+
+    @Benchmark
+    public int queryAll(final CsvAuditEventHandlerReadBenchmarkTest.ReadState state) throws Exception {
+        final QueryRequest queryRequest = Requests.newQueryRequest(ACCESS)
+                .setQueryFilter(QueryFilters.parse("true"));
+        final CountingQueryResourceHandler queryHandler = new CountingQueryResourceHandler();
+        state.handler.queryEvents(null, ACCESS, queryRequest, queryHandler).getOrThrow();
+        return queryHandler.count;
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.audit.benchmark;
+
+import static org.forgerock.audit.events.AuditEventBuilder.TIMESTAMP;
+import static org.forgerock.audit.events.AuditEventBuilder.TRANSACTION_ID;
+import static org.forgerock.json.JsonValue.*;
+import static org.forgerock.json.resource.ResourceResponse.FIELD_CONTENT_ID;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.forgerock.audit.events.handlers.AuditEventHandler;
+import org.forgerock.audit.handlers.jdbc.JdbcAuditEventHandler;
+import org.forgerock.audit.handlers.jdbc.JdbcAuditEventHandlerConfiguration;
+import org.forgerock.audit.handlers.jdbc.TableMapping;
+import org.forgerock.json.JsonValue;
+import org.forgerock.json.resource.ResourceResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Write-throughput benchmarks for {@link JdbcAuditEventHandler}, against an embedded H2 database.
+ * <p>
+ * Buffered events are written by writer threads, and publishers wait once the buffer is full, so the buffered
+ * benchmarks measure how fast the writer threads create the events in the database.
+ */
+public class JdbcAuditEventHandlerWriteBenchmarkTest extends BenchmarkBase {
+
+    private static final String H2_DRIVER = "org.h2.Driver";
+    private static final String ACCESS = "access";
+    private static final String TABLE = "auditaccess";
+
+    static class DefaultState extends AuditEventHandlerBenchmarkState<JdbcAuditEventHandlerConfiguration> {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public JdbcAuditEventHandlerConfiguration buildBaseConfiguration() {
+            // the database is stored in the log directory, which is deleted after each trial
+            final String jdbcUrl = "jdbc:h2:file:" + getLogDirectory() + "/audit";
+            createTable(jdbcUrl);
+
+            final JdbcAuditEventHandlerConfiguration configuration = new JdbcAuditEventHandlerConfiguration();
+            configuration.setName("jdbc");
+            configuration.setEnabled(true);
+            configuration.setTopics(Collections.singleton(ACCESS));
+            configuration.setDatabaseType(JdbcAuditEventHandler.H2);
+            configuration.getConnectionPool().setDriverClassName(H2_DRIVER);
+            configuration.getConnectionPool().setJdbcUrl(jdbcUrl);
+
+            final Map<String, String> fieldToColumn = new LinkedHashMap<>();
+            fieldToColumn.put(FIELD_CONTENT_ID, "objectid");
+            fieldToColumn.put(TIMESTAMP, "activitydate");
+            fieldToColumn.put(TRANSACTION_ID, "transactionid");
+            final TableMapping tableMapping = new TableMapping();
+            tableMapping.setEvent(ACCESS);
+            tableMapping.setTable(TABLE);
+            tableMapping.setFieldToColumn(fieldToColumn);
+            configuration.setTableMappings(Collections.singletonList(tableMapping));
+            return configuration;
+        }
+
+        @Override
+        public AuditEventHandler buildAuditEventHandler(final JdbcAuditEventHandlerConfiguration configuration)
+                throws Exception {
+            return new JdbcAuditEventHandler(configuration, getEventTopicsMetaData("/events.json"), null);
+        }
+
+        /**
+         * Builds a simple, unique event instance.
+         *
+         * @return Event instance
+         */
+        protected JsonValue buildUniqueEvent() {
+            final String simpleId = Long.toString(counter.getAndIncrement());
+            return json(object(field(FIELD_CONTENT_ID, simpleId), field(TIMESTAMP, simpleId),
+                    field(TRANSACTION_ID, simpleId)));
+        }
+
+        private static void createTable(final String jdbcUrl) {
+            try {
+                Class.forName(H2_DRIVER);
+                try (Connection connection = DriverManager.getConnection(jdbcUrl);
+                        Statement statement = connection.createStatement()) {
+                    statement.execute("CREATE TABLE " + TABLE + " ( objectid VARCHAR(38) NOT NULL PRIMARY KEY, "
+                            + "activitydate VARCHAR(29) NOT NULL, transactionid VARCHAR(56) NOT NULL )");
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException("Unable to create table " + TABLE, e);
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class UnbufferedWriteState extends DefaultState {
+        // empty
+    }
+
+    @Benchmark
+    public ResourceResponse unbufferedWrite(final UnbufferedWriteState state) throws Exception {
+        return state.handler.publishEvent(null, ACCESS, state.buildUniqueEvent()).getOrThrow();
+    }
+
+    @State(Scope.Benchmark)
+    public static class BufferedWriteState extends DefaultState {
+        @Override
+        public void updateConfiguration(final JdbcAuditEventHandlerConfiguration configuration) {
+            configuration.getBuffering().setEnabled(true);
+        }
+    }
+
+    @Benchmark
+    public ResourceResponse bufferedWrite(final BufferedWriteState state) throws Exception {
+        return state.handler.publishEvent(null, ACCESS, state.buildUniqueEvent()).getOrThrow();
+    }
+
+    @State(Scope.Benchmark)
+    public static class BufferedDedicatedConnectionsWriteState extends DefaultState {
+        @Override
+        public void updateConfiguration(final JdbcAuditEventHandlerConfiguration configuration) {
+            configuration.getBuffering().setEnabled(true);
+            configuration.getBuffering().setDedicatedConnections(true);
+        }
+    }
+
+    @Benchmark
+    public ResourceResponse bufferedDedicatedConnectionsWrite(final BufferedDedicatedConnectionsWriteState state)
+            throws Exception {
+        return state.handler.publishEvent(null, ACCESS, state.buildUniqueEvent()).getOrThrow();
+    }
+
+    @State(Scope.Benchmark)
+    public static class BufferedMultiRowInsertsWriteState extends DefaultState {
+        @Override
+        public void updateConfiguration(final JdbcAuditEventHandlerConfiguration configuration) {
+            configuration.getBuffering().setEnabled(true);
+            configuration.getBuffering().setDedicatedConnections(true);
+            configuration.getBuffering().setMultiRowInserts(true);
+        }
+    }
+
+    @Benchmark
+    public ResourceResponse bufferedMultiRowInsertsWrite(final BufferedMultiRowInsertsWriteState state)
+            throws Exception {
+        return state.handler.publishEvent(null, ACCESS, state.buildUniqueEvent()).getOrThrow();
+    }
+}
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.audit.benchmark;
@@ -105,6 +106,24 @@ public class JsonAuditEventHandlerWriteBenchmarkTest extends BenchmarkBase {
         return write(state);
     }
 
+    @State(Scope.Benchmark)
+    public static class WriterPerTopicWriteState extends WriteState {
+        @Override
+        protected void updateConfiguration(final JsonAuditEventHandlerConfiguration configuration) {
+            configuration.getBuffering().setWriterPerTopic(true);
+        }
+    }
+
+    /**
+     * Publishes events to the access and activity topics alternately, which are written by a thread each.
+     */
+    @Benchmark
+    public ResourceResponse writerPerTopicWrite(final WriterPerTopicWriteState state) throws Exception {
+        final JsonValue event = state.buildUniqueEvent();
+        final String topic = (Long.parseLong(event.get(FIELD_CONTENT_ID).asString()) & 1) == 0 ? ACCESS : ACTIVITY;
+        return state.handler.publishEvent(null, topic, event).getOrThrow();
+    }
+
     @State(Scope.Benchmark)
     public static class ElasticsearchCompatibleBestCaseWriteState extends WriteState {
         @Override
@@ -0,0 +1,192 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.audit.benchmark;
+
+import static org.forgerock.audit.events.AuditEventBuilder.EVENT_NAME;
+import static org.forgerock.audit.events.AuditEventBuilder.TIMESTAMP;
+import static org.forgerock.audit.events.AuditEventBuilder.TRANSACTION_ID;
+import static org.forgerock.json.JsonValue.*;
+import static org.forgerock.json.resource.ResourceResponse.FIELD_CONTENT_ID;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.forgerock.audit.events.handlers.AuditEventHandler;
+import org.forgerock.audit.handlers.syslog.Facility;
+import org.forgerock.audit.handlers.syslog.SyslogAuditEventHandler;
+import org.forgerock.audit.handlers.syslog.SyslogAuditEventHandlerConfiguration;
+import org.forgerock.audit.handlers.syslog.TransportProtocol;
+import org.forgerock.json.JsonValue;
+import org.forgerock.json.resource.ResourceResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Write-throughput benchmarks for {@link SyslogAuditEventHandler}, over TCP to a local socket which discards what it
+ * receives.
+ * <p>
+ * Buffered events are written by the writer thread, and publishers wait once its queue is full, so the buffered
+ * benchmarks measure how fast the writer thread transmits the events.
+ */
+public class SyslogAuditEventHandlerWriteBenchmarkTest extends BenchmarkBase {
+
+    private static final String ACCESS = "access";
+
+    static class DefaultState extends AuditEventHandlerBenchmarkState<SyslogAuditEventHandlerConfiguration> {
+        private final AtomicInteger counter = new AtomicInteger();
+        private DiscardingSink sink;
+
+        @Override
+        public SyslogAuditEventHandlerConfiguration buildBaseConfiguration() {
+            try {
+                sink = new DiscardingSink();
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to open the local socket", e);
+            }
+            final SyslogAuditEventHandlerConfiguration configuration = new SyslogAuditEventHandlerConfiguration();
+            configuration.setName("syslog");
+            configuration.setEnabled(true);
+            configuration.setTopics(Collections.singleton(ACCESS));
+            configuration.setProtocol(TransportProtocol.TCP);
+            configuration.setHost("localhost");
+            configuration.setPort(sink.getPort());
+            configuration.setConnectTimeout(30000);
+            configuration.setFacility(Facility.LOCAL0);
+            return configuration;
+        }
+
+        @Override
+        public AuditEventHandler buildAuditEventHandler(final SyslogAuditEventHandlerConfiguration configuration)
+                throws Exception {
+            return new SyslogAuditEventHandler(configuration, getEventTopicsMetaData("/events.json"), null, null);
+        }
+
+        @Override
+        public void afterTrial() throws Exception {
+            try {
+                super.afterTrial();
+            } finally {
+                sink.close();
+            }
+        }
+
+        /**
+         * Builds a simple, unique event instance.
+         *
+         * @return Event instance
+         */
+        protected JsonValue buildUniqueEvent() {
+            final String simpleId = Long.toString(counter.getAndIncrement());
+            return json(object(field(FIELD_CONTENT_ID, simpleId), field(TIMESTAMP, simpleId),
+                    field(TRANSACTION_ID, simpleId), field(EVENT_NAME, ACCESS)));
+        }
+    }
+
+    /**
+     * Local TCP server, which reads and discards whatever its connections receive.
+     */
+    private static final class DiscardingSink implements Runnable {
+        private final ServerSocketChannel serverChannel;
+        private final Thread thread;
+
+        DiscardingSink() throws IOException {
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress("localhost", 0));
+            thread = new Thread(this, "DiscardingSink");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        int getPort() {
+            return serverChannel.socket().getLocalPort();
+        }
+
+        @Override
+        public void run() {
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(256 * 1024);
+            while (serverChannel.isOpen()) {
+                try (SocketChannel channel = serverChannel.accept()) {
+                    while (channel.read(buffer) >= 0) {
+                        buffer.clear();
+                    }
+                } catch (IOException e) {
+                    // the connection or the sink was closed
+                }
+            }
+        }
+
+        void close() throws IOException {
+            serverChannel.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class UnbufferedWriteState extends DefaultState {
+        // empty
+    }
+
+    @Benchmark
+    public ResourceResponse unbufferedWrite(final UnbufferedWriteState state) throws Exception {
+        return state.handler.publishEvent(null, ACCESS, state.buildUniqueEvent()).getOrThrow();
+    }
+
+    @State(Scope.Benchmark)
+    public static class BufferedWriteState extends DefaultState {
+        @Override
+        public void updateConfiguration(final SyslogAuditEventHandlerConfiguration configuration) {
+            configuration.getBuffering().setEnabled(true);
+        }
+    }
+
+    @Benchmark
+    public ResourceResponse bufferedWrite(final BufferedWriteState state) throws Exception {
+        return state.handler.publishEvent(null, ACCESS, state.buildUniqueEvent()).getOrThrow();
+    }
+
+    @State(Scope.Benchmark)
+    public static class NioUnbufferedWriteState extends DefaultState {
+        @Override
+        public void updateConfiguration(final SyslogAuditEventHandlerConfiguration configuration) {
+            configuration.setNio(true);
+        }
+    }
+
+    @Benchmark
+    public ResourceResponse nioUnbufferedWrite(final NioUnbufferedWriteState state) throws Exception {
+        return state.handler.publishEvent(null, ACCESS, state.buildUniqueEvent()).getOrThrow();
+    }
+
+    @State(Scope.Benchmark)
+    public static class NioBufferedWriteState extends DefaultState {
+        @Override
+        public void updateConfiguration(final SyslogAuditEventHandlerConfiguration configuration) {
+            configuration.setNio(true);
+            configuration.getBuffering().setEnabled(true);
+        }
+    }
+
+    @Benchmark
+    public ResourceResponse nioBufferedWrite(final NioBufferedWriteState state) throws Exception {
+        return state.handler.publishEvent(null, ACCESS, state.buildUniqueEvent()).getOrThrow();
+    }
+}
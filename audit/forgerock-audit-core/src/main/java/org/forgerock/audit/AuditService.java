@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.audit;
@@ -171,6 +172,22 @@ public interface AuditService extends RequestHandler {
      */
     Collection<AuditEventHandler> getRegisteredHandlers() throws ServiceUnavailableException;
 
+    /**
+     * Returns the metrics of the dispatch of the events to the registered handler corresponding to provided name,
+     * when that handler receives the events through a queue of its own. The default implementation does not dispatch
+     * the events through queues, and so always returns {@code null}.
+     *
+     * @param handlerName
+     *            Name of the registered handler.
+     * @return the metrics, or {@code null} if the handler is not registered or does not receive the events
+     *         through a queue.
+     * @throws ServiceUnavailableException if the AuditService has been closed.
+     * @see AuditServiceConfiguration#getHandlerDispatch()
+     */
+    default HandlerDispatchMetrics getHandlerDispatchMetrics(String handlerName) throws ServiceUnavailableException {
+        return null;
+    }
+
     /**
      * Returns whether or not events of the specified topic will be handled.
      *
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit;
 
@@ -49,9 +50,20 @@ import org.forgerock.audit.filter.FilterPolicy;
  *                  "/access/filter/value"
  *             ]
  *         }
+ *     },
+ *     "handlerDispatch" : {
+ *         "jdbc" : {
+ *             "queueCapacity" : 10000,
+ *             "overloadPolicy" : "SHED",
+ *             "lowPriorityTopics" : [
+ *                  "access"
+ *             ]
+ *         }
  *     }
  *   }
  * </pre>
+ * The handlers listed by {@code handlerDispatch} receive the events through a queue of their own, as described by
+ * {@link HandlerDispatchConfiguration}, and the other handlers receive them from the thread publishing them.
  */
 public class AuditServiceConfiguration {
 
@@ -65,6 +77,9 @@ public class AuditServiceConfiguration {
     @JsonPropertyDescription("audit.service.filter.policies")
     private Map<String, FilterPolicy> filterPolicies = new LinkedHashMap<>();
 
+    @JsonPropertyDescription("audit.service.handlerDispatch")
+    private Map<String, HandlerDispatchConfiguration> handlerDispatch = new LinkedHashMap<>();
+
     /**
      * Empty constructor.
      */
@@ -80,6 +95,7 @@ public class AuditServiceConfiguration {
     public AuditServiceConfiguration(AuditServiceConfiguration config) {
         handlerForQueries = config.getHandlerForQueries();
         availableAuditEventHandlers = config.availableAuditEventHandlers;
+        handlerDispatch.putAll(config.handlerDispatch);
     }
 
     /**
@@ -138,4 +154,20 @@ public class AuditServiceConfiguration {
     public void setFilterPolicies(Map<String, FilterPolicy> filterPolicies) {
         this.filterPolicies.putAll(filterPolicies);
     }
+
+    /**
+     * Get the dispatch configurations, indexed by the name of the handler they apply to.
+     * @return The dispatch configurations.
+     */
+    public Map<String, HandlerDispatchConfiguration> getHandlerDispatch() {
+        return handlerDispatch;
+    }
+
+    /**
+     * Set the dispatch configurations, indexed by the name of the handler they apply to.
+     * @param handlerDispatch The dispatch configurations.
+     */
+    public void setHandlerDispatch(Map<String, HandlerDispatchConfiguration> handlerDispatch) {
+        this.handlerDispatch.putAll(handlerDispatch);
+    }
 }
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2017 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit;
 
@@ -120,6 +121,11 @@ final class AuditServiceImpl implements AuditService {
      * The filters to apply to the audit event.
      */
     private final Filter filters;
+    /**
+     * Dispatchers of the AuditEventHandlers receiving the events through a queue of their own, indexed by the
+     * name of the handler.
+     */
+    private final Map<String, HandlerDispatcher> dispatchersByHandlerName;
 
     /**
      * Constructs a new instance.
@@ -155,6 +161,7 @@ final class AuditServiceImpl implements AuditService {
                 .withAuditTopics(eventTopicsMetaData.getTopics())
                 .withPolicies(configuration.getFilterPolicies())
                 .build();
+        this.dispatchersByHandlerName = getDispatchersByHandlerName(configuration.getHandlerDispatch());
     }
 
     private Map<String, AuditEventHandler> getAuditEventHandlersByName(Set<AuditEventHandler> handlers) {
@@ -165,6 +172,21 @@ final class AuditServiceImpl implements AuditService {
         return handlersByName;
     }
 
+    private Map<String, HandlerDispatcher> getDispatchersByHandlerName(
+            final Map<String, HandlerDispatchConfiguration> handlerDispatch) {
+
+        Map<String, HandlerDispatcher> dispatchersByHandlerName = new HashMap<>();
+        for (Map.Entry<String, HandlerDispatchConfiguration> entry : handlerDispatch.entrySet()) {
+            AuditEventHandler handler = auditEventHandlersByName.get(entry.getKey());
+            if (handler == null || !handler.isEnabled()) {
+                logger.warn("Ignoring dispatch configuration of unknown or disabled handler {}", entry.getKey());
+                continue;
+            }
+            dispatchersByHandlerName.put(entry.getKey(), new HandlerDispatcher(handler, entry.getValue()));
+        }
+        return dispatchersByHandlerName;
+    }
+
     private Map<String, Set<AuditEventHandler>> getAuditEventHandlersByTopic(
             final Set<AuditEventHandler> handlers,
             final EventTopicsMetaData eventTopicsMetaData) {
@@ -258,6 +280,10 @@ final class AuditServiceImpl implements AuditService {
 
     /**
      * Propagates audit event to all handlers registered to receive events for the given topic.
+     * <p/>
+     * The handlers which have a dispatcher receive the event through its queue, and the others receive it from the
+     * calling thread. When the queryHandler has a dispatcher, the result is completed once the event has gone through
+     * its queue, and fails if its queue rejects the event (see {@link HandlerDispatchConfiguration}).
      *
      * @return The result generated by the queryHandler so that the result of handleCreate is inline with the
      *         result that would be received for a call to handleRead or handleQuery for the provided event.
@@ -277,23 +303,29 @@ final class AuditServiceImpl implements AuditService {
         logger.debug("Cascading the event of topic {} to the handlers : {}", topic, auditEventHandlersForEvent);
         for (AuditEventHandler auditEventHandler : auditEventHandlersForEvent) {
             Promise<ResourceResponse, ResourceException> handlerResult;
-            try {
-                handlerResult = auditEventHandler.publishEvent(context, topic, event)
-                        .thenOnException(new ExceptionHandler<ResourceException>() {
-                            @Override
-                            public void handleException(ResourceException exception) {
-                                logger.warn(PUBLISH_EXCEPTION_TEXT, topic, exception.getMessage());
-                            }
-                        })
-                        .thenOnRuntimeException(new RuntimeExceptionHandler() {
-                            @Override
-                            public void handleRuntimeException(RuntimeException exception) {
-                                logger.warn(PUBLISH_EXCEPTION_TEXT, topic, exception.getMessage());
-                            }
-                        });
-            } catch (Exception ex) {
-                logger.warn("Unable to publish event to {} : {}", topic, ex.getMessage());
-                handlerResult = adapt(ex).asPromise();
+            HandlerDispatcher dispatcher = dispatchersByHandlerName.get(auditEventHandler.getName());
+            if (dispatcher != null) {
+                // the handler gets its own copy, as it reads the event concurrently with the other handlers
+                handlerResult = dispatcher.dispatch(context, topic, event.copy());
+            } else {
+                try {
+                    handlerResult = auditEventHandler.publishEvent(context, topic, event)
+                            .thenOnException(new ExceptionHandler<ResourceException>() {
+                                @Override
+                                public void handleException(ResourceException exception) {
+                                    logger.warn(PUBLISH_EXCEPTION_TEXT, topic, exception.getMessage());
+                                }
+                            })
+                            .thenOnRuntimeException(new RuntimeExceptionHandler() {
+                                @Override
+                                public void handleRuntimeException(RuntimeException exception) {
+                                    logger.warn(PUBLISH_EXCEPTION_TEXT, topic, exception.getMessage());
+                                }
+                            });
+                } catch (Exception ex) {
+                    logger.warn("Unable to publish event to {} : {}", topic, ex.getMessage());
+                    handlerResult = adapt(ex).asPromise();
+                }
             }
             if (auditEventHandler == queryHandler) {
                 promise = handlerResult;
@@ -386,6 +418,13 @@ final class AuditServiceImpl implements AuditService {
         return auditEventHandlersByName.values();
     }
 
+    @Override
+    public HandlerDispatchMetrics getHandlerDispatchMetrics(String handlerName) throws ServiceUnavailableException {
+        checkLifecycleStateIsRunning();
+        HandlerDispatcher dispatcher = dispatchersByHandlerName.get(handlerName);
+        return dispatcher == null ? null : dispatcher.getMetrics();
+    }
+
     @Override
     public boolean isAuditing(String topic) throws ServiceUnavailableException {
         checkLifecycleStateIsRunning();
@@ -411,6 +450,9 @@ final class AuditServiceImpl implements AuditService {
                     logger.warn("Unable to startup handler " + handlerName,  e);
                 }
             }
+            for (HandlerDispatcher dispatcher : dispatchersByHandlerName.values()) {
+                dispatcher.start();
+            }
             lifecycleState = LifecycleState.RUNNING;
             break;
         case RUNNING:
@@ -437,6 +479,10 @@ final class AuditServiceImpl implements AuditService {
             lifecycleState = LifecycleState.SHUTDOWN;
             break;
         case RUNNING:
+            // publish the queued events before the handlers are shutdown
+            for (HandlerDispatcher dispatcher : dispatchersByHandlerName.values()) {
+                dispatcher.stop();
+            }
             for (Map.Entry<String, AuditEventHandler> entry : auditEventHandlersByName.entrySet()) {
                 String handlerName = entry.getKey();
                 AuditEventHandler handler = entry.getValue();
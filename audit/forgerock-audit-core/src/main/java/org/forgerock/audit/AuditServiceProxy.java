@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.audit;
@@ -199,6 +200,16 @@ public class AuditServiceProxy implements AuditService {
         }
     }
 
+    @Override
+    public HandlerDispatchMetrics getHandlerDispatchMetrics(String handlerName) throws ServiceUnavailableException {
+        obtainReadLock();
+        try {
+            return delegate.getHandlerDispatchMetrics(handlerName);
+        } finally {
+            releaseReadLock();
+        }
+    }
+
     @Override
     public boolean isAuditing(String topic) throws ServiceUnavailableException {
         obtainReadLock();
@@ -0,0 +1,129 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.audit;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+
+/**
+ * Configuration of the dispatch of audit events to a single audit event handler, through a bounded queue of its own
+ * which is drained by a dedicated thread. The audit service then only waits for the handler when its queue is full,
+ * and a slow handler does not delay the events of the other handlers.
+ * <p>
+ * The handler used for queries is the exception: the creation of an event still completes with the result of its
+ * publication by that handler, so it waits for the event to go through the queue of that handler. Also, an event
+ * that the queue of that handler rejects under the {@link OverloadPolicy#DROP} or {@link OverloadPolicy#SHED}
+ * policy fails the creation of the event with a {@code ServiceUnavailableException}, whereas the events rejected
+ * by the queues of the other handlers are only counted in their metrics.
+ * <p>
+ * The following is an example of the configuration in json format.
+ * <pre>
+ *     {
+ *         "queueCapacity" : 10000,
+ *         "overloadPolicy" : "SHED",
+ *         "lowPriorityTopics" : [
+ *              "access"
+ *         ]
+ *     }
+ * </pre>
+ */
+public class HandlerDispatchConfiguration {
+
+    /** Default capacity of the queue of events. */
+    public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+
+    /**
+     * What to do with an event when the queue of the handler is overloaded.
+     */
+    public enum OverloadPolicy {
+        /** Wait for room in the queue. */
+        BLOCK,
+        /** Drop the event when the queue is full. */
+        DROP,
+        /**
+         * Drop the events of the low priority topics once the queue is half full, and wait for room in the queue
+         * for the events of the other topics.
+         */
+        SHED
+    }
+
+    @JsonPropertyDescription("audit.service.handlerDispatch.queueCapacity")
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+    @JsonPropertyDescription("audit.service.handlerDispatch.overloadPolicy")
+    private OverloadPolicy overloadPolicy = OverloadPolicy.BLOCK;
+
+    @JsonPropertyDescription("audit.service.handlerDispatch.lowPriorityTopics")
+    private Set<String> lowPriorityTopics;
+
+    /**
+     * Gets the capacity of the queue of events of the handler.
+     *
+     * @return The capacity.
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Sets the capacity of the queue of events of the handler.
+     *
+     * @param queueCapacity The capacity, which must be positive.
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Gets what to do with an event when the queue of the handler is overloaded.
+     *
+     * @return The overload policy.
+     */
+    public OverloadPolicy getOverloadPolicy() {
+        return overloadPolicy;
+    }
+
+    /**
+     * Sets what to do with an event when the queue of the handler is overloaded.
+     *
+     * @param overloadPolicy The overload policy.
+     */
+    public void setOverloadPolicy(OverloadPolicy overloadPolicy) {
+        this.overloadPolicy = overloadPolicy;
+    }
+
+    /**
+     * Gets the topics whose events are shed first, when the overload policy is {@link OverloadPolicy#SHED}.
+     *
+     * @return The low priority topics.
+     */
+    public Set<String> getLowPriorityTopics() {
+        return lowPriorityTopics == null ? Collections.<String>emptySet() : lowPriorityTopics;
+    }
+
+    /**
+     * Sets the topics whose events are shed first, when the overload policy is {@link OverloadPolicy#SHED}.
+     *
+     * @param lowPriorityTopics The low priority topics.
+     */
+    public void setLowPriorityTopics(Collection<String> lowPriorityTopics) {
+        this.lowPriorityTopics = new LinkedHashSet<>(lowPriorityTopics);
+    }
+}
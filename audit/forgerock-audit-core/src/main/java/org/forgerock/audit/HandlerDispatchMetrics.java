@@ -0,0 +1,195 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.audit;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics of the dispatch of audit events to an audit event handler through its queue: how many events were queued,
+ * published or rejected, how deep the queue is, and how long the events take to be handled.
+ * <p>
+ * The latency of an event is the time from its queueing to the completion of its publication by the handler, and so
+ * includes the time spent waiting in the queue.
+ * <p>
+ * Events are recorded by the threads publishing and dispatching them, and the metrics may be read by any thread.
+ */
+public final class HandlerDispatchMetrics {
+
+    private final Collection<?> queue;
+    private final int queueCapacity;
+    private long queuedCount;
+    private long publishedCount;
+    private long failedCount;
+    private long blockedCount;
+    private long droppedCount;
+    private long shedCount;
+    private int maxQueueDepth;
+    private long totalLatencyNanos;
+    private long maxLatencyNanos;
+
+    HandlerDispatchMetrics(final Collection<?> queue, final int queueCapacity) {
+        this.queue = queue;
+        this.queueCapacity = queueCapacity;
+    }
+
+    synchronized void recordQueued(final int queueDepth) {
+        ++queuedCount;
+        maxQueueDepth = Math.max(maxQueueDepth, queueDepth);
+    }
+
+    synchronized void recordBlocked() {
+        ++blockedCount;
+    }
+
+    synchronized void recordDropped() {
+        ++droppedCount;
+    }
+
+    synchronized void recordShed() {
+        ++shedCount;
+    }
+
+    synchronized void recordPublished(final boolean failed, final long latencyNanos) {
+        if (failed) {
+            ++failedCount;
+        } else {
+            ++publishedCount;
+        }
+        totalLatencyNanos += latencyNanos;
+        maxLatencyNanos = Math.max(maxLatencyNanos, latencyNanos);
+    }
+
+    /**
+     * Gets the number of events currently waiting in the queue.
+     *
+     * @return Depth of the queue
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Gets the largest number of events which have been waiting in the queue.
+     *
+     * @return Largest depth of the queue
+     */
+    public synchronized int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    /**
+     * Gets the capacity of the queue.
+     *
+     * @return Capacity of the queue
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Gets the number of events queued.
+     *
+     * @return Number of events
+     */
+    public synchronized long getQueuedCount() {
+        return queuedCount;
+    }
+
+    /**
+     * Gets the number of events successfully published by the handler.
+     *
+     * @return Number of events
+     */
+    public synchronized long getPublishedCount() {
+        return publishedCount;
+    }
+
+    /**
+     * Gets the number of events the handler failed to publish.
+     *
+     * @return Number of events
+     */
+    public synchronized long getFailedCount() {
+        return failedCount;
+    }
+
+    /**
+     * Gets the number of events which had to wait for room in the queue before being queued.
+     *
+     * @return Number of events
+     */
+    public synchronized long getBlockedCount() {
+        return blockedCount;
+    }
+
+    /**
+     * Gets the number of events dropped because the queue was full.
+     *
+     * @return Number of events
+     */
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * Gets the number of events of low priority topics shed because the queue was overloaded.
+     *
+     * @return Number of events
+     */
+    public synchronized long getShedCount() {
+        return shedCount;
+    }
+
+    /**
+     * Gets the number of events rejected, which were either dropped or shed.
+     *
+     * @return Number of events
+     */
+    public synchronized long getRejectedCount() {
+        return droppedCount + shedCount;
+    }
+
+    /**
+     * Gets the longest latency of an event.
+     *
+     * @param unit Unit of the result
+     * @return Longest latency
+     */
+    public synchronized long getMaxLatency(final TimeUnit unit) {
+        return unit.convert(maxLatencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the average latency of an event.
+     *
+     * @param unit Unit of the result
+     * @return Average latency, or {@code 0} if no event was handled
+     */
+    public synchronized long getAverageLatency(final TimeUnit unit) {
+        final long handledCount = publishedCount + failedCount;
+        return handledCount == 0 ? 0 : unit.convert(totalLatencyNanos / handledCount, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "HandlerDispatchMetrics[queueDepth=" + queue.size() + ", maxQueueDepth=" + maxQueueDepth
+                + ", queueCapacity=" + queueCapacity + ", queued=" + queuedCount
+                + ", published=" + publishedCount + ", failed=" + failedCount + ", blocked=" + blockedCount
+                + ", dropped=" + droppedCount + ", shed=" + shedCount
+                + ", totalLatencyNanos=" + totalLatencyNanos + ", maxLatencyNanos=" + maxLatencyNanos + "]";
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.audit;
+
+import static org.forgerock.audit.util.ResourceExceptionsUtil.adapt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.audit.HandlerDispatchConfiguration.OverloadPolicy;
+import org.forgerock.audit.events.handlers.AuditEventHandler;
+import org.forgerock.json.JsonValue;
+import org.forgerock.json.resource.ResourceException;
+import org.forgerock.json.resource.ResourceResponse;
+import org.forgerock.json.resource.ServiceUnavailableException;
+import org.forgerock.services.context.Context;
+import org.forgerock.util.Reject;
+import org.forgerock.util.promise.ExceptionHandler;
+import org.forgerock.util.promise.Promise;
+import org.forgerock.util.promise.PromiseImpl;
+import org.forgerock.util.promise.ResultHandler;
+import org.forgerock.util.promise.RuntimeExceptionHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Dispatches audit events to a single {@link AuditEventHandler} through a bounded queue, which is drained by a
+ * dedicated thread, so that the events of the handler are published in order but without delaying the publisher or
+ * the other handlers. What happens to an event when the queue is overloaded is defined by the
+ * {@link OverloadPolicy} of the handler.
+ */
+final class HandlerDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(HandlerDispatcher.class);
+
+    /** Time to wait for the queued events to be published when the dispatcher is stopped. */
+    private static final long STOP_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    /** How often a publisher waiting for room in the queue checks whether the dispatcher has been stopped. */
+    private static final long BLOCKED_POLL_MILLIS = 100;
+
+    /** Marks the end of the queue. */
+    private static final DispatchedEvent STOP = new DispatchedEvent(null, null, null, 0);
+
+    private final AuditEventHandler handler;
+    private final OverloadPolicy overloadPolicy;
+    private final Set<String> lowPriorityTopics;
+    private final int shedThreshold;
+    private final BlockingQueue<DispatchedEvent> queue;
+    private final HandlerDispatchMetrics metrics;
+    private final Thread thread;
+    private final long stopTimeoutMillis;
+    /** Set once the dispatcher is being stopped, after which events are rejected. */
+    private volatile boolean stopped;
+    /** Set once the thread publishing the queued events is done, after which queued events are failed. */
+    private volatile boolean terminated;
+
+    /**
+     * Creates a dispatcher, which must be started before dispatching events.
+     *
+     * @param handler The handler receiving the events.
+     * @param configuration The configuration of the dispatch to the handler.
+     */
+    HandlerDispatcher(final AuditEventHandler handler, final HandlerDispatchConfiguration configuration) {
+        this(handler, configuration, STOP_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Creates a dispatcher, which must be started before dispatching events.
+     *
+     * @param handler The handler receiving the events.
+     * @param configuration The configuration of the dispatch to the handler.
+     * @param stopTimeoutMillis Time to wait for the queued events to be published when the dispatcher is stopped.
+     */
+    HandlerDispatcher(final AuditEventHandler handler, final HandlerDispatchConfiguration configuration,
+            final long stopTimeoutMillis) {
+        Reject.ifTrue(configuration.getQueueCapacity() <= 0, "The queue capacity must be positive");
+        Reject.ifNull(configuration.getOverloadPolicy(), "The overload policy must be defined");
+        this.handler = handler;
+        this.overloadPolicy = configuration.getOverloadPolicy();
+        this.lowPriorityTopics = configuration.getLowPriorityTopics();
+        this.shedThreshold = configuration.getQueueCapacity() / 2;
+        this.queue = new ArrayBlockingQueue<>(configuration.getQueueCapacity());
+        this.metrics = new HandlerDispatchMetrics(queue, configuration.getQueueCapacity());
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                dispatchQueuedEvents();
+            }
+        }, "AuditDispatcher-" + handler.getName());
+        this.thread.setDaemon(true);
+        this.stopTimeoutMillis = stopTimeoutMillis;
+    }
+
+    /**
+     * Starts the thread publishing the queued events.
+     */
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Stops the dispatcher once the events already queued are published, waiting for them for a limited time.
+     * Events dispatched from then on are rejected, and the events which could not be published in that time are
+     * failed.
+     */
+    void stop() {
+        stopped = true;
+        final long deadline = System.currentTimeMillis() + stopTimeoutMillis;
+        try {
+            // the queue may be full and stay so, if the handler is slow or hung
+            if (queue.offer(STOP, stopTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            logger.warn("Timed out waiting for the queued audit events to be published to {}", handler.getName());
+            thread.interrupt();
+        }
+        terminated = true;
+        failQueuedEvents();
+    }
+
+    /**
+     * Fails the events left in the queue once the thread publishing them is done.
+     */
+    private void failQueuedEvents() {
+        final List<DispatchedEvent> remainingEvents = new ArrayList<>();
+        queue.drainTo(remainingEvents);
+        for (DispatchedEvent remainingEvent : remainingEvents) {
+            if (remainingEvent != STOP) {
+                remainingEvent.promise.handleException(newStoppedException());
+            }
+        }
+    }
+
+    private ServiceUnavailableException newStoppedException() {
+        return new ServiceUnavailableException("Audit event dispatcher of " + handler.getName() + " has been stopped");
+    }
+
+    /**
+     * Gets the metrics of the dispatch to the handler.
+     *
+     * @return The metrics.
+     */
+    HandlerDispatchMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Queues an event for publication by the handler, unless the queue is overloaded and the overload policy rejects
+     * it.
+     *
+     * @param context The context of the event.
+     * @param topic The topic of the event.
+     * @param event The event, which must not be modified afterwards.
+     * @return The promise of the result of the publication of the event by the handler, which fails with a
+     *         {@link ServiceUnavailableException} if the event is rejected or the dispatcher is stopped.
+     */
+    Promise<ResourceResponse, ResourceException> dispatch(final Context context, final String topic,
+            final JsonValue event) {
+        if (stopped) {
+            return newStoppedException().asPromise();
+        }
+        final DispatchedEvent dispatchedEvent = new DispatchedEvent(context, topic, event, System.nanoTime());
+        try {
+            if (!enqueue(dispatchedEvent)) {
+                if (stopped) {
+                    return newStoppedException().asPromise();
+                }
+                return new ServiceUnavailableException(
+                        "Audit event rejected by the overloaded queue of " + handler.getName()).asPromise();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new ServiceUnavailableException(
+                    "Interrupted while queueing audit event for " + handler.getName(), e).asPromise();
+        }
+        if (terminated) {
+            // queued after the dispatcher failed the events left in the queue, so nothing else would complete it
+            failQueuedEvents();
+        }
+        return dispatchedEvent.promise;
+    }
+
+    private boolean enqueue(final DispatchedEvent dispatchedEvent) throws InterruptedException {
+        if (overloadPolicy == OverloadPolicy.SHED && queue.size() >= shedThreshold
+                && lowPriorityTopics.contains(dispatchedEvent.topic)) {
+            metrics.recordShed();
+            logger.debug("Shed audit event of topic {} for {}", dispatchedEvent.topic, handler.getName());
+            return false;
+        }
+        if (!queue.offer(dispatchedEvent)) {
+            if (overloadPolicy == OverloadPolicy.DROP) {
+                metrics.recordDropped();
+                logger.debug("Dropped audit event of topic {} for {}", dispatchedEvent.topic, handler.getName());
+                return false;
+            }
+            metrics.recordBlocked();
+            while (!queue.offer(dispatchedEvent, BLOCKED_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (stopped) {
+                    return false;
+                }
+            }
+        }
+        metrics.recordQueued(queue.size());
+        return true;
+    }
+
+    private void dispatchQueuedEvents() {
+        try {
+            while (true) {
+                final DispatchedEvent dispatchedEvent = queue.take();
+                if (dispatchedEvent == STOP) {
+                    return;
+                }
+                publish(dispatchedEvent);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void publish(final DispatchedEvent dispatchedEvent) {
+        final String topic = dispatchedEvent.topic;
+        Promise<ResourceResponse, ResourceException> result;
+        try {
+            result = handler.publishEvent(dispatchedEvent.context, topic, dispatchedEvent.event);
+        } catch (Exception e) {
+            result = adapt(e).asPromise();
+        }
+        result.thenOnResultOrException(
+                new ResultHandler<ResourceResponse>() {
+                    @Override
+                    public void handleResult(ResourceResponse response) {
+                        recordPublished(dispatchedEvent, false);
+                        dispatchedEvent.promise.handleResult(response);
+                    }
+                },
+                new ExceptionHandler<ResourceException>() {
+                    @Override
+                    public void handleException(ResourceException exception) {
+                        logger.warn("Failure in publishing audit event of topic {} to {} : {}",
+                                topic, handler.getName(), exception.getMessage());
+                        recordPublished(dispatchedEvent, true);
+                        dispatchedEvent.promise.handleException(exception);
+                    }
+                })
+                .thenOnRuntimeException(new RuntimeExceptionHandler() {
+                    @Override
+                    public void handleRuntimeException(RuntimeException exception) {
+                        logger.warn("Failure in publishing audit event of topic {} to {} : {}",
+                                topic, handler.getName(), exception.getMessage());
+                        recordPublished(dispatchedEvent, true);
+                        dispatchedEvent.promise.handleRuntimeException(exception);
+                    }
+                });
+    }
+
+    private void recordPublished(final DispatchedEvent dispatchedEvent, final boolean failed) {
+        metrics.recordPublished(failed, System.nanoTime() - dispatchedEvent.queuedNanos);
+    }
+
+    /**
+     * An event waiting in the queue, with the promise of its publication.
+     */
+    private static final class DispatchedEvent {
+        private final Context context;
+        private final String topic;
+        private final JsonValue event;
+        private final long queuedNanos;
+        private final PromiseImpl<ResourceResponse, ResourceException> promise = PromiseImpl.create();
+
+        private DispatchedEvent(final Context context, final String topic, final JsonValue event,
+                final long queuedNanos) {
+            this.context = context;
+            this.topic = topic;
+            this.event = event;
+            this.queuedNanos = queuedNanos;
+        }
+    }
+}
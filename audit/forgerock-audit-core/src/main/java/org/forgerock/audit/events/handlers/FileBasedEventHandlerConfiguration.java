@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.events.handlers;
 
@@ -29,8 +30,10 @@ import org.forgerock.audit.retention.FreeDiskSpaceRetentionPolicy;
 import org.forgerock.audit.retention.RetentionPolicy;
 import org.forgerock.audit.retention.SizeBasedRetentionPolicy;
 import org.forgerock.audit.retention.TimeStampFileNamingPolicy;
+import org.forgerock.audit.rotation.ArchiveCompressor;
 import org.forgerock.audit.rotation.FixedTimeRotationPolicy;
 import org.forgerock.audit.rotation.RotationPolicy;
+import org.forgerock.audit.rotation.SeekableGzip;
 import org.forgerock.audit.rotation.SizeBasedRotationPolicy;
 import org.forgerock.audit.rotation.TimeLimitRotationPolicy;
 import org.forgerock.util.Reject;
@@ -53,6 +56,8 @@ public abstract class FileBasedEventHandlerConfiguration extends EventHandlerCon
     private FileRetention fileRetention = new FileRetention();
     @JsonPropertyDescription("audit.handlers.file.rotationRetentionCheckInterval")
     private String rotationRetentionCheckInterval = "5s";
+    @JsonPropertyDescription("audit.handlers.file.groupCommit")
+    private GroupCommit groupCommit = new GroupCommit();
 
     /**
      * Gets the {@link FileRotation}.
@@ -126,6 +131,24 @@ public abstract class FileBasedEventHandlerConfiguration extends EventHandlerCon
         this.rotationRetentionCheckInterval = rotationRetentionCheckInterval;
     }
 
+    /**
+     * Gets the {@link GroupCommit}.
+     * @return Not-null, The {@link GroupCommit}.
+     */
+    public GroupCommit getGroupCommit() {
+        return groupCommit;
+    }
+
+    /**
+     * Sets the {@link GroupCommit}.
+     *
+     * @param groupCommit Not-null, The {@link GroupCommit}.
+     */
+    public void setGroupCommit(final GroupCommit groupCommit) {
+        Reject.ifNull(groupCommit);
+        this.groupCommit = groupCommit;
+    }
+
     /**
      * Groups the file rotation config parameters.
      */
@@ -135,6 +158,10 @@ public abstract class FileBasedEventHandlerConfiguration extends EventHandlerCon
         public static final long NO_MAX_FILE_SIZE = -1;
         /** The default file rotation suffix format. */
         public static final String DEFAULT_ROTATION_FILE_SUFFIX = "-yyyy.MM.dd-HH.mm.ss";
+        /** The archive compression value which leaves rotated files uncompressed. */
+        public static final String NO_ARCHIVE_COMPRESSION = "none";
+        /** The archive compression value which compresses rotated files in the seekable gzip format. */
+        public static final String GZIP_ARCHIVE_COMPRESSION = "gzip";
 
         @JsonPropertyDescription("audit.handlers.file.rotationEnabled")
         private boolean rotationEnabled = false;
@@ -157,6 +184,13 @@ public abstract class FileBasedEventHandlerConfiguration extends EventHandlerCon
         @JsonPropertyDescription("audit.handlers.file.rotationInterval")
         private String rotationInterval = "disabled";
 
+        // compression of rotated files
+        @JsonPropertyDescription("audit.handlers.file.archiveCompression")
+        private String archiveCompression = NO_ARCHIVE_COMPRESSION;
+
+        @JsonPropertyDescription("audit.handlers.file.archiveCompressionBlockSize")
+        private int archiveCompressionBlockSize = SeekableGzip.DEFAULT_BLOCK_SIZE;
+
         /**
          * Gets log rotation enabled state. By default log rotation is disabled.
          * @return True - If log rotation is enabled.
@@ -291,6 +325,64 @@ public abstract class FileBasedEventHandlerConfiguration extends EventHandlerCon
             this.rotationTimes.addAll(rotationTimes);
         }
 
+        /**
+         * Gets the compression of rotated files: "none", which leaves them uncompressed, or "gzip", which compresses
+         * them in the background, in a gzip format whose blocks can be read independently, so that compressed files
+         * can still be queried. The default is "none".
+         * @return The archive compression.
+         */
+        public String getArchiveCompression() {
+            return archiveCompression;
+        }
+
+        /**
+         * Sets the compression of rotated files: "none", which leaves them uncompressed, or "gzip", which compresses
+         * them in the background, in a gzip format whose blocks can be read independently, so that compressed files
+         * can still be queried. The default is "none".
+         * @param archiveCompression The archive compression.
+         */
+        public void setArchiveCompression(String archiveCompression) {
+            this.archiveCompression = archiveCompression;
+        }
+
+        /**
+         * Gets the number of uncompressed bytes per block of compressed rotated files. Larger blocks compress better,
+         * smaller blocks make reading part of a compressed file faster. The default is 64 KiB.
+         * @return The block size in bytes.
+         */
+        public int getArchiveCompressionBlockSize() {
+            return archiveCompressionBlockSize;
+        }
+
+        /**
+         * Sets the number of uncompressed bytes per block of compressed rotated files. Larger blocks compress better,
+         * smaller blocks make reading part of a compressed file faster. The default is 64 KiB.
+         * @param archiveCompressionBlockSize The block size in bytes.
+         */
+        public void setArchiveCompressionBlockSize(int archiveCompressionBlockSize) {
+            this.archiveCompressionBlockSize = archiveCompressionBlockSize;
+        }
+
+        /**
+         * Builds an {@link ArchiveCompressor} instance from configuration options.
+         *
+         * @param sidecarSuffixes Suffixes appended to the name of a rotated file to name its sidecar files
+         * @return {@link ArchiveCompressor} instance, or {@code null} if rotated files are not compressed
+         */
+        @JsonIgnore
+        public ArchiveCompressor buildArchiveCompressor(final List<String> sidecarSuffixes) {
+            if (archiveCompression == null || NO_ARCHIVE_COMPRESSION.equalsIgnoreCase(archiveCompression)) {
+                return null;
+            }
+            if (!GZIP_ARCHIVE_COMPRESSION.equalsIgnoreCase(archiveCompression)) {
+                logger.warn("Invalid archive compression: {}; rotated files are not compressed", archiveCompression);
+                return null;
+            }
+            final int blockSize = archiveCompressionBlockSize > 0
+                    ? archiveCompressionBlockSize : SeekableGzip.DEFAULT_BLOCK_SIZE;
+            return new ArchiveCompressor(blockSize, sidecarSuffixes);
+        }
+
         /**
          * Builds a {@link TimeStampFileNamingPolicy} instance from configuration options.
          *
@@ -439,6 +531,96 @@ public abstract class FileBasedEventHandlerConfiguration extends EventHandlerCon
         }
     }
 
+    /**
+     * Groups the group commit config parameters.
+     * <p/>
+     * When group commit is enabled, events are written to the audit file in groups, and each group is forced to the
+     * storage device before the events are reported as published. A group is committed once the oldest of its events
+     * has waited for the maximum delay, or once its events reach the maximum number of bytes, whichever comes first.
+     */
+    public static class GroupCommit {
+
+        /** The default maximum delay before committing a group of events. */
+        public static final String DEFAULT_MAX_DELAY = "10ms";
+        /** The default maximum size of a group of events, in bytes. */
+        public static final long DEFAULT_MAX_BYTES = 1024 * 1024;
+
+        @JsonPropertyDescription("audit.handlers.file.groupCommitEnabled")
+        private boolean enabled = false;
+
+        @JsonPropertyDescription("audit.handlers.file.groupCommitMaxDelay")
+        private String maxDelay = DEFAULT_MAX_DELAY;
+
+        @JsonPropertyDescription("audit.handlers.file.groupCommitMaxBytes")
+        private long maxBytes = DEFAULT_MAX_BYTES;
+
+        /**
+         * Gets group commit enabled state. By default group commit is disabled.
+         * @return True - If group commit is enabled.
+         *         False - If group commit is disabled.
+         */
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        /**
+         * Sets group commit enabled state. By default group commit is disabled.
+         * @param enabled True - Enables group commit.
+         *                False - Disables group commit.
+         */
+        public void setEnabled(final boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * Gets the maximum delay before a group of events is committed. The delay should be set as a
+         * {@link Duration}. The default delay is "10ms".
+         * @return The maximum delay.
+         */
+        public String getMaxDelay() {
+            return maxDelay;
+        }
+
+        /**
+         * Sets the maximum delay before a group of events is committed. The delay should be set as a
+         * {@link Duration}. The default delay is "10ms".
+         * @param maxDelay The maximum delay.
+         */
+        public void setMaxDelay(final String maxDelay) {
+            this.maxDelay = maxDelay;
+        }
+
+        /**
+         * Gets {@link #getMaxDelay()} as a {@link Duration}, falling back to the default delay if the configured
+         * delay is invalid, zero or unlimited.
+         * @return The maximum delay.
+         */
+        @JsonIgnore
+        public Duration getMaxDelayDuration() {
+            final Duration defaultValue = Duration.duration(DEFAULT_MAX_DELAY);
+            final Duration duration = parseDuration("group commit max delay", maxDelay, defaultValue);
+            return duration.isZero() || duration.isUnlimited() ? defaultValue : duration;
+        }
+
+        /**
+         * Gets the number of bytes of events which triggers a commit before the maximum delay. A negative or zero
+         * value only commits on the maximum delay.
+         * @return The maximum number of bytes of a group of events.
+         */
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+
+        /**
+         * Sets the number of bytes of events which triggers a commit before the maximum delay. A negative or zero
+         * value only commits on the maximum delay.
+         * @param maxBytes The maximum number of bytes of a group of events.
+         */
+        public void setMaxBytes(final long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+    }
+
     private static Duration parseDuration(final String description, final String duration,
             final Duration defaultValue) {
         try {
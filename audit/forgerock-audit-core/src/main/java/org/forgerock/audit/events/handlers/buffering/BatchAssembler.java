@@ -0,0 +1,151 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.audit.events.handlers.buffering;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.forgerock.json.JsonValue;
+import org.forgerock.util.Function;
+import org.forgerock.util.promise.Promise;
+import org.slf4j.Logger;
+
+/**
+ * Builds batches for a {@link BatchConsumer} on behalf of a batch publisher, using a reusable {@code StringBuilder},
+ * or pooled {@link BatchPayload} buffers when the consumer is a {@link ByteBatchConsumer}. Errors are logged rather
+ * than thrown. This class is not thread-safe, and is intended to be used by the single thread of a publisher that
+ * builds batches.
+ */
+final class BatchAssembler {
+
+    /**
+     * The maximum number of idle payloads kept for reuse. More than one payload is needed when batches are published
+     * faster than they are sent.
+     */
+    private static final int MAX_POOLED_PAYLOADS = 4;
+
+    private final BatchConsumer batchConsumer;
+    private final ByteBatchConsumer byteBatchConsumer;
+    private final Logger logger;
+    private final int initialCapacity;
+    private final StringBuilder chars;
+    private final Queue<BatchPayload> pool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+    private BatchPayload bytes;
+
+    /**
+     * Creates a {@code BatchAssembler}.
+     *
+     * @param batchConsumer
+     *         the consumer of the batches
+     * @param initialCapacity
+     *         the initial capacity of batch buffers, in characters or bytes
+     * @param logger
+     *         the logger of the publisher
+     */
+    BatchAssembler(final BatchConsumer batchConsumer, final int initialCapacity, final Logger logger) {
+        this.batchConsumer = batchConsumer;
+        this.byteBatchConsumer = batchConsumer instanceof ByteBatchConsumer ? (ByteBatchConsumer) batchConsumer : null;
+        this.logger = logger;
+        this.initialCapacity = initialCapacity;
+        if (byteBatchConsumer != null) {
+            chars = null;
+            bytes = byteBatchConsumer.newBatchPayload(initialCapacity);
+        } else {
+            chars = new StringBuilder(initialCapacity);
+        }
+    }
+
+    /**
+     * Adds an event to the current batch.
+     *
+     * @param topic
+     *         event topic
+     * @param event
+     *         event JSON payload
+     */
+    void add(final String topic, final JsonValue event) {
+        try {
+            if (byteBatchConsumer != null) {
+                byteBatchConsumer.addToBatch(topic, event, bytes);
+            } else {
+                batchConsumer.addToBatch(topic, event, chars);
+            }
+        } catch (Exception e) {
+            logger.error("addToBatch failed", e);
+        }
+    }
+
+    /**
+     * Publishes the current batch, if it is not empty, and starts a new one.
+     */
+    void publish() {
+        try {
+            if (byteBatchConsumer != null) {
+                if (!bytes.isEmpty()) {
+                    final BatchPayload payload = bytes;
+                    bytes = acquire();
+                    payload.finish();
+                    byteBatchConsumer.publishBatch(payload)
+                            .thenAlways(new Runnable() {
+                                @Override
+                                public void run() {
+                                    release(payload);
+                                }
+                            })
+                            .thenCatch(logFailure());
+                }
+            } else if (chars.length() != 0) {
+                batchConsumer.publishBatch(chars.toString()).thenCatch(logFailure());
+            }
+        } catch (Exception e) {
+            logger.error("publishBatch failed", e);
+        } finally {
+            if (chars != null) {
+                chars.setLength(0);
+            }
+        }
+    }
+
+    private Function<BatchException, Void, BatchException> logFailure() {
+        return new Function<BatchException, Void, BatchException>() {
+            @Override
+            public Void apply(BatchException e) throws BatchException {
+                logger.error("publishBatch failed", e);
+                return null;
+            }
+        };
+    }
+
+    private BatchPayload acquire() {
+        final BatchPayload payload = pool.poll();
+        if (payload == null) {
+            return byteBatchConsumer.newBatchPayload(initialCapacity);
+        }
+        pooled.decrementAndGet();
+        return payload;
+    }
+
+    private void release(final BatchPayload payload) {
+        if (pooled.incrementAndGet() <= MAX_POOLED_PAYLOADS) {
+            payload.reset();
+            pool.offer(payload);
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.audit.events.handlers.buffering;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import org.forgerock.util.Reject;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * A reusable, growable byte buffer holding the UTF-8 encoded payload of a batch, which a {@link ByteBatchConsumer}
+ * writes events to with a Jackson {@link JsonGenerator}. The payload may optionally be gzip-compressed as it is
+ * written, so that it never exists uncompressed in memory.
+ * <p>
+ * Batch publishers pool payloads, so that the buffer of a payload is reused by subsequent batches once the
+ * {@link ByteBatchConsumer#publishBatch(BatchPayload) publication} of its batch has completed. A payload must not be
+ * referenced after that.
+ * <p>
+ * This class is not thread-safe.
+ */
+public final class BatchPayload {
+
+    private static final int GZIP_BUFFER_SIZE = 8192;
+
+    private final JsonFactory jsonFactory;
+    private final boolean compressed;
+    private final Buffer buffer;
+    private JsonGenerator generator;
+    private boolean finished;
+
+    /**
+     * Creates an empty batch payload.
+     *
+     * @param jsonFactory
+     *         the factory of the payload's JSON generator, usually that of the consumer's {@code ObjectMapper}, so
+     *         that the generator can also write arbitrary objects
+     * @param initialCapacity
+     *         the initial capacity of the buffer, in bytes
+     * @param compressed
+     *         {@code true} if the payload is to be gzip-compressed
+     */
+    public BatchPayload(final JsonFactory jsonFactory, final int initialCapacity, final boolean compressed) {
+        Reject.ifNull(jsonFactory, "jsonFactory must not be null");
+        this.jsonFactory = jsonFactory;
+        this.compressed = compressed;
+        this.buffer = new Buffer(Math.max(initialCapacity, 32));
+    }
+
+    /**
+     * Returns the generator to write events to. Root-level values are not separated, so consumers must write any
+     * separators, such as newlines, themselves (for example, using {@link JsonGenerator#writeRaw(char)}).
+     *
+     * @return the JSON generator of this payload
+     * @throws IOException
+     *         if the generator could not be created
+     */
+    public JsonGenerator getJsonGenerator() throws IOException {
+        Reject.ifTrue(finished, "Batch payload has already been finished");
+        if (generator == null) {
+            final OutputStream out = compressed ? new GZIPOutputStream(buffer, GZIP_BUFFER_SIZE) : buffer;
+            generator = jsonFactory.createGenerator(out);
+            generator.setRootValueSeparator(null);
+        }
+        return generator;
+    }
+
+    /**
+     * Indicates if nothing has been written to this payload.
+     *
+     * @return {@code true} if this payload is empty
+     */
+    public boolean isEmpty() {
+        return generator == null;
+    }
+
+    /**
+     * Indicates if this payload is gzip-compressed, in which case its bytes should be sent with a
+     * {@code Content-Encoding: gzip} header.
+     *
+     * @return {@code true} if this payload is gzip-compressed
+     */
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * Returns the number of bytes in this payload, once it has been {@link #finish() finished}.
+     *
+     * @return the size of this payload in bytes
+     */
+    public int size() {
+        return buffer.count;
+    }
+
+    /**
+     * Returns a stream over the bytes of this payload, once it has been {@link #finish() finished}, without copying
+     * them.
+     *
+     * @return a stream over the bytes of this payload
+     */
+    public InputStream newInputStream() {
+        return new ByteArrayInputStream(buffer.bytes, 0, buffer.count);
+    }
+
+    /**
+     * Returns a copy of the bytes of this payload, once it has been {@link #finish() finished}.
+     *
+     * @return the bytes of this payload
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer.bytes, buffer.count);
+    }
+
+    /**
+     * Flushes the JSON generator and completes any compression, after which nothing more can be written.
+     *
+     * @throws IOException
+     *         if the generator could not be flushed
+     */
+    void finish() throws IOException {
+        if (!finished && generator != null) {
+            // also closes (so finishes) the gzip stream, if any
+            generator.close();
+        }
+        finished = true;
+    }
+
+    /**
+     * Empties this payload, retaining its buffer, so that it can be reused for another batch.
+     */
+    void reset() {
+        if (!finished && generator != null) {
+            try {
+                generator.close();
+            } catch (IOException e) {
+                // cannot happen when writing to memory
+            }
+        }
+        generator = null;
+        finished = false;
+        buffer.count = 0;
+    }
+
+    /**
+     * An unsynchronized alternative to {@code ByteArrayOutputStream}, which exposes its array.
+     */
+    private static final class Buffer extends OutputStream {
+        private byte[] bytes;
+        private int count;
+
+        private Buffer(final int initialCapacity) {
+            bytes = new byte[initialCapacity];
+        }
+
+        @Override
+        public void write(final int b) {
+            ensureCapacity(count + 1);
+            bytes[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            ensureCapacity(count + len);
+            System.arraycopy(b, off, bytes, count, len);
+            count += len;
+        }
+
+        private void ensureCapacity(final int capacity) {
+            if (capacity > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length << 1));
+            }
+        }
+    }
+}
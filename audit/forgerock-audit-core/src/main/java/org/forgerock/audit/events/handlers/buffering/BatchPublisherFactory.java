@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.events.handlers.buffering;
 
@@ -30,4 +31,18 @@ public interface BatchPublisherFactory {
      */
     BufferedBatchPublisher.Builder newBufferedPublisher(BatchConsumer consumer);
 
+    /**
+     * Provides a new instance of a ring buffer batch publisher. The default implementation returns
+     * {@link RingBufferBatchPublisher#newBuilder(BatchConsumer)}, so that existing implementations of this interface
+     * need not implement it.
+     *
+     * @param consumer
+     *         the batch consumer
+     *
+     * @return builder instance used to help construct the ring buffer batch publisher
+     */
+    default RingBufferBatchPublisher.Builder newRingBufferPublisher(BatchConsumer consumer) {
+        return RingBufferBatchPublisher.newBuilder(consumer);
+    }
+
 }
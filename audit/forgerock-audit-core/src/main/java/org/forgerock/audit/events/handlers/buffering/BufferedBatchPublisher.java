@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.events.handlers.buffering;
 
@@ -27,7 +28,6 @@ import java.util.concurrent.TimeUnit;
 
 import org.forgerock.audit.batch.CommonAuditBatchConfiguration;
 import org.forgerock.json.JsonValue;
-import org.forgerock.util.Function;
 import org.forgerock.util.Reject;
 import org.forgerock.util.time.Duration;
 import org.slf4j.Logger;
@@ -138,8 +138,7 @@ public final class BufferedBatchPublisher implements BatchPublisher {
         private final boolean flushOnShutdown;
         private final BlockingQueue<BatchEntry> queue;
         private final List<BatchEntry> batch;
-        private final StringBuilder payload;
-        private final BatchConsumer batchEventHandler;
+        private final BatchAssembler assembler;
         private final ScheduledExecutorService scheduler;
 
         private volatile boolean shutdown;
@@ -167,10 +166,9 @@ public final class BufferedBatchPublisher implements BatchPublisher {
             this.queue = queue;
             this.flushOnShutdown = flushOnShutdown;
             this.scheduler = scheduler;
-            this.batchEventHandler = batchEventHandler;
             this.maxBatchedEvents = maxBatchedEvents;
             batch = new ArrayList<>(maxBatchedEvents);
-            payload = new StringBuilder(maxBatchedEvents * averagePerEventPayloadSize);
+            assembler = new BatchAssembler(batchEventHandler, maxBatchedEvents * averagePerEventPayloadSize, logger);
         }
 
         /**
@@ -207,28 +205,14 @@ public final class BufferedBatchPublisher implements BatchPublisher {
                 try {
                     // add to batch
                     for (final BatchEntry entry : batch) {
-                        try {
-                            batchEventHandler.addToBatch(entry.getTopic(), entry.getEvent(), payload);
-                        } catch (Exception e) {
-                            logger.error("addToBatch failed", e);
-                        }
+                        assembler.add(entry.getTopic(), entry.getEvent());
                     }
 
                     // send batch
-                    if (payload.length() != 0) {
-                        batchEventHandler.publishBatch(payload.toString())
-                                .thenCatch(new Function<BatchException, Void, BatchException>() {
-                                    @Override
-                                    public Void apply(BatchException e) throws BatchException {
-                                        logger.error("publishBatch failed", e);
-                                        return null;
-                                    }
-                                });
-                    }
+                    assembler.publish();
                 } finally {
                     // clear buffers to prepare for next batch
                     batch.clear();
-                    payload.setLength(0);
                 }
             }
         }
@@ -289,7 +273,7 @@ public final class BufferedBatchPublisher implements BatchPublisher {
         Builder maxBatchEvents(int maxBatchedEvents);
 
         /**
-         * Sets the average event payload size, used to initialise string buffers. Must be &gt;= 32.
+         * Sets the average event payload size, used to initialise batch buffers. Must be &gt;= 32.
          *
          * @param averagePerEventPayloadSize
          *         average event payload size
@@ -0,0 +1,64 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.audit.events.handlers.buffering;
+
+import org.forgerock.json.JsonValue;
+import org.forgerock.util.promise.Promise;
+
+/**
+ * A {@link BatchConsumer} that builds its batches as bytes, rather than as a {@code String}. Batch publishers use the
+ * methods of this interface in preference to those of {@link BatchConsumer}, writing events straight into pooled
+ * {@link BatchPayload} buffers that are then handed to {@link #publishBatch(BatchPayload)} without being copied.
+ */
+public interface ByteBatchConsumer extends BatchConsumer {
+
+    /**
+     * Creates a new, empty batch payload. Payloads are pooled and reused by the batch publisher.
+     *
+     * @param initialCapacity
+     *         suggested initial capacity of the payload, in bytes
+     *
+     * @return a new batch payload
+     */
+    BatchPayload newBatchPayload(int initialCapacity);
+
+    /**
+     * Writes an audit event to a batch payload. Any validation should be performed before anything is written to the
+     * payload, as an event that fails part-way through being written may leave the payload malformed.
+     *
+     * @param topic
+     *         event topic
+     * @param event
+     *         event JSON payload
+     * @param payload
+     *         batch payload
+     *
+     * @throws BatchException
+     *         indicates failure to add-to-batch
+     */
+    void addToBatch(String topic, JsonValue event, BatchPayload payload) throws BatchException;
+
+    /**
+     * Publishes the batch payload. The payload is reused once the returned promise has completed, so it must not be
+     * referenced after that.
+     *
+     * @param payload
+     *         batch payload
+     *
+     * @return a simple promise encapsulating any potential batch exception
+     */
+    Promise<Void, BatchException> publishBatch(BatchPayload payload);
+}
@@ -0,0 +1,592 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.audit.events.handlers.buffering;
+
+import static java.lang.Math.max;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.forgerock.audit.batch.CommonAuditBatchConfiguration;
+import org.forgerock.json.JsonValue;
+import org.forgerock.util.Reject;
+import org.forgerock.util.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Buffers audit events in a pre-allocated, lock-free ring buffer, from which a dedicated thread builds batches for a
+ * provided {@link BatchConsumer}. Unlike {@link BufferedBatchPublisher}, producers do not contend on a lock and no
+ * object is allocated per event: each producer claims the next sequence number with a compare-and-set, fills in the
+ * reusable slot for that sequence and then publishes it.
+ * <p>
+ * A batch is published as soon as it holds the maximum number of batched events, or once the write interval has
+ * elapsed since its first event was taken from the ring buffer. While there is nothing to consume, the consumer
+ * thread idles according to the configured {@link WaitStrategy}. What happens when the ring buffer is full is
+ * determined by the configured {@link OverflowPolicy}.
+ */
+public final class RingBufferBatchPublisher implements BatchPublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(RingBufferBatchPublisher.class);
+
+    /** How long {@link WaitStrategy#SLEEPING} and blocked producers park for between checks. */
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /** The value of the cursor once the consumer has stopped, so that no further sequence number can be claimed. */
+    private static final long CLOSED = Long.MAX_VALUE;
+
+    /**
+     * What to do with an event that is offered while the ring buffer is full.
+     */
+    public enum OverflowPolicy {
+        /** Block the producer until there is space in the ring buffer. */
+        BLOCK,
+        /** Drop the event and count it (see {@link #getDroppedEventCount()}). */
+        DROP,
+        /**
+         * Append the event to a spill file on disk, from which it is read back once the ring buffer has drained.
+         * Events are dropped and counted if the spill file cannot be written.
+         */
+        SPILL
+    }
+
+    /**
+     * How the consumer thread waits for events to be published.
+     */
+    public enum WaitStrategy {
+        /** Wait on a condition that producers signal. Lowest CPU usage, but producers may have to take a lock. */
+        BLOCKING,
+        /** Poll periodically, parking the thread in between. A good compromise between latency and CPU usage. */
+        SLEEPING,
+        /** Poll continuously, yielding the CPU in between. Low latency at the cost of CPU usage. */
+        YIELDING,
+        /** Poll continuously. Lowest latency, but occupies a whole CPU core. */
+        BUSY_SPIN
+    }
+
+    /**
+     * A reusable ring buffer slot.
+     */
+    private static final class Slot {
+        private String topic;
+        private JsonValue event;
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    /** The sequence number at which each slot was last published, so that the consumer knows it can be read. */
+    private final AtomicLongArray published;
+    /** The last sequence number claimed by a producer, or {@link #CLOSED}. */
+    private final AtomicLong cursor = new AtomicLong(-1L);
+    /** The last sequence number taken by the consumer, after which its slot may be reused. */
+    private volatile long consumed = -1L;
+
+    private final int maxBatchedEvents;
+    private final long writeIntervalNanos;
+    private final boolean flushOnShutdown;
+    private final OverflowPolicy overflowPolicy;
+    private final WaitStrategy waitStrategy;
+    private final SpillFile spillFile;
+    private final BatchAssembler assembler;
+
+    private final LongAdder droppedEvents = new LongAdder();
+    private final LongAdder spilledEvents = new LongAdder();
+    private final RingBufferMetrics metrics;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition eventsPublished = lock.newCondition();
+    private volatile boolean consumerWaiting;
+
+    private final ExecutorService executor;
+    private volatile boolean shutdown;
+
+    private RingBufferBatchPublisher(final BuilderImpl builder) throws IOException {
+        final int size = Integer.highestOneBit(builder.capacity - 1) << 1;
+        slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+        mask = size - 1;
+        published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1L);
+        }
+        maxBatchedEvents = builder.maxBatchedEvents;
+        writeIntervalNanos = builder.writeInterval.to(TimeUnit.NANOSECONDS);
+        flushOnShutdown = builder.autoFlush;
+        overflowPolicy = builder.overflowPolicy;
+        waitStrategy = builder.waitStrategy;
+        spillFile = overflowPolicy == OverflowPolicy.SPILL ? new SpillFile(builder.spillDirectory) : null;
+        assembler = new BatchAssembler(builder.batchConsumer, maxBatchedEvents * builder.averagePerEventPayloadSize,
+                logger);
+        executor = Executors.newSingleThreadExecutor();
+        metrics = new RingBufferMetrics(this, size);
+    }
+
+    /**
+     * Starts the consumer thread.
+     */
+    @Override
+    public void startup() {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                consume();
+            }
+        });
+    }
+
+    /**
+     * Stops the consumer thread, and when {@code autoFlush} is enabled, blocks until all buffered (and spilled)
+     * events have been published.
+     */
+    @Override
+    public void shutdown() {
+        if (!shutdown) {
+            shutdown = true;
+            signalConsumer();
+            executor.shutdown();
+            if (flushOnShutdown) {
+                // flush requested, so block in an non-cancelable way
+                boolean interrupted = false;
+                while (!executor.isTerminated()) {
+                    try {
+                        executor.awaitTermination(1L, TimeUnit.MINUTES);
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Publishes the event to the ring buffer. If the ring buffer is full, the event is handled according to the
+     * configured {@link OverflowPolicy}.
+     *
+     * @param topic
+     *         Event topic
+     * @param event
+     *         Event payload to index, where {@code _id} field is the identifier
+     *
+     * @return {@code true} if the event was buffered (or spilled to disk), else {@code false}
+     */
+    @Override
+    public boolean offer(final String topic, final JsonValue event) {
+        long sequence;
+        while (true) {
+            final long current = cursor.get();
+            if (shutdown || current == CLOSED) {
+                // A producer that claims a sequence number before the consumer closes the cursor is safe, as the
+                // consumer then waits for its event to be published (see consume())
+                droppedEvents.increment();
+                return false;
+            }
+            sequence = current + 1;
+            if (sequence - slots.length > consumed) {
+                // The slot for this sequence has not yet been consumed
+                switch (overflowPolicy) {
+                case DROP:
+                    droppedEvents.increment();
+                    return false;
+                case SPILL:
+                    if (spillFile.append(topic, event)) {
+                        spilledEvents.increment();
+                        signalConsumer();
+                        return true;
+                    }
+                    droppedEvents.increment();
+                    return false;
+                default:
+                    signalConsumer();
+                    LockSupport.parkNanos(PARK_NANOS);
+                    continue;
+                }
+            }
+            if (cursor.compareAndSet(current, sequence)) {
+                break;
+            }
+        }
+
+        final int index = (int) sequence & mask;
+        final Slot slot = slots[index];
+        slot.topic = topic;
+        slot.event = event;
+        published.set(index, sequence);
+        signalConsumer();
+        return true;
+    }
+
+    /**
+     * Returns the number of events currently in the ring buffer, waiting to be batched.
+     *
+     * @return the queue depth
+     */
+    public long getQueueDepth() {
+        final long current = cursor.get();
+        return current == CLOSED ? 0L : max(0L, current - consumed);
+    }
+
+    /**
+     * Returns the number of events that have been dropped, because the ring buffer was full or the publisher has been
+     * shut down, including the events still buffered at shutdown when {@code autoFlush} is disabled.
+     *
+     * @return the number of dropped events
+     */
+    public long getDroppedEventCount() {
+        return droppedEvents.sum();
+    }
+
+    /**
+     * Returns the number of events that have been spilled to disk because the ring buffer was full.
+     *
+     * @return the number of spilled events
+     */
+    public long getSpilledEventCount() {
+        return spilledEvents.sum();
+    }
+
+    /**
+     * Returns the metrics of this publisher, for the handlers to expose.
+     *
+     * @return the metrics
+     */
+    public RingBufferMetrics getMetrics() {
+        return metrics;
+    }
+
+    private void signalConsumer() {
+        if (consumerWaiting) {
+            lock.lock();
+            try {
+                eventsPublished.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * The consumer loop, run by a single thread until shutdown.
+     */
+    private void consume() {
+        int batched = 0;
+        long batchStartTime = 0L;
+        try {
+            while (true) {
+                final boolean stopping = shutdown;
+                if (stopping && !flushOnShutdown) {
+                    discardBufferedEvents(batched);
+                    break;
+                }
+                final int taken = take(maxBatchedEvents - batched);
+                if (batched == 0 && taken > 0) {
+                    batchStartTime = System.nanoTime();
+                }
+                batched += taken;
+
+                if (batched >= maxBatchedEvents
+                        || (batched > 0 && (stopping || System.nanoTime() - batchStartTime >= writeIntervalNanos))) {
+                    assembler.publish();
+                    batched = 0;
+                } else if (taken == 0) {
+                    if (stopping) {
+                        // Stop claims of further sequence numbers, unless a producer has claimed one that it has
+                        // not published yet, in which case wait for it rather than losing the event
+                        if (cursor.compareAndSet(consumed, CLOSED)) {
+                            // Everything has been flushed
+                            break;
+                        }
+                        Thread.onSpinWait();
+                        continue;
+                    }
+                    waitForEvents(batched > 0
+                            ? writeIntervalNanos - (System.nanoTime() - batchStartTime) : writeIntervalNanos);
+                }
+            }
+        } finally {
+            cursor.set(CLOSED);
+            if (spillFile != null) {
+                spillFile.close();
+            }
+        }
+    }
+
+    /**
+     * Stops claims of further sequence numbers and counts the events that will not be published as dropped: those of
+     * the batch being built and those still in the ring buffer, including any claimed but not yet published.
+     * Spilled events are kept on disk, to be published by the next publisher.
+     */
+    private void discardBufferedEvents(final int batched) {
+        long current = cursor.get();
+        while (!cursor.compareAndSet(current, CLOSED)) {
+            current = cursor.get();
+        }
+        final long discarded = batched + max(0L, current - consumed);
+        if (discarded > 0) {
+            droppedEvents.add(discarded);
+            logger.debug("Dropped {} buffered audit events on shutdown", discarded);
+        }
+    }
+
+    /**
+     * Adds up to {@code maxEvents} events to the batch payload, first from the ring buffer and then, once that is
+     * empty, from the spill file.
+     *
+     * @return the number of events taken
+     */
+    private int take(final int maxEvents) {
+        int taken = 0;
+        long next = consumed + 1;
+        while (taken < maxEvents && published.get((int) next & mask) == next) {
+            final Slot slot = slots[(int) next & mask];
+            final String topic = slot.topic;
+            final JsonValue event = slot.event;
+            slot.topic = null;
+            slot.event = null;
+            assembler.add(topic, event);
+            taken++;
+            next++;
+        }
+        consumed = next - 1;
+
+        if (taken < maxEvents && spillFile != null) {
+            taken += spillFile.drain(maxEvents - taken, new SpillFile.EventHandler() {
+                @Override
+                public void handle(final String topic, final JsonValue event) {
+                    assembler.add(topic, event);
+                }
+            });
+        }
+        return taken;
+    }
+
+    private boolean hasPublishedEvents() {
+        final long next = consumed + 1;
+        return published.get((int) next & mask) == next || (spillFile != null && !spillFile.isEmpty());
+    }
+
+    private void waitForEvents(final long timeoutNanos) {
+        switch (waitStrategy) {
+        case BUSY_SPIN:
+            Thread.onSpinWait();
+            break;
+        case YIELDING:
+            Thread.yield();
+            break;
+        case SLEEPING:
+            LockSupport.parkNanos(Math.min(PARK_NANOS, max(timeoutNanos, 1L)));
+            break;
+        default:
+            lock.lock();
+            try {
+                consumerWaiting = true;
+                // Re-check under the lock, as a producer may have published before seeing consumerWaiting
+                if (!shutdown && !hasPublishedEvents() && timeoutNanos > 0) {
+                    eventsPublished.awaitNanos(timeoutNanos);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                consumerWaiting = false;
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Provides a new builder.
+     *
+     * @param batchConsumer
+     *         a non-null batch consumer
+     *
+     * @return a new builder
+     */
+    public static Builder newBuilder(final BatchConsumer batchConsumer) {
+        return new BuilderImpl(batchConsumer);
+    }
+
+    /**
+     * Builder used to construct a new {@link RingBufferBatchPublisher}.
+     */
+    public interface Builder extends BufferedBatchPublisher.Builder {
+
+        /**
+         * Sets the ring buffer capacity, which is rounded up to a power of two. Must be &gt;= 10000.
+         *
+         * @param capacity
+         *         ring buffer capacity
+         *
+         * @return this builder
+         */
+        @Override
+        Builder capacity(int capacity);
+
+        @Override
+        Builder maxBatchEvents(int maxBatchedEvents);
+
+        @Override
+        Builder averagePerEventPayloadSize(int averagePerEventPayloadSize);
+
+        /**
+         * The maximum time that an event waits in a partial batch before the batch is published. Must be &gt; 0.
+         *
+         * @param writeInterval
+         *         write interval
+         *
+         * @return this builder
+         */
+        @Override
+        Builder writeInterval(Duration writeInterval);
+
+        @Override
+        Builder autoFlush(boolean autoFlush);
+
+        /**
+         * Sets what to do with events offered while the ring buffer is full. Defaults to
+         * {@link OverflowPolicy#DROP}.
+         *
+         * @param overflowPolicy
+         *         the overflow policy, or {@code null} for the default
+         *
+         * @return this builder
+         */
+        Builder overflowPolicy(OverflowPolicy overflowPolicy);
+
+        /**
+         * Sets how the consumer thread waits for events. Defaults to {@link WaitStrategy#BLOCKING}.
+         *
+         * @param waitStrategy
+         *         the wait strategy, or {@code null} for the default
+         *
+         * @return this builder
+         */
+        Builder waitStrategy(WaitStrategy waitStrategy);
+
+        /**
+         * Sets the directory to which events are spilled when the ring buffer is full. Required by
+         * {@link OverflowPolicy#SPILL}. Events spilled but not published before a previous shutdown are published
+         * once the publisher is started.
+         *
+         * @param spillDirectory
+         *         the spill directory
+         *
+         * @return this builder
+         */
+        Builder spillDirectory(Path spillDirectory);
+    }
+
+    private static final class BuilderImpl implements Builder {
+
+        private static final int MIN_QUEUE_SIZE = 10000;
+        private static final int MIN_BATCH_SIZE = 500;
+        private static final int MIN_PER_EVENT_PAYLOAD_SIZE = 32;
+
+        private final BatchConsumer batchConsumer;
+
+        private int capacity;
+        private int maxBatchedEvents;
+        private int averagePerEventPayloadSize;
+        private Duration writeInterval;
+        private boolean autoFlush;
+        private OverflowPolicy overflowPolicy;
+        private WaitStrategy waitStrategy;
+        private Path spillDirectory;
+
+        private BuilderImpl(final BatchConsumer batchConsumer) {
+            Reject.ifNull(batchConsumer, "batchConsumer must not be null");
+            this.batchConsumer = batchConsumer;
+            capacity = MIN_QUEUE_SIZE;
+            maxBatchedEvents = MIN_BATCH_SIZE;
+            averagePerEventPayloadSize = MIN_PER_EVENT_PAYLOAD_SIZE;
+            writeInterval = CommonAuditBatchConfiguration.POLLING_INTERVAL;
+            overflowPolicy = OverflowPolicy.DROP;
+            waitStrategy = WaitStrategy.BLOCKING;
+        }
+
+        @Override
+        public Builder capacity(final int capacity) {
+            this.capacity = max(capacity, MIN_QUEUE_SIZE);
+            return this;
+        }
+
+        @Override
+        public Builder maxBatchEvents(final int maxBatchedEvents) {
+            this.maxBatchedEvents = max(maxBatchedEvents, MIN_BATCH_SIZE);
+            return this;
+        }
+
+        @Override
+        public Builder averagePerEventPayloadSize(final int averagePerEventPayloadSize) {
+            this.averagePerEventPayloadSize = max(averagePerEventPayloadSize, MIN_PER_EVENT_PAYLOAD_SIZE);
+            return this;
+        }
+
+        @Override
+        public Builder writeInterval(final Duration writeInterval) {
+            this.writeInterval = (writeInterval != null && writeInterval.getValue() > 0)
+                    ? writeInterval : CommonAuditBatchConfiguration.POLLING_INTERVAL;
+            return this;
+        }
+
+        @Override
+        public Builder autoFlush(final boolean autoFlush) {
+            this.autoFlush = autoFlush;
+            return this;
+        }
+
+        @Override
+        public Builder overflowPolicy(final OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy != null ? overflowPolicy : OverflowPolicy.DROP;
+            return this;
+        }
+
+        @Override
+        public Builder waitStrategy(final WaitStrategy waitStrategy) {
+            this.waitStrategy = waitStrategy != null ? waitStrategy : WaitStrategy.BLOCKING;
+            return this;
+        }
+
+        @Override
+        public Builder spillDirectory(final Path spillDirectory) {
+            this.spillDirectory = spillDirectory;
+            return this;
+        }
+
+        @Override
+        public BatchPublisher build() {
+            Reject.ifTrue(overflowPolicy == OverflowPolicy.SPILL && spillDirectory == null,
+                    "spillDirectory is required by the SPILL overflow policy");
+            try {
+                return new RingBufferBatchPublisher(this);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to open spill directory " + spillDirectory, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.audit.events.handlers.buffering;
+
+/**
+ * Metrics of a {@link RingBufferBatchPublisher}: how many events wait in its ring buffer, and how many events were
+ * dropped or spilled to disk because the ring buffer was full.
+ * <p>
+ * The metrics are read from the publisher when requested, and so may be read by any thread.
+ */
+public final class RingBufferMetrics {
+
+    private final RingBufferBatchPublisher publisher;
+    private final int capacity;
+
+    /**
+     * Creates the metrics of a publisher.
+     *
+     * @param publisher Publisher of the metrics
+     * @param capacity Capacity of the ring buffer of the publisher
+     */
+    RingBufferMetrics(final RingBufferBatchPublisher publisher, final int capacity) {
+        this.publisher = publisher;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Gets the number of events waiting in the ring buffer to be batched.
+     *
+     * @return Queue depth
+     */
+    public long getQueueDepth() {
+        return publisher.getQueueDepth();
+    }
+
+    /**
+     * Gets the capacity of the ring buffer, beyond which the overflow policy applies.
+     *
+     * @return Capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the number of events dropped, because the ring buffer was full or the publisher was shut down before
+     * publishing them.
+     *
+     * @return Number of events
+     */
+    public long getDroppedEventCount() {
+        return publisher.getDroppedEventCount();
+    }
+
+    /**
+     * Gets the number of events spilled to disk because the ring buffer was full.
+     *
+     * @return Number of events
+     */
+    public long getSpilledEventCount() {
+        return publisher.getSpilledEventCount();
+    }
+
+    @Override
+    public String toString() {
+        return "RingBufferMetrics[queueDepth=" + getQueueDepth() + ", capacity=" + capacity
+                + ", dropped=" + getDroppedEventCount() + ", spilled=" + getSpilledEventCount() + "]";
+    }
+}
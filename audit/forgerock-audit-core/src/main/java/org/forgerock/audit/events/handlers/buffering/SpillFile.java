@@ -0,0 +1,271 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.audit.events.handlers.buffering;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.forgerock.json.JsonValue;
+import org.forgerock.json.JsonValueException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Overflow storage for a {@link RingBufferBatchPublisher}. Any number of producers append events, one JSON object
+ * per line, to the current spill file, while the single consumer thread rolls that file over and reads events back
+ * from it. Spill files are deleted once fully read, so files left over from a previous run are read back first.
+ * <p>
+ * When closed part way through a file, the number of bytes already read from it is saved to a sibling offset file, so
+ * that the next instance resumes reading after the events that have already been published.
+ */
+final class SpillFile {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpillFile.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String PREFIX = "spill-";
+    private static final String SUFFIX = ".jsonl";
+    private static final String OFFSET_SUFFIX = ".offset";
+    private static final String TOPIC = "topic";
+    private static final String EVENT = "event";
+
+    /**
+     * Receives the events read back from the spill files.
+     */
+    interface EventHandler {
+        void handle(String topic, JsonValue event);
+    }
+
+    private final Path directory;
+    private final Object writeLock = new Object();
+    private long fileCount;
+
+    /** The file currently being appended to, guarded by {@code writeLock}. */
+    private Path writePath;
+    /** Written under {@code writeLock}, but may be read without it to check whether there are spilled events. */
+    private volatile Writer writer;
+
+    /** Files that are no longer appended to, oldest first. Only accessed by the consumer thread. */
+    private final Deque<Path> readable = new ArrayDeque<>();
+    private Path readPath;
+    private BufferedReader reader;
+    /** The number of bytes read from {@code readPath}. */
+    private long readOffset;
+
+    SpillFile(final Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        final List<Path> leftovers = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                leftovers.add(file);
+            }
+        }
+        Collections.sort(leftovers);
+        readable.addAll(leftovers);
+        fileCount = System.currentTimeMillis();
+    }
+
+    /**
+     * Appends an event to the current spill file. May be called concurrently by any number of threads.
+     *
+     * @return {@code true} if the event was written, or {@code false} if it could not be
+     */
+    boolean append(final String topic, final JsonValue event) {
+        final Map<String, Object> entry = new LinkedHashMap<>(2);
+        entry.put(TOPIC, topic);
+        entry.put(EVENT, event.getObject());
+        try {
+            final String line = MAPPER.writeValueAsString(entry);
+            synchronized (writeLock) {
+                if (writer == null) {
+                    do {
+                        writePath = directory.resolve(String.format("%s%020d%s", PREFIX, fileCount++, SUFFIX));
+                    } while (Files.exists(writePath));
+                    writer = Files.newBufferedWriter(writePath, UTF_8, CREATE_NEW, WRITE);
+                }
+                writer.write(line);
+                writer.write('\n');
+                writer.flush();
+            }
+            return true;
+        } catch (IOException e) {
+            logger.error("Unable to spill audit event to " + directory, e);
+            return false;
+        }
+    }
+
+    /**
+     * Whether there are spilled events that have not yet been read back. Only called by the consumer thread.
+     */
+    boolean isEmpty() {
+        return reader == null && readable.isEmpty() && writer == null;
+    }
+
+    /**
+     * Reads back up to {@code maxEvents} spilled events, oldest first. Only called by the consumer thread.
+     *
+     * @return the number of events read
+     */
+    int drain(final int maxEvents, final EventHandler handler) {
+        int count = 0;
+        while (count < maxEvents && openNextReader()) {
+            final String line;
+            try {
+                line = reader.readLine();
+            } catch (IOException e) {
+                // Keep the file, so that the next instance can retry from where reading stopped
+                logger.error("Unable to read spilled audit events from " + readPath, e);
+                closeReader(false);
+                continue;
+            }
+            if (line == null) {
+                closeReader(true);
+                continue;
+            }
+            // Events are written with a trailing line feed, and without any carriage return
+            readOffset += line.getBytes(UTF_8).length + 1;
+            if (line.isEmpty()) {
+                continue;
+            }
+            try {
+                final JsonValue entry = new JsonValue(MAPPER.readValue(line, Object.class));
+                handler.handle(entry.get(TOPIC).asString(), entry.get(EVENT));
+                count++;
+            } catch (JsonProcessingException | JsonValueException e) {
+                // Only skip this line: it is most likely the truncated last line of a file written before a crash,
+                // in which case reaching the end of the file next deletes it
+                logger.error("Skipping corrupt spilled audit event in " + readPath, e);
+            }
+        }
+        return count;
+    }
+
+    private boolean openNextReader() {
+        if (reader != null) {
+            return true;
+        }
+        if (readable.isEmpty()) {
+            synchronized (writeLock) {
+                if (writer == null) {
+                    return false;
+                }
+                closeQuietly(writer);
+                writer = null;
+                readable.add(writePath);
+            }
+        }
+        readPath = readable.poll();
+        try {
+            readOffset = readOffset(readPath);
+            final InputStream in = Files.newInputStream(readPath);
+            try {
+                long skipped = 0L;
+                while (skipped < readOffset) {
+                    final long n = in.skip(readOffset - skipped);
+                    if (n <= 0) {
+                        break;
+                    }
+                    skipped += n;
+                }
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+            reader = new BufferedReader(new InputStreamReader(in, UTF_8));
+            return true;
+        } catch (IOException e) {
+            logger.error("Unable to read spilled audit events from " + readPath, e);
+            return !readable.isEmpty() && openNextReader();
+        }
+    }
+
+    private void closeReader(final boolean delete) {
+        closeQuietly(reader);
+        reader = null;
+        final Path offsetPath = offsetPath(readPath);
+        try {
+            if (delete) {
+                Files.deleteIfExists(readPath);
+                Files.deleteIfExists(offsetPath);
+            } else {
+                Files.write(offsetPath, Long.toString(readOffset).getBytes(UTF_8));
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to " + (delete ? "delete" : "save read offset of") + " spill file " + readPath, e);
+        }
+    }
+
+    private static long readOffset(final Path path) {
+        final Path offsetPath = offsetPath(path);
+        if (!Files.exists(offsetPath)) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(new String(Files.readAllBytes(offsetPath), UTF_8).trim());
+        } catch (IOException | NumberFormatException e) {
+            logger.warn("Ignoring unreadable read offset of spill file " + path, e);
+            return 0L;
+        }
+    }
+
+    private static Path offsetPath(final Path path) {
+        return path.resolveSibling(path.getFileName() + OFFSET_SUFFIX);
+    }
+
+    /**
+     * Closes any open files. Unread events are kept on disk, along with how far the current file has been read, so
+     * that the next instance reads back only the events that have not been published.
+     */
+    void close() {
+        if (reader != null) {
+            closeReader(false);
+        }
+        synchronized (writeLock) {
+            if (writer != null) {
+                closeQuietly(writer);
+                writer = null;
+            }
+        }
+    }
+
+    private static void closeQuietly(final Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            logger.warn("Unable to close spill file", e);
+        }
+    }
+}
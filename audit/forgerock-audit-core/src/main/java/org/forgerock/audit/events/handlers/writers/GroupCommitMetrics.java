@@ -0,0 +1,162 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.audit.events.handlers.writers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics of the group commits of an audit file writer: how many events and bytes each commit forces to the storage
+ * device, and how long forcing them takes.
+ * <p>
+ * Commits are recorded by the thread committing the events of the writer, and the metrics may be read by any thread.
+ */
+public final class GroupCommitMetrics {
+
+    private long commitCount;
+    private long failedCommitCount;
+    private long eventCount;
+    private long byteCount;
+    private int maxCommitEventCount;
+    private long maxCommitByteCount;
+    private long totalForceNanos;
+    private long maxForceNanos;
+
+    /**
+     * Records a successful commit.
+     *
+     * @param events Number of events committed
+     * @param bytes Number of bytes committed
+     * @param forceNanos Time taken to force the events to the storage device, in nanoseconds
+     */
+    public synchronized void recordCommit(final int events, final long bytes, final long forceNanos) {
+        ++commitCount;
+        eventCount += events;
+        byteCount += bytes;
+        maxCommitEventCount = Math.max(maxCommitEventCount, events);
+        maxCommitByteCount = Math.max(maxCommitByteCount, bytes);
+        totalForceNanos += forceNanos;
+        maxForceNanos = Math.max(maxForceNanos, forceNanos);
+    }
+
+    /**
+     * Records a commit which failed to write or force its events, which are then reported as failed.
+     */
+    public synchronized void recordFailure() {
+        ++failedCommitCount;
+    }
+
+    /**
+     * Gets the number of successful commits.
+     *
+     * @return Number of commits
+     */
+    public synchronized long getCommitCount() {
+        return commitCount;
+    }
+
+    /**
+     * Gets the number of commits which failed.
+     *
+     * @return Number of failed commits
+     */
+    public synchronized long getFailedCommitCount() {
+        return failedCommitCount;
+    }
+
+    /**
+     * Gets the number of events committed.
+     *
+     * @return Number of events
+     */
+    public synchronized long getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Gets the number of bytes committed.
+     *
+     * @return Number of bytes
+     */
+    public synchronized long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * Gets the largest number of events of a single commit.
+     *
+     * @return Number of events
+     */
+    public synchronized int getMaxCommitEventCount() {
+        return maxCommitEventCount;
+    }
+
+    /**
+     * Gets the largest number of bytes of a single commit.
+     *
+     * @return Number of bytes
+     */
+    public synchronized long getMaxCommitByteCount() {
+        return maxCommitByteCount;
+    }
+
+    /**
+     * Gets the average number of events of a commit.
+     *
+     * @return Average number of events, or {@code 0} if nothing was committed
+     */
+    public synchronized double getAverageCommitEventCount() {
+        return commitCount == 0 ? 0 : (double) eventCount / commitCount;
+    }
+
+    /**
+     * Gets the total time spent forcing events to the storage device.
+     *
+     * @param unit Unit of the result
+     * @return Total time
+     */
+    public synchronized long getTotalForceTime(final TimeUnit unit) {
+        return unit.convert(totalForceNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the longest time a single commit spent forcing events to the storage device.
+     *
+     * @param unit Unit of the result
+     * @return Longest time
+     */
+    public synchronized long getMaxForceTime(final TimeUnit unit) {
+        return unit.convert(maxForceNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the average time a commit spent forcing events to the storage device.
+     *
+     * @param unit Unit of the result
+     * @return Average time, or {@code 0} if nothing was committed
+     */
+    public synchronized long getAverageForceTime(final TimeUnit unit) {
+        return commitCount == 0 ? 0 : unit.convert(totalForceNanos / commitCount, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "GroupCommitMetrics[commits=" + commitCount + ", failedCommits=" + failedCommitCount
+                + ", events=" + eventCount + ", bytes=" + byteCount
+                + ", maxCommitEvents=" + maxCommitEventCount + ", maxCommitBytes=" + maxCommitByteCount
+                + ", totalForceNanos=" + totalForceNanos + ", maxForceNanos=" + maxForceNanos + "]";
+    }
+}
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.audit.events.handlers.writers;
@@ -23,25 +24,35 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock.ReadLock;
 
 import org.forgerock.audit.events.handlers.FileBasedEventHandlerConfiguration;
+import org.forgerock.audit.query.EventBlockIndex;
 import org.forgerock.audit.retention.FileNamingPolicy;
 import org.forgerock.audit.retention.RetentionPolicy;
+import org.forgerock.audit.rotation.ArchiveCompressor;
 import org.forgerock.audit.rotation.RotatableObject;
 import org.forgerock.audit.rotation.RotationContext;
 import org.forgerock.audit.rotation.RotationHooks;
 import org.forgerock.audit.rotation.RotationPolicy;
 import org.forgerock.util.annotations.VisibleForTesting;
+import org.forgerock.util.promise.Promise;
+import org.forgerock.util.promise.PromiseImpl;
+import org.forgerock.util.promise.Promises;
 import org.forgerock.util.time.Duration;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -50,6 +61,13 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Creates an {@link RotatableWriter} that supports file rotation and retention.
+ * <p>
+ * Rotated files are compressed in the background when {@link FileBasedEventHandlerConfiguration.FileRotation
+ * archive compression} is enabled.
+ * <p>
+ * When {@link FileBasedEventHandlerConfiguration.GroupCommit group commit} is enabled, text written is forced to the
+ * storage device in groups, by a committer thread, and {@link #commit()} tells when the text written so far has been
+ * forced.
  */
 public class RotatableWriter implements TextWriter, RotatableObject {
 
@@ -69,8 +87,29 @@ public class RotatableWriter implements TextWriter, RotatableObject {
     private MeteredStream meteredStream;
     /** The underlying buffered writer using the output stream. */
     private BufferedWriter writer;
+    /** The channel of the underlying output stream. */
+    private FileChannel channel;
     private final ReentrantReadWriteLock readWriteLock = new ReentrantReadWriteLock();
     private final RolloverLifecycleHook rolloverLifecycleHook;
+    /** Compressor of the rotated files, or {@code null} if they are not compressed. */
+    private final ArchiveCompressor archiveCompressor;
+    private final boolean groupCommitEnabled;
+    private final long groupCommitMaxBytes;
+    private final GroupCommitMetrics groupCommitMetrics = new GroupCommitMetrics();
+    private ScheduledExecutorService committer;
+    /** Object guarding the promises of the text written since the last commit. */
+    private final Object commitLock = new Object();
+    private List<PromiseImpl<Void, IOException>> pendingCommits = new ArrayList<>();
+    /** Number of characters written since the last commit. */
+    private final AtomicLong uncommittedChars = new AtomicLong();
+    /** Whether a commit has been requested before the maximum delay, because enough text was written. */
+    private final AtomicBoolean commitRequested = new AtomicBoolean(false);
+    private final Runnable commitTask = new Runnable() {
+        @Override
+        public void run() {
+            commitPending();
+        }
+    };
 
     /**
      * Constructs a {@link RotatableWriter} given an initial file to manage rotation/retention, and
@@ -123,10 +162,20 @@ public class RotatableWriter implements TextWriter, RotatableObject {
                 ? new DateTime(file.lastModified(), DateTimeZone.UTC)
                 : DateTime.now(DateTimeZone.UTC);
         this.rolloverLifecycleHook = rolloverLifecycleHook;
+        this.groupCommitEnabled = configuration.getGroupCommit().isEnabled();
+        this.groupCommitMaxBytes = configuration.getGroupCommit().getMaxBytes();
         this.writer = constructWriter(file, append);
         retentionPolicies = configuration.getFileRetention().buildRetentionPolicies();
         rotationPolicies = configuration.getFileRotation().buildRotationPolicies();
+        archiveCompressor = configuration.getFileRotation().buildArchiveCompressor(
+                Collections.singletonList(EventBlockIndex.INDEX_FILE_SUFFIX));
+        if (archiveCompressor != null) {
+            archiveCompressor.compressArchives(fileNamingPolicy);
+        }
         scheduleRotationAndRetentionChecks(configuration);
+        if (groupCommitEnabled) {
+            scheduleCommits(configuration.getGroupCommit().getMaxDelayDuration());
+        }
     }
 
     /**
@@ -184,16 +233,25 @@ public class RotatableWriter implements TextWriter, RotatableObject {
             File newFile = fileNamingPolicy.getNextName();
             context.setNextFile(newFile);
             rotationHooks.preRotationAction(context);
+            if (groupCommitEnabled) {
+                // text awaiting commit must be forced before its file is closed
+                writer.flush();
+                channel.force(false);
+            }
             writer.close();
             if (logger.isTraceEnabled()) {
                 logger.trace("Renaming {} to {}", currentFile.getAbsolutePath(), newFile.getAbsolutePath());
             }
             if (currentFile.renameTo(newFile)) {
                 rotationHappened = true;
+                EventBlockIndex.archive(currentFile.toPath(), newFile.toPath());
                 if (currentFile.createNewFile()) {
                     writer = constructWriter(currentFile, true);
                     context.setWriter(writer);
                     rotationHooks.postRotationAction(context);
+                    if (archiveCompressor != null) {
+                        archiveCompressor.compress(newFile.toPath());
+                    }
                 } else {
                     logger.error("Unable to resume writing to audit file {}; further events will not be logged",
                             currentFile.toString());
@@ -226,6 +284,10 @@ public class RotatableWriter implements TextWriter, RotatableObject {
                     logger.warn("Could not delete file {}", file.getAbsolutePath());
                 }
             }
+            final File indexFile = EventBlockIndex.indexPathFor(file.toPath()).toFile();
+            if (indexFile.exists() && !indexFile.delete() && logger.isWarnEnabled()) {
+                logger.warn("Could not delete file {}", indexFile.getAbsolutePath());
+            }
         }
     }
 
@@ -252,24 +314,36 @@ public class RotatableWriter implements TextWriter, RotatableObject {
     @Override
     public void close() throws IOException {
         if (rotator != null) {
-            boolean interrupted = false;
-            rotator.shutdown();
-            try {
-                while (!rotator.awaitTermination(500, MILLISECONDS)) {
-                    logger.debug("Waiting to terminate the rotator thread.");
-                }
-            } catch (InterruptedException ex) {
-                logger.error("Unable to terminate the rotator thread", ex);
-                interrupted = true;
-            } finally {
-                if (interrupted) {
-                    Thread.currentThread().interrupt();
-                }
-            }
+            awaitTermination(rotator, "rotator");
+        }
+        if (committer != null) {
+            awaitTermination(committer, "committer");
+            // the final commit reports the pending promises, which no longer wait for the committer
+            commitPending();
+        }
+        if (archiveCompressor != null) {
+            archiveCompressor.close();
         }
         writer.close();
     }
 
+    private static void awaitTermination(final ScheduledExecutorService executor, final String name) {
+        boolean interrupted = false;
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(500, MILLISECONDS)) {
+                logger.debug("Waiting to terminate the {} thread.", name);
+            }
+        } catch (InterruptedException ex) {
+            logger.error("Unable to terminate the {} thread", name, ex);
+            interrupted = true;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     @Override
     public void shutdown() {
         try {
@@ -297,9 +371,95 @@ public class RotatableWriter implements TextWriter, RotatableObject {
         } finally {
             lock.unlock();
         }
+        if (groupCommitEnabled) {
+            uncommittedChars.addAndGet(str.length());
+        }
         rotateIfNeeded();
     }
 
+    /**
+     * Gets a promise completed once the text written so far is forced to the storage device. The text is forced
+     * with any other text written until the next group commit, which happens after the maximum delay, or once the
+     * maximum number of bytes is written, which is approximated by the number of characters.
+     * <p>
+     * If group commit is disabled, the text written so far is flushed, and the promise is already completed.
+     *
+     * @return Promise completed once the text written so far is forced, or failed if it cannot be forced
+     */
+    public Promise<Void, IOException> commit() {
+        if (!groupCommitEnabled) {
+            try {
+                flush();
+                return Promises.newResultPromise(null);
+            } catch (IOException e) {
+                return Promises.newExceptionPromise(e);
+            }
+        }
+        final PromiseImpl<Void, IOException> promise = PromiseImpl.create();
+        synchronized (commitLock) {
+            pendingCommits.add(promise);
+        }
+        if (groupCommitMaxBytes > 0 && uncommittedChars.get() >= groupCommitMaxBytes
+                && commitRequested.compareAndSet(false, true)) {
+            try {
+                committer.execute(commitTask);
+            } catch (RejectedExecutionException e) {
+                // the writer is closing, and the final commit reports the promise
+                commitRequested.set(false);
+            }
+        }
+        return promise;
+    }
+
+    /**
+     * Gets the metrics of the group commits of this writer, which are empty when group commit is disabled.
+     *
+     * @return Group commit metrics
+     */
+    public GroupCommitMetrics getGroupCommitMetrics() {
+        return groupCommitMetrics;
+    }
+
+    /**
+     * Forces the text written so far to the storage device, and then completes the promises of the text written
+     * before the commit started.
+     */
+    private void commitPending() {
+        commitRequested.set(false);
+        final List<PromiseImpl<Void, IOException>> promises;
+        synchronized (commitLock) {
+            if (pendingCommits.isEmpty()) {
+                return;
+            }
+            promises = pendingCommits;
+            pendingCommits = new ArrayList<>();
+        }
+        final long chars = uncommittedChars.getAndSet(0);
+        try {
+            final long forceNanos;
+            final ReadLock lock = readWriteLock.readLock();
+            lock.lock();
+            try {
+                writer.flush();
+                final long start = System.nanoTime();
+                channel.force(false);
+                forceNanos = System.nanoTime() - start;
+            } finally {
+                lock.unlock();
+            }
+            groupCommitMetrics.recordCommit(promises.size(), chars, forceNanos);
+            for (final PromiseImpl<Void, IOException> promise : promises) {
+                promise.handleResult(null);
+            }
+        } catch (IOException e) {
+            logger.error("Unable to commit audit file {}", file.getAbsolutePath(), e);
+            groupCommitMetrics.recordFailure();
+            for (final PromiseImpl<Void, IOException> promise : promises) {
+                promise.handleException(e);
+            }
+        }
+    }
+
     /**
      * Forces a rotation of the writer.
      *
@@ -326,6 +486,7 @@ public class RotatableWriter implements TextWriter, RotatableObject {
     private BufferedWriter constructWriter(File csvFile, boolean append)
             throws IOException {
         FileOutputStream stream = new FileOutputStream(csvFile, append);
+        channel = stream.getChannel();
         meteredStream = new MeteredStream(stream, file.length());
         OutputStreamWriter osw = new OutputStreamWriter(meteredStream, StandardCharsets.UTF_8);
         return new BufferedWriter(osw);
@@ -377,6 +538,17 @@ public class RotatableWriter implements TextWriter, RotatableObject {
         }
     }
 
+    /**
+     * Schedule group commits, every maximum delay.
+     */
+    private void scheduleCommits(final Duration maxDelay) {
+        committer = Executors.newScheduledThreadPool(1);
+        committer.scheduleWithFixedDelay(commitTask,
+                maxDelay.to(TimeUnit.MICROSECONDS),
+                maxDelay.to(TimeUnit.MICROSECONDS),
+                TimeUnit.MICROSECONDS);
+    }
+
     private Duration parseDuration(String description, String duration, Duration defaultValue) {
         try {
             return Duration.duration(duration);
@@ -0,0 +1,289 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.audit.query;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Summary of a block of consecutive events of an audit file: the range of their timestamps, and a Bloom filter of
+ * the values of each of the {@link #BLOOM_FIELDS}. String values are compared ignoring case, as query filters do.
+ */
+final class EventBlock {
+
+    /** Field holding the event timestamp. */
+    static final String TIMESTAMP_FIELD = "timestamp";
+
+    /** Fields whose values are added to a Bloom filter. */
+    static final String[] BLOOM_FIELDS = { "transactionId", "userId" };
+
+    private static final int HASH_COUNT = 5;
+    private static final int HAS_TIMESTAMPS = 1;
+    private static final int ALL_TIMESTAMPS = 1 << 1;
+    private static final int ALL_BLOOM_FIELDS = 1 << 2;
+    private static final int OTHER_TIMESTAMPS = 1 << 7;
+
+    private final long start;
+    private long end;
+    private int count;
+    private String minTimestamp;
+    private String maxTimestamp;
+    /** Whether every event has a string or {@code null} timestamp, which matches equality filters only if equal. */
+    private boolean allTimestamps = true;
+    /** Whether some event has a timestamp which is neither a string nor {@code null}, such as a list. */
+    private boolean otherTimestamps;
+    private final long[][] blooms;
+    /** Whether every event has a string or {@code null} value for each of the {@link #BLOOM_FIELDS}. */
+    private final boolean[] allBloomFields;
+
+    /**
+     * Creates an empty block.
+     *
+     * @param start Offset of the first event of the block
+     * @param bloomBits Number of bits of each Bloom filter, which is a multiple of 64
+     */
+    EventBlock(final long start, final int bloomBits) {
+        this.start = start;
+        this.end = start;
+        this.blooms = new long[BLOOM_FIELDS.length][bloomBits / 64];
+        this.allBloomFields = new boolean[BLOOM_FIELDS.length];
+        for (int i = 0; i < allBloomFields.length; ++i) {
+            allBloomFields[i] = true;
+        }
+    }
+
+    /**
+     * Adds the event under a cursor to this block.
+     *
+     * @param cursor Cursor
+     */
+    void add(final RecordCursor cursor) {
+        final Object timestamp = cursor.getField(TIMESTAMP_FIELD);
+        if (timestamp instanceof String) {
+            final String value = (String) timestamp;
+            if (minTimestamp == null || value.compareToIgnoreCase(minTimestamp) < 0) {
+                minTimestamp = value;
+            }
+            if (maxTimestamp == null || value.compareToIgnoreCase(maxTimestamp) > 0) {
+                maxTimestamp = value;
+            }
+        } else if (timestamp != RecordCursor.NULL_VALUE) {
+            allTimestamps = false;
+            otherTimestamps |= timestamp != null;
+        }
+        for (int i = 0; i < BLOOM_FIELDS.length; ++i) {
+            final Object value = cursor.getField(BLOOM_FIELDS[i]);
+            if (value instanceof String) {
+                addToBloom(blooms[i], (String) value);
+            } else if (value != RecordCursor.NULL_VALUE) {
+                allBloomFields[i] = false;
+            }
+        }
+        end = cursor.getEndOffset();
+        ++count;
+    }
+
+    long getStart() {
+        return start;
+    }
+
+    long getEnd() {
+        return end;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the smallest timestamp of the block.
+     *
+     * @return Smallest timestamp, or {@code null} if no event has a string timestamp
+     */
+    String getMinTimestamp() {
+        return minTimestamp;
+    }
+
+    /**
+     * Gets the largest timestamp of the block.
+     *
+     * @return Largest timestamp, or {@code null} if no event has a string timestamp
+     */
+    String getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    /**
+     * Indicates if every event of the block has a string or {@code null} timestamp, so that an event can only match
+     * an equality filter on the timestamp if its timestamp is equal.
+     *
+     * @return {@code true} if every event has a string or {@code null} timestamp
+     */
+    boolean hasAllTimestamps() {
+        return allTimestamps;
+    }
+
+    /**
+     * Indicates if some event of the block has a timestamp which is neither a string nor {@code null}, so that the
+     * range of timestamps of the block does not cover all of them.
+     *
+     * @return {@code true} if some event has a timestamp that is not a string
+     */
+    boolean hasOtherTimestamps() {
+        return otherTimestamps;
+    }
+
+    /**
+     * Gets the index of a field in {@link #BLOOM_FIELDS}.
+     *
+     * @param field Field name
+     * @return Index, or {@code -1} if the field has no Bloom filter
+     */
+    static int bloomFieldIndex(final String field) {
+        for (int i = 0; i < BLOOM_FIELDS.length; ++i) {
+            if (BLOOM_FIELDS[i].equals(field)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Indicates if no event of the block can have the given value for a field, which requires every event of the
+     * block to have a string or {@code null} value for that field.
+     *
+     * @param field Index of the field in {@link #BLOOM_FIELDS}
+     * @param value Value
+     * @return {@code true} if no event can have the value, and {@code false} if some event may have it
+     */
+    boolean excludes(final int field, final String value) {
+        if (!allBloomFields[field]) {
+            return false;
+        }
+        final long[] bloom = blooms[field];
+        final long hash = hash(value);
+        for (int i = 0; i < HASH_COUNT; ++i) {
+            final int bit = bit(hash, i, bloom.length * 64);
+            if ((bloom[bit >>> 6] & 1L << bit) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes this block.
+     *
+     * @param out Output
+     * @throws IOException failed to write
+     */
+    void writeTo(final DataOutput out) throws IOException {
+        int flags = 0;
+        if (minTimestamp != null) {
+            flags |= HAS_TIMESTAMPS;
+        }
+        if (allTimestamps) {
+            flags |= ALL_TIMESTAMPS;
+        }
+        if (otherTimestamps) {
+            flags |= OTHER_TIMESTAMPS;
+        }
+        for (int i = 0; i < allBloomFields.length; ++i) {
+            if (allBloomFields[i]) {
+                flags |= ALL_BLOOM_FIELDS << i;
+            }
+        }
+        out.writeLong(start);
+        out.writeLong(end);
+        out.writeInt(count);
+        out.writeByte(flags);
+        if (minTimestamp != null) {
+            out.writeUTF(minTimestamp);
+            out.writeUTF(maxTimestamp);
+        }
+        for (final long[] bloom : blooms) {
+            for (final long word : bloom) {
+                out.writeLong(word);
+            }
+        }
+    }
+
+    /**
+     * Reads a block written by {@link #writeTo(DataOutput)}.
+     *
+     * @param in Input
+     * @param bloomBits Number of bits of each Bloom filter
+     * @return Block
+     * @throws IOException failed to read
+     */
+    static EventBlock readFrom(final DataInput in, final int bloomBits) throws IOException {
+        final EventBlock block = new EventBlock(in.readLong(), bloomBits);
+        block.end = in.readLong();
+        block.count = in.readInt();
+        final int flags = in.readUnsignedByte();
+        if ((flags & HAS_TIMESTAMPS) != 0) {
+            block.minTimestamp = in.readUTF();
+            block.maxTimestamp = in.readUTF();
+        }
+        block.allTimestamps = (flags & ALL_TIMESTAMPS) != 0;
+        block.otherTimestamps = (flags & OTHER_TIMESTAMPS) != 0;
+        for (int i = 0; i < block.blooms.length; ++i) {
+            block.allBloomFields[i] = (flags & ALL_BLOOM_FIELDS << i) != 0;
+            for (int j = 0; j < block.blooms[i].length; ++j) {
+                block.blooms[i][j] = in.readLong();
+            }
+        }
+        return block;
+    }
+
+    private static void addToBloom(final long[] bloom, final String value) {
+        final long hash = hash(value);
+        for (int i = 0; i < HASH_COUNT; ++i) {
+            final int bit = bit(hash, i, bloom.length * 64);
+            bloom[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    /** Computes the bit set by the i-th hash function, using double hashing. */
+    private static int bit(final long hash, final int i, final int bits) {
+        return (int) Long.remainderUnsigned(hash + i * (mix(hash) | 1L), bits);
+    }
+
+    /**
+     * Computes the 64-bit FNV-1a hash of a string, with the case of its characters folded in the same way as
+     * {@link String#compareToIgnoreCase(String)}, so that strings which are equal ignoring case have the same hash.
+     */
+    private static long hash(final String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); ++i) {
+            hash ^= Character.toLowerCase(Character.toUpperCase(value.charAt(i)));
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /** The finalizer of MurmurHash3, used to derive a second hash. */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
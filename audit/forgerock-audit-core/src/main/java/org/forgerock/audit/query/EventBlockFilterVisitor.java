@@ -0,0 +1,178 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.audit.query;
+
+import static org.forgerock.audit.query.EventBlock.TIMESTAMP_FIELD;
+
+import java.util.List;
+
+import org.forgerock.audit.util.JsonValueUtils;
+import org.forgerock.json.JsonPointer;
+import org.forgerock.util.query.QueryFilter;
+import org.forgerock.util.query.QueryFilterVisitor;
+
+/**
+ * Decides if an {@link EventBlock} may hold events matching a query filter, as evaluated by
+ * {@link JsonValueUtils#JSONVALUE_FILTER_VISITOR}. The visitor returns {@code false} only when no event of the block
+ * can match, and {@code true} for any filter it cannot reason about.
+ */
+final class EventBlockFilterVisitor implements QueryFilterVisitor<Boolean, EventBlock, JsonPointer> {
+
+    static final EventBlockFilterVisitor INSTANCE = new EventBlockFilterVisitor();
+
+    private EventBlockFilterVisitor() {
+        // singleton
+    }
+
+    @Override
+    public Boolean visitAndFilter(final EventBlock block, final List<QueryFilter<JsonPointer>> subFilters) {
+        for (final QueryFilter<JsonPointer> subFilter : subFilters) {
+            if (!subFilter.accept(this, block)) {
+                return Boolean.FALSE;
+            }
+        }
+        return Boolean.TRUE;
+    }
+
+    @Override
+    public Boolean visitBooleanLiteralFilter(final EventBlock block, final boolean value) {
+        return value;
+    }
+
+    @Override
+    public Boolean visitContainsFilter(final EventBlock block, final JsonPointer field, final Object valueAssertion) {
+        return Boolean.TRUE;
+    }
+
+    @Override
+    public Boolean visitEqualsFilter(final EventBlock block, final JsonPointer field, final Object valueAssertion) {
+        if (!(valueAssertion instanceof String)) {
+            return Boolean.TRUE;
+        }
+        final String value = (String) valueAssertion;
+        // events without the field match an equality filter, so every event must have the field
+        if (isTimestamp(field)) {
+            return !block.hasAllTimestamps()
+                    || (block.getMinTimestamp() != null
+                            && value.compareToIgnoreCase(block.getMinTimestamp()) >= 0
+                            && value.compareToIgnoreCase(block.getMaxTimestamp()) <= 0);
+        }
+        final int bloomField = field.size() == 1 ? EventBlock.bloomFieldIndex(field.get(0)) : -1;
+        return bloomField == -1 || !block.excludes(bloomField, value);
+    }
+
+    @Override
+    public Boolean visitExtendedMatchFilter(final EventBlock block, final JsonPointer field, final String operator,
+            final Object valueAssertion) {
+        return Boolean.TRUE;
+    }
+
+    @Override
+    public Boolean visitGreaterThanFilter(final EventBlock block, final JsonPointer field,
+            final Object valueAssertion) {
+        if (!isTimestampRange(block, field, valueAssertion)) {
+            return Boolean.TRUE;
+        }
+        return block.getMaxTimestamp() != null
+                && block.getMaxTimestamp().compareToIgnoreCase((String) valueAssertion) > 0;
+    }
+
+    @Override
+    public Boolean visitGreaterThanOrEqualToFilter(final EventBlock block, final JsonPointer field,
+            final Object valueAssertion) {
+        if (!isTimestampRange(block, field, valueAssertion)) {
+            return Boolean.TRUE;
+        }
+        return block.getMaxTimestamp() != null
+                && block.getMaxTimestamp().compareToIgnoreCase((String) valueAssertion) >= 0;
+    }
+
+    @Override
+    public Boolean visitLessThanFilter(final EventBlock block, final JsonPointer field, final Object valueAssertion) {
+        if (!isTimestampRange(block, field, valueAssertion)) {
+            return Boolean.TRUE;
+        }
+        return block.getMinTimestamp() != null
+                && block.getMinTimestamp().compareToIgnoreCase((String) valueAssertion) < 0;
+    }
+
+    @Override
+    public Boolean visitLessThanOrEqualToFilter(final EventBlock block, final JsonPointer field,
+            final Object valueAssertion) {
+        if (!isTimestampRange(block, field, valueAssertion)) {
+            return Boolean.TRUE;
+        }
+        return block.getMinTimestamp() != null
+                && block.getMinTimestamp().compareToIgnoreCase((String) valueAssertion) <= 0;
+    }
+
+    @Override
+    public Boolean visitNotFilter(final EventBlock block, final QueryFilter<JsonPointer> subFilter) {
+        return Boolean.TRUE;
+    }
+
+    @Override
+    public Boolean visitOrFilter(final EventBlock block, final List<QueryFilter<JsonPointer>> subFilters) {
+        for (final QueryFilter<JsonPointer> subFilter : subFilters) {
+            if (subFilter.accept(this, block)) {
+                return Boolean.TRUE;
+            }
+        }
+        return Boolean.FALSE;
+    }
+
+    @Override
+    public Boolean visitPresentFilter(final EventBlock block, final JsonPointer field) {
+        return Boolean.TRUE;
+    }
+
+    @Override
+    public Boolean visitStartsWithFilter(final EventBlock block, final JsonPointer field,
+            final Object valueAssertion) {
+        if (!isTimestampRange(block, field, valueAssertion) || !isAscii((String) valueAssertion)) {
+            return Boolean.TRUE;
+        }
+        final String prefix = (String) valueAssertion;
+        final String min = block.getMinTimestamp();
+        final String max = block.getMaxTimestamp();
+        // a timestamp starting with the prefix is no smaller than the prefix, and no timestamp of the block has a
+        // prefix larger than that of the smallest timestamp
+        return min != null
+                && max.compareToIgnoreCase(prefix) >= 0
+                && min.substring(0, Math.min(min.length(), prefix.length())).compareToIgnoreCase(prefix) <= 0;
+    }
+
+    private static boolean isTimestamp(final JsonPointer field) {
+        return field.size() == 1 && TIMESTAMP_FIELD.equals(field.get(0));
+    }
+
+    /** Indicates if a filter compares timestamps with a string that the range of timestamps of a block can bound. */
+    private static boolean isTimestampRange(final EventBlock block, final JsonPointer field,
+            final Object valueAssertion) {
+        return isTimestamp(field) && valueAssertion instanceof String && !block.hasOtherTimestamps();
+    }
+
+    /** Case-insensitive prefix matching is consistent with {@code compareToIgnoreCase} for ASCII strings. */
+    private static boolean isAscii(final String value) {
+        for (int i = 0; i < value.length(); ++i) {
+            if (value.charAt(i) > 0x7f) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,441 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.audit.query;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.forgerock.json.JsonPointer;
+import org.forgerock.json.resource.QueryRequest;
+import org.forgerock.util.Reject;
+import org.forgerock.util.query.QueryFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sparse index of an audit file, which lets queries skip the parts of the file that cannot hold matching events.
+ * <p>
+ * The events of the file are summarized in blocks of a fixed number of events, with the range of their
+ * {@code timestamp} values, and a Bloom filter of their {@code transactionId} and {@code userId} values. A query
+ * filter comparing the timestamp with {@code gt}, {@code ge}, {@code lt}, {@code le}, {@code eq} or {@code sw}, or
+ * testing the equality of the transaction or user ID, then excludes the blocks which cannot match, including when
+ * combined with other filters using {@code and} or {@code or}.
+ * <p>
+ * The index is stored next to the audit file, with an {@value #INDEX_FILE_SUFFIX} suffix. It is brought up to date
+ * lazily, by each query, from the end of the last indexed block, and is rebuilt if it no longer matches the start of
+ * the audit file. Events after the last complete block are always read.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class EventBlockIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventBlockIndex.class);
+
+    /** Suffix appended to the audit file name to name its index file. */
+    public static final String INDEX_FILE_SUFFIX = ".blk";
+
+    /**
+     * Query request parameter which, when {@code true}, requests that archived audit files are also queried,
+     * oldest first, before the current audit file.
+     */
+    public static final String QUERY_ARCHIVES_PARAMETER = "queryArchives";
+
+    /** Top-level fields of events which are indexed, and so which {@link RecordCursor}s must parse. */
+    public static final Set<String> INDEXED_FIELDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            EventBlock.TIMESTAMP_FIELD, EventBlock.BLOOM_FIELDS[0], EventBlock.BLOOM_FIELDS[1])));
+
+    /** Default number of events per block. */
+    static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    /** Default number of bits of each Bloom filter, giving a false-positive rate of about 2% for full blocks. */
+    static final int DEFAULT_BLOOM_BITS = 8192;
+
+    private static final int MAGIC = 0x41424c4b;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 5 * 4 + 8;
+    /** Number of bytes at the start of the audit file that are checked to detect that the file was replaced. */
+    private static final int PREFIX_LENGTH = 4096;
+
+    /** Number of locks serializing the updates of the index files, which must be a power of two. */
+    private static final int LOCK_STRIPES = 64;
+    /**
+     * Locks serializing the updates of each index file, striped by index file so that they are bounded in number
+     * however many audit files are rotated. Two index files may share a lock, which only serializes their updates.
+     */
+    private static final Object[] LOCKS = new Object[LOCK_STRIPES];
+
+    static {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            LOCKS[i] = new Object();
+        }
+    }
+
+    private final Path indexPath;
+    private final RecordCursorFactory cursorFactory;
+    private final int blockSize;
+    private final int bloomBits;
+
+    /**
+     * Creates an index for the given audit file. No file is read until the index is used.
+     *
+     * @param dataPath Audit file
+     * @param cursorFactory Factory of cursors reading the audit file
+     */
+    public EventBlockIndex(final Path dataPath, final RecordCursorFactory cursorFactory) {
+        this(dataPath, cursorFactory, DEFAULT_BLOCK_SIZE, DEFAULT_BLOOM_BITS);
+    }
+
+    /**
+     * Creates an index for the given audit file.
+     *
+     * @param dataPath Audit file
+     * @param cursorFactory Factory of cursors reading the audit file
+     * @param blockSize Number of events per block
+     * @param bloomBits Number of bits of each Bloom filter, which must be a multiple of 64
+     */
+    EventBlockIndex(final Path dataPath, final RecordCursorFactory cursorFactory, final int blockSize,
+            final int bloomBits) {
+        Reject.ifTrue(blockSize <= 0, "blockSize must be positive");
+        Reject.ifTrue(bloomBits <= 0 || bloomBits % 64 != 0, "bloomBits must be a positive multiple of 64");
+        this.indexPath = indexPathFor(dataPath);
+        this.cursorFactory = cursorFactory;
+        this.blockSize = blockSize;
+        this.bloomBits = bloomBits;
+    }
+
+    /**
+     * Gets the path of the index file of an audit file.
+     *
+     * @param dataPath Audit file
+     * @return Index file
+     */
+    public static Path indexPathFor(final Path dataPath) {
+        return dataPath.resolveSibling(dataPath.getFileName() + INDEX_FILE_SUFFIX);
+    }
+
+    /**
+     * Moves the index file of an audit file to be the index file of its archived audit file, after the audit file has
+     * been rotated. An index that cannot be moved is rebuilt when next used, as it no longer matches the audit file.
+     *
+     * @param dataPath Audit file
+     * @param archivedDataPath Archived audit file
+     */
+    public static void archive(final Path dataPath, final Path archivedDataPath) {
+        final Path indexPath = indexPathFor(dataPath);
+        try {
+            if (Files.exists(indexPath)) {
+                Files.move(indexPath, indexPathFor(archivedDataPath), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to archive index {}", indexPath, e);
+        }
+    }
+
+    /**
+     * Indicates if a query requests that archived audit files are also queried.
+     *
+     * @param request Query request
+     * @return {@code true} if the {@value #QUERY_ARCHIVES_PARAMETER} parameter is {@code true}
+     */
+    public static boolean isQueryArchives(final QueryRequest request) {
+        return Boolean.parseBoolean(request.getAdditionalParameter(QUERY_ARCHIVES_PARAMETER));
+    }
+
+    /**
+     * Deletes the index files, in a directory, whose audit file no longer exists.
+     *
+     * @param directory Directory of audit files
+     */
+    public static void deleteOrphanedIndexes(final Path directory) {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + INDEX_FILE_SUFFIX)) {
+            for (final Path path : stream) {
+                final String fileName = path.getFileName().toString();
+                final Path dataPath = path.resolveSibling(
+                        fileName.substring(0, fileName.length() - INDEX_FILE_SUFFIX.length()));
+                if (Files.notExists(dataPath)) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to delete orphaned indexes in {}", directory, e);
+        }
+    }
+
+    /**
+     * Finds the ranges of the audit file which may hold events matching a query filter, bringing the index up to
+     * date first. The last range always extends to the end of the file.
+     * <p>
+     * The audit file is read through a channel opened by the caller, which should read the ranges through the same
+     * channel, so that the ranges refer to the file that was opened even if the file is rotated meanwhile.
+     *
+     * @param channel Channel reading the audit file
+     * @param queryFilter Query filter, or {@code null} to match every event
+     * @return Ranges, in file order
+     * @throws IOException failed to read the audit file, or to read or update the index
+     */
+    public List<Range> findRanges(final FileChannel channel, final QueryFilter<JsonPointer> queryFilter)
+            throws IOException {
+        final List<EventBlock> blocks;
+        final long unindexedStart;
+        synchronized (lockFor(indexPath)) {
+            blocks = load(channel);
+            unindexedStart = catchUp(channel, blocks);
+        }
+        final List<Range> ranges = new ArrayList<>();
+        long start = -1;
+        long end = -1;
+        for (final EventBlock block : blocks) {
+            if (queryFilter == null || queryFilter.accept(EventBlockFilterVisitor.INSTANCE, block)) {
+                if (end != block.getStart()) {
+                    if (start != -1) {
+                        ranges.add(new Range(start, end));
+                    }
+                    start = block.getStart();
+                }
+                end = block.getEnd();
+            }
+        }
+        if (end != unindexedStart) {
+            if (start != -1) {
+                ranges.add(new Range(start, end));
+            }
+            start = unindexedStart;
+        }
+        ranges.add(new Range(start, Long.MAX_VALUE));
+        return ranges;
+    }
+
+    private static Object lockFor(final Path indexPath) {
+        final int hash = indexPath.toAbsolutePath().normalize().hashCode();
+        return LOCKS[(hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1)];
+    }
+
+    /**
+     * Reads the blocks of the index file, discarding the index if it does not match the audit file.
+     */
+    private List<EventBlock> load(final FileChannel channel) throws IOException {
+        final List<EventBlock> blocks = new ArrayList<>();
+        if (Files.notExists(indexPath)) {
+            return blocks;
+        }
+        long validLength = HEADER_SIZE;
+        boolean valid;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+            valid = in.readInt() == MAGIC
+                    && in.readInt() == VERSION
+                    && in.readInt() == blockSize
+                    && in.readInt() == bloomBits;
+            if (valid) {
+                final int prefixLength = in.readInt();
+                valid = in.readLong() == hashPrefix(channel, prefixLength);
+            }
+            while (valid) {
+                // a block that was being appended when the process stopped is incomplete, and discarded
+                final byte[] bytes;
+                try {
+                    bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                } catch (EOFException e) {
+                    break;
+                }
+                blocks.add(EventBlock.readFrom(new DataInputStream(new ByteArrayInputStream(bytes)), bloomBits));
+                validLength += 4 + bytes.length;
+            }
+        } catch (EOFException e) {
+            valid = false;
+        }
+        if (valid && !blocks.isEmpty() && blocks.get(blocks.size() - 1).getEnd() > channel.size()) {
+            valid = false;
+        }
+        if (!valid) {
+            logger.info("Rebuilding stale index {}", indexPath);
+            blocks.clear();
+            Files.delete(indexPath);
+        } else if (Files.size(indexPath) != validLength) {
+            try (FileChannel indexChannel = FileChannel.open(indexPath, StandardOpenOption.WRITE)) {
+                indexChannel.truncate(validLength);
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * Indexes the complete blocks of events after the last indexed block.
+     *
+     * @return Offset of the first event that is not indexed
+     */
+    private long catchUp(final FileChannel channel, final List<EventBlock> blocks) throws IOException {
+        final long offset = blocks.isEmpty() ? 0 : blocks.get(blocks.size() - 1).getEnd();
+        DataOutputStream out = null;
+        try (RecordCursor cursor = cursorFactory.open(channel, offset)) {
+            long start = cursor.getEndOffset();
+            EventBlock block = null;
+            while (cursor.next()) {
+                if (block == null) {
+                    block = new EventBlock(start, bloomBits);
+                }
+                block.add(cursor);
+                if (block.getCount() == blockSize) {
+                    if (out == null) {
+                        out = openForAppend(channel, blocks.isEmpty(), block);
+                    }
+                    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    block.writeTo(new DataOutputStream(bytes));
+                    out.writeInt(bytes.size());
+                    bytes.writeTo(out);
+                    blocks.add(block);
+                    block = null;
+                    start = cursor.getEndOffset();
+                }
+            }
+            return start;
+        } finally {
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+
+    private DataOutputStream openForAppend(final FileChannel channel, final boolean newIndex,
+            final EventBlock firstBlock) throws IOException {
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexPath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)));
+        if (newIndex) {
+            final int prefixLength = (int) Math.min(PREFIX_LENGTH, firstBlock.getEnd());
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(blockSize);
+            out.writeInt(bloomBits);
+            out.writeInt(prefixLength);
+            out.writeLong(hashPrefix(channel, prefixLength));
+        }
+        return out;
+    }
+
+    /**
+     * Computes the 64-bit FNV-1a hash of the first bytes of the audit file.
+     *
+     * @return Hash, or {@code 0} if the file is too short
+     */
+    private static long hashPrefix(final FileChannel channel, final int prefixLength) throws IOException {
+        final ByteBuffer prefix = ByteBuffer.allocate(prefixLength);
+        while (prefix.hasRemaining()) {
+            if (channel.read(prefix, prefix.position()) < 0) {
+                return 0;
+            }
+        }
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < prefixLength; ++i) {
+            hash ^= prefix.get(i) & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * A range of an audit file, which starts with a record and ends after a record.
+     */
+    public static final class Range {
+        private final long start;
+        private final long end;
+
+        /**
+         * Creates a range.
+         *
+         * @param start Offset of the start of the range
+         * @param end Offset of the end of the range, or {@link Long#MAX_VALUE} to extend to the end of the file
+         */
+        public Range(final long start, final long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Gets the offset of the start of the range.
+         *
+         * @return Start offset
+         */
+        public long getStart() {
+            return start;
+        }
+
+        /**
+         * Gets the offset of the end of the range.
+         *
+         * @return End offset, or {@link Long#MAX_VALUE} if the range extends to the end of the file
+         */
+        public long getEnd() {
+            return end;
+        }
+
+        /**
+         * Opens a stream over the bytes of this range of an audit file, which reads the file with positional reads,
+         * so does not change the position of the channel, and does not close it.
+         *
+         * @param channel Channel reading the audit file
+         * @return Unbuffered stream
+         */
+        public InputStream newInputStream(final FileChannel channel) {
+            return new InputStream() {
+                private long position = start;
+
+                @Override
+                public int read() throws IOException {
+                    final byte[] b = new byte[1];
+                    return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+                }
+
+                @Override
+                public int read(final byte[] b, final int off, final int len) throws IOException {
+                    if (position >= end) {
+                        return -1;
+                    }
+                    final int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - position)), position);
+                    if (n > 0) {
+                        position += n;
+                    }
+                    return n;
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return "[" + start + ", " + (end == Long.MAX_VALUE ? "EOF" : end) + ")";
+        }
+    }
+}
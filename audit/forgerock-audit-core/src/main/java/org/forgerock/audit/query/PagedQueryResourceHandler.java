@@ -0,0 +1,79 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.audit.query;
+
+import org.forgerock.json.resource.QueryRequest;
+import org.forgerock.json.resource.QueryResourceHandler;
+import org.forgerock.json.resource.ResourceResponse;
+
+/**
+ * Passes a page of the matching events of a streaming query to a query handler, and looks for one more matching
+ * event to tell whether there is a next page.
+ * <p>
+ * A page starts at the paged results offset of the query or, if it is {@code 0}, at the offset held by the cookie
+ * returned with the previous page.
+ */
+public final class PagedQueryResourceHandler implements QueryResourceHandler {
+
+    private final QueryResourceHandler delegate;
+    private final int offset;
+    /** Maximum number of events passed to the delegate, or {@code 0} or less for all of them. */
+    private final int pageSize;
+    private int matched;
+    private boolean hasNextPage;
+
+    /**
+     * Creates a handler of the page requested by a query.
+     *
+     * @param request Query request
+     * @param delegate Handler of the events of the page
+     * @throws NumberFormatException if the cookie of the query is not an offset
+     */
+    public PagedQueryResourceHandler(final QueryRequest request, final QueryResourceHandler delegate) {
+        this.delegate = delegate;
+        if (request.getPagedResultsOffset() != 0) {
+            this.offset = request.getPagedResultsOffset();
+        } else if (request.getPagedResultsCookie() != null) {
+            this.offset = Integer.parseInt(request.getPagedResultsCookie());
+        } else {
+            this.offset = 0;
+        }
+        this.pageSize = request.getPageSize();
+    }
+
+    @Override
+    public boolean handleResource(final ResourceResponse resource) {
+        matched++;
+        if (matched <= offset) {
+            return true;
+        }
+        if (pageSize > 0 && matched > offset + pageSize) {
+            hasNextPage = true;
+            return false;
+        }
+        return delegate.handleResource(resource);
+    }
+
+    /**
+     * Returns the cookie of the next page.
+     *
+     * @return offset of the next page, or {@code null} if there is no next page
+     */
+    public String getPagedResultsCookie() {
+        return hasNextPage ? String.valueOf(offset + pageSize) : null;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.audit.query;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Reads the records of an audit file, one event per record, from a given byte offset. Records are terminated by a
+ * newline, which is ignored when quoted if the file format quotes values. Only complete records are read, so that a
+ * record being written is not read until its newline has been written.
+ * <p>
+ * Subclasses parse the fields of each record that an {@link EventBlockIndex} needs.
+ */
+public abstract class RecordCursor implements Closeable {
+
+    /**
+     * Value of a field which is present, but {@code null}. Such a field does not match an equality filter, unlike a
+     * missing field.
+     */
+    public static final Object NULL_VALUE = new Object();
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final int quoteChar;
+    private byte[] buffer = new byte[READ_BUFFER_SIZE];
+    /** Offset in the file of the start of the buffer. */
+    private long bufferOffset;
+    private int length;
+    private int recordStart;
+    private int scanPosition;
+    private boolean quoted;
+    private long endOffset;
+
+    /**
+     * Creates a cursor before the record at the given offset. The cursor reads the file with positional reads, so
+     * does not change the position of the channel, and does not close it.
+     *
+     * @param channel Channel reading the audit file
+     * @param offset Offset of the start of a record
+     * @param quoteChar Character quoting values, or {@code -1} if newlines cannot appear within records
+     */
+    protected RecordCursor(final FileChannel channel, final long offset, final int quoteChar) {
+        this.channel = channel;
+        this.quoteChar = quoteChar;
+        this.bufferOffset = offset;
+        this.endOffset = offset;
+    }
+
+    /**
+     * Moves to the next complete record, and parses it.
+     *
+     * @return {@code false} if there is no further complete record
+     * @throws IOException failed to read the file
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            for (; scanPosition < length; ++scanPosition) {
+                final byte b = buffer[scanPosition];
+                if (b == quoteChar) {
+                    quoted = !quoted;
+                } else if (b == '\n' && !quoted) {
+                    final int start = recordStart;
+                    recordStart = ++scanPosition;
+                    endOffset = bufferOffset + recordStart;
+                    parseRecord(buffer, start, recordStart - 1 - start);
+                    return true;
+                }
+            }
+            if (!fill()) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Gets the offset in the file of the end of the current record, which is the start of the next record.
+     *
+     * @return Offset of the end of the current record
+     */
+    public long getEndOffset() {
+        return endOffset;
+    }
+
+    /**
+     * Gets the value of a top-level field of the current record.
+     *
+     * @param name Field name
+     * @return A {@code String} value, {@link #NULL_VALUE} if the value is {@code null}, some other object if the
+     * value is not a string, or {@code null} if the field is missing
+     */
+    public abstract Object getField(String name);
+
+    /**
+     * Parses a record.
+     *
+     * @param bytes Buffer holding the record
+     * @param offset Offset of the record in the buffer
+     * @param length Length of the record, excluding its newline
+     * @throws IOException failed to parse the record
+     */
+    protected abstract void parseRecord(byte[] bytes, int offset, int length) throws IOException;
+
+    /**
+     * Releases the resources of this cursor, but does not close its channel.
+     */
+    @Override
+    public void close() {
+        buffer = null;
+    }
+
+    /**
+     * Discards the records already read from the buffer, and reads more of the file.
+     */
+    private boolean fill() throws IOException {
+        System.arraycopy(buffer, recordStart, buffer, 0, length - recordStart);
+        bufferOffset += recordStart;
+        length -= recordStart;
+        scanPosition -= recordStart;
+        recordStart = 0;
+        if (length == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        final int n = channel.read(ByteBuffer.wrap(buffer, length, buffer.length - length), bufferOffset + length);
+        if (n <= 0) {
+            return false;
+        }
+        length += n;
+        return true;
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.audit.query;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * Opens {@link RecordCursor}s over the audit files of a given format.
+ */
+public interface RecordCursorFactory {
+
+    /**
+     * Opens a cursor before the record at the given offset. A cursor opened at offset {@code 0} skips any header
+     * of the file.
+     *
+     * @param channel Channel reading the audit file
+     * @param offset Offset of the start of a record, or {@code 0}
+     * @return Cursor
+     * @throws IOException failed to read the file
+     */
+    RecordCursor open(FileChannel channel, long offset) throws IOException;
+}
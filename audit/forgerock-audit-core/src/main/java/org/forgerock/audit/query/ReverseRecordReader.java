@@ -0,0 +1,194 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.audit.query;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+
+import org.forgerock.json.JsonPointer;
+import org.forgerock.json.resource.QueryRequest;
+import org.forgerock.json.resource.SortKey;
+
+/**
+ * Reads the records of an audit file backwards, from the newest to the oldest, by memory-mapping the end of the
+ * file. Records are terminated by a newline, which is ignored when quoted if the file format quotes values.
+ * <p>
+ * Events are appended to audit files as they are published, so reading backwards returns the newest events first,
+ * and a query for the newest events only maps the end of the file. Only the records complete when the reader is
+ * created are read; in a format that quotes values, the incomplete record at the end of the file, if any, must not
+ * hold a quoted newline.
+ * <p>
+ * A channel that cannot be memory-mapped, such as that of a compressed audit file, is read into a buffer instead.
+ */
+public final class ReverseRecordReader implements Closeable {
+
+    private static final JsonPointer TIMESTAMP = new JsonPointer("/timestamp");
+    private static final int WINDOW_SIZE = 1024 * 1024;
+
+    private final FileChannel channel;
+    private final int quoteChar;
+    private final boolean header;
+    /** Mapped or read part of the file, which always reaches the newline of the current record. */
+    private ByteBuffer window;
+    /** Offset in the file of the start of the window. */
+    private long windowStart;
+    /** Offset in the file of the start of the current record, which is the end of the previous record. */
+    private long recordStart;
+    private byte[] record = new byte[256];
+    private int recordLength;
+
+    /**
+     * Creates a reader after the last complete record of an audit file. The reader does not change the position
+     * of the channel, and does not close it.
+     *
+     * @param channel Channel reading the audit file
+     * @param quoteChar Character quoting values, or {@code -1} if newlines cannot appear within records
+     * @param header {@code true} if the first record of the file is a header, which is not read
+     * @throws IOException failed to read the file
+     */
+    public ReverseRecordReader(final FileChannel channel, final int quoteChar, final boolean header)
+            throws IOException {
+        this.channel = channel;
+        this.quoteChar = quoteChar;
+        this.header = header;
+        final long size = channel.size();
+        long end = size;
+        if (size > 0) {
+            map(Math.max(0, size - WINDOW_SIZE), size);
+            // skip the record being written, up to its newline
+            while (end > 0 && byteAt(end - 1, size) != '\n') {
+                --end;
+            }
+        }
+        recordStart = end;
+    }
+
+    /**
+     * Indicates if a query requests the newest events first: its only sort key is a descending {@code timestamp},
+     * and it has a page size, so that it can stop reading once the page is full.
+     *
+     * @param request Query request
+     * @return {@code true} if the query is sorted by {@code -timestamp}, with a page size
+     */
+    public static boolean isNewestFirst(final QueryRequest request) {
+        final List<SortKey> sortKeys = request.getSortKeys();
+        return request.getPageSize() > 0 && sortKeys.size() == 1 && !sortKeys.get(0).isAscendingOrder()
+                && TIMESTAMP.equals(sortKeys.get(0).getField());
+    }
+
+    /**
+     * Moves to the previous complete record.
+     *
+     * @return {@code false} if there is no previous record
+     * @throws IOException failed to read the file
+     */
+    public boolean previous() throws IOException {
+        if (recordStart == 0) {
+            return false;
+        }
+        // the window always covers the whole of the current record, from its start to its newline
+        final long end = recordStart - 1;
+        long start = end;
+        boolean quoted = false;
+        while (start > 0) {
+            final byte b = byteAt(start - 1, recordStart);
+            if (b == quoteChar) {
+                quoted = !quoted;
+            } else if (b == '\n' && !quoted) {
+                break;
+            }
+            --start;
+        }
+        recordStart = start;
+        if (start == 0 && header) {
+            return false;
+        }
+        recordLength = (int) (end - start);
+        if (recordLength > record.length) {
+            record = Arrays.copyOf(record, Math.max(recordLength, record.length * 2));
+        }
+        window.position((int) (start - windowStart));
+        window.get(record, 0, recordLength);
+        return true;
+    }
+
+    /**
+     * Gets the buffer holding the current record, from index {@code 0}. The buffer is reused for every record.
+     *
+     * @return Buffer
+     */
+    public byte[] getRecord() {
+        return record;
+    }
+
+    /**
+     * Gets the length of the current record, excluding its newline.
+     *
+     * @return Length of the current record
+     */
+    public int getRecordLength() {
+        return recordLength;
+    }
+
+    /**
+     * Gets the offset in the file of the start of the current record.
+     *
+     * @return Offset of the current record
+     */
+    public long getRecordOffset() {
+        return recordStart;
+    }
+
+    /**
+     * Releases the mapping of this reader, as soon as it is garbage collected, but does not close its channel.
+     */
+    @Override
+    public void close() {
+        window = null;
+        record = null;
+    }
+
+    /**
+     * Reads a byte, mapping twice as much of the file before the given end as is already mapped if the window
+     * does not yet reach the byte.
+     */
+    private byte byteAt(final long offset, final long end) throws IOException {
+        if (offset < windowStart) {
+            final long length = Math.min(Integer.MAX_VALUE, Math.max(WINDOW_SIZE, 2 * (end - windowStart)));
+            map(Math.max(0, end - length), end);
+        }
+        return window.get((int) (offset - windowStart));
+    }
+
+    private void map(final long start, final long end) throws IOException {
+        try {
+            window = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (UnsupportedOperationException e) {
+            window = ByteBuffer.allocate((int) (end - start));
+            while (window.hasRemaining()) {
+                if (channel.read(window, start + window.position()) < 0) {
+                    throw new IOException("Unexpected end of file");
+                }
+            }
+        }
+        windowStart = start;
+    }
+}
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2017 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.retention;
 
@@ -26,6 +27,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.forgerock.audit.rotation.SeekableGzip;
 import org.forgerock.audit.util.LastModifiedTimeFileComparator;
 import org.joda.time.LocalDateTime;
 import org.joda.time.format.DateTimeFormat;
@@ -104,8 +106,8 @@ public class TimeStampFileNamingPolicy implements FileNamingPolicy {
         }
 
         Path newFilePath = path.resolveSibling(newFileName.toString());
-        if (Files.exists(newFilePath)) {
-            // prevent filename collision with unique suffix
+        if (Files.exists(newFilePath) || Files.exists(SeekableGzip.compressedPathFor(newFilePath))) {
+            // prevent filename collision with unique suffix, including with a compressed archive
             newFileName.append('.').append(collisionCounter.incrementAndGet());
             newFilePath = path.resolveSibling(newFileName.toString());
         }
@@ -113,7 +115,8 @@ public class TimeStampFileNamingPolicy implements FileNamingPolicy {
     }
 
     /**
-     * List the files in the initial file directory that match the prefix, name and suffix format.
+     * List the files in the initial file directory that match the prefix, name and suffix format, whether
+     * compressed or not.
      * {@inheritDoc}
      */
     @Override
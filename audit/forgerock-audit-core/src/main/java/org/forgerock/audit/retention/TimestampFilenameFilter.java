@@ -12,17 +12,20 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2017 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.retention;
 
 import java.io.File;
 import java.io.FilenameFilter;
 
+import org.forgerock.audit.rotation.SeekableGzip;
 import org.joda.time.format.DateTimeFormatter;
 
 /**
  * A {@link FilenameFilter} that matches historical log files. The {@link FilenameFilter} matches a filename with a
- * given prefix, filename and timestamp.
+ * given prefix, filename and timestamp, optionally followed by the {@value SeekableGzip#FILE_SUFFIX} suffix of
+ * compressed files.
  */
 public class TimestampFilenameFilter implements FilenameFilter {
 
@@ -53,7 +56,10 @@ public class TimestampFilenameFilter implements FilenameFilter {
                 && suffixMatchesDateFormat(fileName.substring(fileNameTemplate.length()));
     }
 
-    private boolean suffixMatchesDateFormat(final String timestamp) {
+    private boolean suffixMatchesDateFormat(final String suffix) {
+        final String timestamp = suffix.endsWith(SeekableGzip.FILE_SUFFIX)
+                ? suffix.substring(0, suffix.length() - SeekableGzip.FILE_SUFFIX.length())
+                : suffix;
         try {
             suffixDateFormat.parseDateTime(timestamp);
             return true;
@@ -0,0 +1,178 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.audit.rotation;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.forgerock.audit.retention.FileNamingPolicy;
+import org.forgerock.util.Reject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compresses archived audit files in the {@link SeekableGzip seekable gzip format}, after they have been rotated, on
+ * a thread of its own so that writers do not wait for it.
+ * <p>
+ * An archive is compressed into a temporary file, which then replaces it, keeping its last modified time so that
+ * archives are still listed in rotation order. The sidecar files of the archive, such as its indexes, are renamed to
+ * follow the compressed file; the offsets they hold remain valid, as compressed files are read through the channel
+ * of {@link SeekableGzip#openChannel(Path)}. An archive that cannot be compressed is left as it is.
+ */
+public final class ArchiveCompressor implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveCompressor.class);
+
+    private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+
+    private final int blockSize;
+    private final List<String> sidecarSuffixes;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    /**
+     * Creates a compressor.
+     *
+     * @param blockSize Number of uncompressed bytes per block of the compressed files
+     * @param sidecarSuffixes Suffixes appended to the name of an archive to name its sidecar files
+     */
+    public ArchiveCompressor(final int blockSize, final List<String> sidecarSuffixes) {
+        Reject.ifTrue(blockSize <= 0, "blockSize must be positive");
+        this.blockSize = blockSize;
+        this.sidecarSuffixes = new ArrayList<>(sidecarSuffixes);
+    }
+
+    /**
+     * Schedules the compression of an archive which has just been rotated.
+     *
+     * @param archive Archived audit file
+     */
+    public void compress(final Path archive) {
+        if (SeekableGzip.isCompressed(archive)) {
+            return;
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    compressNow(archive);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // the writer is closing, and the archive is compressed when it next starts
+            logger.debug("Not compressing {} as the compressor is closed", archive);
+        }
+    }
+
+    /**
+     * Schedules the compression of the archives of a naming policy that are not yet compressed, such as those rotated
+     * before compression was enabled, or while the compressor was closing.
+     *
+     * @param fileNamingPolicy Naming policy of the archives
+     */
+    public void compressArchives(final FileNamingPolicy fileNamingPolicy) {
+        for (final File archive : fileNamingPolicy.listFiles()) {
+            compress(archive.toPath());
+        }
+    }
+
+    /**
+     * Closes the compressor, waiting for the compressions already scheduled to complete.
+     */
+    @Override
+    public void close() {
+        boolean interrupted = false;
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(500, MILLISECONDS)) {
+                logger.debug("Waiting to terminate the archive compressor thread.");
+            }
+        } catch (InterruptedException ex) {
+            logger.error("Unable to terminate the archive compressor thread", ex);
+            interrupted = true;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void compressNow(final Path archive) {
+        final Path compressed = SeekableGzip.compressedPathFor(archive);
+        final Path temporary = compressed.resolveSibling(compressed.getFileName() + TEMPORARY_FILE_SUFFIX);
+        try {
+            if (Files.notExists(archive)) {
+                return;
+            }
+            final long start = System.nanoTime();
+            final long size = Files.size(archive);
+            SeekableGzip.compress(archive, temporary, blockSize);
+            Files.setLastModifiedTime(temporary, Files.getLastModifiedTime(archive));
+            if (Files.notExists(archive)) {
+                // deleted by a retention policy meanwhile
+                Files.delete(temporary);
+                return;
+            }
+            Files.move(temporary, compressed, StandardCopyOption.REPLACE_EXISTING);
+            try {
+                Files.delete(archive);
+            } catch (IOException e) {
+                // the events must not be listed twice
+                Files.deleteIfExists(compressed);
+                throw e;
+            }
+            for (final String suffix : sidecarSuffixes) {
+                moveSidecar(archive.resolveSibling(archive.getFileName() + suffix),
+                        compressed.resolveSibling(compressed.getFileName() + suffix));
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("Compressed {} from {} to {} bytes in {} ms", archive, size, Files.size(compressed),
+                        (System.nanoTime() - start) / 1_000_000);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to compress archive {}; it is kept uncompressed", archive, e);
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException ex) {
+                logger.debug("Failed to delete {}", temporary, ex);
+            }
+        }
+    }
+
+    /**
+     * Renames a sidecar file. A sidecar that cannot be renamed is only a lost index, which is rebuilt when next used.
+     */
+    private static void moveSidecar(final Path sidecar, final Path compressedSidecar) {
+        try {
+            if (Files.exists(sidecar)) {
+                Files.move(sidecar, compressedSidecar, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to rename {} to {}", sidecar, compressedSidecar, e);
+        }
+    }
+}
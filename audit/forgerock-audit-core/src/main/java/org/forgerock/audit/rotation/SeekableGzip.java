@@ -0,0 +1,283 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.audit.rotation;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import org.forgerock.util.Reject;
+
+/**
+ * Seekable gzip format of compressed audit archives, which any gzip tool can decompress, but which can also be read
+ * from any offset of the uncompressed file without decompressing what comes before.
+ * <p>
+ * The file is a sequence of gzip members, each compressing a block of a fixed number of bytes of the uncompressed
+ * file, except for the last block, which may be shorter. The header of each member has an extra field recording the
+ * size of the member and of its uncompressed block, so that the blocks can be located by reading the member headers
+ * alone. Decompressing the members one after the other, as gzip tools do, gives the uncompressed file.
+ * <p>
+ * Offsets into the uncompressed file, such as those held by the sidecar indexes of an audit file, therefore remain
+ * usable once the file is compressed: the channel opened by {@link #openChannel(Path)} reads a compressed file as if
+ * it was uncompressed, decompressing only the blocks that are read.
+ */
+public final class SeekableGzip {
+
+    /** Suffix appended to the name of an audit file to name its compressed file. */
+    public static final String FILE_SUFFIX = ".gz";
+
+    /** Default number of uncompressed bytes per block. */
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    /** Size of the header of a member, including its extra field. */
+    static final int HEADER_SIZE = 24;
+
+    /** Size of the trailer of a member, holding the CRC-32 and size of its uncompressed block. */
+    static final int TRAILER_SIZE = 8;
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final byte DEFLATE = 8;
+    private static final byte FEXTRA = 4;
+    private static final byte OS_UNKNOWN = (byte) 255;
+    /** Length of the extra field, which holds a single subfield. */
+    private static final short EXTRA_LENGTH = 12;
+    private static final byte SUBFIELD_ID1 = 'A';
+    private static final byte SUBFIELD_ID2 = 'B';
+    /** Length of the data of the subfield: the size of the member, and the size of its uncompressed block. */
+    private static final short SUBFIELD_LENGTH = 8;
+
+    private SeekableGzip() {
+        // utility class
+    }
+
+    /**
+     * Indicates if an audit file is compressed, which is told by the suffix of its name.
+     *
+     * @param path Audit file
+     * @return {@code true} if the file name ends with {@value #FILE_SUFFIX}
+     */
+    public static boolean isCompressed(final Path path) {
+        return path.getFileName().toString().endsWith(FILE_SUFFIX);
+    }
+
+    /**
+     * Gets the path of the compressed file of an audit file.
+     *
+     * @param path Audit file
+     * @return Compressed file
+     */
+    public static Path compressedPathFor(final Path path) {
+        return path.resolveSibling(path.getFileName() + FILE_SUFFIX);
+    }
+
+    /**
+     * Gets the path an audit file had before it was compressed.
+     *
+     * @param path Audit file, compressed or not
+     * @return Uncompressed file, which is the given file if it is not compressed
+     */
+    public static Path uncompressedPathFor(final Path path) {
+        if (!isCompressed(path)) {
+            return path;
+        }
+        final String fileName = path.getFileName().toString();
+        return path.resolveSibling(fileName.substring(0, fileName.length() - FILE_SUFFIX.length()));
+    }
+
+    /**
+     * Finds an archived audit file, which may have been compressed since it was listed.
+     *
+     * @param path Audit file, as listed
+     * @return The compressed file, if the file no longer exists but its compressed file does, or else the file
+     */
+    public static Path findFile(final Path path) {
+        if (isCompressed(path) || Files.exists(path)) {
+            return path;
+        }
+        final Path compressedPath = compressedPathFor(path);
+        return Files.exists(compressedPath) ? compressedPath : path;
+    }
+
+    /**
+     * Compresses a file.
+     *
+     * @param source File to compress
+     * @param target Compressed file, which is replaced if it exists
+     * @param blockSize Number of uncompressed bytes per block
+     * @throws IOException failed to read the file, or to write the compressed file
+     */
+    public static void compress(final Path source, final Path target, final int blockSize) throws IOException {
+        Reject.ifTrue(blockSize <= 0, "blockSize must be positive");
+        try (InputStream in = Files.newInputStream(source);
+                OutputStream out = Files.newOutputStream(target)) {
+            compress(in, out, blockSize);
+        }
+    }
+
+    /**
+     * Compresses a stream. An empty stream gives a single empty member, so that the result is always valid gzip.
+     *
+     * @param in Stream to compress, which is not closed
+     * @param out Stream receiving the compressed bytes, which is not closed
+     * @param blockSize Number of uncompressed bytes per block
+     * @throws IOException failed to read or write the streams
+     */
+    static void compress(final InputStream in, final OutputStream out, final int blockSize) throws IOException {
+        final byte[] block = new byte[blockSize];
+        // deflating can expand incompressible data slightly
+        byte[] compressed = new byte[HEADER_SIZE + blockSize + blockSize / 1000 + 64 + TRAILER_SIZE];
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        final CRC32 crc = new CRC32();
+        try {
+            boolean first = true;
+            int length;
+            while ((length = readBlock(in, block)) > 0 || first) {
+                first = false;
+                deflater.reset();
+                deflater.setInput(block, 0, length);
+                deflater.finish();
+                int size = HEADER_SIZE;
+                while (!deflater.finished()) {
+                    if (size == compressed.length - TRAILER_SIZE) {
+                        compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                    }
+                    size += deflater.deflate(compressed, size, compressed.length - TRAILER_SIZE - size);
+                }
+                crc.reset();
+                crc.update(block, 0, length);
+                final ByteBuffer buffer = ByteBuffer.wrap(compressed).order(ByteOrder.LITTLE_ENDIAN);
+                writeHeader(buffer, size + TRAILER_SIZE, length);
+                buffer.putInt(size, (int) crc.getValue());
+                buffer.putInt(size + 4, length);
+                out.write(compressed, 0, size + TRAILER_SIZE);
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Opens a channel reading an audit file, which reads a compressed file as if it was uncompressed. The channel of
+     * a compressed file is read-only, and cannot be memory-mapped.
+     *
+     * @param path Audit file, compressed or not
+     * @return Channel
+     * @throws IOException failed to open the file, or the file is compressed but not in the seekable gzip format
+     */
+    public static FileChannel openChannel(final Path path) throws IOException {
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        if (!isCompressed(path)) {
+            return channel;
+        }
+        try {
+            return new SeekableGzipFileChannel(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a stream reading an audit file from its start, which decompresses a compressed file, whether or not it
+     * is in the seekable gzip format.
+     *
+     * @param path Audit file, compressed or not
+     * @return Buffered stream
+     * @throws IOException failed to open the file
+     */
+    public static InputStream newInputStream(final Path path) throws IOException {
+        return newInputStream(path, Files.newInputStream(path));
+    }
+
+    /**
+     * Reads an audit file from a stream of its bytes, which is decompressed if the file is compressed, whether or not
+     * it is in the seekable gzip format.
+     *
+     * @param path Audit file, compressed or not
+     * @param in Stream of the bytes of the file, which is closed along with the returned stream
+     * @return Buffered stream
+     * @throws IOException failed to read the header of a compressed file
+     */
+    public static InputStream newInputStream(final Path path, final InputStream in) throws IOException {
+        if (!isCompressed(path)) {
+            return new BufferedInputStream(in);
+        }
+        try {
+            return new BufferedInputStream(new GZIPInputStream(in, DEFAULT_BLOCK_SIZE));
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the header of a member, checking that it is in the seekable gzip format.
+     *
+     * @param header Header of {@value #HEADER_SIZE} bytes, in little-endian order
+     * @return The size of the member in the upper 32 bits, and the size of its uncompressed block in the lower 32 bits
+     * @throws IOException the member is not in the seekable gzip format
+     */
+    static long readHeader(final ByteBuffer header) throws IOException {
+        if ((header.getShort(0) & 0xffff) != GZIP_MAGIC || header.get(2) != DEFLATE || header.get(3) != FEXTRA
+                || header.getShort(10) != EXTRA_LENGTH || header.get(12) != SUBFIELD_ID1
+                || header.get(13) != SUBFIELD_ID2 || header.getShort(14) != SUBFIELD_LENGTH) {
+            throw new IOException("Not a seekable gzip member");
+        }
+        final int memberSize = header.getInt(16);
+        final int blockSize = header.getInt(20);
+        if (memberSize < HEADER_SIZE + TRAILER_SIZE || blockSize < 0) {
+            throw new IOException("Corrupted seekable gzip member");
+        }
+        return ((long) memberSize << 32) | blockSize;
+    }
+
+    private static void writeHeader(final ByteBuffer buffer, final int memberSize, final int blockSize) {
+        buffer.putShort(0, (short) GZIP_MAGIC)
+                .put(2, DEFLATE)
+                .put(3, FEXTRA)
+                // no modification time, no extra flags
+                .putInt(4, 0)
+                .put(8, (byte) 0)
+                .put(9, OS_UNKNOWN)
+                .putShort(10, EXTRA_LENGTH)
+                .put(12, SUBFIELD_ID1)
+                .put(13, SUBFIELD_ID2)
+                .putShort(14, SUBFIELD_LENGTH)
+                .putInt(16, memberSize)
+                .putInt(20, blockSize);
+    }
+
+    private static int readBlock(final InputStream in, final byte[] block) throws IOException {
+        int length = 0;
+        int n;
+        while (length < block.length && (n = in.read(block, length, block.length - length)) > 0) {
+            length += n;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.audit.rotation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read-only channel reading a file in the {@link SeekableGzip seekable gzip format} as if it was uncompressed. The
+ * blocks of the file are located when the channel is opened, by reading the headers of its members, and each read
+ * decompresses only the blocks it reads from; the last block read is kept, as reads tend to be sequential.
+ * <p>
+ * The channel cannot be memory-mapped or locked. This class is thread-safe.
+ */
+final class SeekableGzipFileChannel extends FileChannel {
+
+    private final FileChannel channel;
+    private final Object lock = new Object();
+    private final Inflater inflater = new Inflater(true);
+    private final CRC32 crc = new CRC32();
+    /** Offsets of the members in the compressed file, followed by the size of the compressed file. */
+    private long[] memberOffsets = new long[16];
+    /** Offsets of the blocks in the uncompressed file, followed by the size of the uncompressed file. */
+    private long[] blockOffsets = new long[16];
+    private int blockCount;
+    private long position;
+    private byte[] compressed = new byte[0];
+    private byte[] block = new byte[0];
+    /** Index of the block held by {@link #block}, or {@code -1}. */
+    private int blockIndex = -1;
+
+    /**
+     * Opens a channel over a compressed file.
+     *
+     * @param channel Channel reading the compressed file, which is closed with this channel
+     * @throws IOException failed to read the file, or the file is not in the seekable gzip format
+     */
+    SeekableGzipFileChannel(final FileChannel channel) throws IOException {
+        this.channel = channel;
+        final ByteBuffer header = ByteBuffer.allocate(SeekableGzip.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        final long compressedSize = channel.size();
+        long memberOffset = 0;
+        long blockOffset = 0;
+        while (memberOffset < compressedSize) {
+            header.clear();
+            readFully(channel, header, memberOffset);
+            final long sizes = SeekableGzip.readHeader(header);
+            if (blockCount + 1 == memberOffsets.length) {
+                memberOffsets = Arrays.copyOf(memberOffsets, memberOffsets.length * 2);
+                blockOffsets = Arrays.copyOf(blockOffsets, blockOffsets.length * 2);
+            }
+            memberOffsets[blockCount] = memberOffset;
+            blockOffsets[blockCount] = blockOffset;
+            ++blockCount;
+            memberOffset += sizes >>> 32;
+            blockOffset += (int) sizes;
+        }
+        if (memberOffset != compressedSize) {
+            throw new IOException("Truncated seekable gzip file");
+        }
+        memberOffsets[blockCount] = memberOffset;
+        blockOffsets[blockCount] = blockOffset;
+    }
+
+    @Override
+    public int read(final ByteBuffer dst) throws IOException {
+        synchronized (lock) {
+            final int n = read(dst, position);
+            if (n > 0) {
+                position += n;
+            }
+            return n;
+        }
+    }
+
+    @Override
+    public long read(final ByteBuffer[] dsts, final int offset, final int length) throws IOException {
+        synchronized (lock) {
+            long total = 0;
+            for (int i = offset; i < offset + length; ++i) {
+                final int n = read(dsts[i]);
+                if (n < 0) {
+                    return total == 0 ? -1 : total;
+                }
+                total += n;
+                if (dsts[i].hasRemaining()) {
+                    break;
+                }
+            }
+            return total;
+        }
+    }
+
+    @Override
+    public int read(final ByteBuffer dst, final long position) throws IOException {
+        if (position < 0) {
+            throw new IllegalArgumentException("Negative position");
+        }
+        ensureOpen();
+        synchronized (lock) {
+            final long size = blockOffsets[blockCount];
+            if (position >= size) {
+                return -1;
+            }
+            int total = 0;
+            long offset = position;
+            while (dst.hasRemaining() && offset < size) {
+                final int index = findBlock(offset);
+                inflate(index);
+                final int start = (int) (offset - blockOffsets[index]);
+                final int n = Math.min(dst.remaining(), (int) (blockOffsets[index + 1] - offset));
+                dst.put(block, start, n);
+                offset += n;
+                total += n;
+            }
+            return total;
+        }
+    }
+
+    @Override
+    public long position() throws IOException {
+        ensureOpen();
+        synchronized (lock) {
+            return position;
+        }
+    }
+
+    @Override
+    public FileChannel position(final long newPosition) throws IOException {
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("Negative position");
+        }
+        ensureOpen();
+        synchronized (lock) {
+            position = newPosition;
+        }
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+        ensureOpen();
+        return blockOffsets[blockCount];
+    }
+
+    @Override
+    public long transferTo(final long position, final long count, final WritableByteChannel target)
+            throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(count, SeekableGzip.DEFAULT_BLOCK_SIZE));
+        long transferred = 0;
+        while (transferred < count) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), count - transferred));
+            final int n = read(buffer, position + transferred);
+            if (n <= 0) {
+                break;
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                transferred += target.write(buffer);
+            }
+        }
+        return transferred;
+    }
+
+    @Override
+    public int write(final ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long write(final ByteBuffer[] srcs, final int offset, final int length) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public int write(final ByteBuffer src, final long position) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public FileChannel truncate(final long size) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long transferFrom(final ReadableByteChannel src, final long position, final long count) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public void force(final boolean metaData) throws IOException {
+        ensureOpen();
+    }
+
+    @Override
+    public MappedByteBuffer map(final MapMode mode, final long position, final long size) {
+        throw new UnsupportedOperationException("Compressed files cannot be memory-mapped");
+    }
+
+    @Override
+    public FileLock lock(final long position, final long size, final boolean shared) {
+        throw new UnsupportedOperationException("Compressed files cannot be locked");
+    }
+
+    @Override
+    public FileLock tryLock(final long position, final long size, final boolean shared) {
+        throw new UnsupportedOperationException("Compressed files cannot be locked");
+    }
+
+    @Override
+    protected void implCloseChannel() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            synchronized (lock) {
+                inflater.end();
+                block = null;
+                compressed = null;
+            }
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (!isOpen()) {
+            throw new ClosedChannelException();
+        }
+    }
+
+    /**
+     * Finds the block holding the byte at the given offset of the uncompressed file.
+     */
+    private int findBlock(final long offset) {
+        final int index = Arrays.binarySearch(blockOffsets, 0, blockCount, offset);
+        if (index >= 0) {
+            // skip any empty blocks starting at the same offset
+            int i = index;
+            while (blockOffsets[i + 1] == offset) {
+                ++i;
+            }
+            return i;
+        }
+        return -index - 2;
+    }
+
+    /**
+     * Decompresses a block into {@link #block}, unless it already holds it.
+     */
+    private void inflate(final int index) throws IOException {
+        if (index == blockIndex) {
+            return;
+        }
+        blockIndex = -1;
+        final int blockSize = (int) (blockOffsets[index + 1] - blockOffsets[index]);
+        final int dataSize = (int) (memberOffsets[index + 1] - memberOffsets[index])
+                - SeekableGzip.HEADER_SIZE - SeekableGzip.TRAILER_SIZE;
+        if (compressed.length < dataSize + SeekableGzip.TRAILER_SIZE) {
+            compressed = new byte[dataSize + SeekableGzip.TRAILER_SIZE];
+        }
+        if (block.length < blockSize) {
+            block = new byte[blockSize];
+        }
+        final ByteBuffer member = ByteBuffer.wrap(compressed, 0, dataSize + SeekableGzip.TRAILER_SIZE);
+        readFully(channel, member, memberOffsets[index] + SeekableGzip.HEADER_SIZE);
+        inflater.reset();
+        inflater.setInput(compressed, 0, dataSize);
+        try {
+            int length = 0;
+            while (length < blockSize && !inflater.finished()) {
+                final int n = inflater.inflate(block, length, blockSize - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += n;
+            }
+            if (length != blockSize) {
+                throw new IOException("Corrupted seekable gzip block " + index);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted seekable gzip block " + index, e);
+        }
+        crc.reset();
+        crc.update(block, 0, blockSize);
+        if ((int) crc.getValue() != ByteBuffer.wrap(compressed).order(ByteOrder.LITTLE_ENDIAN).getInt(dataSize)) {
+            throw new IOException("CRC mismatch in seekable gzip block " + index);
+        }
+        blockIndex = index;
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+            throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            final int n = channel.read(buffer, offset);
+            if (n < 0) {
+                throw new IOException("Truncated seekable gzip file");
+            }
+            offset += n;
+        }
+    }
+}
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.audit.util;
@@ -20,6 +21,7 @@ import static org.forgerock.http.util.Json.readJson;
 import static org.forgerock.json.JsonValue.json;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.regex.Matcher;
@@ -29,6 +31,7 @@ import org.forgerock.json.JsonPointer;
 import org.forgerock.json.JsonValue;
 import org.forgerock.util.annotations.VisibleForTesting;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
@@ -121,6 +124,138 @@ public final class ElasticsearchUtil {
         return null;
     }
 
+    /**
+     * Writes the same normalized JSON as {@link #normalizeJson(JsonValue)} directly to a generator, without first
+     * serializing it to a {@code String}. Nothing is written if the value is rejected.
+     *
+     * @param value JSON object
+     * @param generator JSON generator to write to
+     * @throws IOException If unable to write the json.
+     */
+    public static void writeNormalizedJson(final JsonValue value, final JsonGenerator generator) throws IOException {
+        writeNormalizedJson(value, null, null, generator);
+    }
+
+    /**
+     * Writes the same normalized JSON as {@link #writeNormalizedJson(JsonValue, JsonGenerator)}, with a top-level field
+     * renamed as by {@link #renameField(JsonValue, String, String)}, but without modifying the value. Nothing is
+     * written if the value is rejected.
+     *
+     * @param value JSON object
+     * @param oldKey Name of the top-level field to rename, or {@code null} to rename no field
+     * @param newKey New field name (field must <b>not</b> already exist)
+     * @param generator JSON generator to write to
+     * @throws IOException If unable to write the json.
+     */
+    public static void writeNormalizedJson(final JsonValue value, final String oldKey, final String newKey,
+            final JsonGenerator generator) throws IOException {
+        checkNormalizable(value);
+        final Map<String, Object> object = value.asMap();
+        final boolean rename = oldKey != null && object.get(oldKey) != null;
+        if (rename && object.containsKey(newKey)) {
+            throw new IllegalStateException("Cannot overwrite existing field: " + newKey);
+        }
+        // fieldNames contains metadata for de-normalization
+        final Map<String, String> fieldNames = new LinkedHashMap<>(2);
+        generator.writeStartObject();
+        for (final Map.Entry<String, Object> entry : object.entrySet()) {
+            final String fieldName = rename && oldKey.equals(entry.getKey()) ? newKey : entry.getKey();
+            writeNormalizedField(fieldName, entry.getValue(), generator, fieldNames);
+        }
+        if (!fieldNames.isEmpty()) {
+            generator.writeFieldName(NORMALIZED_FIELD);
+            generator.writeStartObject();
+            generator.writeObjectFieldStart(FIELD_NAMES_FIELD);
+            for (final Map.Entry<String, String> entry : fieldNames.entrySet()) {
+                generator.writeStringField(entry.getKey(), entry.getValue());
+            }
+            generator.writeEndObject();
+            generator.writeEndObject();
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Writes an index action of the Elasticsearch Bulk API, followed by the {@link #writeNormalizedJson normalized}
+     * document to index, each on its own line. Nothing is written if the document is rejected.
+     *
+     * @param type Document type
+     * @param id Document ID
+     * @param source Document to index
+     * @param generator JSON generator to write to
+     * @throws IOException If unable to write the json.
+     */
+    public static void writeBulkIndexAction(final String type, final String id, final JsonValue source,
+            final JsonGenerator generator) throws IOException {
+        checkNormalizable(source);
+        // newlines have special significance in the Bulk API
+        // https://www.elastic.co/guide/en/elasticsearch/reference/current/docs-bulk.html
+        generator.writeStartObject();
+        generator.writeObjectFieldStart("index");
+        generator.writeStringField("_type", type);
+        generator.writeStringField("_id", id);
+        generator.writeEndObject();
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+        writeNormalizedJson(source, generator);
+        generator.writeRaw('\n');
+    }
+
+    private static void checkNormalizable(final JsonValue value) {
+        if (!value.isMap()) {
+            throw new IllegalArgumentException("Only JSON objects can be normalized");
+        }
+        if (value.get(NORMALIZED_FIELD).isNotNull()) {
+            throw new IllegalStateException(NORMALIZED_FIELD + " is a reserved JsonValue field");
+        }
+    }
+
+    private static void writeNormalizedFields(final Map<?, ?> object, final JsonGenerator generator,
+            final Map<String, String> fieldNames) throws IOException {
+        for (final Map.Entry<?, ?> entry : object.entrySet()) {
+            writeNormalizedField(String.valueOf(entry.getKey()), entry.getValue(), generator, fieldNames);
+        }
+    }
+
+    private static void writeNormalizedField(final String fieldName, final Object value,
+            final JsonGenerator generator, final Map<String, String> fieldNames) throws IOException {
+        if (fieldName.indexOf('.') != -1) {
+            final String normalizedFieldName = fieldName.replace('.', '_');
+            fieldNames.put(normalizedFieldName, fieldName);
+            generator.writeFieldName(normalizedFieldName);
+        } else {
+            generator.writeFieldName(fieldName);
+        }
+        writeNormalizedValue(value, generator, fieldNames);
+    }
+
+    private static void writeNormalizedValue(final Object value, final JsonGenerator generator,
+            final Map<String, String> fieldNames) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof String) {
+            generator.writeString((String) value);
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short) {
+            generator.writeNumber(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            generator.writeNumber(((Number) value).doubleValue());
+        } else if (value instanceof Map) {
+            generator.writeStartObject();
+            writeNormalizedFields((Map<?, ?>) value, generator, fieldNames);
+            generator.writeEndObject();
+        } else if (value instanceof Collection) {
+            generator.writeStartArray();
+            for (final Object element : (Collection<?>) value) {
+                writeNormalizedValue(element, generator, fieldNames);
+            }
+            generator.writeEndArray();
+        } else {
+            OBJECT_MAPPER.writeValue(generator, value);
+        }
+    }
+
     /**
      * De-normalizes JSON that was previously normalized by  {@link #normalizeJson(JsonValue)}.
      *
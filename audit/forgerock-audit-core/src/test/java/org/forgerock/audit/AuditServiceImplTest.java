@@ -12,7 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2017 ForgeRock AS.
- * Portions Copyright 2018 Wren Security.
+ * Portions Copyright 2018-2026 Wren Security.
  */
 
 package org.forgerock.audit;
@@ -31,6 +31,7 @@ import static org.forgerock.json.resource.Responses.newQueryResponse;
 import static org.forgerock.json.resource.Responses.newResourceResponse;
 import static org.forgerock.util.test.assertj.AssertJPromiseAssert.assertThatPromise;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
@@ -48,11 +49,13 @@ import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 
 import org.forgerock.audit.events.EventTopicsMetaData;
 import org.forgerock.audit.events.handlers.AuditEventHandler;
 import org.forgerock.audit.events.handlers.impl.PassThroughAuditEventHandler;
 import org.forgerock.audit.events.handlers.impl.PassThroughAuditEventHandlerConfiguration;
+import org.forgerock.audit.HandlerDispatchConfiguration.OverloadPolicy;
 import org.forgerock.audit.filter.FilterPolicy;
 import org.forgerock.json.JsonValue;
 import org.forgerock.json.resource.ActionResponse;
@@ -72,6 +75,8 @@ import org.forgerock.services.context.Context;
 import org.forgerock.services.context.RootContext;
 import org.forgerock.util.promise.Promise;
 import org.forgerock.util.query.QueryFilter;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -832,6 +837,109 @@ public class AuditServiceImplTest {
         assertThat(queryRequest.getQueryFilter()).isEqualTo(QueryFilter.alwaysTrue());
     }
 
+    @Test
+    public void shouldReturnQueryHandlerResultWhenHandlersAreDispatchedThroughQueues() throws Exception {
+        //given
+        final AuditServiceConfiguration configuration = getAuditServiceConfiguration(QUERY_HANDLER_NAME, "access");
+        configuration.setHandlerDispatch(dispatchConfigurations(
+                QUERY_HANDLER_NAME, dispatchConfiguration(10, OverloadPolicy.BLOCK),
+                "slowHandler", dispatchConfiguration(10, OverloadPolicy.BLOCK)));
+        final PassThroughAuditEventHandler queryHandler = spyPassThroughAuditEventHandler(QUERY_HANDLER_NAME);
+        final CountDownLatch slowHandlerEntered = new CountDownLatch(1);
+        final CountDownLatch slowHandlerReleased = new CountDownLatch(1);
+        final AuditEventHandler slowHandler = blockingHandler("slowHandler", slowHandlerEntered, slowHandlerReleased);
+        final AuditService auditService =
+                new AuditServiceImpl(configuration, eventTopicsMetaData, asSet(queryHandler, slowHandler));
+        auditService.startup();
+        final CreateRequest createRequest = makeCreateRequest();
+
+        //when
+        final Promise<ResourceResponse, ResourceException> promise =
+                auditService.handleCreate(new RootContext(), createRequest);
+
+        //then
+        assertThat(promise.get().getContent().asMap()).isEqualTo(createRequest.getContent().asMap());
+        slowHandlerEntered.await();
+        final HandlerDispatchMetrics queryHandlerMetrics = auditService.getHandlerDispatchMetrics(QUERY_HANDLER_NAME);
+        assertThat(queryHandlerMetrics.getQueuedCount()).isEqualTo(1);
+        assertThat(queryHandlerMetrics.getPublishedCount()).isEqualTo(1);
+        assertThat(auditService.getHandlerDispatchMetrics("slowHandler").getPublishedCount()).isEqualTo(0);
+
+        slowHandlerReleased.countDown();
+        auditService.shutdown();
+        verify(slowHandler).publishEvent(any(Context.class), eq("access"), any(JsonValue.class));
+    }
+
+    @Test
+    public void shouldDropEventsWhenDispatchQueueIsFull() throws Exception {
+        //given
+        final AuditServiceConfiguration configuration = getAuditServiceConfiguration(QUERY_HANDLER_NAME, "access");
+        configuration.setHandlerDispatch(dispatchConfigurations(
+                QUERY_HANDLER_NAME, dispatchConfiguration(1, OverloadPolicy.DROP)));
+        final CountDownLatch handlerEntered = new CountDownLatch(1);
+        final CountDownLatch handlerReleased = new CountDownLatch(1);
+        final AuditEventHandler queryHandler = blockingHandler(QUERY_HANDLER_NAME, handlerEntered, handlerReleased);
+        final AuditService auditService = new AuditServiceImpl(configuration, eventTopicsMetaData, asSet(queryHandler));
+        auditService.startup();
+        final Promise<ResourceResponse, ResourceException> published =
+                auditService.handleCreate(new RootContext(), makeCreateRequest());
+        handlerEntered.await();
+        final Promise<ResourceResponse, ResourceException> queued =
+                auditService.handleCreate(new RootContext(), makeCreateRequest());
+
+        //when
+        final Promise<ResourceResponse, ResourceException> dropped =
+                auditService.handleCreate(new RootContext(), makeCreateRequest());
+
+        //then
+        assertThatPromise(dropped).failedWithException().isInstanceOf(ServiceUnavailableException.class);
+        final HandlerDispatchMetrics metrics = auditService.getHandlerDispatchMetrics(QUERY_HANDLER_NAME);
+        assertThat(metrics.getQueueDepth()).isEqualTo(1);
+        assertThat(metrics.getDroppedCount()).isEqualTo(1);
+        assertThat(metrics.getRejectedCount()).isEqualTo(1);
+
+        handlerReleased.countDown();
+        assertThatPromise(published).succeeded();
+        assertThatPromise(queued).succeeded();
+        auditService.shutdown();
+        verify(queryHandler, times(2)).publishEvent(any(Context.class), eq("access"), any(JsonValue.class));
+    }
+
+    @Test
+    public void shouldShedLowPriorityEventsWhenDispatchQueueIsOverloaded() throws Exception {
+        //given
+        final AuditServiceConfiguration configuration = getAuditServiceConfiguration(QUERY_HANDLER_NAME, "access");
+        final HandlerDispatchConfiguration dispatchConfiguration = dispatchConfiguration(2, OverloadPolicy.SHED);
+        dispatchConfiguration.setLowPriorityTopics(singletonList("access"));
+        configuration.setHandlerDispatch(dispatchConfigurations(QUERY_HANDLER_NAME, dispatchConfiguration));
+        final CountDownLatch handlerEntered = new CountDownLatch(1);
+        final CountDownLatch handlerReleased = new CountDownLatch(1);
+        final AuditEventHandler queryHandler = blockingHandler(QUERY_HANDLER_NAME, handlerEntered, handlerReleased);
+        final AuditService auditService = new AuditServiceImpl(configuration, eventTopicsMetaData, asSet(queryHandler));
+        auditService.startup();
+        auditService.handleCreate(new RootContext(), makeCreateRequest("activity"));
+        handlerEntered.await();
+        auditService.handleCreate(new RootContext(), makeCreateRequest("activity"));
+
+        //when
+        final Promise<ResourceResponse, ResourceException> shed =
+                auditService.handleCreate(new RootContext(), makeCreateRequest("access"));
+        final Promise<ResourceResponse, ResourceException> queued =
+                auditService.handleCreate(new RootContext(), makeCreateRequest("activity"));
+
+        //then
+        assertThatPromise(shed).failedWithException().isInstanceOf(ServiceUnavailableException.class);
+        final HandlerDispatchMetrics metrics = auditService.getHandlerDispatchMetrics(QUERY_HANDLER_NAME);
+        assertThat(metrics.getQueueDepth()).isEqualTo(2);
+        assertThat(metrics.getShedCount()).isEqualTo(1);
+
+        handlerReleased.countDown();
+        assertThatPromise(queued).succeeded();
+        auditService.shutdown();
+        verify(queryHandler, times(3)).publishEvent(any(Context.class), eq("activity"), any(JsonValue.class));
+        verify(queryHandler, times(0)).publishEvent(any(Context.class), eq("access"), any(JsonValue.class));
+    }
+
     private AuditServiceConfiguration getAuditServiceConfiguration(String queryHandlerName, String topic) {
         final AuditServiceConfiguration config = new AuditServiceConfiguration();
         config.setHandlerForQueries(queryHandlerName);
@@ -887,6 +995,44 @@ public class AuditServiceImplTest {
         return spy(new PassThroughAuditEventHandler(configuration, eventTopicsMetaData));
     }
 
+    private static HandlerDispatchConfiguration dispatchConfiguration(int queueCapacity,
+            OverloadPolicy overloadPolicy) {
+        final HandlerDispatchConfiguration configuration = new HandlerDispatchConfiguration();
+        configuration.setQueueCapacity(queueCapacity);
+        configuration.setOverloadPolicy(overloadPolicy);
+        return configuration;
+    }
+
+    private static Map<String, HandlerDispatchConfiguration> dispatchConfigurations(Object... nameAndConfigurations) {
+        final Map<String, HandlerDispatchConfiguration> configurations = new LinkedHashMap<>();
+        for (int i = 0; i < nameAndConfigurations.length; i += 2) {
+            configurations.put((String) nameAndConfigurations[i],
+                    (HandlerDispatchConfiguration) nameAndConfigurations[i + 1]);
+        }
+        return configurations;
+    }
+
+    /**
+     * Mocks a handler whose publications wait until it is released.
+     */
+    private AuditEventHandler blockingHandler(String name, final CountDownLatch entered,
+            final CountDownLatch released) throws Exception {
+        final AuditEventHandler handler = mock(AuditEventHandler.class);
+        given(handler.isEnabled()).willReturn(true);
+        given(handler.getName()).willReturn(name);
+        given(handler.getHandledTopics()).willReturn(eventTopicsMetaData.getTopics());
+        willAnswer(new Answer<Promise<ResourceResponse, ResourceException>>() {
+            @Override
+            public Promise<ResourceResponse, ResourceException> answer(InvocationOnMock invocation) throws Throwable {
+                entered.countDown();
+                released.await();
+                final JsonValue event = invocation.getArgument(2);
+                return newResourceResponse(event.get("_id").asString(), null, event).asPromise();
+            }
+        }).given(handler).publishEvent(any(Context.class), any(String.class), any(JsonValue.class));
+        return handler;
+    }
+
     private Set<AuditEventHandler> asSet(AuditEventHandler... entries) {
         return new HashSet<>(Arrays.asList(entries));
 
@@ -0,0 +1,162 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.audit;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.forgerock.audit.events.EventTopicsMetaDataBuilder.coreTopicSchemas;
+import static org.forgerock.json.JsonValue.field;
+import static org.forgerock.json.JsonValue.json;
+import static org.forgerock.json.JsonValue.object;
+import static org.forgerock.json.resource.Responses.newResourceResponse;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.forgerock.audit.HandlerDispatchConfiguration.OverloadPolicy;
+import org.forgerock.audit.events.EventTopicsMetaData;
+import org.forgerock.audit.events.handlers.impl.PassThroughAuditEventHandler;
+import org.forgerock.audit.events.handlers.impl.PassThroughAuditEventHandlerConfiguration;
+import org.forgerock.json.JsonValue;
+import org.forgerock.json.resource.ResourceException;
+import org.forgerock.json.resource.ResourceResponse;
+import org.forgerock.json.resource.ServiceUnavailableException;
+import org.forgerock.services.context.Context;
+import org.forgerock.services.context.RootContext;
+import org.forgerock.util.promise.Promise;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class HandlerDispatcherTest {
+
+    private static final String TOPIC = "access";
+    private static final long STOP_TIMEOUT_MILLIS = 200;
+
+    @Test
+    public void shouldStopWithFullQueueAndBlockedHandler() throws Exception {
+        // given
+        final CountDownLatch handlerEntered = new CountDownLatch(1);
+        final CountDownLatch handlerReleased = new CountDownLatch(1);
+        final HandlerDispatcher dispatcher = new HandlerDispatcher(
+                blockingHandler(handlerEntered, handlerReleased), dispatchConfiguration(1), STOP_TIMEOUT_MILLIS);
+        dispatcher.start();
+        dispatcher.dispatch(new RootContext(), TOPIC, event("published"));
+        handlerEntered.await();
+        final Promise<ResourceResponse, ResourceException> queued =
+                dispatcher.dispatch(new RootContext(), TOPIC, event("queued"));
+        final AtomicReference<Promise<ResourceResponse, ResourceException>> blocked = new AtomicReference<>();
+        final Thread blockedPublisher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                blocked.set(dispatcher.dispatch(new RootContext(), TOPIC, event("blocked")));
+            }
+        });
+        blockedPublisher.start();
+        while (dispatcher.getMetrics().getBlockedCount() == 0) {
+            Thread.sleep(5L);
+        }
+
+        try {
+            // when
+            final long start = System.currentTimeMillis();
+            dispatcher.stop();
+            final long stopMillis = System.currentTimeMillis() - start;
+            blockedPublisher.join(SECONDS.toMillis(5L));
+
+            // then
+            assertThat(stopMillis).isLessThan(SECONDS.toMillis(5L));
+            assertThat(blockedPublisher.isAlive()).isFalse();
+            assertThat(failure(queued)).isInstanceOf(ServiceUnavailableException.class);
+            assertThat(failure(blocked.get())).isInstanceOf(ServiceUnavailableException.class);
+            assertThat(failure(dispatcher.dispatch(new RootContext(), TOPIC, event("late"))))
+                    .isInstanceOf(ServiceUnavailableException.class);
+            assertThat(dispatcher.getMetrics().getQueueDepth()).isEqualTo(0);
+        } finally {
+            handlerReleased.countDown();
+        }
+    }
+
+    @Test
+    public void shouldPublishQueuedEventsWhenStopped() throws Exception {
+        // given
+        final CountDownLatch handlerEntered = new CountDownLatch(1);
+        final CountDownLatch handlerReleased = new CountDownLatch(1);
+        final HandlerDispatcher dispatcher = new HandlerDispatcher(
+                blockingHandler(handlerEntered, handlerReleased), dispatchConfiguration(10), STOP_TIMEOUT_MILLIS);
+        dispatcher.start();
+        final Promise<ResourceResponse, ResourceException> published =
+                dispatcher.dispatch(new RootContext(), TOPIC, event("published"));
+        handlerEntered.await();
+        final Promise<ResourceResponse, ResourceException> queued =
+                dispatcher.dispatch(new RootContext(), TOPIC, event("queued"));
+
+        // when
+        handlerReleased.countDown();
+        dispatcher.stop();
+
+        // then
+        assertThat(published.get().getId()).isEqualTo("published");
+        assertThat(queued.get().getId()).isEqualTo("queued");
+        assertThat(dispatcher.getMetrics().getPublishedCount()).isEqualTo(2);
+    }
+
+    private static Exception failure(final Promise<ResourceResponse, ResourceException> promise)
+            throws InterruptedException {
+        try {
+            promise.get();
+            return null;
+        } catch (ExecutionException e) {
+            return (Exception) e.getCause();
+        }
+    }
+
+    private static JsonValue event(final String id) {
+        return json(object(field("_id", id)));
+    }
+
+    private static HandlerDispatchConfiguration dispatchConfiguration(final int queueCapacity) {
+        final HandlerDispatchConfiguration configuration = new HandlerDispatchConfiguration();
+        configuration.setQueueCapacity(queueCapacity);
+        configuration.setOverloadPolicy(OverloadPolicy.BLOCK);
+        return configuration;
+    }
+
+    /**
+     * Creates a handler whose publications wait until it is released.
+     */
+    private static PassThroughAuditEventHandler blockingHandler(final CountDownLatch entered,
+            final CountDownLatch released) {
+        final EventTopicsMetaData eventTopicsMetaData = coreTopicSchemas().build();
+        final PassThroughAuditEventHandlerConfiguration configuration = new PassThroughAuditEventHandlerConfiguration();
+        configuration.setName("blockingHandler");
+        configuration.setTopics(eventTopicsMetaData.getTopics());
+        return new PassThroughAuditEventHandler(configuration, eventTopicsMetaData) {
+            @Override
+            public Promise<ResourceResponse, ResourceException> publishEvent(final Context context,
+                    final String topic, final JsonValue event) {
+                entered.countDown();
+                try {
+                    released.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return new ServiceUnavailableException("Interrupted", e).asPromise();
+                }
+                return newResourceResponse(event.get("_id").asString(), null, event).asPromise();
+            }
+        };
+    }
+}
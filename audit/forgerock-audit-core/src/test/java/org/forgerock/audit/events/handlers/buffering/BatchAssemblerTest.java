@@ -0,0 +1,207 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.audit.events.handlers.buffering;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.forgerock.json.JsonValue.field;
+import static org.forgerock.json.JsonValue.json;
+import static org.forgerock.json.JsonValue.object;
+import static org.forgerock.util.promise.Promises.newResultPromise;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.forgerock.json.JsonValue;
+import org.forgerock.util.promise.Promise;
+import org.forgerock.util.promise.PromiseImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SuppressWarnings("javadoc")
+public class BatchAssemblerTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchAssemblerTest.class);
+    private static final String TOPIC = "access";
+
+    @Test
+    public void shouldNotReusePayloadUntilItsPublicationHasCompleted() throws Exception {
+        // given
+        final RecordingByteBatchConsumer consumer = new RecordingByteBatchConsumer();
+        final BatchAssembler assembler = new BatchAssembler(consumer, 32, logger);
+        assembler.add(TOPIC, event("1"));
+        assembler.publish();
+
+        // when
+        assembler.add(TOPIC, event("2"));
+        assembler.publish();
+        consumer.promises.get(0).handleResult(null);
+        assembler.add(TOPIC, event("3"));
+        assembler.publish();
+        assembler.add(TOPIC, event("4"));
+        assembler.publish();
+
+        // then
+        assertThat(consumer.payloads.get(1)).isNotSameAs(consumer.payloads.get(0));
+        assertThat(consumer.payloads.get(2)).isNotSameAs(consumer.payloads.get(0));
+        assertThat(consumer.payloads.get(3)).isSameAs(consumer.payloads.get(0));
+        assertThat(consumer.batches).containsExactly("1\n", "2\n", "3\n", "4\n");
+    }
+
+    @Test
+    public void shouldPoolALimitedNumberOfPayloads() throws Exception {
+        // given
+        final RecordingByteBatchConsumer consumer = new RecordingByteBatchConsumer();
+        final BatchAssembler assembler = new BatchAssembler(consumer, 32, logger);
+        for (int i = 0; i < 6; ++i) {
+            assembler.add(TOPIC, event(String.valueOf(i)));
+            assembler.publish();
+        }
+        assertThat(consumer.createdPayloads).isEqualTo(7);
+
+        // when
+        for (PromiseImpl<Void, BatchException> promise : consumer.promises) {
+            promise.handleResult(null);
+        }
+        for (int i = 0; i < 5; ++i) {
+            assembler.add(TOPIC, event(String.valueOf(i)));
+            assembler.publish();
+        }
+
+        // then - four payloads were reused, and one more had to be created
+        assertThat(consumer.createdPayloads).isEqualTo(8);
+    }
+
+    @Test
+    public void shouldNotPublishEmptyBatch() throws Exception {
+        // given
+        final RecordingByteBatchConsumer consumer = new RecordingByteBatchConsumer();
+        final BatchAssembler assembler = new BatchAssembler(consumer, 32, logger);
+
+        // when
+        assembler.publish();
+
+        // then
+        assertThat(consumer.batches).isEmpty();
+    }
+
+    @Test
+    public void shouldSkipEventThatCannotBeAddedToBatch() throws Exception {
+        // given
+        final RecordingByteBatchConsumer consumer = new RecordingByteBatchConsumer();
+        final BatchAssembler assembler = new BatchAssembler(consumer, 32, logger);
+
+        // when
+        assembler.add(TOPIC, event("1"));
+        assembler.add(TOPIC, json(object(field("invalid", true))));
+        assembler.add(TOPIC, event("2"));
+        assembler.publish();
+
+        // then
+        assertThat(consumer.batches).containsExactly("1\n2\n");
+    }
+
+    @Test
+    public void shouldBuildStringBatchesForOtherConsumers() throws Exception {
+        // given
+        final List<String> batches = new ArrayList<>();
+        final BatchAssembler assembler = new BatchAssembler(new BatchConsumer() {
+            @Override
+            public void addToBatch(final String topic, final JsonValue event, final StringBuilder payload) {
+                payload.append(event.get("_id").asString()).append('\n');
+            }
+
+            @Override
+            public Promise<Void, BatchException> publishBatch(final String payload) {
+                batches.add(payload);
+                return newResultPromise(null);
+            }
+        }, 32, logger);
+
+        // when
+        assembler.add(TOPIC, event("1"));
+        assembler.add(TOPIC, event("2"));
+        assembler.publish();
+        assembler.publish();
+        assembler.add(TOPIC, event("3"));
+        assembler.publish();
+
+        // then
+        assertThat(batches).containsExactly("1\n2\n", "3\n");
+    }
+
+    private static JsonValue event(final String id) {
+        return json(object(field("_id", id)));
+    }
+
+    /**
+     * Records the payloads it is asked to publish and their content, and leaves their publication pending until its
+     * promise is completed by the test.
+     */
+    private static final class RecordingByteBatchConsumer implements ByteBatchConsumer {
+        private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+        private final List<BatchPayload> payloads = new ArrayList<>();
+        private final List<String> batches = new ArrayList<>();
+        private final List<PromiseImpl<Void, BatchException>> promises = new ArrayList<>();
+        private int createdPayloads;
+
+        @Override
+        public BatchPayload newBatchPayload(final int initialCapacity) {
+            ++createdPayloads;
+            return new BatchPayload(OBJECT_MAPPER.getFactory(), initialCapacity, false);
+        }
+
+        @Override
+        public void addToBatch(final String topic, final JsonValue event, final BatchPayload payload)
+                throws BatchException {
+            if (event.get("_id").isNull()) {
+                throw new BatchException("Missing _id");
+            }
+            try {
+                final JsonGenerator generator = payload.getJsonGenerator();
+                generator.writeRaw(event.get("_id").asString());
+                generator.writeRaw('\n');
+            } catch (IOException e) {
+                throw new BatchException("Unable to write event", e);
+            }
+        }
+
+        @Override
+        public Promise<Void, BatchException> publishBatch(final BatchPayload payload) {
+            payloads.add(payload);
+            batches.add(new String(payload.toByteArray(), UTF_8));
+            final PromiseImpl<Void, BatchException> promise = PromiseImpl.create();
+            promises.add(promise);
+            return promise;
+        }
+
+        @Override
+        public void addToBatch(final String topic, final JsonValue event, final StringBuilder payload) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Promise<Void, BatchException> publishBatch(final String payload) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.audit.events.handlers.buffering;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.forgerock.json.JsonValue.field;
+import static org.forgerock.json.JsonValue.object;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SuppressWarnings("javadoc")
+public class BatchPayloadTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Test
+    public void shouldGrowPastInitialCapacity() throws Exception {
+        // given
+        final BatchPayload payload = new BatchPayload(OBJECT_MAPPER.getFactory(), 32, false);
+
+        // when
+        final String expected = writeEvents(payload, 0, 100);
+        payload.finish();
+
+        // then
+        final byte[] expectedBytes = expected.getBytes(UTF_8);
+        assertThat(payload.isCompressed()).isFalse();
+        assertThat(payload.size()).isEqualTo(expectedBytes.length);
+        assertThat(payload.toByteArray()).isEqualTo(expectedBytes);
+        assertThat(readFully(payload.newInputStream())).isEqualTo(expectedBytes);
+    }
+
+    @Test
+    public void shouldGzipPayloadAsItIsWritten() throws Exception {
+        // given
+        final BatchPayload payload = new BatchPayload(OBJECT_MAPPER.getFactory(), 32, true);
+
+        // when
+        final String expected = writeEvents(payload, 0, 100);
+        payload.finish();
+
+        // then
+        assertThat(payload.isCompressed()).isTrue();
+        assertThat(payload.size()).isEqualTo(payload.toByteArray().length);
+        assertThat(payload.size()).isLessThan(expected.getBytes(UTF_8).length);
+        assertThat(gunzip(payload.newInputStream())).isEqualTo(expected);
+    }
+
+    @Test
+    public void shouldBeEmptyUntilWrittenTo() throws Exception {
+        // given
+        final BatchPayload payload = new BatchPayload(OBJECT_MAPPER.getFactory(), 32, false);
+        assertThat(payload.isEmpty()).isTrue();
+
+        // when
+        writeEvents(payload, 0, 1);
+
+        // then
+        assertThat(payload.isEmpty()).isFalse();
+    }
+
+    @Test
+    public void shouldHoldOnlyNextBatchOnceReset() throws Exception {
+        // given
+        final BatchPayload payload = new BatchPayload(OBJECT_MAPPER.getFactory(), 32, true);
+        writeEvents(payload, 0, 100);
+        payload.finish();
+
+        // when
+        payload.reset();
+        final boolean emptyOnceReset = payload.isEmpty();
+        final String expected = writeEvents(payload, 100, 102);
+        payload.finish();
+
+        // then
+        assertThat(emptyOnceReset).isTrue();
+        assertThat(gunzip(payload.newInputStream())).isEqualTo(expected);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectWritesOnceFinished() throws Exception {
+        // given
+        final BatchPayload payload = new BatchPayload(OBJECT_MAPPER.getFactory(), 32, false);
+        writeEvents(payload, 0, 1);
+        payload.finish();
+
+        // when
+        payload.getJsonGenerator();
+    }
+
+    /**
+     * Writes events with the identifiers {@code from} to {@code to} (exclusive), one per line.
+     *
+     * @return the expected content of the payload
+     */
+    private static String writeEvents(final BatchPayload payload, final int from, final int to) throws IOException {
+        final StringBuilder expected = new StringBuilder();
+        for (int i = from; i < to; ++i) {
+            final JsonGenerator generator = payload.getJsonGenerator();
+            generator.writeObject(object(field("_id", "event-" + i)));
+            generator.writeRaw('\n');
+            expected.append("{\"_id\":\"event-").append(i).append("\"}\n");
+        }
+        return expected.toString();
+    }
+
+    private static String gunzip(final InputStream in) throws IOException {
+        try (InputStream gzip = new GZIPInputStream(in)) {
+            return new String(readFully(gzip), UTF_8);
+        }
+    }
+
+    private static byte[] readFully(final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
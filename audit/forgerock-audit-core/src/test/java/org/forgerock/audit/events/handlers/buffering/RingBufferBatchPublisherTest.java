@@ -0,0 +1,384 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.audit.events.handlers.buffering;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.forgerock.json.JsonValue.field;
+import static org.forgerock.json.JsonValue.json;
+import static org.forgerock.json.JsonValue.object;
+import static org.forgerock.util.promise.Promises.newResultPromise;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.forgerock.audit.events.handlers.buffering.RingBufferBatchPublisher.OverflowPolicy;
+import org.forgerock.audit.events.handlers.buffering.RingBufferBatchPublisher.WaitStrategy;
+import org.forgerock.json.JsonValue;
+import org.forgerock.util.promise.Promise;
+import org.forgerock.util.time.Duration;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class RingBufferBatchPublisherTest {
+
+    private static final int RING_SIZE = 16384;
+    private static final String TOPIC = "access";
+
+    @DataProvider
+    public Object[][] waitStrategies() {
+        final WaitStrategy[] values = WaitStrategy.values();
+        final Object[][] results = new Object[values.length][1];
+        for (int i = 0; i < values.length; ++i) {
+            results[i][0] = values[i];
+        }
+        return results;
+    }
+
+    @Test(dataProvider = "waitStrategies")
+    public void shouldPublishEveryEventFromConcurrentProducers(final WaitStrategy waitStrategy) throws Exception {
+        // given
+        final RecordingBatchConsumer consumer = new RecordingBatchConsumer();
+        final BatchPublisher publisher = RingBufferBatchPublisher.newBuilder(consumer)
+                .waitStrategy(waitStrategy)
+                .overflowPolicy(OverflowPolicy.BLOCK)
+                .writeInterval(Duration.duration("10 ms"))
+                .autoFlush(true)
+                .build();
+        publisher.startup();
+
+        // when
+        final int producers = 4;
+        final int eventsPerProducer = 20000;
+        final List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; ++p) {
+            final int producer = p;
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < eventsPerProducer; ++i) {
+                        assertThat(publisher.offer(TOPIC, event(producer + "-" + i))).isTrue();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        publisher.shutdown();
+
+        // then
+        assertThat(consumer.getEventIds()).hasSize(producers * eventsPerProducer);
+        assertThat(new HashSet<>(consumer.getEventIds())).hasSize(producers * eventsPerProducer);
+    }
+
+    @Test(dataProvider = "waitStrategies")
+    public void shouldPublishEveryAcceptedEventWhenShutDownDuringOffers(final WaitStrategy waitStrategy)
+            throws Exception {
+        for (int round = 0; round < 20; ++round) {
+            // given
+            final RecordingBatchConsumer consumer = new RecordingBatchConsumer();
+            final BatchPublisher publisher = RingBufferBatchPublisher.newBuilder(consumer)
+                    .waitStrategy(waitStrategy)
+                    .overflowPolicy(OverflowPolicy.BLOCK)
+                    .writeInterval(Duration.duration("1 ms"))
+                    .autoFlush(true)
+                    .build();
+            publisher.startup();
+            final List<String> accepted = Collections.synchronizedList(new ArrayList<String>());
+            final CountDownLatch offering = new CountDownLatch(4);
+            final List<Thread> threads = new ArrayList<>();
+            for (int p = 0; p < 4; ++p) {
+                final int producer = p;
+                final Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        offering.countDown();
+                        for (int i = 0; ; ++i) {
+                            final String id = producer + "-" + i;
+                            if (!publisher.offer(TOPIC, event(id))) {
+                                return;
+                            }
+                            accepted.add(id);
+                        }
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+
+            // when
+            offering.await();
+            publisher.shutdown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            // then
+            assertThat(new HashSet<>(consumer.getEventIds())).isEqualTo(new HashSet<>(accepted));
+        }
+    }
+
+    @Test
+    public void shouldDropAndCountEventsWhenFull() throws Exception {
+        // given
+        final RecordingBatchConsumer consumer = new RecordingBatchConsumer();
+        final RingBufferBatchPublisher publisher = (RingBufferBatchPublisher) RingBufferBatchPublisher
+                .newBuilder(consumer)
+                .overflowPolicy(OverflowPolicy.DROP)
+                .autoFlush(true)
+                .build();
+
+        // when - the consumer thread is not started, so nothing is taken from the ring buffer
+        for (int i = 0; i < RING_SIZE; ++i) {
+            assertThat(publisher.offer(TOPIC, event(String.valueOf(i)))).isTrue();
+        }
+        final boolean offered = publisher.offer(TOPIC, event("overflow"));
+
+        // then
+        assertThat(offered).isFalse();
+        assertThat(publisher.getQueueDepth()).isEqualTo(RING_SIZE);
+        assertThat(publisher.getDroppedEventCount()).isEqualTo(1L);
+        assertThat(publisher.getMetrics().getQueueDepth()).isEqualTo(RING_SIZE);
+        assertThat(publisher.getMetrics().getCapacity()).isEqualTo(RING_SIZE);
+        assertThat(publisher.getMetrics().getDroppedEventCount()).isEqualTo(1L);
+
+        publisher.startup();
+        publisher.shutdown();
+        assertThat(consumer.getEventIds()).hasSize(RING_SIZE).doesNotContain("overflow");
+        assertThat(publisher.getQueueDepth()).isZero();
+    }
+
+    @Test
+    public void shouldSpillEventsWhenFullAndPublishThemOnceDrained() throws Exception {
+        // given
+        final Path spillDirectory = Files.createTempDirectory("spill");
+        final RecordingBatchConsumer consumer = new RecordingBatchConsumer();
+        final RingBufferBatchPublisher publisher = (RingBufferBatchPublisher) RingBufferBatchPublisher
+                .newBuilder(consumer)
+                .overflowPolicy(OverflowPolicy.SPILL)
+                .spillDirectory(spillDirectory)
+                .autoFlush(true)
+                .build();
+
+        // when
+        final int spilled = 1000;
+        for (int i = 0; i < RING_SIZE + spilled; ++i) {
+            assertThat(publisher.offer(TOPIC, event(String.valueOf(i)))).isTrue();
+        }
+        publisher.startup();
+        publisher.shutdown();
+
+        // then
+        assertThat(publisher.getSpilledEventCount()).isEqualTo(spilled);
+        assertThat(publisher.getDroppedEventCount()).isZero();
+        final List<String> eventIds = consumer.getEventIds();
+        assertThat(eventIds).hasSize(RING_SIZE + spilled);
+        assertThat(eventIds.subList(RING_SIZE, RING_SIZE + spilled))
+                .containsExactlyElementsOf(ids(RING_SIZE, RING_SIZE + spilled));
+        assertThat(listFiles(spillDirectory)).isEmpty();
+    }
+
+    @Test
+    public void shouldPublishEventsLeftInSpillDirectoryByPreviousInstance() throws Exception {
+        // given
+        final Path spillDirectory = Files.createTempDirectory("spill");
+        final SpillFile spillFile = new SpillFile(spillDirectory);
+        spillFile.append(TOPIC, event("left-over"));
+        spillFile.close();
+        final RecordingBatchConsumer consumer = new RecordingBatchConsumer();
+        final BatchPublisher publisher = RingBufferBatchPublisher.newBuilder(consumer)
+                .overflowPolicy(OverflowPolicy.SPILL)
+                .spillDirectory(spillDirectory)
+                .autoFlush(true)
+                .build();
+
+        // when
+        publisher.startup();
+        publisher.offer(TOPIC, event("new"));
+        publisher.shutdown();
+
+        // then
+        assertThat(consumer.getEventIds()).containsOnly("left-over", "new");
+        assertThat(listFiles(spillDirectory)).isEmpty();
+    }
+
+    @Test
+    public void shouldResumeReadingSpillFileAfterEventsAlreadyRead() throws Exception {
+        // given
+        final Path spillDirectory = Files.createTempDirectory("spill");
+        final SpillFile spillFile = new SpillFile(spillDirectory);
+        for (int i = 0; i < 3; ++i) {
+            spillFile.append(TOPIC, event(String.valueOf(i)));
+        }
+        final List<String> firstRead = new ArrayList<>();
+        spillFile.drain(1, recordingHandler(firstRead));
+
+        // when
+        spillFile.close();
+        final SpillFile reopened = new SpillFile(spillDirectory);
+        final List<String> secondRead = new ArrayList<>();
+        reopened.drain(10, recordingHandler(secondRead));
+        reopened.close();
+
+        // then
+        assertThat(firstRead).containsExactly("0");
+        assertThat(secondRead).containsExactly("1", "2");
+        assertThat(listFiles(spillDirectory)).isEmpty();
+    }
+
+    @Test
+    public void shouldSkipOnlyCorruptLinesOfSpillFile() throws Exception {
+        // given
+        final Path spillDirectory = Files.createTempDirectory("spill");
+        Files.write(spillDirectory.resolve("spill-00000000000000000001.jsonl"), Arrays.asList(
+                "{\"topic\":\"access\",\"event\":{\"_id\":\"before\"}}",
+                "not json",
+                "{\"topic\":\"access\",\"event\":{\"_id\":\"after\"}}",
+                "{\"topic\":\"access\",\"event\":{\"_id\":\"trunc"), UTF_8);
+        final SpillFile spillFile = new SpillFile(spillDirectory);
+
+        // when
+        final List<String> eventIds = new ArrayList<>();
+        spillFile.drain(10, recordingHandler(eventIds));
+        spillFile.close();
+
+        // then
+        assertThat(eventIds).containsExactly("before", "after");
+        assertThat(listFiles(spillDirectory)).isEmpty();
+    }
+
+    @Test
+    public void shouldCountEventsDiscardedOnShutdownWithoutFlush() throws Exception {
+        // given
+        final RecordingBatchConsumer consumer = new RecordingBatchConsumer();
+        final RingBufferBatchPublisher publisher = (RingBufferBatchPublisher) RingBufferBatchPublisher
+                .newBuilder(consumer)
+                .writeInterval(Duration.duration("1 minute"))
+                .autoFlush(false)
+                .build();
+        publisher.startup();
+        for (int i = 0; i < 10; ++i) {
+            assertThat(publisher.offer(TOPIC, event(String.valueOf(i)))).isTrue();
+        }
+
+        // when
+        publisher.shutdown();
+
+        // then
+        final long deadline = System.currentTimeMillis() + SECONDS.toMillis(5L);
+        while (publisher.getDroppedEventCount() < 10L && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5L);
+        }
+        assertThat(publisher.getDroppedEventCount()).isEqualTo(10L);
+        assertThat(publisher.getQueueDepth()).isZero();
+        assertThat(consumer.getEventIds()).isEmpty();
+    }
+
+    @Test
+    public void shouldPublishPartialBatchAfterWriteInterval() throws Exception {
+        // given
+        final RecordingBatchConsumer consumer = new RecordingBatchConsumer();
+        final BatchPublisher publisher = RingBufferBatchPublisher.newBuilder(consumer)
+                .writeInterval(Duration.duration("10 ms"))
+                .build();
+        publisher.startup();
+
+        try {
+            // when
+            publisher.offer(TOPIC, event("only"));
+
+            // then
+            final long deadline = System.currentTimeMillis() + SECONDS.toMillis(5L);
+            while (consumer.getEventIds().isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5L);
+            }
+            assertThat(consumer.getEventIds()).containsExactly("only");
+        } finally {
+            publisher.shutdown();
+        }
+    }
+
+    private static JsonValue event(final String id) {
+        return json(object(field("_id", id)));
+    }
+
+    private static SpillFile.EventHandler recordingHandler(final List<String> eventIds) {
+        return new SpillFile.EventHandler() {
+            @Override
+            public void handle(final String topic, final JsonValue event) {
+                eventIds.add(event.get("_id").asString());
+            }
+        };
+    }
+
+    private static List<String> ids(final int from, final int to) {
+        final List<String> ids = new ArrayList<>();
+        for (int i = from; i < to; ++i) {
+            ids.add(String.valueOf(i));
+        }
+        return ids;
+    }
+
+    private static Set<Path> listFiles(final Path directory) throws IOException {
+        final Set<Path> files = new HashSet<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Records the identifiers of published events, in publication order.
+     */
+    private static final class RecordingBatchConsumer implements BatchConsumer {
+        private final List<String> eventIds = Collections.synchronizedList(new ArrayList<String>());
+
+        @Override
+        public void addToBatch(final String topic, final JsonValue event, final StringBuilder payload) {
+            payload.append(event.get("_id").asString()).append('\n');
+        }
+
+        @Override
+        public Promise<Void, BatchException> publishBatch(final String payload) {
+            for (String id : payload.split("\n")) {
+                eventIds.add(id);
+            }
+            return newResultPromise(null);
+        }
+
+        List<String> getEventIds() {
+            synchronized (eventIds) {
+                return new ArrayList<>(eventIds);
+            }
+        }
+    }
+}
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.events.handlers.writers;
 
@@ -35,6 +36,7 @@ import org.forgerock.audit.rotation.FixedTimeRotationPolicy;
 import org.forgerock.audit.rotation.RotationPolicy;
 import org.forgerock.audit.rotation.SizeBasedRotationPolicy;
 import org.forgerock.audit.rotation.TimeLimitRotationPolicy;
+import org.forgerock.util.promise.Promise;
 import org.forgerock.util.time.Duration;
 import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormat;
@@ -306,6 +308,54 @@ public class RotatableWriterTest {
         assertThat(rotatableWriter.getBytesWritten()).isEqualTo(0L);
     }
 
+    @Test
+    public void testGroupCommitCompletesPromisesOnceTextIsForced() throws Exception {
+        // given
+        final File file = getTempFile();
+        final FileBasedEventHandlerConfiguration configuration = new DefaultFileBasedAuditEventHandlerConfiguration();
+        configuration.getGroupCommit().setEnabled(true);
+        configuration.getGroupCommit().setMaxDelay("1 hour");
+        configuration.getGroupCommit().setMaxBytes(MAX_BYTES_TO_WRITE);
+        rotatableWriter = new RotatableWriter(file, configuration, true);
+
+        // when
+        rotatableWriter.write("a");
+        final Promise<Void, IOException> first = rotatableWriter.commit();
+        rotatableWriter.write(new String(new byte[MAX_BYTES_TO_WRITE - 1]));
+        final Promise<Void, IOException> second = rotatableWriter.commit();
+
+        // then
+        // the second write reaches the maximum number of bytes, so both are committed long before the maximum delay
+        second.getOrThrow(10, SECONDS);
+        assertThat(first.isDone()).isTrue();
+        assertThat(file.length()).isEqualTo(MAX_BYTES_TO_WRITE);
+        final GroupCommitMetrics metrics = rotatableWriter.getGroupCommitMetrics();
+        assertThat(metrics.getCommitCount()).isEqualTo(1);
+        assertThat(metrics.getEventCount()).isEqualTo(2);
+        assertThat(metrics.getByteCount()).isEqualTo(MAX_BYTES_TO_WRITE);
+    }
+
+    @Test
+    public void testGroupCommitCompletesPendingPromisesOnClose() throws Exception {
+        // given
+        final File file = getTempFile();
+        final FileBasedEventHandlerConfiguration configuration = new DefaultFileBasedAuditEventHandlerConfiguration();
+        configuration.getGroupCommit().setEnabled(true);
+        configuration.getGroupCommit().setMaxDelay("1 hour");
+        rotatableWriter = new RotatableWriter(file, configuration, true);
+        rotatableWriter.write("a");
+        final Promise<Void, IOException> promise = rotatableWriter.commit();
+
+        // when
+        rotatableWriter.close();
+        rotatableWriter = null;
+
+        // then
+        assertThat(promise.isDone()).isTrue();
+        promise.getOrThrow();
+        assertThat(file.length()).isEqualTo(1);
+    }
+
     private void writeThenFlushBytes(final RotatableWriter writer, final int bytesToWrite) throws IOException {
         writer.write(new String(new byte[bytesToWrite]));
         writer.flush();
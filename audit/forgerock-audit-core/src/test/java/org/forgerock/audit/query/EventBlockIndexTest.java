@@ -0,0 +1,223 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.audit.query;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.forgerock.audit.util.JsonValueUtils.JSONVALUE_FILTER_VISITOR;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.forgerock.json.JsonPointer;
+import org.forgerock.json.JsonValue;
+import org.forgerock.json.resource.QueryFilters;
+import org.forgerock.util.query.QueryFilter;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class EventBlockIndexTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int BLOCK_SIZE = 4;
+    private static final int BLOOM_BITS = 256;
+
+    @DataProvider
+    public Object[][] queryFilters() {
+        return new Object[][] {
+            { "/timestamp ge \"0010\" and /timestamp lt \"0020\"" },
+            { "/timestamp gt \"0035\"" },
+            { "/timestamp le \"0003\"" },
+            { "/timestamp eq \"0021\"" },
+            { "/timestamp eq \"0013\"" },
+            { "/timestamp sw \"001\"" },
+            { "/transactionId eq \"TX-3\"" },
+            { "/userId eq \"user1\" or /timestamp lt \"0002\"" },
+            { "/userId eq \"nobody\"" },
+            { "!(/timestamp ge \"0010\")" },
+            { "true" },
+            { "false" },
+        };
+    }
+
+    @Test(dataProvider = "queryFilters")
+    public void testIndexedQueryMatchesFullScan(final String queryFilter) throws Exception {
+        final Path file = Files.createTempFile(EventBlockIndexTest.class.getSimpleName(), ".json");
+        try {
+            writeEvents(file, 0, 40, true);
+            final QueryFilter<JsonPointer> filter = QueryFilters.parse(queryFilter);
+
+            // first query builds the index, second query uses it
+            assertThat(query(file, filter)).isEqualTo(fullScan(file, filter));
+            assertThat(query(file, filter)).isEqualTo(fullScan(file, filter));
+
+            // events appended after the index was built
+            writeEvents(file, 40, 10, true);
+            assertThat(query(file, filter)).isEqualTo(fullScan(file, filter));
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(EventBlockIndex.indexPathFor(file));
+        }
+    }
+
+    @Test
+    public void testFindRangesSkipsBlocksOutsideTimestampRange() throws Exception {
+        final Path file = Files.createTempFile(EventBlockIndexTest.class.getSimpleName(), ".json");
+        try {
+            final List<Long> offsets = writeEvents(file, 0, 40, false);
+            final EventBlockIndex index = new EventBlockIndex(file, TestRecordCursor.FACTORY, BLOCK_SIZE, BLOOM_BITS);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                final List<EventBlockIndex.Range> ranges = index.findRanges(channel,
+                        QueryFilters.parse("/timestamp ge \"0010\" and /timestamp lt \"0014\""));
+
+                // the blocks of events 8 to 15, and the empty end of the file
+                assertThat(ranges).hasSize(2);
+                assertThat(ranges.get(0).getStart()).isEqualTo(offsets.get(8));
+                assertThat(ranges.get(0).getEnd()).isEqualTo(offsets.get(16));
+                assertThat(ranges.get(1).getStart()).isEqualTo(channel.size());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(EventBlockIndex.indexPathFor(file));
+        }
+    }
+
+    @Test
+    public void testIndexIsRebuiltWhenFileIsReplaced() throws Exception {
+        final Path file = Files.createTempFile(EventBlockIndexTest.class.getSimpleName(), ".json");
+        try {
+            final QueryFilter<JsonPointer> filter = QueryFilters.parse("/timestamp ge \"0030\"");
+            writeEvents(file, 0, 40, false);
+            assertThat(query(file, filter)).hasSize(10);
+
+            Files.delete(file);
+            writeEvents(file, 20, 40, false);
+            assertThat(query(file, filter)).hasSize(30);
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(EventBlockIndex.indexPathFor(file));
+        }
+    }
+
+    /**
+     * Appends events whose timestamp is their number, and which, if requested, include some {@code null}, missing,
+     * or non-string values.
+     *
+     * @return Offsets of the events, followed by the offset of the end of the file
+     */
+    private static List<Long> writeEvents(final Path file, final int first, final int count,
+            final boolean irregular) throws IOException {
+        final List<Long> offsets = new ArrayList<>();
+        final StringBuilder builder = new StringBuilder();
+        long offset = Files.exists(file) ? Files.size(file) : 0;
+        for (int i = first; i < first + count; ++i) {
+            offsets.add(offset);
+            final String line;
+            if (irregular && i % 13 == 5) {
+                line = "{\"timestamp\":null,\"transactionId\":\"tx-" + i % 7 + "\",\"userId\":null}";
+            } else if (irregular && i % 13 == 0) {
+                line = "{\"transactionId\":\"tx-" + i % 7 + "\"}";
+            } else if (irregular && i % 17 == 4) {
+                line = "{\"timestamp\":[\"" + String.format("%04d", i) + "\"],\"userId\":42}";
+            } else {
+                line = "{\"timestamp\":\"" + String.format("%04d", i) + "\",\"transactionId\":\"tx-" + i % 7
+                        + "\",\"userId\":\"User" + i % 3 + "\"}";
+            }
+            builder.append(line).append('\n');
+            offset += line.length() + 1;
+        }
+        offsets.add(offset);
+        Files.write(file, builder.toString().getBytes(UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        return offsets;
+    }
+
+    private static List<Object> query(final Path file, final QueryFilter<JsonPointer> filter) throws IOException {
+        final List<Object> results = new ArrayList<>();
+        final EventBlockIndex index = new EventBlockIndex(file, TestRecordCursor.FACTORY, BLOCK_SIZE, BLOOM_BITS);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (final EventBlockIndex.Range range : index.findRanges(channel, filter)) {
+                final BufferedReader reader =
+                        new BufferedReader(new InputStreamReader(range.newInputStream(channel), UTF_8));
+                readMatchingEvents(reader, filter, results);
+            }
+        }
+        return results;
+    }
+
+    private static List<Object> fullScan(final Path file, final QueryFilter<JsonPointer> filter)
+            throws IOException {
+        final List<Object> results = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, UTF_8)) {
+            readMatchingEvents(reader, filter, results);
+        }
+        return results;
+    }
+
+    private static void readMatchingEvents(final BufferedReader reader, final QueryFilter<JsonPointer> filter,
+            final List<Object> results) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            final JsonValue event = new JsonValue(MAPPER.readValue(line, Map.class));
+            if (filter.accept(JSONVALUE_FILTER_VISITOR, event)) {
+                results.add(event.getObject());
+            }
+        }
+    }
+
+    /**
+     * Cursor over JSON lines, parsing whole events.
+     */
+    private static final class TestRecordCursor extends RecordCursor {
+
+        static final RecordCursorFactory FACTORY = new RecordCursorFactory() {
+            @Override
+            public RecordCursor open(final FileChannel channel, final long offset) {
+                return new TestRecordCursor(channel, offset);
+            }
+        };
+
+        private Map<?, ?> event;
+
+        private TestRecordCursor(final FileChannel channel, final long offset) {
+            super(channel, offset, -1);
+        }
+
+        @Override
+        public Object getField(final String name) {
+            if (!event.containsKey(name)) {
+                return null;
+            }
+            final Object value = event.get(name);
+            return value == null ? NULL_VALUE : value;
+        }
+
+        @Override
+        protected void parseRecord(final byte[] bytes, final int offset, final int length) throws IOException {
+            event = MAPPER.readValue(bytes, offset, length, Map.class);
+        }
+    }
+}
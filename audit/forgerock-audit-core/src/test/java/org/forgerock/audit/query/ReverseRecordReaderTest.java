@@ -0,0 +1,101 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.audit.query;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.forgerock.json.resource.QueryRequest;
+import org.forgerock.json.resource.Requests;
+import org.testng.annotations.Test;
+
+public class ReverseRecordReaderTest {
+
+    @Test
+    public void testReadsJsonLinesBackwards() throws Exception {
+        final StringBuilder builder = new StringBuilder();
+        final List<String> lines = new ArrayList<>();
+        // enough lines for the reader to map more than one window
+        for (int i = 0; i < 100_000; ++i) {
+            final String line = "{\"_id\":\"" + i + "\",\"timestamp\":\"" + String.format("%010d", i) + "\"}";
+            lines.add(line);
+            builder.append(line).append('\n');
+        }
+        // the event being written is not read
+        builder.append("{\"_id\":");
+        Collections.reverse(lines);
+
+        assertThat(readBackwards(builder.toString(), -1, false)).isEqualTo(lines);
+    }
+
+    @Test
+    public void testReadsCsvRowsBackwardsSkippingHeader() throws Exception {
+        final String content = "\"_id\",\"message\"\r\n"
+                + "\"1\",\"first\"\r\n"
+                + "\"2\",\"multi\nline \"\"quoted\"\"\n\"\r\n"
+                + "\"3\",\"\"\"\nlast\"\r\n";
+
+        assertThat(readBackwards(content, '"', true)).containsExactly(
+                "\"3\",\"\"\"\nlast\"\r",
+                "\"2\",\"multi\nline \"\"quoted\"\"\n\"\r",
+                "\"1\",\"first\"\r");
+    }
+
+    @Test
+    public void testReadsNothingFromEmptyFile() throws Exception {
+        assertThat(readBackwards("", -1, false)).hasSize(0);
+        assertThat(readBackwards("\"_id\"\n", '"', true)).hasSize(0);
+    }
+
+    @Test
+    public void testIsNewestFirst() {
+        final QueryRequest request = Requests.newQueryRequest("access").addSortKey("-timestamp");
+        assertThat(ReverseRecordReader.isNewestFirst(request)).isFalse();
+        assertThat(ReverseRecordReader.isNewestFirst(request.setPageSize(10))).isTrue();
+        assertThat(ReverseRecordReader.isNewestFirst(
+                Requests.newQueryRequest("access").addSortKey("timestamp").setPageSize(10))).isFalse();
+        assertThat(ReverseRecordReader.isNewestFirst(
+                Requests.newQueryRequest("access").addSortKey("-_id").setPageSize(10))).isFalse();
+    }
+
+    private static List<String> readBackwards(final String content, final int quoteChar, final boolean header)
+            throws IOException {
+        final Path file = Files.createTempFile(ReverseRecordReaderTest.class.getSimpleName(), ".log");
+        try {
+            Files.write(file, content.getBytes(UTF_8));
+            final List<String> records = new ArrayList<>();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+                    ReverseRecordReader reader = new ReverseRecordReader(channel, quoteChar, header)) {
+                while (reader.previous()) {
+                    records.add(new String(reader.getRecord(), 0, reader.getRecordLength(), UTF_8));
+                }
+            }
+            return records;
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2017 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.retention;
 
@@ -54,4 +55,15 @@ public class TimestampFilenameFilterTest {
 
         assertThat(filter.accept(UNUSED, "test-2017.03.02-11.15.00.000")).isTrue();
     }
+
+    @Test
+    public void testFilterRetainsCompressedFiles() {
+        final TimestampFilenameFilter filter = new TimestampFilenameFilter(new File("test"), "prefix.", DATE_FORMAT);
+
+        assertThat(filter.accept(UNUSED, "prefix.test.gz")).isFalse();
+        assertThat(filter.accept(UNUSED, "prefix.test-2017.03.02-11.15.00.000.gz.tmp")).isFalse();
+        assertThat(filter.accept(UNUSED, "prefix.test-2017.03.02-11.15.00.000.gz.idx")).isFalse();
+
+        assertThat(filter.accept(UNUSED, "prefix.test-2017.03.02-11.15.00.000.gz")).isTrue();
+    }
 }
@@ -0,0 +1,184 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.audit.rotation;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import org.forgerock.audit.query.ReverseRecordReader;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+public class SeekableGzipTest {
+
+    private static final int BLOCK_SIZE = 1024;
+
+    @DataProvider
+    public Object[][] contentSizes() {
+        return new Object[][] {
+            { 0 },
+            { 1 },
+            { BLOCK_SIZE },
+            { 10 * BLOCK_SIZE + 17 },
+        };
+    }
+
+    @Test(dataProvider = "contentSizes")
+    public void testCompressedFileIsValidGzip(final int size) throws Exception {
+        final byte[] content = randomContent(size);
+        final Path file = compress(content);
+        try {
+            assertThat(Arrays.equals(gunzip(file), content)).isTrue();
+            try (InputStream in = SeekableGzip.newInputStream(file)) {
+                assertThat(Arrays.equals(readAll(in), content)).isTrue();
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test(dataProvider = "contentSizes")
+    public void testChannelReadsUncompressedContentAtAnyOffset(final int size) throws Exception {
+        final byte[] content = randomContent(size);
+        final Path file = compress(content);
+        try (FileChannel channel = SeekableGzip.openChannel(file)) {
+            assertThat(channel.size()).isEqualTo(size);
+            final Random random = new Random(size);
+            for (int i = 0; i < 100 && size > 0; ++i) {
+                final int offset = random.nextInt(size);
+                final ByteBuffer buffer = ByteBuffer.allocate(random.nextInt(3 * BLOCK_SIZE) + 1);
+                final int n = channel.read(buffer, offset);
+                assertThat(n).isEqualTo(Math.min(buffer.capacity(), size - offset));
+                assertThat(Arrays.equals(Arrays.copyOf(buffer.array(), n),
+                        Arrays.copyOfRange(content, offset, offset + n))).isTrue();
+            }
+            assertThat(channel.read(ByteBuffer.allocate(1), size)).isEqualTo(-1);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testReverseRecordReaderReadsCompressedFile() throws Exception {
+        final StringBuilder builder = new StringBuilder();
+        final List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 1000; ++i) {
+            final String line = "{\"_id\":\"" + i + "\"}";
+            lines.add(line);
+            builder.append(line).append('\n');
+        }
+        Collections.reverse(lines);
+        final Path file = compress(builder.toString().getBytes(UTF_8));
+        try (FileChannel channel = SeekableGzip.openChannel(file);
+                ReverseRecordReader reader = new ReverseRecordReader(channel, -1, false)) {
+            final List<String> records = new ArrayList<>();
+            while (reader.previous()) {
+                records.add(new String(reader.getRecord(), 0, reader.getRecordLength(), UTF_8));
+            }
+            assertThat(records).isEqualTo(lines);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testCompressorReplacesArchiveAndMovesSidecars() throws Exception {
+        final Path directory = Files.createTempDirectory(SeekableGzipTest.class.getSimpleName());
+        final Path archive = directory.resolve("access.csv-2026.01.01-00.00.00");
+        final Path compressed = SeekableGzip.compressedPathFor(archive);
+        try {
+            final byte[] content = randomContent(5 * BLOCK_SIZE);
+            Files.write(archive, content);
+            Files.write(directory.resolve(archive.getFileName() + ".blk"), new byte[] { 42 });
+            final FileTime lastModified = FileTime.fromMillis(1_000_000_000_000L);
+            Files.setLastModifiedTime(archive, lastModified);
+
+            final ArchiveCompressor compressor = new ArchiveCompressor(BLOCK_SIZE, Arrays.asList(".blk", ".idx"));
+            compressor.compress(archive);
+            // waits for the compression
+            compressor.close();
+
+            assertThat(Files.exists(archive)).isFalse();
+            assertThat(Files.exists(directory.resolve(archive.getFileName() + ".blk"))).isFalse();
+            assertThat(Files.exists(directory.resolve(compressed.getFileName() + ".blk"))).isTrue();
+            assertThat(Files.getLastModifiedTime(compressed)).isEqualTo(lastModified);
+            assertThat(Arrays.equals(gunzip(compressed), content)).isTrue();
+            assertThat(SeekableGzip.uncompressedPathFor(compressed)).isEqualTo(archive);
+            assertThat(SeekableGzip.findFile(archive)).isEqualTo(compressed);
+        } finally {
+            for (final String suffix : new String[] { "", ".blk" }) {
+                Files.deleteIfExists(directory.resolve(compressed.getFileName() + suffix));
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private static Path compress(final byte[] content) throws IOException {
+        final Path source = Files.createTempFile(SeekableGzipTest.class.getSimpleName(), ".log");
+        final Path target = SeekableGzip.compressedPathFor(source);
+        try {
+            Files.write(source, content);
+            SeekableGzip.compress(source, target, BLOCK_SIZE);
+            return target;
+        } finally {
+            Files.delete(source);
+        }
+    }
+
+    private static byte[] gunzip(final Path file) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            return readAll(in);
+        }
+    }
+
+    private static byte[] readAll(final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Generates text with some repetition, so that it compresses a little.
+     */
+    private static byte[] randomContent(final int size) {
+        final Random random = new Random(size);
+        final byte[] content = new byte[size];
+        for (int i = 0; i < size; ++i) {
+            content[i] = (byte) ('a' + random.nextInt(8));
+        }
+        return content;
+    }
+}
@@ -12,10 +12,12 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.audit.util;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.assertj.core.data.MapEntry;
 import org.forgerock.json.JsonValue;
@@ -28,6 +30,7 @@ import static org.forgerock.http.util.Json.readJson;
 import static org.forgerock.json.JsonValue.*;
 
 import java.io.InputStream;
+import java.io.StringWriter;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -89,6 +92,66 @@ public class ElasticsearchUtilTest {
                 .isEqualTo(OBJECT_MAPPER.writeValueAsString(beforeNormalization.getObject()));
     }
 
+    @Test
+    public void writeNormalizedJsonMatchesNormalizeJsonTest() throws Exception {
+        // given
+        final JsonValue beforeNormalization = resourceAsJsonValue(RESOURCE_PATH + "authEventBeforeNormalization.json");
+        final StringWriter writer = new StringWriter();
+
+        // when
+        try (JsonGenerator generator = OBJECT_MAPPER.getFactory().createGenerator(writer)) {
+            writeNormalizedJson(beforeNormalization, generator);
+        }
+
+        // then
+        assertThat(readJson(writer.toString())).isEqualTo(readJson(normalizeJson(beforeNormalization)));
+    }
+
+    @Test
+    public void writeNormalizedJsonWithRenamedFieldTest() throws Exception {
+        // given
+        final JsonValue beforeNormalization = resourceAsJsonValue(RESOURCE_PATH + "authEventBeforeNormalization.json");
+        final String original = OBJECT_MAPPER.writeValueAsString(beforeNormalization.getObject());
+        final StringWriter writer = new StringWriter();
+
+        // when
+        try (JsonGenerator generator = OBJECT_MAPPER.getFactory().createGenerator(writer)) {
+            writeNormalizedJson(beforeNormalization, "_id", "_eventId", generator);
+        }
+
+        // then
+        assertThat(OBJECT_MAPPER.writeValueAsString(beforeNormalization.getObject())).isEqualTo(original);
+        renameField(beforeNormalization, "_id", "_eventId");
+        assertThat(readJson(writer.toString())).isEqualTo(readJson(normalizeJson(beforeNormalization)));
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void writeNormalizedJsonRejectsExistingRenamedFieldTest() throws Exception {
+        final JsonValue value = json(object(field("_id", "id"), field("_eventId", "eventId")));
+        try (JsonGenerator generator = OBJECT_MAPPER.getFactory().createGenerator(new StringWriter())) {
+            writeNormalizedJson(value, "_id", "_eventId", generator);
+        }
+    }
+
+    @Test
+    public void writeBulkIndexActionTest() throws Exception {
+        // given
+        final JsonValue source = json(object(field("a.b", "value")));
+        final StringWriter writer = new StringWriter();
+
+        // when
+        try (JsonGenerator generator = OBJECT_MAPPER.getFactory().createGenerator(writer)) {
+            writeBulkIndexAction("access", "id", source, generator);
+        }
+
+        // then
+        final String[] lines = writer.toString().split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(readJson(lines[0]))
+                .isEqualTo(object(field("index", object(field("_type", "access"), field("_id", "id")))));
+        assertThat(readJson(lines[1])).isEqualTo(readJson(normalizeJson(source)));
+    }
+
     @Test
     public void renameFieldTest() throws Exception {
         // given
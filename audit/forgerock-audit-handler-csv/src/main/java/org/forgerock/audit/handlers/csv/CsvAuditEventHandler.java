@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2017 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.csv;
 
@@ -23,6 +24,7 @@ import static org.forgerock.audit.events.AuditEventHelper.getAuditEventPropertie
 import static org.forgerock.audit.events.AuditEventHelper.getAuditEventSchema;
 import static org.forgerock.audit.events.AuditEventHelper.getPropertyType;
 import static org.forgerock.audit.events.AuditEventHelper.jsonPointerToDotNotation;
+import static org.forgerock.audit.query.EventBlockIndex.isQueryArchives;
 import static org.forgerock.audit.util.JsonSchemaUtils.generateJsonPointers;
 import static org.forgerock.audit.util.JsonValueUtils.JSONVALUE_FILTER_VISITOR;
 import static org.forgerock.audit.util.JsonValueUtils.expand;
@@ -34,16 +36,19 @@ import static org.forgerock.json.resource.Responses.newQueryResponse;
 import static org.forgerock.json.resource.Responses.newResourceResponse;
 import static org.forgerock.util.Utils.isNullOrEmpty;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.NoSuchFileException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -58,10 +63,17 @@ import javax.inject.Inject;
 import org.forgerock.audit.Audit;
 import org.forgerock.audit.events.EventTopicsMetaData;
 import org.forgerock.audit.events.handlers.AuditEventHandlerBase;
+import org.forgerock.audit.events.handlers.writers.GroupCommitMetrics;
 import org.forgerock.audit.handlers.csv.CsvAuditEventHandlerConfiguration.CsvSecurity;
 import org.forgerock.audit.handlers.csv.CsvAuditEventHandlerConfiguration.EventBufferingConfiguration;
 import org.forgerock.audit.providers.KeyStoreHandlerProvider;
+import org.forgerock.audit.query.EventBlockIndex;
+import org.forgerock.audit.query.EventBlockIndex.Range;
+import org.forgerock.audit.query.PagedQueryResourceHandler;
+import org.forgerock.audit.query.RecordCursorFactory;
+import org.forgerock.audit.query.ReverseRecordReader;
 import org.forgerock.audit.retention.TimeStampFileNamingPolicy;
+import org.forgerock.audit.rotation.SeekableGzip;
 import org.forgerock.audit.secure.JcaKeyStoreHandler;
 import org.forgerock.audit.secure.KeyStoreHandler;
 import org.forgerock.audit.util.JsonValueUtils;
@@ -70,6 +82,7 @@ import org.forgerock.json.JsonValue;
 import org.forgerock.json.resource.ActionRequest;
 import org.forgerock.json.resource.ActionResponse;
 import org.forgerock.json.resource.BadRequestException;
+import org.forgerock.json.resource.IdentifierQueryResourceHandler;
 import org.forgerock.json.resource.InternalServerErrorException;
 import org.forgerock.json.resource.NotFoundException;
 import org.forgerock.json.resource.QueryFilters;
@@ -80,16 +93,17 @@ import org.forgerock.json.resource.ResourceException;
 import org.forgerock.json.resource.ResourceResponse;
 import org.forgerock.json.resource.Responses;
 import org.forgerock.services.context.Context;
+import org.forgerock.util.Function;
 import org.forgerock.util.Reject;
 import org.forgerock.util.promise.Promise;
+import org.forgerock.util.promise.Promises;
 import org.forgerock.util.query.QueryFilter;
 import org.forgerock.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.supercsv.cellprocessor.Optional;
 import org.supercsv.cellprocessor.ift.CellProcessor;
-import org.supercsv.io.CsvMapReader;
-import org.supercsv.io.ICsvMapReader;
+import org.supercsv.io.Tokenizer;
 import org.supercsv.prefs.CsvPreference;
 import org.supercsv.quote.AlwaysQuoteMode;
 import org.supercsv.util.CsvContext;
@@ -98,6 +112,12 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * Handles AuditEvents by writing them to a CSV file.
+ * <p>
+ * Queries skip the parts of files that cannot hold matching events, using an {@link EventBlockIndex} of each file.
+ * Archived files are also queried, oldest first, when the {@value EventBlockIndex#QUERY_ARCHIVES_PARAMETER} query
+ * parameter is {@code true}. Queries for a page of the newest events, sorted by {@code -timestamp}, read the files
+ * backwards with a {@link ReverseRecordReader} instead. Archived files compressed in the
+ * {@link SeekableGzip seekable gzip format} are read as if they were uncompressed.
  */
 public class CsvAuditEventHandler extends AuditEventHandlerBase {
 
@@ -121,6 +141,10 @@ public class CsvAuditEventHandler extends AuditEventHandlerBase {
 
     private final CsvAuditEventHandlerConfiguration configuration;
     private final CsvPreference csvPreference;
+    /** Factory of cursors used to index audit files, or {@code null} if they cannot be indexed. */
+    private final RecordCursorFactory cursorFactory;
+    /** Whether the rows of audit files can be delimited when reading backwards, from the newest. */
+    private final boolean reversible;
     private final ConcurrentMap<String, CsvWriter> writers = new ConcurrentHashMap<>();
     private final Map<String, Set<String>> fieldOrderByTopic;
     /** Caches a JSON pointer for each field. */
@@ -148,6 +172,9 @@ public class CsvAuditEventHandler extends AuditEventHandlerBase {
         super(configuration.getName(), eventTopicsMetaData, configuration.getTopics(), configuration.isEnabled());
         this.configuration = configuration;
         this.csvPreference = createCsvPreference(this.configuration);
+        this.cursorFactory = CsvRecordCursor.factory(
+                csvPreference.getQuoteChar(), csvPreference.getDelimiterChar(), Charset.defaultCharset());
+        this.reversible = cursorFactory != null && csvPreference.getEndOfLineSymbols().endsWith("\n");
         CsvSecurity security = configuration.getSecurity();
         if (security.isEnabled()) {
             Duration duration = security.getSignatureIntervalDuration();
@@ -246,14 +273,37 @@ public class CsvAuditEventHandler extends AuditEventHandlerBase {
     public Promise<ResourceResponse, ResourceException> publishEvent(Context context, String topic, JsonValue event) {
         try {
             checkTopic(topic);
-            publishEventWithRetry(topic, event);
-            return newResourceResponse(
-                    event.get(ResourceResponse.FIELD_CONTENT_ID).asString(), null, event).asPromise();
+            final Promise<Void, IOException> commit = publishEventWithRetry(topic, event);
+            final ResourceResponse response = newResourceResponse(
+                    event.get(ResourceResponse.FIELD_CONTENT_ID).asString(), null, event);
+            // with group commit, the event is published once committed
+            return commit.then(new Function<Void, ResourceResponse, ResourceException>() {
+                @Override
+                public ResourceResponse apply(Void value) {
+                    return response;
+                }
+            }, new Function<IOException, ResourceResponse, ResourceException>() {
+                @Override
+                public ResourceResponse apply(IOException e) throws ResourceException {
+                    throw new InternalServerErrorException("Unable to commit audit event", e);
+                }
+            });
         } catch (ResourceException e) {
             return e.asPromise();
         }
     }
 
+    /**
+     * Gets the metrics of the group commits of the writer of a topic, since the writer was opened.
+     *
+     * @param topic The topic.
+     * @return The group commit metrics, or {@code null} if group commit is disabled or the topic has no writer.
+     */
+    public GroupCommitMetrics getGroupCommitMetrics(String topic) {
+        final CsvWriter csvWriter = writers.get(topic);
+        return csvWriter == null ? null : csvWriter.getGroupCommitMetrics();
+    }
+
     private void checkTopic(String topic) throws ResourceException {
         final JsonValue auditEventProperties = getAuditEventProperties(eventTopicsMetaData.getSchema(topic));
         if (auditEventProperties == null || auditEventProperties.isNull()) {
@@ -262,13 +312,13 @@ public class CsvAuditEventHandler extends AuditEventHandlerBase {
     }
 
     /**
-     * Publishes the provided event, and returns the writer used.
+     * Publishes the provided event, and returns the promise of its commit.
      */
-    private void publishEventWithRetry(final String topic, final JsonValue event)
+    private Promise<Void, IOException> publishEventWithRetry(final String topic, final JsonValue event)
                     throws ResourceException {
         final CsvWriter csvWriter = getWriter(topic);
         try {
-            writeEvent(topic, csvWriter, event);
+            return writeEvent(topic, csvWriter, event);
         } catch (IOException ex) {
             // Re-try once in case the writer stream became closed for some reason
             LOGGER.debug("IOException while writing ({})", ex.getMessage());
@@ -288,7 +338,7 @@ public class CsvAuditEventHandler extends AuditEventHandlerBase {
                 }
             }
             try {
-                writeEvent(topic, newCsvWriter, event);
+                return writeEvent(topic, newCsvWriter, event);
             } catch (IOException e) {
                 throw new BadRequestException(e);
             }
@@ -318,14 +368,18 @@ public class CsvAuditEventHandler extends AuditEventHandlerBase {
         return csvWriter;
     }
 
-    private CsvWriter writeEvent(final String topic, CsvWriter csvWriter, final JsonValue event)
+    private Promise<Void, IOException> writeEvent(final String topic, CsvWriter csvWriter, final JsonValue event)
                     throws IOException {
         writeEntry(topic, csvWriter, event);
+        if (configuration.getGroupCommit().isEnabled()) {
+            // the group commit flushes the event
+            return csvWriter.commit();
+        }
         EventBufferingConfiguration bufferConfig = configuration.getBuffering();
         if (!bufferConfig.isEnabled() || !bufferConfig.isAutoFlush()) {
             csvWriter.flush();
         }
-        return csvWriter;
+        return Promises.newResultPromise(null);
     }
 
     private Set<String> getFieldOrder(final String topic, final EventTopicsMetaData eventTopicsMetaData)
@@ -350,16 +404,6 @@ public class CsvAuditEventHandler extends AuditEventHandlerBase {
         }
     }
 
-    private ICsvMapReader createCsvMapReader(final File auditFile) throws IOException {
-        CsvMapReader csvReader = new CsvMapReader(new FileReader(auditFile), csvPreference);
-
-        if (configuration.getSecurity().isEnabled()) {
-            return new CsvSecureMapReader(csvReader);
-        } else {
-            return csvReader;
-        }
-    }
-
     private String[] buildHeaders(final Collection<String> fieldOrder) {
         final String[] headers = new String[fieldOrder.size()];
         fieldOrder.toArray(headers);
@@ -371,6 +415,13 @@ public class CsvAuditEventHandler extends AuditEventHandlerBase {
 
     /**
      * Perform a query on the csv audit log.
+     * <p>
+     * Matching events are passed to the handler as they are read, until the handler returns {@code false}. Pages
+     * are selected with the page size, and either the paged results offset or the cookie returned with the previous
+     * page, which is the offset of the next page.
+     * <p>
+     * A query {@link ReverseRecordReader#isNewestFirst sorted by -timestamp} reads the audit file backwards, then the
+     * archived files, newest first, only until the page is full.
      * {@inheritDoc}
      */
     @Override
@@ -380,10 +431,10 @@ public class CsvAuditEventHandler extends AuditEventHandlerBase {
             QueryRequest query,
             QueryResourceHandler handler) {
         try {
-            for (final JsonValue value : getEntries(topic, query.getQueryFilter())) {
-                handler.handleResource(newResourceResponse(value.get(FIELD_CONTENT_ID).asString(), null, value));
-            }
-            return newQueryResponse().asPromise();
+            final PagedQueryResourceHandler pagedHandler = new PagedQueryResourceHandler(query, handler);
+            queryEntries(topic, query.getQueryFilter(), isQueryArchives(query),
+                    reversible && ReverseRecordReader.isNewestFirst(query), pagedHandler);
+            return newQueryResponse(pagedHandler.getPagedResultsCookie()).asPromise();
         } catch (Exception e) {
             return new BadRequestException(e).asPromise();
         }
@@ -396,12 +447,12 @@ public class CsvAuditEventHandler extends AuditEventHandlerBase {
     @Override
     public Promise<ResourceResponse, ResourceException> readEvent(Context context, String topic, String resourceId) {
         try {
-            final Set<JsonValue> entry = getEntries(topic, QueryFilters.parse("/_id eq \"" + resourceId + "\""));
-            if (entry.isEmpty()) {
+            final IdentifierQueryResourceHandler handler = new IdentifierQueryResourceHandler(resourceId);
+            queryEntries(topic, QueryFilters.parse("/_id eq \"" + resourceId + "\""), false, false, handler);
+            if (handler.getResourceResponse() == null) {
                 throw new NotFoundException(topic + " audit log not found");
             }
-            final JsonValue resource = entry.iterator().next();
-            return newResourceResponse(resource.get(FIELD_CONTENT_ID).asString(), null, resource).asPromise();
+            return handler.getResourceResponse().asPromise();
         } catch (ResourceException e) {
             return e.asPromise();
         } catch (IOException e) {
@@ -497,37 +548,152 @@ public class CsvAuditEventHandler extends AuditEventHandlerBase {
     }
 
     /**
-     * Parser the csv file corresponding the the specified audit entry type and returns a set of matching audit entries.
+     * Parses the csv files of the specified audit entry type, passing each matching audit entry to the handler as
+     * soon as it is read, until the handler returns {@code false}.
+     * <p>
+     * The cells of a row are tokenized into the same list, and processed into the same map, for every row.
      *
      * @param auditEntryType the audit log type
      * @param queryFilter the query filter to apply to the entries
-     * @return  A audit log entry; null if no entry exists
-     * @throws IOException If unable to get an entry from the CSV file.
+     * @param includeArchives whether to also parse the archived csv files, oldest first
+     * @param newestFirst whether to parse the csv files backwards, from the newest entry, then the archived csv
+     * files, newest first, as long as the handler requests more entries
+     * @param handler the handler of the matching entries
+     * @throws IOException If unable to read the CSV files.
+     * @throws ResourceException If the schema of the audit log type cannot be read.
      */
-    private Set<JsonValue> getEntries(final String auditEntryType, QueryFilter<JsonPointer> queryFilter)
-            throws IOException {
+    private void queryEntries(final String auditEntryType, QueryFilter<JsonPointer> queryFilter,
+            final boolean includeArchives, final boolean newestFirst, final QueryResourceHandler handler)
+            throws IOException, ResourceException {
         final File auditFile = getAuditLogFile(auditEntryType);
-        final Set<JsonValue> results = new HashSet<>();
         if (queryFilter == null) {
             queryFilter = QueryFilter.alwaysTrue();
         }
-        if (auditFile.exists()) {
-            try (ICsvMapReader reader = createCsvMapReader(auditFile)) {
-                // the header elements are used to map the values to the bean (names must match)
-                final String[] header = convertDotNotationToSlashes(reader.getHeader(true));
-                final CellProcessor[] processors = createCellProcessors(auditEntryType, header);
-                Map<String, Object> entry;
-                while ((entry = reader.read(header, processors)) != null) {
-                    entry = convertDotNotationToSlashes(entry);
-                    final JsonValue jsonEntry = expand(entry);
-                    if (queryFilter.accept(JSONVALUE_FILTER_VISITOR, jsonEntry)) {
-                        results.add(jsonEntry);
+        final List<String> cells = new ArrayList<>();
+        if (newestFirst) {
+            if (!queryFile(auditEntryType, auditFile, queryFilter, true, cells, handler)) {
+                return;
+            }
+            // the archives are only listed once the audit file has been read
+            final List<File> archivedFiles =
+                    configuration.getFileRotation().buildTimeStampFileNamingPolicy(auditFile).listFiles();
+            for (int i = archivedFiles.size() - 1; i >= 0; i--) {
+                if (!queryFile(auditEntryType, archivedFiles.get(i), queryFilter, true, cells, handler)) {
+                    return;
+                }
+            }
+            return;
+        }
+        if (includeArchives) {
+            final List<File> archivedFiles =
+                    configuration.getFileRotation().buildTimeStampFileNamingPolicy(auditFile).listFiles();
+            EventBlockIndex.deleteOrphanedIndexes(auditFile.getParentFile().toPath());
+            for (final File archivedFile : archivedFiles) {
+                if (!queryFile(auditEntryType, archivedFile, queryFilter, false, cells, handler)) {
+                    return;
+                }
+            }
+        }
+        queryFile(auditEntryType, auditFile, queryFilter, false, cells, handler);
+    }
+
+    /**
+     * Parses a csv file, forwards from the parts of the file that may hold matching entries, or backwards from its
+     * newest entry.
+     *
+     * @return {@code false} if the handler requested no more entries
+     */
+    private boolean queryFile(final String auditEntryType, final File listedFile,
+            final QueryFilter<JsonPointer> queryFilter, final boolean newestFirst, final List<String> cells,
+            final QueryResourceHandler handler) throws IOException, ResourceException {
+        final File file = SeekableGzip.findFile(listedFile.toPath()).toFile();
+        // the ranges are read from the same channel, in case the file is rotated meanwhile
+        try (FileChannel channel = openIfExists(file)) {
+            final String[] header = channel == null ? null : readHeader(channel, cells);
+            if (header == null) {
+                return true;
+            }
+            final RowMapper rowMapper = new RowMapper(file, header, createCellProcessors(auditEntryType, header),
+                    configuration.getSecurity().isEnabled());
+            if (newestFirst) {
+                try (ReverseRecordReader reader =
+                        new ReverseRecordReader(channel, csvPreference.getQuoteChar(), true)) {
+                    while (reader.previous()) {
+                        // the files are written with the default character set
+                        final Tokenizer tokenizer = new Tokenizer(new InputStreamReader(
+                                new ByteArrayInputStream(reader.getRecord(), 0, reader.getRecordLength()),
+                                Charset.defaultCharset()), csvPreference);
+                        if (tokenizer.readColumns(cells)
+                                && !handleEntry(rowMapper.map(cells, 0), queryFilter, handler)) {
+                            return false;
+                        }
+                    }
+                }
+                return true;
+            }
+            for (final Range range : findRanges(file, channel, queryFilter)) {
+                try (Tokenizer tokenizer = newTokenizer(channel, range)) {
+                    if (range.getStart() == 0) {
+                        // skip the header
+                        tokenizer.readColumns(cells);
+                    }
+                    while (tokenizer.readColumns(cells)) {
+                        if (!handleEntry(rowMapper.map(cells, tokenizer.getLineNumber()), queryFilter, handler)) {
+                            return false;
+                        }
                     }
                 }
+            }
+            return true;
+        }
+    }
+
+    private static boolean handleEntry(final JsonValue entry, final QueryFilter<JsonPointer> queryFilter,
+            final QueryResourceHandler handler) {
+        return !queryFilter.accept(JSONVALUE_FILTER_VISITOR, entry)
+                || handler.handleResource(newResourceResponse(entry.get(FIELD_CONTENT_ID).asString(), null, entry));
+    }
+
+    private static FileChannel openIfExists(final File file) throws IOException {
+        try {
+            return SeekableGzip.openChannel(file.toPath());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
 
+    private Tokenizer newTokenizer(final FileChannel channel, final Range range) {
+        // the files are written with the default character set
+        return new Tokenizer(new InputStreamReader(range.newInputStream(channel), Charset.defaultCharset()),
+                csvPreference);
+    }
+
+    /**
+     * Reads the header of a csv file, whose elements are used to map the values to the bean (names must match).
+     *
+     * @return header, without the HMAC and SIGNATURE columns of a secure file, or {@code null} if the file has no
+     * header yet
+     */
+    private String[] readHeader(final FileChannel channel, final List<String> cells) throws IOException {
+        try (Tokenizer tokenizer = newTokenizer(channel, new Range(0, Long.MAX_VALUE))) {
+            if (!tokenizer.readColumns(cells)) {
+                return null;
             }
         }
-        return results;
+        final int length = configuration.getSecurity().isEnabled() ? cells.size() - 2 : cells.size();
+        final String[] header = new String[length];
+        for (int i = 0; i < length; i++) {
+            header[i] = dotNotationToJsonPointer(cells.get(i));
+        }
+        return header;
+    }
+
+    private List<Range> findRanges(final File file, final FileChannel channel,
+            final QueryFilter<JsonPointer> queryFilter) throws IOException {
+        if (cursorFactory == null) {
+            return Collections.singletonList(new Range(0, Long.MAX_VALUE));
+        }
+        return new EventBlockIndex(file.toPath(), cursorFactory).findRanges(channel, queryFilter);
     }
 
     private CellProcessor[] createCellProcessors(final String auditEntryType, final String[] headers)
@@ -577,6 +743,50 @@ public class CsvAuditEventHandler extends AuditEventHandlerBase {
 
     }
 
+    /**
+     * Maps the cells of the rows of a csv file to audit entries, processing each row into the same map.
+     */
+    private static final class RowMapper {
+
+        private final File file;
+        private final String[] header;
+        private final CellProcessor[] processors;
+        /** Number of cells of a row, including the HMAC and SIGNATURE cells of a secure file, which are not mapped. */
+        private final int columnCount;
+        private final Map<String, Object> row = new LinkedHashMap<>();
+        private final CsvContext context = new CsvContext(0, 0, 0);
+
+        RowMapper(final File file, final String[] header, final CellProcessor[] processors, final boolean secure) {
+            this.file = file;
+            this.header = header;
+            this.processors = processors;
+            this.columnCount = secure ? header.length + 2 : header.length;
+        }
+
+        /**
+         * Maps the cells of a row.
+         *
+         * @param cells the cells of the row
+         * @param lineNumber the line number of the row, or {@code 0} if unknown
+         * @return the audit entry
+         * @throws IOException If the row does not have a cell per column.
+         */
+        JsonValue map(final List<String> cells, final int lineNumber) throws IOException {
+            if (cells.size() != columnCount) {
+                final String position = lineNumber > 0 ? "Line " + lineNumber + " of " + file : "A row of " + file;
+                throw new IOException(format("%s has %d columns instead of %d", position, cells.size(), columnCount));
+            }
+            context.setLineNumber(lineNumber);
+            context.setRowNumber(context.getRowNumber() + 1);
+            row.clear();
+            for (int i = 0; i < header.length; i++) {
+                context.setColumnNumber(i + 1);
+                row.put(header[i], processors[i].execute(cells.get(i), context));
+            }
+            return expand(row);
+        }
+    }
+
     private synchronized void cleanup() throws ResourceException {
         try {
             for (CsvWriter csvWriter : writers.values()) {
@@ -592,21 +802,4 @@ public class CsvAuditEventHandler extends AuditEventHandlerBase {
         }
     }
 
-    private Map<String, Object> convertDotNotationToSlashes(final Map<String, Object> entries) {
-        final Map<String, Object> newEntry = new LinkedHashMap<>();
-        for (Map.Entry<String, Object> entry : entries.entrySet()) {
-            final String key = dotNotationToJsonPointer(entry.getKey());
-            newEntry.put(key, entry.getValue());
-        }
-        return newEntry;
-    }
-
-    private String[] convertDotNotationToSlashes(final String[] entries) {
-        String[] result = new String[entries.length];
-        for (int i = 0; i < entries.length; i++) {
-            result[i] = dotNotationToJsonPointer(entries[i]);
-        }
-        return result;
-    }
-
 }
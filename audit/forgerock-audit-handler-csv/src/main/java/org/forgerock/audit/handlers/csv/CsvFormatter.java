@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.csv;
 
@@ -56,6 +57,24 @@ class CsvFormatter {
         return line;
     }
 
+    /**
+     * Formats the cells of an event as the start of a row, to which the cells formatted by another call are appended.
+     * The cells are therefore followed by a delimiter, rather than by the end of line.
+     *
+     * @param values the values of the cells, keyed by header
+     * @param headers the headers of the leading cells
+     * @return the leading cells of the row, or an empty string if there are no headers
+     * @throws IOException if the cells cannot be formatted
+     */
+    public String formatLeadingCells(Map<String, String> values, String[] headers) throws IOException {
+        if (headers.length == 0) {
+            return "";
+        }
+        final String line = formatEvent(values, headers);
+        return line.substring(0, line.length() - csvPreference.getEndOfLineSymbols().length())
+                + (char) csvPreference.getDelimiterChar();
+    }
+
     /**
      * Adapter that exposes {@link Writer} interface to allow supercsv output to be collected to a {@link StringBuffer}.
      * <p/>
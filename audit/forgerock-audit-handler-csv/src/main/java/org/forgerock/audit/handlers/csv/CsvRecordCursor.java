@@ -0,0 +1,210 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.audit.handlers.csv;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.forgerock.audit.query.EventBlockIndex;
+import org.forgerock.audit.query.RecordCursor;
+import org.forgerock.audit.query.RecordCursorFactory;
+
+/**
+ * Reads the {@link EventBlockIndex#INDEXED_FIELDS indexed fields} of the events of a CSV audit file, whose first
+ * record is a header naming the columns.
+ * <p>
+ * Cells are read as the {@link org.supercsv.io.CsvMapReader} used by queries reads them: a quoted cell is a string,
+ * and an unquoted empty cell is {@code null}. Cells which that reader may read differently, such as a JSON object or
+ * array, are reported as values that are not strings, so that they never exclude a block.
+ */
+final class CsvRecordCursor extends RecordCursor {
+
+    /** Value of a cell which may not be read as a string. */
+    private static final Object OTHER_VALUE = new Object();
+
+    private static final String[] FIELDS = EventBlockIndex.INDEXED_FIELDS.toArray(new String[0]);
+
+    private final int quoteChar;
+    private final int delimiterChar;
+    private final Charset charset;
+    /** Column of each of the {@link #FIELDS}, or {@code -1} if missing, or {@code null} until the header is read. */
+    private int[] columns;
+    private final Object[] values = new Object[FIELDS.length];
+    private final ByteArrayOutputStream cell = new ByteArrayOutputStream();
+
+    private CsvRecordCursor(final FileChannel channel, final long offset, final int quoteChar,
+            final int delimiterChar, final Charset charset, final int[] columns) {
+        super(channel, offset, quoteChar);
+        this.quoteChar = quoteChar;
+        this.delimiterChar = delimiterChar;
+        this.charset = charset;
+        this.columns = columns;
+    }
+
+    /**
+     * Creates a factory of cursors over CSV audit files.
+     *
+     * @param quoteChar Character quoting cells
+     * @param delimiterChar Character separating cells
+     * @param charset Character set of the files
+     * @return Factory, or {@code null} if the records of the files cannot be delimited by searching bytes, because
+     * the quote or delimiter character is not ASCII
+     */
+    static RecordCursorFactory factory(final int quoteChar, final int delimiterChar, final Charset charset) {
+        if (quoteChar > 0x7f || delimiterChar > 0x7f) {
+            return null;
+        }
+        return new RecordCursorFactory() {
+            @Override
+            public RecordCursor open(final FileChannel channel, final long offset) throws IOException {
+                final CsvRecordCursor headerCursor =
+                        new CsvRecordCursor(channel, 0, quoteChar, delimiterChar, charset, null);
+                if (!headerCursor.next() || offset == 0) {
+                    // a file without a complete header has no events yet
+                    return headerCursor;
+                }
+                headerCursor.close();
+                return new CsvRecordCursor(channel, offset, quoteChar, delimiterChar, charset,
+                        headerCursor.columns);
+            }
+        };
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        // the header is the only record read until the columns are known
+        return (columns != null || getEndOffset() == 0) && super.next();
+    }
+
+    @Override
+    public Object getField(final String name) {
+        for (int i = 0; i < FIELDS.length; ++i) {
+            if (FIELDS[i].equals(name)) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    @Override
+    protected void parseRecord(final byte[] bytes, final int offset, final int length) {
+        int end = offset + length;
+        if (end > offset && bytes[end - 1] == '\r') {
+            --end;
+        }
+        if (columns == null) {
+            parseHeader(bytes, offset, end);
+            return;
+        }
+        Arrays.fill(values, null);
+        int column = 0;
+        int position = offset;
+        while (true) {
+            final int cellEnd = findCellEnd(bytes, position, end);
+            for (int i = 0; i < FIELDS.length; ++i) {
+                if (columns[i] == column) {
+                    values[i] = parseCell(bytes, position, cellEnd);
+                }
+            }
+            if (cellEnd == end) {
+                break;
+            }
+            position = cellEnd + 1;
+            ++column;
+        }
+        for (int i = 0; i < FIELDS.length; ++i) {
+            if (columns[i] > column) {
+                // the reader rejects records with too few columns
+                values[i] = OTHER_VALUE;
+            }
+        }
+    }
+
+    private void parseHeader(final byte[] bytes, final int offset, final int end) {
+        columns = new int[FIELDS.length];
+        Arrays.fill(columns, -1);
+        int column = 0;
+        int position = offset;
+        while (true) {
+            final int cellEnd = findCellEnd(bytes, position, end);
+            final Object name = parseCell(bytes, position, cellEnd);
+            for (int i = 0; i < FIELDS.length; ++i) {
+                if (FIELDS[i].equals(name)) {
+                    columns[i] = column;
+                }
+            }
+            if (cellEnd == end) {
+                break;
+            }
+            position = cellEnd + 1;
+            ++column;
+        }
+    }
+
+    /** Finds the delimiter ending the cell at a position, or the end of the record. */
+    private int findCellEnd(final byte[] bytes, final int position, final int end) {
+        boolean quoted = false;
+        for (int i = position; i < end; ++i) {
+            if (bytes[i] == quoteChar) {
+                quoted = !quoted;
+            } else if (bytes[i] == delimiterChar && !quoted) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private Object parseCell(final byte[] bytes, final int start, final int end) {
+        if (start == end) {
+            return NULL_VALUE;
+        }
+        if (bytes[start] != quoteChar) {
+            for (int i = start; i < end; ++i) {
+                if (bytes[i] == quoteChar) {
+                    return OTHER_VALUE;
+                }
+            }
+            return checkString(new String(bytes, start, end - start, charset));
+        }
+        // unescape the doubled quotes of a quoted cell, which must end with its closing quote
+        cell.reset();
+        int i = start + 1;
+        while (i < end) {
+            if (bytes[i] == quoteChar) {
+                if (i + 1 < end && bytes[i + 1] == quoteChar) {
+                    cell.write(quoteChar);
+                    i += 2;
+                    continue;
+                }
+                return i + 1 == end ? checkString(new String(cell.toByteArray(), charset)) : OTHER_VALUE;
+            }
+            cell.write(bytes[i++]);
+        }
+        return OTHER_VALUE;
+    }
+
+    /** Cells holding a JSON object or array may be parsed as such, depending on the event schema. */
+    private static Object checkString(final String value) {
+        if ((value.startsWith("{") && value.endsWith("}")) || (value.startsWith("[") && value.endsWith("]"))) {
+            return OTHER_VALUE;
+        }
+        return value;
+    }
+}
@@ -12,74 +12,309 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.csv;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.forgerock.audit.handlers.csv.CsvSecureConstants.KEYSTORE_TYPE;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.forgerock.audit.handlers.csv.CsvSecureVerifier.VerificationResult;
 import org.forgerock.audit.retention.FileNamingPolicy;
+import org.forgerock.audit.rotation.SeekableGzip;
 import org.forgerock.audit.secure.JcaKeyStoreHandler;
 import org.forgerock.audit.secure.KeyStoreHandler;
 import org.forgerock.audit.secure.KeyStoreSecureStorage;
 import org.forgerock.audit.secure.SecureStorage;
+import org.forgerock.util.Reject;
+import org.forgerock.util.encode.Base64;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.supercsv.prefs.CsvPreference;
 
 /**
  * Responsible for locating and verifying an archived set of tamper evident CSV audit log files for a particular topic.
+ * <p>
+ * Each archive file has a keystore and an HMAC chain of its own, so the files can be verified concurrently, by a
+ * fork-join pool of the requested parallelism. The results are returned in the order of the files all the same.
+ * <p>
+ * The archives which passed verification may be recorded in a checkpoint file, so that a later run only verifies the
+ * archives added since. An archive is identified in the checkpoint by a digest of its name and content, of its
+ * keystore and of the public key it was verified with. Its content is digested as it is verified, so the first run
+ * reads each archive once; a later run reads the checkpointed archives again to digest them, but does not parse them
+ * nor check their HMACs and signatures. An archive which was modified since, or compressed, is therefore verified
+ * again. The checkpoint must be kept where the audit files cannot be written from, as whoever can write it can have
+ * any archive skipped.
  */
 class CsvSecureArchiveVerifier {
 
     private static final Logger logger = LoggerFactory.getLogger(CsvSecureArchiveVerifier.class);
 
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final String DIGEST_PROPERTY = ".digest";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     private final FileNamingPolicy fileNamingPolicy;
     private final String keystorePassword;
     private final PublicKey publicKey;
     private final CsvPreference csvPreference;
+    private final int parallelism;
+    private final File checkpointFile;
+
+    private int verifiedFiles;
+    private int checkpointedFiles;
+    private long verifiedBytes;
+    private long elapsedNanos;
 
     CsvSecureArchiveVerifier(final FileNamingPolicy fileNamingPolicy, final String keystorePassword,
             final PublicKey publicKey, CsvPreference csvPreference) {
+        this(fileNamingPolicy, keystorePassword, publicKey, csvPreference, 1, null);
+    }
+
+    /**
+     * Creates a verifier which verifies several archive files at once, and which may skip the archives verified by a
+     * previous run.
+     *
+     * @param fileNamingPolicy naming policy of the archive files
+     * @param keystorePassword password of the keystores of the archive files
+     * @param publicKey public key verifying the signatures
+     * @param csvPreference preferences of the archive files
+     * @param parallelism number of archive files verified concurrently
+     * @param checkpointFile file recording the archives which passed verification, or {@code null} to verify all the
+     * archives
+     */
+    CsvSecureArchiveVerifier(final FileNamingPolicy fileNamingPolicy, final String keystorePassword,
+            final PublicKey publicKey, CsvPreference csvPreference, final int parallelism, final File checkpointFile) {
+        Reject.ifTrue(parallelism < 1, "parallelism must be positive");
         this.keystorePassword = keystorePassword;
         this.publicKey = publicKey;
         this.fileNamingPolicy = fileNamingPolicy;
         this.csvPreference = csvPreference;
+        this.parallelism = parallelism;
+        this.checkpointFile = checkpointFile;
     }
 
     List<VerificationResult> verify() {
-        List<File> archiveFiles = fileNamingPolicy.listFiles();
-        List<VerificationResult> verificationResults = new ArrayList<>(archiveFiles.size());
-        for (File archiveFile : archiveFiles) {
-            logger.trace("Verifying file {}", archiveFile);
-            VerificationResult verificationResult;
+        final long start = System.nanoTime();
+        final List<File> archiveFiles = fileNamingPolicy.listFiles();
+        final Properties checkpoint = checkpointFile != null ? loadCheckpoint() : null;
+        final AtomicInteger verified = new AtomicInteger();
+        final AtomicInteger checkpointed = new AtomicInteger();
+        final AtomicLong bytes = new AtomicLong();
+        final List<VerificationResult> verificationResults = new ArrayList<>(archiveFiles.size());
+        if (parallelism == 1) {
+            for (final File archiveFile : archiveFiles) {
+                verificationResults.add(verify(archiveFile, checkpoint, verified, checkpointed, bytes));
+            }
+        } else {
+            final ForkJoinPool pool = new ForkJoinPool(parallelism);
             try {
-                verificationResult = verifyArchiveFile(archiveFile, keystorePassword, publicKey);
-            } catch (Exception e) {
-                verificationResult = new VerificationResult(archiveFile, false, e.getMessage());
+                final List<ForkJoinTask<VerificationResult>> tasks = new ArrayList<>(archiveFiles.size());
+                for (final File archiveFile : archiveFiles) {
+                    tasks.add(pool.submit(new Callable<VerificationResult>() {
+                        @Override
+                        public VerificationResult call() {
+                            return verify(archiveFile, checkpoint, verified, checkpointed, bytes);
+                        }
+                    }));
+                }
+                for (final ForkJoinTask<VerificationResult> task : tasks) {
+                    verificationResults.add(task.join());
+                }
+            } finally {
+                pool.shutdown();
             }
-            verificationResults.add(verificationResult);
         }
+
+        if (checkpoint != null) {
+            saveCheckpoint(checkpoint, archiveFiles);
+        }
+        verifiedFiles = verified.get();
+        checkpointedFiles = checkpointed.get();
+        verifiedBytes = bytes.get();
+        elapsedNanos = System.nanoTime() - start;
         return verificationResults;
     }
 
-    private VerificationResult verifyArchiveFile(File archiveFile, String keystorePassword, PublicKey publicKey)
-            throws Exception {
-        SecureStorage secureStorage = openSecureStorageForCsvFile(archiveFile, keystorePassword, publicKey);
-        CsvSecureVerifier verifier = new CsvSecureVerifier(archiveFile, csvPreference, secureStorage);
-        return verifier.verify();
+    /**
+     * Gets the number of archive files verified by the last run, which excludes those skipped as already verified.
+     *
+     * @return number of archive files
+     */
+    int getVerifiedFileCount() {
+        return verifiedFiles;
+    }
+
+    /**
+     * Gets the number of archive files of the last run which were skipped, as the checkpoint recorded them as verified.
+     *
+     * @return number of archive files
+     */
+    int getCheckpointedFileCount() {
+        return checkpointedFiles;
+    }
+
+    /**
+     * Gets the size of the archive files verified by the last run.
+     *
+     * @return number of bytes, which are compressed bytes for compressed archives
+     */
+    long getVerifiedBytes() {
+        return verifiedBytes;
+    }
+
+    /**
+     * Gets the duration of the last run.
+     *
+     * @return duration in nanoseconds
+     */
+    long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Gets the throughput of the last run, as the size of the archive files verified over the duration of the run.
+     *
+     * @return throughput in megabytes per second
+     */
+    double getThroughput() {
+        return elapsedNanos == 0 ? 0 : verifiedBytes * 1000.0 / elapsedNanos;
+    }
+
+    private VerificationResult verify(File archiveFile, Properties checkpoint, AtomicInteger verified,
+            AtomicInteger checkpointed, AtomicLong bytes) {
+        logger.trace("Verifying file {}", archiveFile);
+        try {
+            final String name = archiveFile.getName();
+            MessageDigest contentDigest = null;
+            if (checkpoint != null) {
+                final String checkpointedDigest = checkpoint.getProperty(name + DIGEST_PROPERTY);
+                if (checkpointedDigest != null && checkpointedDigest.equals(digest(archiveFile))) {
+                    logger.trace("Skipping file {} verified by a previous run", archiveFile);
+                    checkpointed.incrementAndGet();
+                    return new VerificationResult(archiveFile, true, "");
+                }
+                contentDigest = newDigest(archiveFile);
+            }
+            final SecureStorage secureStorage = openSecureStorageForCsvFile(archiveFile, keystorePassword, publicKey);
+            final CsvSecureVerifier verifier =
+                    new CsvSecureVerifier(archiveFile, csvPreference, secureStorage, contentDigest);
+            final VerificationResult verificationResult = verifier.verify();
+            verified.incrementAndGet();
+            bytes.addAndGet(archiveFile.length());
+            if (checkpoint != null) {
+                // a failed archive is verified again by the next run, which reports it again
+                checkpoint.remove(name + DIGEST_PROPERTY);
+                if (verificationResult.hasPassedVerification()) {
+                    checkpoint.setProperty(name + DIGEST_PROPERTY, completeDigest(contentDigest, archiveFile));
+                }
+            }
+            return verificationResult;
+        } catch (Exception e) {
+            return new VerificationResult(archiveFile, false, e.getMessage());
+        }
     }
 
     private SecureStorage openSecureStorageForCsvFile(File csvFile, String keystorePassword, PublicKey publicKey)
             throws Exception {
-        String keystorePath = csvFile.getPath() + ".keystore";
-        KeyStoreHandler keyStoreHandler = new JcaKeyStoreHandler(KEYSTORE_TYPE, keystorePath, keystorePassword);
+        KeyStoreHandler keyStoreHandler =
+                new JcaKeyStoreHandler(KEYSTORE_TYPE, keystorePathFor(csvFile).toString(), keystorePassword);
         return new KeyStoreSecureStorage(keyStoreHandler, publicKey);
     }
 
+    private static Path keystorePathFor(File csvFile) {
+        // the keystore keeps the name of the archive when the archive is compressed
+        final Path path = SeekableGzip.uncompressedPathFor(csvFile.toPath());
+        return path.resolveSibling(path.getFileName() + ".keystore");
+    }
+
+    /**
+     * Digests what identifies an archive: its name and content, its keystore and the public key it is verified with.
+     */
+    private String digest(File archiveFile) throws IOException, NoSuchAlgorithmException {
+        final MessageDigest messageDigest = newDigest(archiveFile);
+        try (InputStream in = Files.newInputStream(archiveFile.toPath())) {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                messageDigest.update(buffer, 0, read);
+            }
+        }
+        return completeDigest(messageDigest, archiveFile);
+    }
+
+    /**
+     * Starts the digest of an archive, which is then updated with its content.
+     */
+    private static MessageDigest newDigest(File archiveFile) throws NoSuchAlgorithmException {
+        final MessageDigest messageDigest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        messageDigest.update((archiveFile.getName() + '\n').getBytes(UTF_8));
+        return messageDigest;
+    }
+
+    /**
+     * Completes the digest of an archive, once updated with its content.
+     */
+    private String completeDigest(MessageDigest messageDigest, File archiveFile) throws IOException {
+        messageDigest.update(Files.readAllBytes(keystorePathFor(archiveFile)));
+        messageDigest.update(publicKey.getEncoded());
+        return Base64.encode(messageDigest.digest());
+    }
+
+    private Properties loadCheckpoint() {
+        // properties are thread-safe, so the verifications of several archives can update the checkpoint at once
+        final Properties checkpoint = new Properties();
+        if (checkpointFile.exists()) {
+            try (InputStream in = Files.newInputStream(checkpointFile.toPath())) {
+                checkpoint.load(in);
+            } catch (IOException e) {
+                logger.warn("Unable to read checkpoint {}; all the archives are verified", checkpointFile, e);
+                checkpoint.clear();
+            }
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Writes the checkpoint, retaining only the archives which are still listed.
+     */
+    private void saveCheckpoint(Properties checkpoint, List<File> archiveFiles) {
+        final Properties retained = new Properties();
+        for (final File archiveFile : archiveFiles) {
+            final String name = archiveFile.getName();
+            final String digest = checkpoint.getProperty(name + DIGEST_PROPERTY);
+            if (digest != null) {
+                retained.setProperty(name + DIGEST_PROPERTY, digest);
+            }
+        }
+        final Path path = checkpointFile.toPath();
+        final Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temporary)) {
+                retained.store(out, "Archive files which passed verification");
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.warn("Unable to write checkpoint {}", checkpointFile, e);
+        }
+    }
 }
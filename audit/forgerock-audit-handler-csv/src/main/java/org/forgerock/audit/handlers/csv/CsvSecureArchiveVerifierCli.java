@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.csv;
 
@@ -43,6 +44,10 @@ import org.supercsv.prefs.CsvPreference;
 
 /**
  * Command line interface for verifying an archived set of tamper evident CSV audit log files for a particular topic.
+ * <p>
+ * The archive files may be verified by several threads at once, and the archives which passed verification may be
+ * recorded in a checkpoint file so that they are not verified again. The throughput of the verification is then
+ * reported after the results.
  */
 public final class CsvSecureArchiveVerifierCli {
 
@@ -52,6 +57,8 @@ public final class CsvSecureArchiveVerifierCli {
     private static final Option<String> SUFFIX = Option.of(String.class, DEFAULT_ROTATION_FILE_SUFFIX);
     private static final Option<Path> KEYSTORE_FILE = Option.of(Path.class, null);
     private static final Option<String> KEYSTORE_PASSWORD = Option.of(String.class, null);
+    private static final Option<Integer> THREADS = Option.of(Integer.class, 1);
+    private static final Option<Path> CHECKPOINT_FILE = Option.of(Path.class, null);
 
     @VisibleForTesting
     static PrintStream out = System.out;
@@ -80,6 +87,8 @@ public final class CsvSecureArchiveVerifierCli {
         final FileNamingPolicy fileNamingPolicy = fileNamingPolicyFactory.newFileNamingPolicy(liveFile, suffix, prefix);
         final Path keystoreFile = options.get(KEYSTORE_FILE);
         final String keystorePassword = options.get(KEYSTORE_PASSWORD);
+        final int threads = options.get(THREADS);
+        final Path checkpointFile = options.get(CHECKPOINT_FILE);
 
         final KeyStoreHandlerDecorator keyStoreHandler = getKeyStoreHandlerDecorator(keystoreFile, keystorePassword);
         if (keyStoreHandler == null) {
@@ -96,11 +105,15 @@ public final class CsvSecureArchiveVerifierCli {
             return;
         }
 
-        final CsvSecureArchiveVerifier archiveVerifier =
-                new CsvSecureArchiveVerifier(fileNamingPolicy, password, publicKey, CsvPreference.EXCEL_PREFERENCE);
+        final CsvSecureArchiveVerifier archiveVerifier = new CsvSecureArchiveVerifier(fileNamingPolicy, password,
+                publicKey, CsvPreference.EXCEL_PREFERENCE, threads,
+                checkpointFile != null ? checkpointFile.toFile() : null);
         final List<CsvSecureVerifier.VerificationResult> verificationResults = archiveVerifier.verify();
 
         printVerificationResults(verificationResults, out);
+        if (threads > 1 || checkpointFile != null) {
+            printThroughput(archiveVerifier, out);
+        }
     }
 
     private static KeyStoreHandlerDecorator getKeyStoreHandlerDecorator(
@@ -144,6 +157,13 @@ public final class CsvSecureArchiveVerifierCli {
         }
     }
 
+    static void printThroughput(final CsvSecureArchiveVerifier archiveVerifier, final PrintStream out) {
+        out.println(String.format("Verified %d files (%.1f MB) in %.1f s: %.1f MB/s, %d files already verified",
+                archiveVerifier.getVerifiedFileCount(), archiveVerifier.getVerifiedBytes() / 1_000_000.0,
+                archiveVerifier.getElapsedNanos() / 1_000_000_000.0, archiveVerifier.getThroughput(),
+                archiveVerifier.getCheckpointedFileCount()));
+    }
+
     static final class OptionsParser {
 
         static final String FLAG_ARCHIVE_DIRECTORY = "--archive";
@@ -152,6 +172,8 @@ public final class CsvSecureArchiveVerifierCli {
         static final String FLAG_SUFFIX = "--suffix";
         static final String FLAG_KEYSTORE_FILE = "--keystore";
         static final String FLAG_KEYSTORE_PASSWORD = "--password";
+        static final String FLAG_THREADS = "--threads";
+        static final String FLAG_CHECKPOINT_FILE = "--checkpoint";
 
         private static final String DESC_ARCHIVE_DIRECTORY = "path to directory containing files to verify";
         private static final String DESC_TOPIC = "name of topic fileset to verify";
@@ -159,6 +181,8 @@ public final class CsvSecureArchiveVerifierCli {
         private static final String DESC_SUFFIX = "format of timestamp suffix appended to archive files";
         private static final String DESC_KEYSTORE_FILE = "path to keystore file";
         private static final String DESC_KEYSTORE_PASSWORD = "keystore file password";
+        private static final String DESC_THREADS = "number of files to verify concurrently";
+        private static final String DESC_CHECKPOINT_FILE = "path to file recording the files already verified";
 
         private final PrintStream out;
         private final PrintStream err;
@@ -207,6 +231,22 @@ public final class CsvSecureArchiveVerifierCli {
                     options.set(KEYSTORE_PASSWORD,
                             getStringOption(nextArgument, FLAG_KEYSTORE_PASSWORD, DESC_KEYSTORE_PASSWORD));
                     break;
+                case FLAG_THREADS:
+                    final Integer threads = getPositiveIntegerOption(nextArgument, FLAG_THREADS, DESC_THREADS);
+                    if (threads == null) {
+                        return null;
+                    }
+                    options.set(THREADS, threads);
+                    break;
+                case FLAG_CHECKPOINT_FILE:
+                    final String checkpointFile =
+                            getStringOption(nextArgument, FLAG_CHECKPOINT_FILE, DESC_CHECKPOINT_FILE);
+                    if (checkpointFile == null) {
+                        return null;
+                    }
+                    // the checkpoint file is created by the first run
+                    options.set(CHECKPOINT_FILE, new File(checkpointFile).toPath());
+                    break;
                 default:
                     err.println("Unknown flag " + currentArgument);
                     return null;
@@ -235,8 +275,9 @@ public final class CsvSecureArchiveVerifierCli {
 
         private void printHelp() {
             out.println(String.format("arguments: %s <path> %s <topic> [%s <prefix>] "
-                    + "[%s <suffix>] %s <path> %s <password>", FLAG_ARCHIVE_DIRECTORY, FLAG_TOPIC, FLAG_PREFIX,
-                    FLAG_SUFFIX, FLAG_KEYSTORE_FILE, FLAG_KEYSTORE_PASSWORD));
+                    + "[%s <suffix>] %s <path> %s <password> [%s <count>] [%s <path>]", FLAG_ARCHIVE_DIRECTORY,
+                    FLAG_TOPIC, FLAG_PREFIX, FLAG_SUFFIX, FLAG_KEYSTORE_FILE, FLAG_KEYSTORE_PASSWORD, FLAG_THREADS,
+                    FLAG_CHECKPOINT_FILE));
             out.println("");
             out.println(String.format("   %-15s %s", FLAG_ARCHIVE_DIRECTORY, DESC_ARCHIVE_DIRECTORY));
             out.println(String.format("   %-15s %s", FLAG_TOPIC, DESC_TOPIC));
@@ -244,6 +285,8 @@ public final class CsvSecureArchiveVerifierCli {
             out.println(String.format("   %-15s %s", FLAG_SUFFIX, DESC_SUFFIX));
             out.println(String.format("   %-15s %s", FLAG_KEYSTORE_FILE, DESC_KEYSTORE_FILE));
             out.println(String.format("   %-15s %s", FLAG_KEYSTORE_PASSWORD, DESC_KEYSTORE_PASSWORD));
+            out.println(String.format("   %-15s %s", FLAG_THREADS, DESC_THREADS));
+            out.println(String.format("   %-15s %s", FLAG_CHECKPOINT_FILE, DESC_CHECKPOINT_FILE));
         }
 
         private Path getPathOption(String nextArgument, String flag, String description) {
@@ -259,6 +302,23 @@ public final class CsvSecureArchiveVerifierCli {
             return file.toPath();
         }
 
+        private Integer getPositiveIntegerOption(String nextArgument, String flag, String description) {
+            final String value = getStringOption(nextArgument, flag, description);
+            if (value == null) {
+                return null;
+            }
+            try {
+                final int number = Integer.parseInt(value);
+                if (number > 0) {
+                    return number;
+                }
+            } catch (NumberFormatException e) {
+                // reported below
+            }
+            err.println(flag + " flag must be followed by a positive " + description);
+            return null;
+        }
+
         private String getStringOption(String nextArgument, String flag, String description) {
             if (nextArgument == null) {
                 err.println(flag + " flag must be followed by " + description);
@@ -12,23 +12,28 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.csv;
 
 import static org.forgerock.audit.handlers.csv.CsvSecureConstants.*;
 import static org.forgerock.audit.handlers.csv.CsvSecureUtils.*;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.security.SignatureException;
 import java.util.Arrays;
 import java.util.Map;
 
 import javax.crypto.SecretKey;
 
+import org.forgerock.audit.rotation.SeekableGzip;
 import org.forgerock.audit.secure.SecureStorage;
 import org.forgerock.audit.secure.SecureStorageException;
 import org.forgerock.util.encode.Base64;
@@ -39,7 +44,8 @@ import org.supercsv.io.ICsvMapReader;
 import org.supercsv.prefs.CsvPreference;
 
 /**
- * This class aims to verify a secure CSV file.
+ * This class aims to verify a secure CSV file, which may be an archive compressed in the
+ * {@link SeekableGzip seekable gzip format}.
  */
 class CsvSecureVerifier {
 
@@ -49,6 +55,8 @@ class CsvSecureVerifier {
     private final CsvPreference csvPreference;
     private final HmacCalculator hmacCalculator;
     private final SecureStorage secureStorage;
+    private final MessageDigest contentDigest;
+    private InputStream digestedContent;
     private String lastHMAC;
     private byte[] lastSignature;
     private String[] headers;
@@ -64,9 +72,28 @@ class CsvSecureVerifier {
      *            the secure storage containing keys
      */
     public CsvSecureVerifier(File csvFile, CsvPreference csvPreference, SecureStorage secureStorage) {
+        this(csvFile, csvPreference, secureStorage, null);
+    }
+
+    /**
+     * Constructs a new verifier which also digests the bytes of the file as it verifies them.
+     *
+     * @param csvFile
+     *            the CSV file to verify
+     * @param csvPreference
+     *            the CSV preference to use
+     * @param secureStorage
+     *            the secure storage containing keys
+     * @param contentDigest
+     *            the digest updated with the bytes of the file, which are all digested if the file passes
+     *            verification, or {@code null}
+     */
+    CsvSecureVerifier(File csvFile, CsvPreference csvPreference, SecureStorage secureStorage,
+            MessageDigest contentDigest) {
         this.csvFile = csvFile;
         this.csvPreference = csvPreference;
         this.secureStorage = secureStorage;
+        this.contentDigest = contentDigest;
 
         try {
             SecretKey initialKey = secureStorage.readInitialKey();
@@ -137,6 +164,7 @@ class CsvSecureVerifier {
                     }
                 }
             }
+            digestRemainingContent();
         }
 
         try {
@@ -160,8 +188,27 @@ class CsvSecureVerifier {
         }
     }
 
-    private CsvMapReader newBufferedCsvMapReader() throws FileNotFoundException {
-        return new CsvMapReader(new BufferedReader(new FileReader(csvFile)), csvPreference);
+    private CsvMapReader newBufferedCsvMapReader() throws IOException {
+        final Path path = csvFile.toPath();
+        InputStream in = Files.newInputStream(path);
+        if (contentDigest != null) {
+            // the bytes of the file are digested, which are the compressed bytes of a compressed archive
+            digestedContent = in = new DigestInputStream(in, contentDigest);
+        }
+        // the files are written with the default character set, and archives may be compressed
+        return new CsvMapReader(new InputStreamReader(SeekableGzip.newInputStream(path, in)), csvPreference);
+    }
+
+    /**
+     * Digests the bytes of the file which were not read to get its rows, such as the end of a compressed archive.
+     */
+    private void digestRemainingContent() throws IOException {
+        if (digestedContent != null) {
+            final byte[] buffer = new byte[8192];
+            while (digestedContent.read(buffer) != -1) {
+                // the digest is updated as the bytes are read
+            }
+        }
     }
 
     private VerificationResult newVerificationFailureResult(String msg) {
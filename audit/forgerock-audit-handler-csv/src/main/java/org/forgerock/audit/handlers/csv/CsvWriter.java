@@ -12,12 +12,16 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.csv;
 
 import java.io.IOException;
 import java.util.Map;
 
+import org.forgerock.audit.events.handlers.writers.GroupCommitMetrics;
+import org.forgerock.util.promise.Promise;
+
 /**
  * Responsible for writing to a CSV file.
  */
@@ -47,5 +51,22 @@ interface CsvWriter extends AutoCloseable {
      */
     void flush() throws IOException;
 
+    /**
+     * Gets a promise completed once the rows written so far are forced to the storage device.
+     * <p>
+     * Rows are forced in groups only if group commit is enabled; otherwise the promise is already completed, and the
+     * rows are only written to the file once flushed.
+     *
+     * @return Promise completed once the rows written so far are forced, or failed if they cannot be forced
+     */
+    Promise<Void, IOException> commit();
+
+    /**
+     * Gets the metrics of the group commits of the writer.
+     *
+     * @return Group commit metrics, or {@code null} if group commit is disabled
+     */
+    GroupCommitMetrics getGroupCommitMetrics();
+
     void close() throws IOException;
 }
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.csv;
 
@@ -31,7 +32,6 @@ import java.io.Writer;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.SignatureException;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.Executors;
@@ -43,6 +43,7 @@ import java.util.concurrent.locks.ReentrantLock;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 
+import org.forgerock.audit.events.handlers.writers.GroupCommitMetrics;
 import org.forgerock.audit.events.handlers.writers.RotatableWriter;
 import org.forgerock.audit.events.handlers.writers.TextWriter;
 import org.forgerock.audit.events.handlers.writers.TextWriterAdapter;
@@ -57,6 +58,8 @@ import org.forgerock.audit.secure.SecureStorageException;
 import org.forgerock.util.Reject;
 import org.forgerock.util.annotations.VisibleForTesting;
 import org.forgerock.util.encode.Base64;
+import org.forgerock.util.promise.Promise;
+import org.forgerock.util.promise.Promises;
 import org.forgerock.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -66,24 +69,49 @@ import org.supercsv.prefs.CsvPreference;
  * Responsible for writing to a CSV file; silently adds 2 last columns : HMAC and SIGNATURE.
  * The column HMAC is filled with the HMAC calculation of the current row and a key.
  * The column SIGNATURE is filled with the signature calculation of the last HMAC and the last signature if any.
+ * <p>
+ * Rows are written in two stages. The cells of a row, and the data its HMAC is calculated from, do not depend on the
+ * HMAC chain, so they are formatted by the publishing threads in parallel. Only the HMAC calculation, which derives
+ * the key of the next row, and the write of the row are done in sequence, under the signature lock. Signatures are
+ * calculated by the scheduler thread, also under the lock, as a signature row must directly follow the HMAC it signs.
+ * <p>
+ * The current key is stored in the keystore when the rows are flushed or committed, before they are reported written,
+ * rather than with each row. Storing it re-seals the keystore, so it is done under a lock of its own: the rows written
+ * while a key is being stored are not delayed, and a single store then covers all of them. The verifier compares the
+ * stored key with the key following the last row of the file, so rows removed from the end of the file are detected
+ * as before.
  */
 class SecureCsvWriter implements CsvWriter, RolloverLifecycleHook {
 
     private static final Logger logger = LoggerFactory.getLogger(SecureCsvWriter.class);
 
+    private static final String[] EXTRA_HEADERS = { HEADER_HMAC, HEADER_SIGNATURE };
+
     private final CsvFormatter csvFormatter;
     private final String[] headers;
+    private final String[] extendedHeaders;
     private Writer csvWriter;
     private RotatableWriter rotatableWriter;
+    private boolean groupCommitEnabled;
 
     private HmacCalculator hmacCalculator;
     private final ScheduledExecutorService scheduler;
     private final ReentrantLock signatureLock = new ReentrantLock();
+    /**
+     * Fair, so that the threads waiting for a store find their rows covered by it, rather than a thread which has just
+     * stored a key writing another row and storing a key again ahead of them.
+     */
+    private final ReentrantLock keyStorageLock = new ReentrantLock(true);
     private final Runnable signatureTask;
     private KeyStoreSecureStorage secureStorage;
     private final Duration signatureInterval;
     private ScheduledFuture<?> scheduledSignature;
 
+    /** The current key, updated under the signature lock with each row. */
+    private volatile ChainPosition chainPosition;
+    /** The position in the HMAC chain of the key stored in the keystore, guarded by the key storage lock. */
+    private long storedKeyPosition;
+
     private String lastHMAC;
     private byte[] lastSignature;
     private boolean headerWritten = false;
@@ -99,6 +127,7 @@ class SecureCsvWriter implements CsvWriter, RolloverLifecycleHook {
         this.random = random;
         this.keyStoreFile = new File(csvFile.getPath() + ".keystore");
         this.headers = checkNotNull(headers, "The headers can't be null.");
+        this.extendedHeaders = addExtraColumns(headers);
         this.csvFormatter = new CsvFormatter(csvPreference);
         this.csvWriter = constructWriter(csvFile, fileAlreadyInitialized, config);
         this.hmacCalculator = new HmacCalculator(CsvSecureConstants.HMAC_ALGORITHM);
@@ -152,6 +181,7 @@ class SecureCsvWriter implements CsvWriter, RolloverLifecycleHook {
                     throw new IllegalStateException("We are supposed to resume but there is not entry for CurrentKey.");
                 }
                 this.hmacCalculator.setCurrentKey(currentKey.getEncoded());
+                startChain();
 
                 setLastHMAC(verifier.getLastHMAC());
                 setLastSignature(verifier.getLastSignature());
@@ -166,7 +196,7 @@ class SecureCsvWriter implements CsvWriter, RolloverLifecycleHook {
                 @Override
                 public void run() {
                     try {
-                        writeSignature(csvWriter);
+                        writeScheduledSignature();
                     } catch (Exception ex) {
                         logger.error("An error occurred while writing the signature", ex);
                     }
@@ -192,9 +222,53 @@ class SecureCsvWriter implements CsvWriter, RolloverLifecycleHook {
 
     private void initHmacCalculatorWithRandomData() throws SecureStorageException {
         this.hmacCalculator.setCurrentKey(getRandomBytes());
-        // As we start to work, store the key as the initial one and the current one too
-        secureStorage.writeInitialKey(hmacCalculator.getCurrentKey());
-        secureStorage.writeCurrentKey(hmacCalculator.getCurrentKey());
+        keyStorageLock.lock();
+        try {
+            // As we start to work, store the key as the initial one and the current one too
+            secureStorage.writeInitialKey(hmacCalculator.getCurrentKey());
+            secureStorage.writeCurrentKey(hmacCalculator.getCurrentKey());
+            startChain();
+        } finally {
+            keyStorageLock.unlock();
+        }
+    }
+
+    /**
+     * Starts a new HMAC chain from the current key of the HMAC calculator, which is already stored in the keystore.
+     * The positions keep increasing across chains, so that a key of a previous chain is never stored again.
+     */
+    private void startChain() {
+        keyStorageLock.lock();
+        try {
+            final long position = chainPosition == null ? 0 : chainPosition.position + 1;
+            chainPosition = new ChainPosition(position, hmacCalculator.getCurrentKey());
+            storedKeyPosition = position;
+        } finally {
+            keyStorageLock.unlock();
+        }
+    }
+
+    /**
+     * Stores the current key in the keystore, unless a key which follows the rows written so far is already stored.
+     *
+     * @throws IOException if the key cannot be stored
+     */
+    private void storeCurrentKey() throws IOException {
+        // The rows written while waiting for the lock are covered by a store which follows them
+        final long requiredPosition = chainPosition.position;
+        keyStorageLock.lock();
+        try {
+            if (requiredPosition > storedKeyPosition) {
+                final ChainPosition current = chainPosition;
+                secureStorage.writeCurrentKey(current.key);
+                storedKeyPosition = current.position;
+            }
+        } catch (SecureStorageException ex) {
+            logger.error(ex.getMessage(), ex);
+            throw new IOException(ex);
+        } finally {
+            keyStorageLock.unlock();
+        }
     }
 
     private byte[] getRandomBytes() {
@@ -206,7 +280,9 @@ class SecureCsvWriter implements CsvWriter, RolloverLifecycleHook {
     private Writer constructWriter(File csvFile, boolean append, CsvAuditEventHandlerConfiguration config)
             throws IOException {
         TextWriter textWriter;
-        if (config.getFileRotation().isRotationEnabled()) {
+        groupCommitEnabled = config.getGroupCommit().isEnabled();
+        // group commit is done by the rotatable writer, even when rotation is disabled
+        if (config.getFileRotation().isRotationEnabled() || groupCommitEnabled) {
             rotatableWriter = new RotatableWriter(csvFile, config, append, this);
             rotatableWriter.registerRotationHooks(new SecureCsvWriterRotationHooks());
             textWriter = rotatableWriter;
@@ -223,6 +299,22 @@ class SecureCsvWriter implements CsvWriter, RolloverLifecycleHook {
     @Override
     public void flush() throws IOException {
         csvWriter.flush();
+        storeCurrentKey();
+    }
+
+    @Override
+    public Promise<Void, IOException> commit() {
+        try {
+            storeCurrentKey();
+        } catch (IOException e) {
+            return Promises.newExceptionPromise(e);
+        }
+        return groupCommitEnabled ? rotatableWriter.commit() : Promises.<Void, IOException>newResultPromise(null);
+    }
+
+    @Override
+    public GroupCommitMetrics getGroupCommitMetrics() {
+        return groupCommitEnabled ? rotatableWriter.getGroupCommitMetrics() : null;
     }
 
     @Override
@@ -264,6 +356,18 @@ class SecureCsvWriter implements CsvWriter, RolloverLifecycleHook {
         headerWritten = true;
     }
 
+    private void writeScheduledSignature() throws IOException {
+        signatureLock.lock();
+        try {
+            // Rows written once this task holds the lock are not signed by it, so they must schedule another one,
+            // even if this task is still running when they are written.
+            scheduledSignature = null;
+            writeSignature(csvWriter);
+        } finally {
+            signatureLock.unlock();
+        }
+    }
+
     @VisibleForTesting
     void writeSignature(Writer writer) throws IOException {
         // We have to prevent from writing another line between the signature calculation
@@ -276,9 +380,17 @@ class SecureCsvWriter implements CsvWriter, RolloverLifecycleHook {
             writeEvent(writer, values);
             logger.trace("Signature written to file");
 
-            // Store the current signature into the Keystore
-            secureStorage.writeCurrentSignatureKey(new SecretKeySpec(lastSignature, SIGNATURE_ALGORITHM));
-            logger.trace("Signature written to secureStorage");
+            keyStorageLock.lock();
+            try {
+                // Store the current key, as the rows the signature follows may not have been flushed yet
+                storeCurrentKey();
+
+                // Store the current signature into the Keystore
+                secureStorage.writeCurrentSignatureKey(new SecretKeySpec(lastSignature, SIGNATURE_ALGORITHM));
+                logger.trace("Signature written to secureStorage");
+            } finally {
+                keyStorageLock.unlock();
+            }
         } catch (SecureStorageException ex) {
             logger.error(ex.getMessage(), ex);
             throw new IOException(ex);
@@ -318,26 +430,25 @@ class SecureCsvWriter implements CsvWriter, RolloverLifecycleHook {
      * @throws IOException
      */
     public void writeEvent(Writer writer, Map<String, String> values) throws IOException {
+        if (values.containsKey(HEADER_SIGNATURE)) {
+            writeSignatureRow(writer, values);
+            return;
+        }
+        // Format the row and the data to sign before taking the lock, as they do not depend on the HMAC chain
+        final byte[] data = dataToSign(logger, values, headers);
+        final String leadingCells = csvFormatter.formatLeadingCells(values, headers);
         signatureLock.lock();
         try {
             if (!headerWritten) {
                 writeHeader(headers);
             }
-            String[] extendedHeaders = addExtraColumns(headers);
-
-            Map<String, String> extendedValues = new HashMap<>(values);
-            if (!values.containsKey(CsvSecureConstants.HEADER_SIGNATURE)) {
-                insertHMACSignature(extendedValues, headers);
-            }
-
-            writer.write(csvFormatter.formatEvent(extendedValues, extendedHeaders));
-            writer.flush();
-            // Store the current key
-            secureStorage.writeCurrentKey(hmacCalculator.getCurrentKey());
+            final String hmac = calculateHMAC(data);
+            // The write may rotate the file, which signs and stores the key following this row first
+            chainPosition = new ChainPosition(chainPosition.position + 1, hmacCalculator.getCurrentKey());
+            writer.write(leadingCells + csvFormatter.formatEvent(singletonMap(HEADER_HMAC, hmac), EXTRA_HEADERS));
 
             // Schedule a signature task only if needed.
-            if (!values.containsKey(HEADER_SIGNATURE)
-                    && (scheduledSignature == null || scheduledSignature.isDone())) {
+            if (scheduledSignature == null || scheduledSignature.isDone()) {
                 logger.trace("Triggering a new signature task to be executed in {}", signatureInterval);
                 try {
                     scheduledSignature = scheduler.schedule(signatureTask, signatureInterval.getValue(),
@@ -346,17 +457,29 @@ class SecureCsvWriter implements CsvWriter, RolloverLifecycleHook {
                     logger.error(e.getMessage(), e);
                 }
             }
-        } catch (SecureStorageException ex) {
-            throw new IOException(ex);
         } finally {
             signatureLock.unlock();
         }
+        writer.flush();
     }
 
-    private void insertHMACSignature(Map<String, String> values, String[] nameMapping) throws IOException {
+    private void writeSignatureRow(Writer writer, Map<String, String> values) throws IOException {
+        signatureLock.lock();
         try {
-            lastHMAC = hmacCalculator.calculate(dataToSign(logger, values, nameMapping));
-            values.put(CsvSecureConstants.HEADER_HMAC, lastHMAC);
+            if (!headerWritten) {
+                writeHeader(headers);
+            }
+            writer.write(csvFormatter.formatEvent(values, extendedHeaders));
+            writer.flush();
+        } finally {
+            signatureLock.unlock();
+        }
+    }
+
+    private String calculateHMAC(byte[] data) throws IOException {
+        try {
+            lastHMAC = hmacCalculator.calculate(data);
+            return lastHMAC;
         } catch (SignatureException ex) {
             logger.error(ex.getMessage(), ex);
             throw new IOException(ex);
@@ -405,23 +528,27 @@ class SecureCsvWriter implements CsvWriter, RolloverLifecycleHook {
 
         @Override
         public void postRotationAction(RotationContext context) throws IOException {
-            // Rename the keystore and create a new one.
-            String currentName = keyStoreFile.getName();
-            String nextName = currentName.replaceFirst(context.getInitialFile().getName(),
-                    context.getNextFile().getName());
-            final File nextFile = new File(keyStoreFile.getParent(), nextName);
-            logger.trace("Renaming keystore file {} to {}", currentName, nextName);
-            boolean renamed = keyStoreFile.renameTo(nextFile);
-            if (!renamed) {
-                logger.error("Unable to rename {} to {}", keyStoreFile.getAbsolutePath(), nextFile.getAbsolutePath());
-            }
+            // Rename the keystore and create a new one, while no key can be stored in it.
+            keyStorageLock.lock();
             try {
+                String currentName = keyStoreFile.getName();
+                String nextName = currentName.replaceFirst(context.getInitialFile().getName(),
+                        context.getNextFile().getName());
+                final File nextFile = new File(keyStoreFile.getParent(), nextName);
+                logger.trace("Renaming keystore file {} to {}", currentName, nextName);
+                boolean renamed = keyStoreFile.renameTo(nextFile);
+                if (!renamed) {
+                    logger.error("Unable to rename {} to {}",
+                            keyStoreFile.getAbsolutePath(), nextFile.getAbsolutePath());
+                }
                 secureStorage.setKeyStoreHandler(new JcaKeyStoreHandler(CsvSecureConstants.KEYSTORE_TYPE,
                         keyStoreFile.getPath(), keyStorePassword));
                 logger.trace("Updated secureStorage to reference new keyStoreFile");
                 initHmacCalculatorWithRandomData();
             } catch (Exception ex) {
                 throw new IOException(ex);
+            } finally {
+                keyStorageLock.unlock();
             }
 
             Writer writer = context.getWriter();
@@ -432,4 +559,17 @@ class SecureCsvWriter implements CsvWriter, RolloverLifecycleHook {
             writer.flush();
         }
     }
+
+    /**
+     * A key of the HMAC chain, and the position in the chain of the row it follows.
+     */
+    private static final class ChainPosition {
+        private final long position;
+        private final SecretKey key;
+
+        private ChainPosition(long position, SecretKey key) {
+            this.position = position;
+            this.key = key;
+        }
+    }
 }
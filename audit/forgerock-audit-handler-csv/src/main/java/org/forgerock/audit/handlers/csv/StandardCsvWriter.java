@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.csv;
 
@@ -26,11 +27,14 @@ import java.io.Writer;
 import java.util.Map;
 
 import org.forgerock.audit.events.handlers.writers.AsynchronousTextWriter;
+import org.forgerock.audit.events.handlers.writers.GroupCommitMetrics;
 import org.forgerock.audit.events.handlers.writers.RotatableWriter;
 import org.forgerock.audit.events.handlers.writers.TextWriter;
 import org.forgerock.audit.events.handlers.writers.TextWriterAdapter;
 import org.forgerock.audit.handlers.csv.CsvAuditEventHandlerConfiguration.EventBufferingConfiguration;
 import org.forgerock.util.Reject;
+import org.forgerock.util.promise.Promise;
+import org.forgerock.util.promise.Promises;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.supercsv.io.CsvMapReader;
@@ -48,6 +52,7 @@ class StandardCsvWriter implements CsvWriter {
     private final String[] headers;
     private final Writer csvWriter;
     private RotatableWriter rotatableWriter;
+    private boolean groupCommitEnabled;
 
     StandardCsvWriter(File csvFile, String[] headers, CsvPreference csvPreference,
             CsvAuditEventHandlerConfiguration config) throws IOException {
@@ -88,14 +93,20 @@ class StandardCsvWriter implements CsvWriter {
     private Writer constructWriter(File csvFile, boolean append, CsvAuditEventHandlerConfiguration config)
             throws IOException {
         TextWriter textWriter;
-        if (config.getFileRotation().isRotationEnabled()) {
+        groupCommitEnabled = config.getGroupCommit().isEnabled();
+        // group commit is done by the rotatable writer, even when rotation is disabled
+        if (config.getFileRotation().isRotationEnabled() || groupCommitEnabled) {
             rotatableWriter = new RotatableWriter(csvFile, config, append);
             textWriter = rotatableWriter;
         } else {
             textWriter = new TextWriter.Stream(new FileOutputStream(csvFile, append));
         }
 
-        if (config.getBuffering().isEnabled()) {
+        if (groupCommitEnabled) {
+            if (config.getBuffering().isEnabled()) {
+                logger.warn("CSV buffering is replaced by group commit. Buffering config will be ignored.");
+            }
+        } else if (config.getBuffering().isEnabled()) {
             EventBufferingConfiguration bufferConfig = config.getBuffering();
             textWriter = new AsynchronousTextWriter("CsvHandler", bufferConfig.isAutoFlush(), textWriter);
         }
@@ -138,6 +149,16 @@ class StandardCsvWriter implements CsvWriter {
         csvWriter.flush();
     }
 
+    @Override
+    public Promise<Void, IOException> commit() {
+        return groupCommitEnabled ? rotatableWriter.commit() : Promises.<Void, IOException>newResultPromise(null);
+    }
+
+    @Override
+    public GroupCommitMetrics getGroupCommitMetrics() {
+        return groupCommitEnabled ? rotatableWriter.getGroupCommitMetrics() : null;
+    }
+
     @Override
     public void close() throws IOException {
         csvWriter.close();
@@ -13,6 +13,7 @@
  *
  * Copyright 2015-2016 ForgeRock AS.
  * Portions Copyright 2018 Wren Security.
+ * Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.audit.handlers.csv;
@@ -33,9 +34,12 @@ import java.io.File;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.forgerock.audit.AuditService;
 import org.forgerock.audit.AuditServiceBuilder;
@@ -43,9 +47,12 @@ import org.forgerock.audit.DependencyProviderBase;
 import org.forgerock.audit.events.EventTopicsMetaData;
 import org.forgerock.audit.events.handlers.AuditEventHandler;
 import org.forgerock.audit.events.handlers.FileBasedEventHandlerConfiguration.FileRotation;
+import org.forgerock.audit.events.handlers.FileBasedEventHandlerConfiguration.GroupCommit;
+import org.forgerock.audit.events.handlers.writers.GroupCommitMetrics;
 import org.forgerock.audit.handlers.csv.CsvAuditEventHandlerConfiguration.EventBufferingConfiguration;
 import org.forgerock.audit.json.AuditJsonConfig;
 import org.forgerock.audit.providers.DefaultKeyStoreHandlerProvider;
+import org.forgerock.audit.query.EventBlockIndex;
 import org.forgerock.audit.providers.KeyStoreHandlerProvider;
 import org.forgerock.audit.secure.JcaKeyStoreHandler;
 import org.forgerock.audit.secure.KeyStoreHandler;
@@ -242,6 +249,181 @@ public class CsvAuditEventHandlerTest {
         assertResourceEquals(resource, event);
     }
 
+    @Test
+    public void testQueryUsingBlockIndexesIncludingArchives() throws Exception {
+        //given
+        final Path logDirectory = Files.createTempDirectory("CsvAuditEventHandlerTest");
+        logDirectory.toFile().deleteOnExit();
+        final FileRotation rotationConfig = new FileRotation();
+        rotationConfig.setRotationEnabled(true);
+        rotationConfig.setRotationInterval("disabled");
+        final CsvAuditEventHandler csvHandler = csvAuditEventHandler()
+                .loggingTo(logDirectory).withRotationConfig(rotationConfig).build();
+        final Context context = new RootContext();
+        try {
+            publishNumberedEvents(csvHandler, 0, 3000);
+            final ActionRequest actionRequest = Requests.newActionRequest("access", ROTATE_FILE_ACTION_NAME)
+                    .setAdditionalParameter(ACTION_PARAM_TARGET_HANDLER, "csv");
+            csvHandler.handleAction(context, "access", actionRequest).getOrThrow();
+            publishNumberedEvents(csvHandler, 3000, 3000);
+
+            //when
+            final String timestampRange = "/timestamp ge \"0000001500\" and /timestamp lt \"0000004500\"";
+
+            //then
+            assertThat(countQueryResults(csvHandler, timestampRange, false)).isEqualTo(1500);
+            assertThat(countQueryResults(csvHandler, timestampRange, true)).isEqualTo(3000);
+            // queries again, now that the indexes exist
+            assertThat(countQueryResults(csvHandler, timestampRange, true)).isEqualTo(3000);
+            assertThat(countQueryResults(csvHandler, "/transactionId eq \"0000000042\"", true)).isEqualTo(1);
+            assertThat(countQueryResults(csvHandler, "/transactionId eq \"0000000042\"", false)).isEqualTo(0);
+        } finally {
+            csvHandler.shutdown();
+        }
+    }
+
+    @Test
+    public void testPagedQueryStreamsPagesAndStopsWhenHandlerReturnsFalse() throws Exception {
+        //given
+        final Path logDirectory = Files.createTempDirectory("CsvAuditEventHandlerTest");
+        logDirectory.toFile().deleteOnExit();
+        final CsvAuditEventHandler csvHandler = csvAuditEventHandler().loggingTo(logDirectory).build();
+        final Context context = new RootContext();
+        try {
+            publishNumberedEvents(csvHandler, 0, 25);
+            final List<String> ids = new ArrayList<>();
+            final QueryResourceHandler collectingHandler = resource -> ids.add(resource.getId());
+
+            //when
+            final QueryRequest firstPage = Requests.newQueryRequest("access")
+                    .setQueryFilter(QueryFilters.parse("/timestamp ge \"0000000005\""))
+                    .setPageSize(10);
+            final QueryResponse firstResponse =
+                    csvHandler.queryEvents(context, "access", firstPage, collectingHandler).getOrThrow();
+            final QueryRequest lastPage = Requests.copyOfQueryRequest(firstPage)
+                    .setPagedResultsCookie(firstResponse.getPagedResultsCookie())
+                    .setPageSize(15);
+            final QueryResponse lastResponse =
+                    csvHandler.queryEvents(context, "access", lastPage, collectingHandler).getOrThrow();
+
+            //then
+            assertThat(firstResponse.getPagedResultsCookie()).isEqualTo("10");
+            assertThat(lastResponse.getPagedResultsCookie()).isNull();
+            assertThat(ids).hasSize(20);
+            assertThat(ids.get(0)).isEqualTo("0000000005");
+            assertThat(ids.get(19)).isEqualTo("0000000024");
+
+            //when
+            final List<String> stoppedIds = new ArrayList<>();
+            final QueryRequest offsetQuery = Requests.newQueryRequest("access")
+                    .setQueryFilter(QueryFilters.parse("true"))
+                    .setPagedResultsOffset(3);
+            csvHandler.queryEvents(context, "access", offsetQuery, resource -> {
+                stoppedIds.add(resource.getId());
+                return stoppedIds.size() < 2;
+            }).getOrThrow();
+
+            //then
+            assertThat(stoppedIds).containsExactly("0000000003", "0000000004");
+        } finally {
+            csvHandler.shutdown();
+        }
+    }
+
+    @Test
+    public void testQueryNewestEventsSpillsIntoArchives() throws Exception {
+        //given
+        final Path logDirectory = Files.createTempDirectory("CsvAuditEventHandlerTest");
+        logDirectory.toFile().deleteOnExit();
+        final FileRotation rotationConfig = new FileRotation();
+        rotationConfig.setRotationEnabled(true);
+        rotationConfig.setRotationInterval("disabled");
+        final CsvAuditEventHandler csvHandler = csvAuditEventHandler()
+                .loggingTo(logDirectory).withRotationConfig(rotationConfig).build();
+        final Context context = new RootContext();
+        try {
+            publishNumberedEvents(csvHandler, 0, 1000);
+            final ActionRequest actionRequest = Requests.newActionRequest("access", ROTATE_FILE_ACTION_NAME)
+                    .setAdditionalParameter(ACTION_PARAM_TARGET_HANDLER, "csv");
+            csvHandler.handleAction(context, "access", actionRequest).getOrThrow();
+            publishNumberedEvents(csvHandler, 1000, 100);
+            final List<String> ids = new ArrayList<>();
+
+            //when
+            final QueryRequest queryRequest = Requests.newQueryRequest("access")
+                    .setQueryFilter(QueryFilters.parse("true"))
+                    .addSortKey("-timestamp")
+                    .setPageSize(150);
+            final QueryResponse response = csvHandler.queryEvents(context, "access", queryRequest,
+                    resource -> ids.add(resource.getId())).getOrThrow();
+
+            //then
+            assertThat(response.getPagedResultsCookie()).isEqualTo("150");
+            assertThat(ids).hasSize(150);
+            assertThat(ids.get(0)).isEqualTo("0000001099");
+            assertThat(ids.get(100)).isEqualTo("0000000999");
+            assertThat(ids.get(149)).isEqualTo("0000000950");
+        } finally {
+            csvHandler.shutdown();
+        }
+    }
+
+    @Test
+    public void testGroupCommitPublishesEventsOnceWritten() throws Exception {
+        //given
+        final Path logDirectory = Files.createTempDirectory("CsvAuditEventHandlerTest");
+        logDirectory.toFile().deleteOnExit();
+        final CsvAuditEventHandler csvHandler = csvAuditEventHandler()
+                .loggingTo(logDirectory).withGroupCommitEnabled().build();
+        final Context context = new RootContext();
+        try {
+            //when
+            final List<Promise<ResourceResponse, ResourceException>> promises = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                promises.add(csvHandler.publishEvent(context, "access", buildEvent(i)));
+            }
+            for (final Promise<ResourceResponse, ResourceException> promise : promises) {
+                promise.getOrThrow(10, TimeUnit.SECONDS);
+            }
+
+            //then
+            final List<String> lines = Files.readAllLines(logDirectory.resolve("access.csv"), UTF_8);
+            assertThat(lines).hasSize(101);
+            final GroupCommitMetrics metrics = csvHandler.getGroupCommitMetrics("access");
+            assertThat(metrics.getEventCount()).isEqualTo(100);
+            assertThat(metrics.getCommitCount()).isGreaterThan(0);
+            assertThat(metrics.getFailedCommitCount()).isEqualTo(0);
+        } finally {
+            csvHandler.shutdown();
+        }
+    }
+
+    private void publishNumberedEvents(final CsvAuditEventHandler csvHandler, final int first, final int count)
+            throws Exception {
+        final Context context = new RootContext();
+        for (int i = first; i < first + count; i++) {
+            final String number = String.format("%010d", i);
+            final JsonValue content = json(object(
+                    field("_id", number),
+                    field("timestamp", number),
+                    field("transactionId", number)));
+            csvHandler.publishEvent(context, "access", content).getOrThrow();
+        }
+    }
+
+    private int countQueryResults(final CsvAuditEventHandler csvHandler, final String queryFilter,
+            final boolean queryArchives) throws Exception {
+        final QueryRequest queryRequest = Requests.newQueryRequest("access")
+                .setQueryFilter(QueryFilters.parse(queryFilter))
+                .setAdditionalParameter(EventBlockIndex.QUERY_ARCHIVES_PARAMETER, String.valueOf(queryArchives));
+        final AtomicInteger count = new AtomicInteger();
+        csvHandler.queryEvents(new RootContext(), "access", queryRequest, resource -> {
+            count.incrementAndGet();
+            return true;
+        }).getOrThrow();
+        return count.get();
+    }
+
     private CreateRequest makeCreateRequest() {
         return Requests.newCreateRequest("access", buildEvent());
     }
@@ -503,6 +685,14 @@ public class CsvAuditEventHandlerTest {
             return this;
         }
 
+        private CsvAuditEventHandlerBuilder withGroupCommitEnabled() {
+            GroupCommit groupCommit = new GroupCommit();
+            groupCommit.setEnabled(true);
+            groupCommit.setMaxDelay("5 ms");
+            config.setGroupCommit(groupCommit);
+            return this;
+        }
+
         private CsvAuditEventHandlerBuilder withRotationConfig(FileRotation fileRotation) {
             config.setFileRotation(fileRotation);
             return this;
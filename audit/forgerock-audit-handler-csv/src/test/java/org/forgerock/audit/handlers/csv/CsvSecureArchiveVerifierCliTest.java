@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.csv;
 
@@ -27,6 +28,7 @@ import java.util.List;
 
 import org.forgerock.audit.handlers.csv.CsvSecureArchiveVerifierCli.OptionsParser;
 import org.forgerock.audit.handlers.csv.CsvSecureVerifier.VerificationResult;
+import org.forgerock.util.Options;
 import org.testng.annotations.Test;
 
 @SuppressWarnings("javadoc")
@@ -66,14 +68,33 @@ public class CsvSecureArchiveVerifierCliTest {
         // then
         assertThat(out.toString(UTF_8.name())).isEqualTo(""
                 + "arguments: --archive <path> --topic <topic> "
-                + "[--prefix <prefix>] [--suffix <suffix>] --keystore <path> --password <password>" + NEW_LINE
+                + "[--prefix <prefix>] [--suffix <suffix>] --keystore <path> --password <password> "
+                + "[--threads <count>] [--checkpoint <path>]" + NEW_LINE
                 + NEW_LINE
                 + "   --archive       path to directory containing files to verify" + NEW_LINE
                 + "   --topic         name of topic fileset to verify" + NEW_LINE
                 + "   --prefix        prefix prepended to archive files" + NEW_LINE
                 + "   --suffix        format of timestamp suffix appended to archive files" + NEW_LINE
                 + "   --keystore      path to keystore file" + NEW_LINE
-                + "   --password      keystore file password" + NEW_LINE);
+                + "   --password      keystore file password" + NEW_LINE
+                + "   --threads       number of files to verify concurrently" + NEW_LINE
+                + "   --checkpoint    path to file recording the files already verified" + NEW_LINE);
         assertThat(err.toString()).isEqualTo("");
     }
+
+    @Test
+    public void canRejectThreadCountWhichIsNotPositive() throws UnsupportedEncodingException {
+        // given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        OptionsParser optionsParser = new OptionsParser(new PrintStream(out), new PrintStream(err));
+
+        // when
+        Options options = optionsParser.parse(new String[]{ OptionsParser.FLAG_THREADS, "0" });
+
+        // then
+        assertThat(options).isNull();
+        assertThat(err.toString(UTF_8.name())).isEqualTo(
+                "--threads flag must be followed by a positive number of files to verify concurrently" + NEW_LINE);
+    }
 }
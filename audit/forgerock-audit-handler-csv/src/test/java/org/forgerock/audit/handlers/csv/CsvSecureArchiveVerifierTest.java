@@ -0,0 +1,184 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.audit.handlers.csv;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.forgerock.audit.handlers.csv.CsvSecureConstants.ENTRY_PASSWORD;
+import static org.forgerock.audit.handlers.csv.CsvSecureConstants.KEYSTORE_TYPE;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.forgerock.audit.handlers.csv.CsvSecureVerifier.VerificationResult;
+import org.forgerock.audit.handlers.csv.SecureCsvWriterTest.TimeStampFileNamingPolicyWithNamedBasedOrdering;
+import org.forgerock.audit.retention.FileNamingPolicy;
+import org.forgerock.audit.secure.JcaKeyStoreHandler;
+import org.forgerock.audit.secure.KeyStoreHandlerDecorator;
+import org.forgerock.audit.secure.KeyStoreSecureStorage;
+import org.forgerock.util.encode.Base64;
+import org.supercsv.prefs.CsvPreference;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class CsvSecureArchiveVerifierTest {
+
+    private static final String NEW_LINE = System.lineSeparator();
+    private static final String SUFFIX = "-yyyy.MM.dd-HH.mm.ss.SSS";
+    private static final String HEADER = "FOO";
+
+    private KeyStoreHandlerDecorator keyStoreHandler;
+    private Path logDirectory;
+    private FileNamingPolicy fileNamingPolicy;
+    private File checkpointFile;
+
+    @BeforeMethod
+    public void writeArchives() throws Exception {
+        keyStoreHandler = new KeyStoreHandlerDecorator(new JcaKeyStoreHandler(KEYSTORE_TYPE,
+                SecureCsvWriterTest.KEYSTORE_FILENAME, SecureCsvWriterTest.KEYSTORE_PASSWORD));
+        logDirectory = Files.createTempDirectory("CsvSecureArchiveVerifierTest");
+        checkpointFile = new File(logDirectory.toFile(), "checkpoint.properties");
+        final File liveFile = new File(logDirectory.toFile(),
+                CsvAuditEventHandler.SECURE_CSV_FILENAME_PREFIX + "archives.csv");
+        final CsvAuditEventHandlerConfiguration config = new CsvAuditEventHandlerConfiguration();
+        config.getSecurity().setEnabled(true);
+        config.getSecurity().setSignatureInterval("5 minutes");
+        config.setRotationRetentionCheckInterval("5 minutes");
+        config.getFileRotation().setRotationEnabled(true);
+        config.getFileRotation().setRotationFileSuffix(SUFFIX);
+        config.getFileRotation().setMaxFileSize(20);
+
+        // Each row rotates the file, so that five archives pass verification, and the last one, without rows, fails
+        try (SecureCsvWriter secureCsvWriter = new SecureCsvWriter(liveFile, new String[] { HEADER },
+                CsvPreference.EXCEL_PREFERENCE, config, keyStoreHandler, new Random())) {
+            for (String value : Arrays.asList("one", "two", "three", "four", "five", "six")) {
+                secureCsvWriter.writeEvent(singletonMap(HEADER, value));
+            }
+        }
+        fileNamingPolicy = new TimeStampFileNamingPolicyWithNamedBasedOrdering(liveFile, SUFFIX, "");
+    }
+
+    @Test
+    public void shouldVerifyArchivesConcurrently() throws Exception {
+        // given
+        final CsvSecureArchiveVerifier archiveVerifier = newArchiveVerifier(3, null);
+
+        // when
+        final List<VerificationResult> verificationResults = archiveVerifier.verify();
+
+        // then
+        assertThat(verificationResults).hasSize(6);
+        assertThat(passed(verificationResults)).containsExactly(true, true, true, true, true, false);
+        assertThat(archiveFiles(verificationResults)).isEqualTo(fileNamingPolicy.listFiles());
+        assertThat(archiveVerifier.getVerifiedFileCount()).isEqualTo(6);
+        assertThat(archiveVerifier.getCheckpointedFileCount()).isEqualTo(0);
+        assertThat(archiveVerifier.getVerifiedBytes()).isGreaterThan(0L);
+    }
+
+    @Test
+    public void shouldSkipArchivesCheckpointedByPreviousRun() throws Exception {
+        // given
+        final CsvSecureArchiveVerifier firstRun = newArchiveVerifier(3, checkpointFile);
+        assertThat(passed(firstRun.verify())).containsExactly(true, true, true, true, true, false);
+        assertThat(firstRun.getVerifiedFileCount()).isEqualTo(6);
+        assertThat(checkpointFile).exists();
+
+        // when
+        final CsvSecureArchiveVerifier secondRun = newArchiveVerifier(3, checkpointFile);
+        final List<VerificationResult> verificationResults = secondRun.verify();
+
+        // then - only the archive which failed verification is verified again
+        assertThat(passed(verificationResults)).containsExactly(true, true, true, true, true, false);
+        assertThat(secondRun.getVerifiedFileCount()).isEqualTo(1);
+        assertThat(secondRun.getCheckpointedFileCount()).isEqualTo(5);
+    }
+
+    @Test
+    public void shouldVerifyAgainArchiveModifiedSinceCheckpoint() throws Exception {
+        // given
+        newArchiveVerifier(1, checkpointFile).verify();
+        final Path tampered = fileNamingPolicy.listFiles().get(1).toPath();
+        Files.write(tampered, Files.readAllLines(tampered).get(0).concat(NEW_LINE).getBytes(UTF_8),
+                StandardOpenOption.TRUNCATE_EXISTING);
+
+        // when
+        final CsvSecureArchiveVerifier archiveVerifier = newArchiveVerifier(1, checkpointFile);
+        final List<VerificationResult> verificationResults = archiveVerifier.verify();
+
+        // then
+        assertThat(passed(verificationResults)).containsExactly(true, false, true, true, true, false);
+        assertThat(archiveVerifier.getVerifiedFileCount()).isEqualTo(2);
+        assertThat(archiveVerifier.getCheckpointedFileCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void shouldVerifyAgainArchiveModifiedWithoutChangingItsSizeOrTime() throws Exception {
+        // given
+        newArchiveVerifier(1, checkpointFile).verify();
+        final Path tampered = fileNamingPolicy.listFiles().get(2).toPath();
+        final FileTime lastModified = Files.getLastModifiedTime(tampered);
+        final byte[] content = Files.readAllBytes(tampered);
+        // edit the first cell of the third row, which is the first event of the archive
+        final String rows = new String(content, UTF_8);
+        final int edited = rows.indexOf('\n', rows.indexOf('\n') + 1) + 1;
+        content[edited] = (byte) (content[edited] == 'A' ? 'B' : 'A');
+        Files.write(tampered, content);
+        Files.setLastModifiedTime(tampered, lastModified);
+
+        // when
+        final CsvSecureArchiveVerifier archiveVerifier = newArchiveVerifier(1, checkpointFile);
+        final List<VerificationResult> verificationResults = archiveVerifier.verify();
+
+        // then
+        assertThat(passed(verificationResults)).containsExactly(true, true, false, true, true, false);
+        assertThat(archiveVerifier.getVerifiedFileCount()).isEqualTo(2);
+        assertThat(archiveVerifier.getCheckpointedFileCount()).isEqualTo(4);
+    }
+
+    private CsvSecureArchiveVerifier newArchiveVerifier(final int parallelism, final File checkpoint)
+            throws Exception {
+        final String keystorePassword =
+                Base64.encode(keyStoreHandler.readSecretKeyFromKeyStore(ENTRY_PASSWORD).getEncoded());
+        return new CsvSecureArchiveVerifier(fileNamingPolicy, keystorePassword,
+                keyStoreHandler.readPublicKeyFromKeyStore(KeyStoreSecureStorage.ENTRY_SIGNATURE),
+                CsvPreference.EXCEL_PREFERENCE, parallelism, checkpoint);
+    }
+
+    private static List<Boolean> passed(final List<VerificationResult> verificationResults) {
+        final List<Boolean> passed = new ArrayList<>();
+        for (final VerificationResult verificationResult : verificationResults) {
+            passed.add(verificationResult.hasPassedVerification());
+        }
+        return passed;
+    }
+
+    private static List<File> archiveFiles(final List<VerificationResult> verificationResults) {
+        final List<File> archiveFiles = new ArrayList<>();
+        for (final VerificationResult verificationResult : verificationResults) {
+            archiveFiles.add(verificationResult.getArchiveFile());
+        }
+        return archiveFiles;
+    }
+}
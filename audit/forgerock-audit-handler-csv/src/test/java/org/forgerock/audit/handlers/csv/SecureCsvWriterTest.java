@@ -12,7 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
- * Portions Copyright 2018 Wren Security.
+ * Portions Copyright 2018-2026 Wren Security.
  */
 package org.forgerock.audit.handlers.csv;
 
@@ -27,12 +27,19 @@ import java.io.File;
 import java.io.PrintStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.security.KeyStore;
 import java.security.PublicKey;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import javax.crypto.SecretKey;
@@ -241,6 +248,121 @@ public class SecureCsvWriterTest {
             );
     }
 
+    @Test
+    public void shouldChainHMACOfRowsWrittenConcurrently() throws Exception {
+        final Path logDirectory = Files.createTempDirectory("SecureCsvWriterTest");
+        final File actual = new File(logDirectory.toFile(), "shouldChainHMACOfRowsWrittenConcurrently.csv");
+        final String[] headers = { "FOO", "BAR" };
+        final int threads = 4;
+        final int rowsPerThread = 250;
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (SecureCsvWriter secureCsvWriter = new SecureCsvWriter(
+                actual, headers, CsvPreference.EXCEL_PREFERENCE, createBasicSecureConfig(), keyStoreHandler, random)) {
+            final List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                final String thread = Integer.toString(i);
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int row = 0; row < rowsPerThread; row++) {
+                            final Map<String, String> values = new HashMap<>();
+                            values.put("FOO", thread);
+                            values.put("BAR", "row, \"" + row + "\"");
+                            secureCsvWriter.writeEvent(values);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (final Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // The rows may be interleaved in any order, and signed at any point, but must form a single verifiable chain
+        final SecretKey keystorePasswordKey = keyStoreHandler.readSecretKeyFromKeyStore(ENTRY_PASSWORD);
+        final SecureStorage verifierStorage = new KeyStoreSecureStorage(
+                new JcaKeyStoreHandler(KEYSTORE_TYPE, actual.getPath() + ".keystore",
+                        Base64.encode(keystorePasswordKey.getEncoded())),
+                keyStoreHandler.readPublicKeyFromKeyStore(KeyStoreSecureStorage.ENTRY_SIGNATURE));
+        final VerificationResult result =
+                new CsvSecureVerifier(actual, CsvPreference.EXCEL_PREFERENCE, verifierStorage).verify();
+        assertThat(result.hasPassedVerification()).as(result.getFailureReason()).isTrue();
+        assertThat(Files.readAllLines(actual.toPath())).hasSize(1 + threads * rowsPerThread + countSignatures(actual));
+    }
+
+    @Test
+    public void shouldReportMissingFinalSignatureOfUnsignedTrailingRows() throws Exception {
+        final Path logDirectory = Files.createTempDirectory("SecureCsvWriterTest");
+        final File actual = new File(logDirectory.toFile(), "shouldReportMissingFinalSignature.csv");
+        final File unsigned = new File(logDirectory.toFile(), "unsigned.csv");
+        final CsvAuditEventHandlerConfiguration config = createBasicSecureConfig();
+        avoidSignaturesDuringTest(config);
+
+        // Copy the file and its keystore while the rows written since the last signature are not signed yet
+        try (SecureCsvWriter secureCsvWriter = new SecureCsvWriter(
+                actual, new String[] { "FOO" }, CsvPreference.EXCEL_PREFERENCE, config, keyStoreHandler, random)) {
+            secureCsvWriter.writeEvent(singletonMap("FOO", "bar"));
+            secureCsvWriter.flush();
+            Files.copy(actual.toPath(), unsigned.toPath());
+            Files.copy(Paths.get(actual.getPath() + ".keystore"), Paths.get(unsigned.getPath() + ".keystore"));
+        }
+
+        final SecretKey keystorePasswordKey = keyStoreHandler.readSecretKeyFromKeyStore(ENTRY_PASSWORD);
+        final SecureStorage verifierStorage = new KeyStoreSecureStorage(
+                new JcaKeyStoreHandler(KEYSTORE_TYPE, unsigned.getPath() + ".keystore",
+                        Base64.encode(keystorePasswordKey.getEncoded())),
+                keyStoreHandler.readPublicKeyFromKeyStore(KeyStoreSecureStorage.ENTRY_SIGNATURE));
+        final VerificationResult result =
+                new CsvSecureVerifier(unsigned, CsvPreference.EXCEL_PREFERENCE, verifierStorage).verify();
+        assertThat(result.hasPassedVerification()).isFalse();
+        assertThat(result.getFailureReason()).isEqualTo("Missing final signature");
+    }
+
+    @Test
+    public void shouldDetectRowsTruncatedAfterLastSignature() throws Exception {
+        final Path logDirectory = Files.createTempDirectory("SecureCsvWriterTest");
+        final File actual = new File(logDirectory.toFile(), "shouldDetectRowsTruncated.csv");
+        final File truncated = new File(logDirectory.toFile(), "truncated.csv");
+
+        // Copy the file back to its first signature, with the keystore as it is once the next row is flushed
+        try (SecureCsvWriter secureCsvWriter = new SecureCsvWriter(actual, new String[] { "FOO" },
+                CsvPreference.EXCEL_PREFERENCE, createBasicSecureConfig(), keyStoreHandler, random)) {
+            secureCsvWriter.writeEvent(singletonMap("FOO", "bar"));
+            Thread.sleep(signatureInterval.to(TimeUnit.MILLISECONDS) + 200);
+            final byte[] signedContent = Files.readAllBytes(actual.toPath());
+            assertThat(Files.readAllLines(actual.toPath())).hasSize(3);
+
+            secureCsvWriter.writeEvent(singletonMap("FOO", "quix"));
+            secureCsvWriter.flush();
+            Files.write(truncated.toPath(), signedContent);
+            Files.copy(Paths.get(actual.getPath() + ".keystore"), Paths.get(truncated.getPath() + ".keystore"));
+        }
+
+        final SecretKey keystorePasswordKey = keyStoreHandler.readSecretKeyFromKeyStore(ENTRY_PASSWORD);
+        final SecureStorage verifierStorage = new KeyStoreSecureStorage(
+                new JcaKeyStoreHandler(KEYSTORE_TYPE, truncated.getPath() + ".keystore",
+                        Base64.encode(keystorePasswordKey.getEncoded())),
+                keyStoreHandler.readPublicKeyFromKeyStore(KeyStoreSecureStorage.ENTRY_SIGNATURE));
+        final VerificationResult result =
+                new CsvSecureVerifier(truncated, CsvPreference.EXCEL_PREFERENCE, verifierStorage).verify();
+        assertThat(result.hasPassedVerification()).isFalse();
+        assertThat(result.getFailureReason()).isEqualTo("Final HMAC key doesn't match expected value");
+    }
+
+    private static int countSignatures(final File file) throws Exception {
+        int signatures = 0;
+        for (final String line : Files.readAllLines(file.toPath())) {
+            if (line.startsWith(",,,")) {
+                signatures++;
+            }
+        }
+        return signatures;
+    }
+
     private CsvAuditEventHandlerConfiguration createBasicSecureConfig() {
         CsvAuditEventHandlerConfiguration configuration = new CsvAuditEventHandlerConfiguration();
         configuration.getSecurity().setEnabled(true);
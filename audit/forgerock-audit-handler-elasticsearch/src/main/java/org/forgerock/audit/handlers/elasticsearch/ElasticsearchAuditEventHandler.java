@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.elasticsearch;
 
@@ -29,6 +30,7 @@ import static org.forgerock.util.promise.Promises.newExceptionPromise;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -37,17 +39,23 @@ import org.forgerock.audit.events.EventTopicsMetaData;
 import org.forgerock.audit.events.handlers.AuditEventHandler;
 import org.forgerock.audit.events.handlers.AuditEventHandlerBase;
 import org.forgerock.audit.events.handlers.buffering.BufferedBatchPublisher;
+import org.forgerock.audit.events.handlers.buffering.RingBufferBatchPublisher;
+import org.forgerock.audit.events.handlers.buffering.RingBufferMetrics;
 import org.forgerock.audit.handlers.elasticsearch.ElasticsearchAuditEventHandlerConfiguration.ConnectionConfiguration;
 import org.forgerock.audit.handlers.elasticsearch.ElasticsearchAuditEventHandlerConfiguration.EventBufferingConfiguration;
-import org.forgerock.audit.events.handlers.buffering.BatchConsumer;
+import org.forgerock.audit.events.handlers.buffering.BatchPayload;
 import org.forgerock.audit.events.handlers.buffering.BatchPublisher;
 import org.forgerock.audit.events.handlers.buffering.BatchException;
+import org.forgerock.audit.events.handlers.buffering.ByteBatchConsumer;
 import org.forgerock.audit.util.ElasticsearchUtil;
 import org.forgerock.http.Client;
 import org.forgerock.http.HttpApplicationException;
 import org.forgerock.http.apache.async.AsyncHttpClientProvider;
 import org.forgerock.http.handler.HttpClientHandler;
+import org.forgerock.http.header.ContentEncodingHeader;
+import org.forgerock.http.header.ContentLengthHeader;
 import org.forgerock.http.header.ContentTypeHeader;
+import org.forgerock.http.io.IO;
 import org.forgerock.http.protocol.Request;
 import org.forgerock.http.protocol.Response;
 import org.forgerock.http.protocol.Responses;
@@ -76,7 +84,7 @@ import org.slf4j.LoggerFactory;
  * {@link AuditEventHandler} for Elasticsearch.
  */
 public class ElasticsearchAuditEventHandler extends AuditEventHandlerBase implements
-        BatchConsumer {
+        ByteBatchConsumer {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ElasticsearchAuditEventHandler.class);
     private static final ElasticsearchQueryFilterVisitor ELASTICSEARCH_QUERY_FILTER_VISITOR =
@@ -147,7 +155,19 @@ public class ElasticsearchAuditEventHandler extends AuditEventHandlerBase implem
                     bufferConfig.getWriteInterval() == null || bufferConfig.getWriteInterval().isEmpty()
                             ? null
                             : Duration.duration(bufferConfig.getWriteInterval());
-            batchIndexer = BufferedBatchPublisher.newBuilder(this)
+            final BufferedBatchPublisher.Builder publisherBuilder;
+            if (bufferConfig.isRingBuffer()) {
+                publisherBuilder = RingBufferBatchPublisher.newBuilder(this)
+                        .overflowPolicy(bufferConfig.getOverflowPolicy())
+                        .waitStrategy(bufferConfig.getWaitStrategy())
+                        .spillDirectory(bufferConfig.getSpillDirectory() == null
+                                || bufferConfig.getSpillDirectory().isEmpty()
+                                ? null
+                                : Paths.get(bufferConfig.getSpillDirectory()));
+            } else {
+                publisherBuilder = BufferedBatchPublisher.newBuilder(this);
+            }
+            batchIndexer = publisherBuilder
                     .capacity(bufferConfig.getMaxSize())
                     .writeInterval(writeInterval)
                     .maxBatchEvents(bufferConfig.getMaxBatchedEvents())
@@ -181,6 +201,17 @@ public class ElasticsearchAuditEventHandler extends AuditEventHandlerBase implem
         }
     }
 
+    /**
+     * Gets the metrics of the ring buffer holding the events waiting to be indexed.
+     *
+     * @return Ring buffer metrics, or {@code null} if the events are not buffered in a ring buffer
+     */
+    public RingBufferMetrics getRingBufferMetrics() {
+        return batchIndexer instanceof RingBufferBatchPublisher
+                ? ((RingBufferBatchPublisher) batchIndexer).getMetrics()
+                : null;
+    }
+
     /**
      * Queries the Elasticsearch
      * <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/search.html">Search API</a> for
@@ -356,6 +387,60 @@ public class ElasticsearchAuditEventHandler extends AuditEventHandlerBase implem
         }
     }
 
+    @Override
+    public BatchPayload newBatchPayload(final int initialCapacity) {
+        return new BatchPayload(OBJECT_MAPPER.getFactory(), initialCapacity, configuration.getBuffering().isGzip());
+    }
+
+    /**
+     * Writes an audit event to an Elasticsearch Bulk API payload.
+     *
+     * @param topic Event topic
+     * @param event Event JSON payload
+     * @param payload Elasticsearch Bulk API payload
+     * @throws BatchException indicates failure to add-to-batch
+     */
+    @Override
+    public void addToBatch(final String topic, final JsonValue event, final BatchPayload payload)
+            throws BatchException {
+        // _id is a protected Elasticsearch field
+        final String resourceId = event.get(FIELD_CONTENT_ID).asString();
+        event.remove(FIELD_CONTENT_ID);
+        try {
+            ElasticsearchUtil.writeBulkIndexAction(topic, resourceId, event, payload.getJsonGenerator());
+        } catch (IOException e) {
+            throw new BatchException("Unexpected error while adding to batch", e);
+        } finally {
+            event.put(FIELD_CONTENT_ID, resourceId);
+        }
+    }
+
+    /**
+     * Publishes a <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/docs-bulk.html">Bulk API</a>
+     * payload to Elasticsearch, streaming it from the payload buffer.
+     *
+     * @param payload Elasticsearch Bulk API payload
+     */
+    @Override
+    public Promise<Void, BatchException> publishBatch(final BatchPayload payload) {
+        final Request request;
+        try {
+            request = createRequest(POST, buildBulkUri(), null);
+        } catch (URISyntaxException e) {
+            return newExceptionPromise(new BatchException("Incorrect URI", e));
+        }
+        request.getHeaders().put(ContentTypeHeader.NAME, "application/json; charset=UTF-8");
+        request.getHeaders().put(ContentLengthHeader.NAME, payload.size());
+        if (payload.isCompressed()) {
+            request.getHeaders().put(ContentEncodingHeader.NAME, "gzip");
+        }
+        request.getEntity().setRawContentInputStream(
+                IO.newBranchingInputStream(payload.newInputStream(), IO.newTemporaryStorage()));
+
+        return client.send(request)
+                .then(closeSilently(processBatchResponse()), Responses.<Void, BatchException>noopExceptionFunction());
+    }
+
     /**
      * Publishes a <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/docs-bulk.html">Bulk API</a>
      * payload to Elasticsearch.
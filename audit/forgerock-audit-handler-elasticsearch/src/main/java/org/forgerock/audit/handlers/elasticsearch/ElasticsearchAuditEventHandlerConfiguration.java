@@ -12,10 +12,13 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.elasticsearch;
 
 import org.forgerock.audit.events.handlers.EventHandlerConfiguration;
+import org.forgerock.audit.events.handlers.buffering.RingBufferBatchPublisher.OverflowPolicy;
+import org.forgerock.audit.events.handlers.buffering.RingBufferBatchPublisher.WaitStrategy;
 
 import com.fasterxml.jackson.annotation.JsonPropertyDescription;
 
@@ -283,6 +286,21 @@ public class ElasticsearchAuditEventHandlerConfiguration extends EventHandlerCon
         @JsonPropertyDescription("audit.handlers.elasticsearch.buffering.maxBatchedEvents")
         private int maxBatchedEvents;
 
+        @JsonPropertyDescription("audit.handlers.elasticsearch.buffering.ringBuffer")
+        private boolean ringBuffer;
+
+        @JsonPropertyDescription("audit.handlers.elasticsearch.buffering.overflowPolicy")
+        private OverflowPolicy overflowPolicy;
+
+        @JsonPropertyDescription("audit.handlers.elasticsearch.buffering.waitStrategy")
+        private WaitStrategy waitStrategy;
+
+        @JsonPropertyDescription("audit.handlers.elasticsearch.buffering.spillDirectory")
+        private String spillDirectory;
+
+        @JsonPropertyDescription("audit.handlers.elasticsearch.buffering.gzip")
+        private boolean gzip;
+
         /**
          * Indicates if event buffering is enabled.
          *
@@ -354,5 +372,95 @@ public class ElasticsearchAuditEventHandlerConfiguration extends EventHandlerCon
         public void setMaxBatchedEvents(int maxBatchedEvents) {
             this.maxBatchedEvents = maxBatchedEvents;
         }
+
+        /**
+         * Indicates if events are buffered in a lock-free ring buffer rather than a blocking queue.
+         *
+         * @return {@code true} if the ring buffer is used
+         */
+        public boolean isRingBuffer() {
+            return ringBuffer;
+        }
+
+        /**
+         * Sets whether events are buffered in a lock-free ring buffer rather than a blocking queue.
+         *
+         * @param ringBuffer {@code true} to use the ring buffer
+         */
+        public void setRingBuffer(boolean ringBuffer) {
+            this.ringBuffer = ringBuffer;
+        }
+
+        /**
+         * Gets what to do with events when the ring buffer is full.
+         *
+         * @return the overflow policy, or {@code null} to drop events
+         */
+        public OverflowPolicy getOverflowPolicy() {
+            return overflowPolicy;
+        }
+
+        /**
+         * Sets what to do with events when the ring buffer is full.
+         *
+         * @param overflowPolicy the overflow policy
+         */
+        public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+        }
+
+        /**
+         * Gets how the ring buffer consumer thread waits for events.
+         *
+         * @return the wait strategy, or {@code null} for {@link WaitStrategy#BLOCKING}
+         */
+        public WaitStrategy getWaitStrategy() {
+            return waitStrategy;
+        }
+
+        /**
+         * Sets how the ring buffer consumer thread waits for events.
+         *
+         * @param waitStrategy the wait strategy
+         */
+        public void setWaitStrategy(WaitStrategy waitStrategy) {
+            this.waitStrategy = waitStrategy;
+        }
+
+        /**
+         * Gets the directory to which events are spilled when the ring buffer is full.
+         *
+         * @return the spill directory
+         */
+        public String getSpillDirectory() {
+            return spillDirectory;
+        }
+
+        /**
+         * Sets the directory to which events are spilled when the ring buffer is full.
+         *
+         * @param spillDirectory the spill directory
+         */
+        public void setSpillDirectory(String spillDirectory) {
+            this.spillDirectory = spillDirectory;
+        }
+
+        /**
+         * Indicates if batches are gzip-compressed before they are sent to Elasticsearch.
+         *
+         * @return {@code true} if batches are compressed
+         */
+        public boolean isGzip() {
+            return gzip;
+        }
+
+        /**
+         * Sets whether batches are gzip-compressed before they are sent to Elasticsearch.
+         *
+         * @param gzip {@code true} to gzip-compress batches
+         */
+        public void setGzip(boolean gzip) {
+            this.gzip = gzip;
+        }
     }
 }
@@ -29,6 +29,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -48,6 +49,9 @@ import org.forgerock.audit.events.handlers.buffering.BatchException;
 import org.forgerock.audit.json.AuditJsonConfig;
 import org.forgerock.http.Client;
 import org.forgerock.http.Handler;
+import org.forgerock.http.header.ContentEncodingHeader;
+import org.forgerock.http.header.ContentLengthHeader;
+import org.forgerock.http.protocol.Header;
 import org.forgerock.http.protocol.Request;
 import org.forgerock.http.protocol.Response;
 import org.forgerock.http.protocol.Status;
@@ -274,6 +278,66 @@ public class ElasticsearchAuditEventHandlerTest {
                 .isEqualTo(authEventBeforeNormalization);
     }
 
+    @Test
+    public void testRingBufferMetrics() throws Exception {
+
+        // given
+        final Promise<Response, NeverThrowsException> promise = newResultPromise(new Response(Status.OK));
+
+        final ElasticsearchAuditEventHandlerConfiguration config = new ElasticsearchAuditEventHandlerConfiguration();
+        config.getBuffering().setEnabled(true);
+        config.getBuffering().setRingBuffer(true);
+
+        // when
+        final ElasticsearchAuditEventHandler handler =
+                createElasticSearchAuditEventHandler(createClient(promise), config);
+        final ElasticsearchAuditEventHandler unbufferedHandler = createElasticSearchAuditEventHandler(
+                createClient(promise), new ElasticsearchAuditEventHandlerConfiguration());
+
+        // then
+        assertThat(handler.getRingBufferMetrics()).isNotNull();
+        assertThat(handler.getRingBufferMetrics().getQueueDepth()).isZero();
+        assertThat(handler.getRingBufferMetrics().getDroppedEventCount()).isZero();
+        assertThat(unbufferedHandler.getRingBufferMetrics()).isNull();
+    }
+
+    @Test
+    public void testBufferedPublishSendsBulkPayload() throws Exception {
+        assertBufferedPublishSendsBulkPayload(false);
+    }
+
+    @Test
+    public void testBufferedPublishSendsGzippedBulkPayload() throws Exception {
+        assertBufferedPublishSendsBulkPayload(true);
+    }
+
+    private void assertBufferedPublishSendsBulkPayload(final boolean gzip) throws Exception {
+
+        // given
+        final JsonValue responseJson = resourceAsJsonValue(RESOURCE_PATH + "authEventBatchPayloadResponse.json");
+        final List<RecordedRequest> requests = new LinkedList<>();
+
+        final ElasticsearchAuditEventHandlerConfiguration config = new ElasticsearchAuditEventHandlerConfiguration();
+        config.getBuffering().setEnabled(true);
+        config.getBuffering().setGzip(gzip);
+
+        final ElasticsearchAuditEventHandler handler = createElasticSearchAuditEventHandler(
+                createRecordingClient(createClientResponse(Status.OK, responseJson), requests), config);
+        final JsonValue event = resourceAsJsonValue(RESOURCE_PATH + "authEventBeforeNormalization.json");
+
+        // when
+        handler.startup();
+        handler.publishEvent(mock(Context.class), "authentication", event).getOrThrow();
+        handler.shutdown();
+
+        // then
+        assertThat(requests).hasSize(1);
+        final RecordedRequest request = requests.get(0);
+        assertThat(request.contentLength).isEqualTo(request.rawContent.length);
+        assertThat(request.contentEncoding).isEqualTo(gzip ? "gzip" : null);
+        assertThat(readJsonLines(request.content)).isEqualTo(readJsonLines(authEventBatchPayload));
+    }
+
     @Test
     public void testAddToBatch() throws Exception {
 
@@ -382,6 +446,33 @@ public class ElasticsearchAuditEventHandlerTest {
         return client;
     }
 
+    /**
+     * Creates a client which records the requests it sends, reading their entity as soon as they are sent, as the
+     * buffer of a batch payload is reused once its request has completed.
+     */
+    private Client createRecordingClient(final Response response, final List<RecordedRequest> requests) {
+        final Handler handler = mock(Handler.class);
+        final Client client = new Client(handler);
+        when(handler.handle(any(Context.class), any(Request.class))).thenAnswer(
+                new Answer<Promise<Response, NeverThrowsException>>() {
+                    @Override
+                    public Promise<Response, NeverThrowsException> answer(InvocationOnMock invocation)
+                            throws Throwable {
+                        requests.add(new RecordedRequest((Request) invocation.getArguments()[1]));
+                        return newResultPromise(response);
+                    }
+                });
+        return client;
+    }
+
+    private List<Object> readJsonLines(final String payload) throws Exception {
+        final List<Object> values = new LinkedList<>();
+        for (final String line : payload.split("\n")) {
+            values.add(OBJECT_MAPPER.readValue(line, Object.class));
+        }
+        return values;
+    }
+
     private EventTopicsMetaData getEventTopicsMetaData() throws Exception {
         final JsonValue predefinedEventTypes = resourceAsJsonValue(RESOURCE_PATH + "events.json");
         final Map<String, JsonValue> events = new LinkedHashMap<>();
@@ -414,4 +505,25 @@ public class ElasticsearchAuditEventHandlerTest {
     private InputStream getResource(String resourceName) {
         return getClass().getResourceAsStream(resourceName);
     }
+
+    /**
+     * The headers and entity of a request, read when the request is sent.
+     */
+    private static final class RecordedRequest {
+        private final Long contentLength;
+        private final String contentEncoding;
+        private final String content;
+        private final byte[] rawContent;
+
+        private RecordedRequest(final Request request) throws Exception {
+            final Header contentLengthHeader = request.getHeaders().get(ContentLengthHeader.NAME);
+            final Header contentEncodingHeader = request.getHeaders().get(ContentEncodingHeader.NAME);
+            contentLength = contentLengthHeader == null ? null : Long.valueOf(contentLengthHeader.getFirstValue());
+            contentEncoding = contentEncodingHeader == null ? null : contentEncodingHeader.getFirstValue();
+            content = request.getEntity().getString();
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            request.getEntity().copyRawContentTo(out);
+            rawContent = out.toByteArray();
+        }
+    }
 }
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.jdbc;
 
@@ -30,6 +31,7 @@ import org.forgerock.json.JsonPointer;
 import org.forgerock.json.JsonValue;
 import org.forgerock.json.resource.QueryRequest;
 import org.forgerock.json.resource.ResourceException;
+import org.forgerock.json.resource.SortKey;
 import org.forgerock.util.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,6 +43,8 @@ abstract class BaseDatabaseStatementProvider implements DatabaseStatementProvide
 
     private static final Logger logger = LoggerFactory.getLogger(BaseDatabaseStatementProvider.class);
 
+    private static final String VALUES_CLAUSE = " VALUES ";
+
     /**
      * {@inheritDoc}
      */
@@ -73,7 +77,7 @@ abstract class BaseDatabaseStatementProvider implements DatabaseStatementProvide
 
         String columns = joinAsString(", ", fieldToColumn.values());
         String replacementTokens = joinAsString(", ", createReplacementTokens(fieldToColumn.keySet()));
-        String insertStatement = String.format("INSERT INTO %s ( %s ) VALUES ( %s )",
+        String insertStatement = String.format("INSERT INTO %s ( %s )" + VALUES_CLAUSE + "( %s )",
                 tableMapping.getTable(), columns, replacementTokens);
         logger.info("Built insert sql: {}", insertStatement);
 
@@ -90,6 +94,22 @@ abstract class BaseDatabaseStatementProvider implements DatabaseStatementProvide
         return new JdbcAuditEvent(sqlStatementParser.getSqlStatement(), params);
     }
 
+    /**
+     * Builds a multi-row insert, which repeats the row of values of the insert of a single event.
+     * {@inheritDoc}
+     */
+    @Override
+    public String buildMultiRowCreateSql(final String createSql, final int rows) {
+        final int valuesIndex = createSql.lastIndexOf(VALUES_CLAUSE) + VALUES_CLAUSE.length();
+        final String row = createSql.substring(valuesIndex);
+        final StringBuilder multiRowInsert = new StringBuilder(valuesIndex + rows * (row.length() + 2));
+        multiRowInsert.append(createSql, 0, valuesIndex).append(row);
+        for (int i = 1; i < rows; i++) {
+            multiRowInsert.append(", ").append(row);
+        }
+        return multiRowInsert.toString();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -97,6 +117,43 @@ abstract class BaseDatabaseStatementProvider implements DatabaseStatementProvide
     public abstract JdbcAuditEvent buildQueryEvent(final TableMapping mapping, final QueryRequest queryRequest,
             final JsonValue eventTopicMetaData) throws AuditException;
 
+    /**
+     * Builds the order-by clause of a query.
+     * @param sortKeys The sort keys, as returned by {@link KeysetPagination#getSortKeys(QueryRequest)}.
+     * @param tableMappingParametersPair The table mapping of the query.
+     * @return The order-by clause.
+     */
+    protected String buildOrderByClause(final List<SortKey> sortKeys,
+            final TableMappingParametersPair tableMappingParametersPair) {
+        final List<String> keys = new LinkedList<>();
+        for (final SortKey sortKey : sortKeys) {
+            keys.add(tableMappingParametersPair.getColumnName(sortKey.getField())
+                    + (sortKey.isAscendingOrder() ? " ASC" : " DESC"));
+        }
+        return "ORDER BY " + joinAsString(", ", keys);
+    }
+
+    /**
+     * Builds the where clause of a query, from its query filter and from the paged results cookie of the previous
+     * page, if it is a keyset cookie.
+     * @param queryRequest The query request.
+     * @param queryFilterVisitor The visitor rendering the query filter.
+     * @param tableMappingParametersPair The table mapping of the query, which receives the replacement parameters.
+     * @return The where clause, without the {@code WHERE} keyword.
+     */
+    protected String buildWhereClause(final QueryRequest queryRequest,
+            final StringSqlQueryFilterVisitor queryFilterVisitor,
+            final TableMappingParametersPair tableMappingParametersPair) {
+        final String filter =
+                queryRequest.getQueryFilter().accept(queryFilterVisitor, tableMappingParametersPair).toSql();
+        final List<Object> lastValues = KeysetPagination.getLastValues(queryRequest);
+        if (lastValues == null) {
+            return filter;
+        }
+        return "(" + filter + ") AND " + queryFilterVisitor.visitKeysetFilter(tableMappingParametersPair,
+                KeysetPagination.getSortKeys(queryRequest), lastValues).toSql();
+    }
+
     /**
      * Creates a named parameter given a {@link JsonPointer}. A named parameter has the following format: ${SOME_VALUE}.
      * @param pointer The {@link JsonPointer} to wrap.
@@ -13,6 +13,7 @@
  *
  * Copyright 2015-2016 ForgeRock AS.
  * Portions Copyright 2016 Nomura Research Institute, Ltd.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.jdbc;
 
@@ -28,6 +29,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -44,6 +46,10 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Buffers the create events to a {@link JdbcAuditEventExecutor}.
+ * <p>
+ * The buffered events are written in batches by a pool of writer threads. By default, each batch borrows a connection
+ * from the data source. With dedicated connections, each writer thread has a {@link JdbcBatchWriter} of its own,
+ * which keeps its connection and prepared statements between batches and writes each batch in a single transaction.
  */
 class BufferedJdbcAuditEventExecutor implements JdbcAuditEventExecutor {
     private static final Logger logger = LoggerFactory.getLogger(BufferedJdbcAuditEventExecutor.class);
@@ -60,6 +66,8 @@ class BufferedJdbcAuditEventExecutor implements JdbcAuditEventExecutor {
     private final boolean autoFlush;
     private final int maxBatchedEvents;
     private final DataSource dataSource;
+    /** Writers of the writer threads, when they have dedicated connections, or else {@code null}. */
+    private final BlockingQueue<JdbcBatchWriter> batchWriters;
 
     /**
      * Created a BufferedJdbcAuditEventExecutor with a given queue capacity, and the {@link JdbcAuditEventExecutor}
@@ -69,9 +77,16 @@ class BufferedJdbcAuditEventExecutor implements JdbcAuditEventExecutor {
      * @param delegate The {@link JdbcAuditEventExecutor} to delegate the operations too.
      * @param writeInterval The interval to trigger write events.
      * @param threads The number of writer threads.
+     * @param maxBatchedEvents The maximum number of events written at once.
+     * @param dataSource The data source providing the connections.
+     * @param dedicatedConnections Whether each writer thread has a connection of its own.
+     * @param multiRowInserts Whether the writer threads with dedicated connections use multi-row inserts.
+     * @param databaseStatementProvider The provider of multi-row inserts.
      */
     public BufferedJdbcAuditEventExecutor(int capacity, boolean autoFlush, JdbcAuditEventExecutor delegate,
-            Duration writeInterval, int threads, int maxBatchedEvents, final DataSource dataSource) {
+            Duration writeInterval, int threads, int maxBatchedEvents, final DataSource dataSource,
+            final boolean dedicatedConnections, final boolean multiRowInserts,
+            final DatabaseStatementProvider databaseStatementProvider) {
         Reject.ifNull(delegate);
         this.autoFlush = autoFlush;
         this.delegate = delegate;
@@ -80,6 +95,15 @@ class BufferedJdbcAuditEventExecutor implements JdbcAuditEventExecutor {
         this.stopRequested = false;
 
         this.dataSource = dataSource;
+        if (dedicatedConnections) {
+            // there are as many writers as writer threads, so that a writer thread never waits for one
+            this.batchWriters = new LinkedBlockingQueue<>(threads);
+            for (int i = 0; i < threads; i++) {
+                batchWriters.add(new JdbcBatchWriter(dataSource, databaseStatementProvider, multiRowInserts));
+            }
+        } else {
+            this.batchWriters = null;
+        }
         this.queueWatcher = Executors.newScheduledThreadPool(1);
         this.workerPool = newFixedThreadPool(threads);
         this.queueWatcher.scheduleAtFixedRate(
@@ -116,6 +140,11 @@ class BufferedJdbcAuditEventExecutor implements JdbcAuditEventExecutor {
         }
         shutdownPool(queueWatcher);
         shutdownPool(workerPool);
+        if (batchWriters != null) {
+            for (JdbcBatchWriter batchWriter : batchWriters) {
+                batchWriter.close();
+            }
+        }
         delegate.close();
     }
 
@@ -139,6 +168,11 @@ class BufferedJdbcAuditEventExecutor implements JdbcAuditEventExecutor {
         return delegate.queryAuditEvent(event);
     }
 
+    @Override
+    public int queryAuditEvent(JdbcAuditEvent event, int fetchSize, RowHandler rowHandler) throws AuditException {
+        return delegate.queryAuditEvent(event, fetchSize, rowHandler);
+    }
+
     private class QueueWatcherThread implements Runnable {
 
         private final ExecutorService workerPool;
@@ -179,6 +213,15 @@ class BufferedJdbcAuditEventExecutor implements JdbcAuditEventExecutor {
             if (events.isEmpty()) {
                 return;
             }
+            if (batchWriters != null) {
+                final JdbcBatchWriter batchWriter = batchWriters.poll();
+                try {
+                    batchWriter.write(events);
+                } finally {
+                    batchWriters.add(batchWriter);
+                }
+                return;
+            }
 
             Connection connection = null;
             try {
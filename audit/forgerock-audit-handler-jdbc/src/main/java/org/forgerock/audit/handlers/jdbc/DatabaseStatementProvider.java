@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.jdbc;
 
@@ -34,6 +35,16 @@ interface DatabaseStatementProvider {
     JdbcAuditEvent buildCreateEvent(JsonValue content, TableMapping tableMapping,
             JsonValue eventTopicMetaData) throws AuditException;
 
+    /**
+     * Builds the sql of a statement that creates several events of the same table at once, from the sql of the
+     * {@link JdbcAuditEvent} built by {@link #buildCreateEvent} for a single event. The parameters of the statement
+     * are the parameters of each event in turn.
+     * @param createSql The sql of a create event.
+     * @param rows The number of events created by the statement.
+     * @return The sql, or {@code null} if the database does not support multi-row inserts.
+     */
+    String buildMultiRowCreateSql(String createSql, int rows);
+
     /**
      * Builds a {@link JdbcAuditEvent} that can be used to create a prepared statement to read an event.
      * @param mapping The TableMapping of json fields to table columns.
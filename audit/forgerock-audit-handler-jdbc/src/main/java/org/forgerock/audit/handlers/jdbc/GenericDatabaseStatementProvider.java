@@ -12,13 +12,11 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.jdbc;
 
-import static org.forgerock.util.Utils.joinAsString;
-
 import java.sql.PreparedStatement;
-import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -26,7 +24,6 @@ import org.forgerock.audit.AuditException;
 import org.forgerock.json.JsonPointer;
 import org.forgerock.json.JsonValue;
 import org.forgerock.json.resource.QueryRequest;
-import org.forgerock.json.resource.SortKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -53,7 +50,7 @@ class GenericDatabaseStatementProvider extends BaseDatabaseStatementProvider {
         final SqlStatementParser sqlStatementParser = new SqlStatementParser(querySelectStatement);
         final List<Parameter> params = new LinkedList<>();
         for (String field : sqlStatementParser.getNamedParameters()) {
-            final JsonPointer fieldPointer = new JsonPointer(field);
+            final JsonPointer fieldPointer = new JsonPointer(tableMappingParametersPair.getParameterField(field));
             params.add(
                     new Parameter(
                             getParameterType(eventTopicMetaData, fieldPointer),
@@ -66,7 +63,7 @@ class GenericDatabaseStatementProvider extends BaseDatabaseStatementProvider {
             final TableMappingParametersPair tableMappingParametersPair) {
         final TableMapping tableMapping = tableMappingParametersPair.getTableMapping();
 
-        int offsetParam = queryRequest.getPagedResultsOffset();
+        int offsetParam = KeysetPagination.getOffset(queryRequest);
         int pageSizeParam = queryRequest.getPageSize();
         if (pageSizeParam == 0) {
             pageSizeParam = Integer.MAX_VALUE;
@@ -74,20 +71,18 @@ class GenericDatabaseStatementProvider extends BaseDatabaseStatementProvider {
 
         String pageClause = "LIMIT " + pageSizeParam + " OFFSET " + offsetParam;
 
-        final List<SortKey> sortKeys = queryRequest.getSortKeys();
-        // Check for sort keys and build up order-by syntax
-        if (sortKeys != null && sortKeys.size() > 0) {
-            List<String> keys = new ArrayList<>();
-            for (SortKey sortKey : sortKeys) {
-                keys.add(tableMappingParametersPair.getColumnName(sortKey.getField()) + (sortKey.isAscendingOrder()
-                        ? " ASC" : " DESC"));
-            }
-            pageClause = "ORDER BY " + joinAsString(", ", keys) + pageClause;
+        final String whereClause = buildWhereClause(queryRequest, queryFilterVisitor, tableMappingParametersPair);
+
+        // pages are only consistent with each other if the events are in a total order
+        if (queryRequest.getPageSize() > 0
+                || (queryRequest.getSortKeys() != null && !queryRequest.getSortKeys().isEmpty())) {
+            pageClause = buildOrderByClause(KeysetPagination.getSortKeys(queryRequest), tableMappingParametersPair)
+                    + " " + pageClause;
         }
 
         return String.format("SELECT * FROM %s WHERE %s %s",
                 tableMapping.getTable(),
-                queryRequest.getQueryFilter().accept(queryFilterVisitor, tableMappingParametersPair).toSql(),
+                whereClause,
                 pageClause);
     }
 }
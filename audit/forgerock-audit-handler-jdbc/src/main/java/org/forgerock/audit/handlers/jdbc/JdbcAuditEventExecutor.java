@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.jdbc;
 
@@ -48,6 +49,18 @@ interface JdbcAuditEventExecutor {
      */
     List<Map<String, Object>> queryAuditEvent(final JdbcAuditEvent event) throws AuditException;
 
+    /**
+     * Queries a {@link JdbcAuditEvent}, handing each row to a {@link RowHandler} as it is read from the database,
+     * rather than reading all the rows first.
+     * @param event The {@link JdbcAuditEvent} to query.
+     * @param fetchSize The number of rows to fetch from the database at a time, or {@code 0} for the driver default.
+     * @param rowHandler The handler of the rows, which may stop the query.
+     * @return The number of rows handled.
+     * @throws AuditException If unable to query the {@link JdbcAuditEvent}, or if the handler fails.
+     */
+    int queryAuditEvent(final JdbcAuditEvent event, final int fetchSize, final RowHandler rowHandler)
+            throws AuditException;
+
     /**
      * Closes JdbcAuditEventExecutor and performs cleanup.
      */
@@ -57,4 +70,18 @@ interface JdbcAuditEventExecutor {
      * Flushes all create events.
      */
     void flush();
+
+    /**
+     * Handles the rows of a streamed query.
+     */
+    interface RowHandler {
+
+        /**
+         * Handles a row of the query.
+         * @param row The row, keyed by lower case column name.
+         * @return {@code true} to read the next row, or {@code false} to stop the query.
+         * @throws AuditException If unable to handle the row, which stops the query.
+         */
+        boolean handleRow(Map<String, Object> row) throws AuditException;
+    }
 }
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.jdbc;
 
@@ -73,6 +74,49 @@ class JdbcAuditEventExecutorImpl implements JdbcAuditEventExecutor {
         }
     }
 
+    private int stream(final JdbcAuditEvent event, final int fetchSize, final RowHandler rowHandler)
+            throws AuditException {
+        logger.debug("Streaming query");
+        Connection connection = null;
+        try {
+            connection = dataSource.getConnection();
+            if (connection == null) {
+                logger.error("Unable to get a datasource connection");
+                throw new AuditException("Unable to get a datasource connection");
+            }
+            // some drivers only fetch the rows progressively within a transaction
+            connection.setAutoCommit(false);
+
+            int count = 0;
+            try (final PreparedStatement preparedStatement = connection.prepareStatement(event.getSql(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                JdbcUtils.initializePreparedStatement(preparedStatement, event.getParams());
+                preparedStatement.setFetchSize(fetchSize);
+                logger.debug("Executing prepared statement");
+                try (final ResultSet resultSet = preparedStatement.executeQuery()) {
+                    final ResultSetMetaData md = resultSet.getMetaData();
+                    final int columns = md.getColumnCount();
+                    while (resultSet.next()) {
+                        ++count;
+                        if (!rowHandler.handleRow(convertRow(resultSet, md, columns))) {
+                            break;
+                        }
+                    }
+                }
+                CleanupHelper.commit(connection);
+            }
+            return count;
+        } catch (SQLException | AuditException | JsonProcessingException e) {
+            logger.error("Unable to query audit events", e);
+            if (connection != null) {
+                CleanupHelper.rollback(connection);
+            }
+            throw new AuditException("Unable to query audit events", e);
+        } finally {
+            CleanupHelper.close(connection);
+        }
+    }
+
     private List<Map<String, Object>> convertResultSetToList(final ResultSet resultSet) throws SQLException {
         final List<Map<String, Object>> list = new ArrayList<>();
         if (resultSet == null) {
@@ -81,15 +125,20 @@ class JdbcAuditEventExecutorImpl implements JdbcAuditEventExecutor {
         final ResultSetMetaData md = resultSet.getMetaData();
         final int columns = md.getColumnCount();
         while (resultSet.next()) {
-            final HashMap<String, Object> row = new HashMap<>(columns);
-            for (int i = 1; i <= columns; ++i) {
-                row.put(md.getColumnName(i).toLowerCase(), getResultSetObject(resultSet, md.getColumnType(i), i));
-            }
-            list.add(row);
+            list.add(convertRow(resultSet, md, columns));
         }
         return list;
     }
 
+    private Map<String, Object> convertRow(final ResultSet resultSet, final ResultSetMetaData md, final int columns)
+            throws SQLException {
+        final HashMap<String, Object> row = new HashMap<>(columns);
+        for (int i = 1; i <= columns; ++i) {
+            row.put(md.getColumnName(i).toLowerCase(), getResultSetObject(resultSet, md.getColumnType(i), i));
+        }
+        return row;
+    }
+
     private Object getResultSetObject(final ResultSet resultSet, final int type, int column)
             throws SQLException {
         switch (type) {
@@ -130,6 +179,11 @@ class JdbcAuditEventExecutorImpl implements JdbcAuditEventExecutor {
         return execute(event);
     }
 
+    @Override
+    public int queryAuditEvent(JdbcAuditEvent event, int fetchSize, RowHandler rowHandler) throws AuditException {
+        return stream(event, fetchSize, rowHandler);
+    }
+
     @Override
     public void close() {
     }
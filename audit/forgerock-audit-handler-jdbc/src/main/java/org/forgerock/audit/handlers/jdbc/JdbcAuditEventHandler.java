@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.jdbc;
 
@@ -37,6 +38,7 @@ import org.forgerock.audit.handlers.jdbc.JdbcAuditEventHandlerConfiguration.Even
 import org.forgerock.http.util.Json;
 import org.forgerock.json.JsonPointer;
 import org.forgerock.json.JsonValue;
+import org.forgerock.json.resource.BadRequestException;
 import org.forgerock.json.resource.CountPolicy;
 import org.forgerock.json.resource.InternalServerErrorException;
 import org.forgerock.json.resource.NotFoundException;
@@ -68,6 +70,9 @@ public class JdbcAuditEventHandler extends AuditEventHandlerBase {
     /** The name used for an Oracle database. */
     public static final String ORACLE = "oracle";
 
+    /** Number of rows fetched from the database at a time by queries. */
+    private static final int QUERY_FETCH_SIZE = 100;
+
     private final JdbcAuditEventHandlerConfiguration configuration;
     private DataSource dataSource;
     private DatabaseStatementProvider databaseStatementProvider;
@@ -110,6 +115,9 @@ public class JdbcAuditEventHandler extends AuditEventHandlerBase {
         final JdbcAuditEventExecutor jdbcAuditEventExecutor = new JdbcAuditEventExecutorImpl(this.dataSource);
         final EventBufferingConfiguration bufferConfig = configuration.getBuffering();
         if (bufferConfig.isEnabled()) {
+            if (bufferConfig.isMultiRowInserts() && !bufferConfig.isDedicatedConnections()) {
+                logger.warn("Multi-row inserts are only used by writer threads with dedicated connections");
+            }
             this.jdbcAuditEventExecutor = new BufferedJdbcAuditEventExecutor(
                     bufferConfig.getMaxSize(),
                     bufferConfig.isAutoFlush(),
@@ -117,7 +125,10 @@ public class JdbcAuditEventHandler extends AuditEventHandlerBase {
                     POLLING_INTERVAL,
                     bufferConfig.getWriterThreads(),
                     bufferConfig.getMaxBatchedEvents(),
-                    dataSource);
+                    dataSource,
+                    bufferConfig.isDedicatedConnections(),
+                    bufferConfig.isMultiRowInserts(),
+                    databaseStatementProvider);
         } else {
             this.jdbcAuditEventExecutor = jdbcAuditEventExecutor;
         }
@@ -128,10 +139,11 @@ public class JdbcAuditEventHandler extends AuditEventHandlerBase {
      */
     @Override
     public void shutdown() throws ResourceException {
+        // the buffered events are written before the connection pool is closed
+        jdbcAuditEventExecutor.close();
         if (!sharedDataSource && dataSource instanceof HikariDataSource) {
             ((HikariDataSource) dataSource).close();
         }
-        jdbcAuditEventExecutor.close();
     }
 
     /**
@@ -164,18 +176,33 @@ public class JdbcAuditEventHandler extends AuditEventHandlerBase {
                     queryRequest.getQueryFilter());
 
             final TableMapping mapping = getTableMapping(topic);
-            final List<Map<String, Object>> results =
-                    jdbcAuditEventExecutor.queryAuditEvent(
-                            databaseStatementProvider.buildQueryEvent(
-                                    mapping, queryRequest, eventTopicsMetaData.getSchema(topic)));
+            final JdbcAuditEvent queryEvent = databaseStatementProvider.buildQueryEvent(
+                    mapping, queryRequest, eventTopicsMetaData.getSchema(topic));
 
-            for (Map<String, Object> entry : results) {
-                final JsonValue result = processEntry(entry, mapping, topic);
-                queryResourceHandler.handleResource(
-                        newResourceResponse(result.get(ResourceResponse.FIELD_CONTENT_ID).asString(), null, result));
-            }
-            return newQueryResponse(String.valueOf(queryRequest.getPagedResultsOffset() + results.size()),
-                            CountPolicy.EXACT, results.size()).asPromise();
+            // the rows are handed over as they are fetched, rather than read into memory first
+            final JsonValue[] lastResult = new JsonValue[1];
+            final int pageSize = queryRequest.getPageSize();
+            final int results = jdbcAuditEventExecutor.queryAuditEvent(queryEvent,
+                    pageSize > 0 ? Math.min(pageSize, QUERY_FETCH_SIZE) : QUERY_FETCH_SIZE,
+                    new JdbcAuditEventExecutor.RowHandler() {
+                        @Override
+                        public boolean handleRow(final Map<String, Object> row) throws AuditException {
+                            final JsonValue result = processEntry(row, mapping, topic);
+                            lastResult[0] = result;
+                            return queryResourceHandler.handleResource(newResourceResponse(
+                                    result.get(ResourceResponse.FIELD_CONTENT_ID).asString(), null, result));
+                        }
+                    });
+
+            final int nextOffset = KeysetPagination.getOffset(queryRequest) + results;
+            final String pagedResultsCookie = pageSize > 0 && results == pageSize
+                    ? KeysetPagination.getPagedResultsCookie(queryRequest, lastResult[0], nextOffset)
+                    : String.valueOf(nextOffset);
+            return newQueryResponse(pagedResultsCookie, CountPolicy.EXACT, results).asPromise();
+        } catch (IllegalArgumentException e) {
+            final String error = String.format("Invalid paged results cookie for %s", auditEventTopic);
+            logger.debug(error, e);
+            return new BadRequestException(error, e).asPromise();
         } catch (AuditException e) {
             final String error = String.format("Unable to query audit entry for %s", auditEventTopic);
             logger.error(error, e);
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.jdbc;
 
@@ -378,6 +379,12 @@ public class JdbcAuditEventHandlerConfiguration extends EventHandlerConfiguratio
         @JsonPropertyDescription("audit.handlers.jdbc.buffering.maxBatchedEvents")
         private int maxBatchedEvents = 100;
 
+        @JsonPropertyDescription("audit.handlers.jdbc.buffering.dedicatedConnections")
+        private boolean dedicatedConnections = false;
+
+        @JsonPropertyDescription("audit.handlers.jdbc.buffering.multiRowInserts")
+        private boolean multiRowInserts = false;
+
 
         /**
          * Indicates if event buffering is enabled.
@@ -485,5 +492,47 @@ public class JdbcAuditEventHandlerConfiguration extends EventHandlerConfiguratio
         public void setMaxBatchedEvents(int maxBatchedEvents) {
             this.maxBatchedEvents = maxBatchedEvents;
         }
+
+        /**
+         * Indicates if each writer thread keeps a connection of its own, along with its prepared statements, and
+         * commits each batch of events at once. The connections are taken out of the connection pool until the
+         * handler shuts down, so the pool must have room for one connection per writer thread besides those used to
+         * read events.
+         *
+         * @return {@code true} if the writer threads have dedicated connections.
+         */
+        public boolean isDedicatedConnections() {
+            return dedicatedConnections;
+        }
+
+        /**
+         * Sets whether each writer thread keeps a connection of its own.
+         *
+         * @param dedicatedConnections
+         *            Indicates if the writer threads have dedicated connections.
+         */
+        public void setDedicatedConnections(boolean dedicatedConnections) {
+            this.dedicatedConnections = dedicatedConnections;
+        }
+
+        /**
+         * Indicates if the writer threads with dedicated connections create the events of a batch with inserts of
+         * several rows, rather than with JDBC batches, when the database supports it.
+         *
+         * @return {@code true} if multi-row inserts are used.
+         */
+        public boolean isMultiRowInserts() {
+            return multiRowInserts;
+        }
+
+        /**
+         * Sets whether the writer threads with dedicated connections use multi-row inserts.
+         *
+         * @param multiRowInserts
+         *            Indicates if multi-row inserts are used.
+         */
+        public void setMultiRowInserts(boolean multiRowInserts) {
+            this.multiRowInserts = multiRowInserts;
+        }
     }
 }
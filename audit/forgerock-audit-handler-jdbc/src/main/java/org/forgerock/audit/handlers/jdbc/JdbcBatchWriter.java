@@ -0,0 +1,242 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.audit.handlers.jdbc;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes batches of create events through a connection of its own, which is kept open between batches along with
+ * the prepared statements of each table.
+ * <p>
+ * Each batch is written in a single transaction. The events of a table are created either by a JDBC batch, or, if
+ * multi-row inserts are enabled and supported by the {@link DatabaseStatementProvider}, by inserts of several rows of
+ * values, which most databases execute much faster. The number of rows of such an insert is a power of two, so that a
+ * table needs only a few statements whatever the size of the batches.
+ * <p>
+ * The connection is taken out of the connection pool until the writer is closed. A connection found to be broken
+ * after a failure is replaced, and the batch is written again on the new connection. This class is not thread-safe.
+ */
+class JdbcBatchWriter implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(JdbcBatchWriter.class);
+
+    /** Maximum number of parameters of a multi-row insert, which all supported databases accept. */
+    private static final int MAX_MULTI_ROW_PARAMETERS = 2000;
+
+    /** Seconds to wait for a connection to tell whether it is still valid, after a failure. */
+    private static final int VALIDATION_TIMEOUT = 5;
+
+    private final DataSource dataSource;
+    private final DatabaseStatementProvider databaseStatementProvider;
+    private final boolean multiRowInserts;
+
+    private Connection connection;
+    /** Prepared statements of the connection, by sql. */
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+    /**
+     * Creates a writer, which opens its connection when it first writes.
+     * @param dataSource The data source providing the connection.
+     * @param databaseStatementProvider The provider of multi-row inserts.
+     * @param multiRowInserts Whether the events are created by multi-row inserts, when the database supports them.
+     */
+    JdbcBatchWriter(final DataSource dataSource, final DatabaseStatementProvider databaseStatementProvider,
+            final boolean multiRowInserts) {
+        this.dataSource = dataSource;
+        this.databaseStatementProvider = databaseStatementProvider;
+        this.multiRowInserts = multiRowInserts;
+    }
+
+    /**
+     * Writes a batch of create events in a single transaction. Events whose parameters cannot be set are logged and
+     * skipped, and the batch is rolled back if the database fails to create the others.
+     * @param events The create events.
+     */
+    void write(final Collection<JdbcAuditEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        final Map<String, List<JdbcAuditEvent>> sqlTemplatesToEvents = groupSqlTemplatesToEvents(events);
+        boolean newConnection = false;
+        while (true) {
+            boolean committing = false;
+            try {
+                if (connection == null) {
+                    connection = dataSource.getConnection();
+                    connection.setAutoCommit(false);
+                    newConnection = true;
+                }
+                for (Entry<String, List<JdbcAuditEvent>> sqlTemplate : sqlTemplatesToEvents.entrySet()) {
+                    writeEvents(sqlTemplate.getKey(), sqlTemplate.getValue());
+                }
+                committing = true;
+                CleanupHelper.commit(connection);
+                return;
+            } catch (SQLException e) {
+                CleanupHelper.rollback(connection);
+                final boolean connectionLost = !isValid(connection);
+                if (connectionLost) {
+                    closeConnection();
+                }
+                // a connection held across batches may have been closed by the database meanwhile
+                if (connectionLost && !newConnection && !committing) {
+                    logger.debug("Writer connection lost; writing the events again on a new connection", e);
+                    continue;
+                }
+                logger.error("Unable to create events in the queue.", e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Closes the prepared statements, and returns the connection to the pool.
+     */
+    @Override
+    public void close() {
+        closeConnection();
+    }
+
+    private void writeEvents(final String sql, final List<JdbcAuditEvent> events) throws SQLException {
+        final PreparedStatement preparedStatement = prepareStatement(sql);
+        // the batch of a failed write may not have been cleared
+        preparedStatement.clearBatch();
+        if (!multiRowInserts) {
+            writeEventsInBatch(preparedStatement, events);
+            return;
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+
+        // the events are validated as they are set on the multi-row statements, so that each is only set once
+        final int parameters = Math.max(1, events.get(0).getParams().size());
+        final int maxRows = Integer.highestOneBit(Math.max(1, MAX_MULTI_ROW_PARAMETERS / parameters));
+        final List<JdbcAuditEvent> rowEvents = new ArrayList<>(maxRows);
+        int index = 0;
+        while (index < events.size()) {
+            final int rows = Math.min(maxRows, Integer.highestOneBit(events.size() - index));
+            final String multiRowSql = rows == 1 ? sql : databaseStatementProvider.buildMultiRowCreateSql(sql, rows);
+            if (multiRowSql == null) {
+                writeEventsInBatch(preparedStatement, events.subList(index, events.size()));
+                return;
+            }
+            final PreparedStatement multiRowStatement = prepareStatement(multiRowSql);
+            multiRowStatement.clearParameters();
+            rowEvents.clear();
+            int firstIndex = 1;
+            while (rowEvents.size() < rows && index < events.size()) {
+                final JdbcAuditEvent event = events.get(index++);
+                if (setParameters(multiRowStatement, event, firstIndex)) {
+                    rowEvents.add(event);
+                    firstIndex += event.getParams().size();
+                }
+            }
+            if (rowEvents.size() == rows) {
+                multiRowStatement.executeUpdate();
+            } else {
+                // invalid events were skipped, leaving fewer events than the statement has rows
+                writeEventsInBatch(preparedStatement, rowEvents);
+            }
+        }
+    }
+
+    private void writeEventsInBatch(final PreparedStatement preparedStatement, final List<JdbcAuditEvent> events)
+            throws SQLException {
+        for (JdbcAuditEvent event : events) {
+            preparedStatement.clearParameters();
+            if (setParameters(preparedStatement, event, 1)) {
+                preparedStatement.addBatch();
+            }
+        }
+        preparedStatement.executeBatch();
+    }
+
+    /**
+     * Sets the parameters of an event on a statement, skipping the event if its parameters are invalid.
+     *
+     * @return {@code true} if the parameters were set, or {@code false} if the event was skipped
+     */
+    private static boolean setParameters(final PreparedStatement preparedStatement, final JdbcAuditEvent event,
+            final int firstIndex) throws SQLException {
+        try {
+            JdbcUtils.initializePreparedStatement(preparedStatement, event.getParams(), firstIndex);
+            return true;
+        } catch (SQLException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Unable to create event in the queue", e);
+            return false;
+        }
+    }
+
+    private PreparedStatement prepareStatement(final String sql) throws SQLException {
+        PreparedStatement preparedStatement = statements.get(sql);
+        if (preparedStatement == null) {
+            preparedStatement = connection.prepareStatement(sql);
+            statements.put(sql, preparedStatement);
+        }
+        return preparedStatement;
+    }
+
+    private static boolean isValid(final Connection connection) {
+        try {
+            return connection != null && connection.isValid(VALIDATION_TIMEOUT);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void closeConnection() {
+        for (PreparedStatement preparedStatement : statements.values()) {
+            try {
+                preparedStatement.close();
+            } catch (SQLException e) {
+                logger.debug("Failure during statement close", e);
+            }
+        }
+        statements.clear();
+        CleanupHelper.close(connection);
+        connection = null;
+    }
+
+    private static Map<String, List<JdbcAuditEvent>> groupSqlTemplatesToEvents(
+            final Collection<JdbcAuditEvent> events) {
+        final Map<String, List<JdbcAuditEvent>> sqlTemplatesToEvents = new LinkedHashMap<>();
+        for (JdbcAuditEvent event : events) {
+            List<JdbcAuditEvent> jdbcAuditEvents = sqlTemplatesToEvents.get(event.getSql());
+            if (jdbcAuditEvents == null) {
+                jdbcAuditEvents = new ArrayList<>();
+                sqlTemplatesToEvents.put(event.getSql(), jdbcAuditEvents);
+            }
+            jdbcAuditEvents.add(event);
+        }
+        return sqlTemplatesToEvents;
+    }
+}
@@ -13,6 +13,7 @@
  *
  * Copyright 2016 ForgeRock AS.
  * Portions Copyright 2016 Nomura Research Institute, Ltd.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.jdbc;
 
@@ -43,7 +44,20 @@ final class JdbcUtils {
 
     static void initializePreparedStatement(final PreparedStatement preparedStatement, final List<Parameter> params)
             throws AuditException, SQLException, JsonProcessingException {
-        int i = 1;
+        initializePreparedStatement(preparedStatement, params, 1);
+    }
+
+    /**
+     * Sets parameters of a prepared statement, starting from a given index, such as the parameters of one of the rows
+     * of a multi-row insert.
+     *
+     * @param preparedStatement The prepared statement.
+     * @param params The parameters.
+     * @param firstIndex The index of the statement parameter to set to the first parameter.
+     */
+    static void initializePreparedStatement(final PreparedStatement preparedStatement, final List<Parameter> params,
+            final int firstIndex) throws AuditException, SQLException, JsonProcessingException {
+        int i = firstIndex;
         for (final Parameter parameter : params) {
             final Object parameterValue = parameter.getParameter();
             switch (parameter.getParameterType()) {
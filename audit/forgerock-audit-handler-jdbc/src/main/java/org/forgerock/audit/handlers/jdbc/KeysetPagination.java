@@ -0,0 +1,174 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.audit.handlers.jdbc;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.forgerock.audit.events.AuditEventBuilder;
+import org.forgerock.http.util.Json;
+import org.forgerock.json.JsonPointer;
+import org.forgerock.json.JsonValue;
+import org.forgerock.json.resource.QueryRequest;
+import org.forgerock.json.resource.ResourceResponse;
+import org.forgerock.json.resource.SortKey;
+import org.forgerock.util.encode.Base64url;
+
+/**
+ * Keyset pagination of audit event queries, which selects the events of a page as those that come after the last
+ * event of the previous page, in the order of the sort keys, rather than by skipping the events of all the previous
+ * pages, so that deep pages cost no more to the database than the first one.
+ * <p>
+ * The events are ordered by the sort keys of the request, followed by the event ID, which makes the order total. The
+ * paged results cookie of a page holds the values of these sort keys for the last event of the page.
+ * <p>
+ * The condition selecting the events after these values never matches a null column, and databases do not agree on
+ * where nulls are sorted, so pages are only selected this way when every sort key is a field that all audit events
+ * have: the event ID, the timestamp or the transaction ID. Otherwise, the cookie holds the offset of the next page, as
+ * it used to, and such cookies are still accepted.
+ */
+final class KeysetPagination {
+
+    private static final JsonPointer ID_FIELD = new JsonPointer(ResourceResponse.FIELD_CONTENT_ID);
+
+    /** The fields required of every audit event, whose columns are therefore never null. */
+    private static final Set<JsonPointer> NON_NULL_FIELDS = new HashSet<>(Arrays.asList(ID_FIELD,
+            new JsonPointer(AuditEventBuilder.TIMESTAMP), new JsonPointer(AuditEventBuilder.TRANSACTION_ID)));
+
+    private KeysetPagination() {
+        // utility class
+    }
+
+    /**
+     * Gets the sort keys ordering the events of a query, which end with the event ID.
+     * @param queryRequest The query request.
+     * @return The sort keys of the request, followed by the event ID if the request does not sort by it.
+     */
+    static List<SortKey> getSortKeys(final QueryRequest queryRequest) {
+        final List<SortKey> sortKeys = new ArrayList<>();
+        if (queryRequest.getSortKeys() != null) {
+            sortKeys.addAll(queryRequest.getSortKeys());
+        }
+        for (SortKey sortKey : sortKeys) {
+            if (sortKey.getField().equals(ID_FIELD)) {
+                return sortKeys;
+            }
+        }
+        sortKeys.add(SortKey.ascendingOrder(ID_FIELD));
+        return sortKeys;
+    }
+
+    /**
+     * Gets the number of events to skip, from the paged results offset of a query or else from an offset cookie.
+     * @param queryRequest The query request.
+     * @return The number of events to skip, which is {@code 0} if the page follows a keyset cookie.
+     */
+    static int getOffset(final QueryRequest queryRequest) {
+        if (queryRequest.getPagedResultsOffset() > 0) {
+            return queryRequest.getPagedResultsOffset();
+        }
+        final String cookie = queryRequest.getPagedResultsCookie();
+        return isOffsetCookie(cookie) ? Integer.parseInt(cookie) : 0;
+    }
+
+    /**
+     * Gets the values of the sort keys of the last event of the previous page, from the paged results cookie.
+     * @param queryRequest The query request.
+     * @return The values, in the order of {@link #getSortKeys(QueryRequest)}, or {@code null} if the request has no
+     * keyset cookie, or has a paged results offset.
+     * @throws IllegalArgumentException If the cookie is not valid for the request.
+     */
+    static List<Object> getLastValues(final QueryRequest queryRequest) {
+        final String cookie = queryRequest.getPagedResultsCookie();
+        if (cookie == null || cookie.isEmpty() || isOffsetCookie(cookie) || queryRequest.getPagedResultsOffset() > 0) {
+            return null;
+        }
+        final Object values;
+        try {
+            final byte[] json = Base64url.decode(cookie);
+            if (json == null) {
+                throw new IllegalArgumentException("Invalid paged results cookie");
+            }
+            values = Json.readJson(new String(json, UTF_8));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid paged results cookie", e);
+        }
+        if (!(values instanceof List) || ((List<?>) values).size() != getSortKeys(queryRequest).size()
+                || ((List<?>) values).contains(null) || !isKeysetPageable(queryRequest)) {
+            throw new IllegalArgumentException("Paged results cookie does not match the sort keys of the query");
+        }
+        @SuppressWarnings("unchecked")
+        final List<Object> lastValues = (List<Object>) values;
+        return lastValues;
+    }
+
+    /**
+     * Builds the paged results cookie of a page, from its last event.
+     * @param queryRequest The query request.
+     * @param lastEvent The last event of the page.
+     * @param nextOffset The offset of the next page, returned if the page cannot be followed by keyset.
+     * @return The cookie.
+     */
+    static String getPagedResultsCookie(final QueryRequest queryRequest, final JsonValue lastEvent,
+            final int nextOffset) {
+        if (!isKeysetPageable(queryRequest)) {
+            return String.valueOf(nextOffset);
+        }
+        final List<Object> values = new ArrayList<>();
+        for (SortKey sortKey : getSortKeys(queryRequest)) {
+            final JsonValue value = lastEvent.get(sortKey.getField());
+            if (value == null || !(value.isString() || value.isNumber() || value.isBoolean())) {
+                return String.valueOf(nextOffset);
+            }
+            values.add(value.getObject());
+        }
+        try {
+            return Base64url.encode(Json.writeJson(values));
+        } catch (IOException e) {
+            return String.valueOf(nextOffset);
+        }
+    }
+
+    /**
+     * Tells whether the pages of a query can be selected by keyset, as none of its sort keys can be null.
+     */
+    private static boolean isKeysetPageable(final QueryRequest queryRequest) {
+        for (SortKey sortKey : getSortKeys(queryRequest)) {
+            if (!NON_NULL_FIELDS.contains(sortKey.getField())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isOffsetCookie(final String cookie) {
+        if (cookie == null || cookie.isEmpty() || cookie.length() > 9) {
+            return false;
+        }
+        for (int i = 0; i < cookie.length(); i++) {
+            if (!Character.isDigit(cookie.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -12,12 +12,10 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.jdbc;
 
-import static org.forgerock.util.Utils.joinAsString;
-
-import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -25,7 +23,6 @@ import org.forgerock.audit.AuditException;
 import org.forgerock.json.JsonPointer;
 import org.forgerock.json.JsonValue;
 import org.forgerock.json.resource.QueryRequest;
-import org.forgerock.json.resource.SortKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,6 +34,16 @@ class OracleDatabaseStatementProvider extends BaseDatabaseStatementProvider {
 
     private final StringSqlQueryFilterVisitor queryFilterVisitor = new StringSqlQueryFilterVisitor();
 
+    /**
+     * Oracle databases before 23ai do not support several rows of values in an insert statement, so events are
+     * always created by JDBC batches.
+     * {@inheritDoc}
+     */
+    @Override
+    public String buildMultiRowCreateSql(final String createSql, final int rows) {
+        return null;
+    }
+
     /**
      * Builds a {@link JdbcAuditEvent} that will query an oracle database.
      * {@inheritDoc}
@@ -55,7 +62,8 @@ class OracleDatabaseStatementProvider extends BaseDatabaseStatementProvider {
         for (String field : sqlStatementParser.getNamedParameters()) {
             params.add(
                     new Parameter(
-                            getParameterType(eventTopicMetaData, new JsonPointer(field)),
+                            getParameterType(eventTopicMetaData,
+                                    new JsonPointer(tableMappingParametersPair.getParameterField(field))),
                             tableMappingParametersPair.getParameters().get(field)));
         }
         return new JdbcAuditEvent(sqlStatementParser.getSqlStatement(), params);
@@ -63,30 +71,17 @@ class OracleDatabaseStatementProvider extends BaseDatabaseStatementProvider {
 
     private String buildQuerySql(final QueryRequest queryRequest,
             final TableMappingParametersPair tableMappingParametersPair) {
-        final int offsetParam = queryRequest.getPagedResultsOffset();
+        final int offsetParam = KeysetPagination.getOffset(queryRequest);
         int pageSizeParam = queryRequest.getPageSize();
         if (pageSizeParam == 0) {
             pageSizeParam = Integer.MAX_VALUE;
         }
 
-        final String filterString = queryRequest.getQueryFilter().accept(queryFilterVisitor, tableMappingParametersPair)
-                .toSql();
-
-        // default to ordering by id
-        String keysClause = "ORDER BY id ASC";
+        final String filterString = buildWhereClause(queryRequest, queryFilterVisitor, tableMappingParametersPair);
 
-        // JsonValue-cheat to avoid an unchecked cast
-        final List<SortKey> sortKeys = queryRequest.getSortKeys();
-        // Check for sort keys and build up order-by syntax
-
-        if (sortKeys != null && sortKeys.size() > 0) {
-            final List<String> keys = new ArrayList<>();
-            for (final SortKey sortKey : sortKeys) {
-                keys.add(tableMappingParametersPair.getColumnName(sortKey.getField()) + (sortKey.isAscendingOrder()
-                        ? " ASC" : " DESC"));
-            }
-            keysClause = "ORDER BY " + joinAsString(", ", keys);
-        }
+        // order by the sort keys, and then by id
+        final String keysClause =
+                buildOrderByClause(KeysetPagination.getSortKeys(queryRequest), tableMappingParametersPair);
 
         final String tableName = tableMappingParametersPair.getTableMapping().getTable();
         return String.format("SELECT * "
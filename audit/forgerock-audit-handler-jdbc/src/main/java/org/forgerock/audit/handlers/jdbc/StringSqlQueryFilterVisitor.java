@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.jdbc;
 
@@ -21,6 +22,7 @@ import java.util.LinkedList;
 import java.util.List;
 
 import org.forgerock.json.JsonPointer;
+import org.forgerock.json.resource.SortKey;
 import org.forgerock.util.query.QueryFilter;
 import org.forgerock.util.query.QueryFilterVisitor;
 
@@ -116,6 +118,40 @@ class StringSqlQueryFilterVisitor
         return new StringSqlRenderer(parameters.getColumnName(field) + " " + operand + " " + value);
     }
 
+    /**
+     * Renders the condition of keyset pagination, which selects the rows that come after a row in the order of the
+     * sort keys: for sort keys a, b and c, the rows such that a &gt; ?, or a = ? and b &gt; ?, or a = ? and b = ? and
+     * c &gt; ?, where the comparisons are reversed for descending sort keys.
+     *
+     * @param parameters storage of the parameters holding the values of the row
+     * @param sortKeys the sort keys, which must order the rows totally and whose columns must never be null
+     * @param lastValues the values of the sort keys of the row, none of which is null
+     * @return the condition
+     */
+    public StringSqlRenderer visitKeysetFilter(TableMappingParametersPair parameters, List<SortKey> sortKeys,
+            List<Object> lastValues) {
+        final List<String> values = new LinkedList<>();
+        for (int i = 0; i < sortKeys.size(); i++) {
+            // named apart from the fields, as the query filter may compare the same fields
+            final String name = "_keyset" + i;
+            parameters.putParameter(name, sortKeys.get(i).getField(), lastValues.get(i));
+            values.add("${" + name + "}");
+        }
+        final List<String> conditions = new LinkedList<>();
+        for (int i = 0; i < sortKeys.size(); i++) {
+            final StringSqlRenderer condition = new StringSqlRenderer("(");
+            for (int j = 0; j < i; j++) {
+                condition.append(parameters.getColumnName(sortKeys.get(j).getField()))
+                        .append(" = ").append(values.get(j)).append(" AND ");
+            }
+            final SortKey sortKey = sortKeys.get(i);
+            condition.append(parameters.getColumnName(sortKey.getField()))
+                    .append(sortKey.isAscendingOrder() ? " > " : " < ").append(values.get(i)).append(")");
+            conditions.add(condition.toSql());
+        }
+        return new StringSqlRenderer("(").append(joinAsString(" OR ", conditions)).append(")");
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.jdbc;
 
@@ -27,6 +28,8 @@ class TableMappingParametersPair {
 
     private TableMapping tableMapping;
     private Map<String, Object> parameters;
+    /** Fields of the parameters which are not named after their field. */
+    private final Map<String, String> parameterFields = new LinkedHashMap<>();
 
     /**
      * Creates a TableMappingParametersPair given a {@link TableMapping}. A empty parameter map is created.
@@ -62,6 +65,29 @@ class TableMappingParametersPair {
         return parameters;
     }
 
+    /**
+     * Adds a replacement parameter which is not named after the field it is compared to, such as the parameters
+     * holding the sort key values of keyset pagination, so that the field can be compared to several values.
+     * @param name The name of the parameter.
+     * @param field The field the parameter is compared to, which gives the type of the parameter.
+     * @param value The value of the parameter.
+     */
+    public void putParameter(final String name, final JsonPointer field, final Object value) {
+        parameters.put(name, value);
+        parameterFields.put(name, field.toString());
+    }
+
+    /**
+     * Gets the field a replacement parameter is compared to.
+     * @param name The name of the parameter.
+     * @return The field, which is the name of the parameter unless it was added by
+     * {@link #putParameter(String, JsonPointer, Object)}.
+     */
+    public String getParameterField(final String name) {
+        final String field = parameterFields.get(name);
+        return field != null ? field : name;
+    }
+
     /**
      * Utility method to get the column name out of a {@link TableMapping}.
      * @param field The {@link JsonPointer} field to get the column of.
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.jdbc;
 
@@ -26,6 +27,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Collections;
 import java.util.LinkedHashMap;
@@ -42,6 +44,7 @@ import org.forgerock.audit.events.handlers.AuditEventHandler;
 import org.forgerock.audit.json.AuditJsonConfig;
 import org.forgerock.json.JsonPointer;
 import org.forgerock.json.JsonValue;
+import org.forgerock.json.resource.BadRequestException;
 import org.forgerock.json.resource.InternalServerErrorException;
 import org.forgerock.json.resource.NotFoundException;
 import org.forgerock.json.resource.QueryRequest;
@@ -411,6 +414,110 @@ public class JdbcAuditEventHandlerTest {
                 .isInstanceOf(InternalServerErrorException.class);
     }
 
+    @Test
+    public void testQueryWithKeysetPagination() throws Exception {
+        // given
+        final JdbcAuditEventHandlerConfiguration configuration = createConfiguration(false);
+        final JdbcAuditEventHandler handler = createJdbcAuditEventHandler(configuration);
+        final Context context = new RootContext();
+        for (int i = 0; i < 5; i++) {
+            final JsonValue event = makeEvent();
+            event.put(ID_FIELD, ID_VALUE + i);
+            AssertJPromiseAssert.assertThat(handler.publishEvent(context, TEST_AUDIT_EVENT_TOPIC, event)).succeeded();
+        }
+
+        final List<String> ids = new LinkedList<>();
+        final QueryResourceHandler queryResourceHandler = new QueryResourceHandler() {
+            @Override
+            public boolean handleResource(ResourceResponse resourceResponse) {
+                ids.add(resourceResponse.getId());
+                return true;
+            }
+        };
+
+        // when
+        String pagedResultsCookie = null;
+        for (int page = 0; page < 3; page++) {
+            final QueryRequest queryRequest = Requests.newQueryRequest(TEST_AUDIT_EVENT_TOPIC)
+                    .setQueryFilter(QueryFilter.<JsonPointer>alwaysTrue())
+                    .setPageSize(2)
+                    .setPagedResultsCookie(pagedResultsCookie);
+            pagedResultsCookie = handler.queryEvents(context, TEST_AUDIT_EVENT_TOPIC, queryRequest,
+                    queryResourceHandler).get().getPagedResultsCookie();
+        }
+
+        // then
+        assertThat(ids).containsExactly(ID_VALUE + 0, ID_VALUE + 1, ID_VALUE + 2, ID_VALUE + 3, ID_VALUE + 4);
+    }
+
+    @Test
+    public void testQueryPagedBySortKeyWithNullValues() throws Exception {
+        // given
+        final JdbcAuditEventHandlerConfiguration configuration = createConfiguration(false);
+        final JdbcAuditEventHandler handler = createJdbcAuditEventHandler(configuration);
+        final Context context = new RootContext();
+        for (int i = 0; i < 6; i++) {
+            final JsonValue event = makeEvent();
+            event.put(ID_FIELD, ID_VALUE + i);
+            if (i % 2 == 0) {
+                event.remove(USER_ID_FIELD);
+            }
+            AssertJPromiseAssert.assertThat(handler.publishEvent(context, TEST_AUDIT_EVENT_TOPIC, event)).succeeded();
+        }
+
+        final List<String> ids = new LinkedList<>();
+        final QueryResourceHandler queryResourceHandler = new QueryResourceHandler() {
+            @Override
+            public boolean handleResource(ResourceResponse resourceResponse) {
+                ids.add(resourceResponse.getId());
+                return true;
+            }
+        };
+
+        // when
+        String pagedResultsCookie = null;
+        for (int page = 0; page < 3; page++) {
+            final QueryRequest queryRequest = Requests.newQueryRequest(TEST_AUDIT_EVENT_TOPIC)
+                    .setQueryFilter(QueryFilter.<JsonPointer>alwaysTrue())
+                    .addSortKey(USER_ID_FIELD)
+                    .setPageSize(2)
+                    .setPagedResultsCookie(pagedResultsCookie);
+            pagedResultsCookie = handler.queryEvents(context, TEST_AUDIT_EVENT_TOPIC, queryRequest,
+                    queryResourceHandler).get().getPagedResultsCookie();
+        }
+
+        // then
+        assertThat(ids).containsOnly(ID_VALUE + 0, ID_VALUE + 1, ID_VALUE + 2, ID_VALUE + 3, ID_VALUE + 4,
+                ID_VALUE + 5);
+        assertThat(ids).hasSize(6);
+    }
+
+    @Test
+    public void testQueryWithInvalidPagedResultsCookie() throws Exception {
+        // given
+        final JdbcAuditEventHandlerConfiguration configuration = createConfiguration(false);
+        final JdbcAuditEventHandler handler = createJdbcAuditEventHandler(configuration);
+        final Context context = new RootContext();
+        final QueryRequest queryRequest = Requests.newQueryRequest(TEST_AUDIT_EVENT_TOPIC)
+                .setQueryFilter(QueryFilter.<JsonPointer>alwaysTrue())
+                .setPageSize(2)
+                .setPagedResultsCookie("not-a-cookie");
+
+        // when
+        final Promise<QueryResponse, ResourceException> queryPromise =
+                handler.queryEvents(context, TEST_AUDIT_EVENT_TOPIC, queryRequest, new QueryResourceHandler() {
+                    @Override
+                    public boolean handleResource(ResourceResponse resourceResponse) {
+                        return true;
+                    }
+                });
+
+        // then
+        AssertJPromiseAssert.assertThat(queryPromise)
+                .failedWithException()
+                .isInstanceOf(BadRequestException.class);
+    }
+
     @Test
     public void testPublishWithBuffering() throws Exception {
         // given
@@ -428,6 +535,33 @@ public class JdbcAuditEventHandlerTest {
         AssertJJsonValueAssert.assertThat(promise.get().getContent()).isEqualTo(event);
     }
 
+    @Test
+    public void testPublishWithDedicatedConnectionsAndMultiRowInserts() throws Exception {
+        // given
+        final JdbcAuditEventHandlerConfiguration configuration = createConfiguration(true);
+        configuration.getBuffering().setAutoFlush(true);
+        configuration.getBuffering().setWriterThreads(2);
+        configuration.getBuffering().setMaxSize(1000);
+        configuration.getBuffering().setDedicatedConnections(true);
+        configuration.getBuffering().setMultiRowInserts(true);
+        final JdbcAuditEventHandler handler = createJdbcAuditEventHandler(configuration);
+        final Context context = new RootContext();
+
+        // when
+        for (int i = 0; i < 250; i++) {
+            final JsonValue event = makeEvent();
+            event.put(ID_FIELD, ID_VALUE + i);
+            AssertJPromiseAssert.assertThat(handler.publishEvent(context, TEST_AUDIT_EVENT_TOPIC, event)).succeeded();
+        }
+        handler.shutdown();
+
+        // then
+        try (ResultSet resultSet = connection.createStatement().executeQuery("SELECT COUNT(*) FROM audittest")) {
+            assertThat(resultSet.next()).isTrue();
+            assertThat(resultSet.getInt(1)).isEqualTo(250);
+        }
+    }
+
     private JdbcAuditEventHandler createJdbcAuditEventHandler(final JdbcAuditEventHandlerConfiguration configuration)
             throws Exception {
         EventTopicsMetaData eventsMetaData = getEventsMetaData();
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.jms;
 
@@ -47,6 +48,7 @@ public abstract class BatchPublisher<T> implements Publisher<T> {
     private final long shutdownTimeoutSec;
     private volatile boolean stopRequested;
     private final int maxBatchedEvents;
+    private final int threadCount;
 
     /**
      * This constructs the thread pool of worker threads.  The pool is not executed until {@link #startup()}.
@@ -61,6 +63,7 @@ public abstract class BatchPublisher<T> implements Publisher<T> {
         Reject.ifFalse(configuration.getMaxBatchedEvents() > 0, "MaxBatchedEvents must be greater than 0");
         this.queue = new LinkedBlockingQueue<>(configuration.getCapacity());
         this.maxBatchedEvents = configuration.getMaxBatchedEvents();
+        this.threadCount = configuration.getThreadCount();
         this.insertTimeoutSec = configuration.getInsertTimeoutSec();
         this.shutdownTimeoutSec = configuration.getShutdownTimeoutSec();
         this.stopRequested = false;
@@ -104,7 +107,9 @@ public abstract class BatchPublisher<T> implements Publisher<T> {
     @Override
     public final void startup() throws ResourceException {
         stopRequested = false;
-        this.executorService.execute(new PublishTask());
+        for (int i = 0; i < threadCount; i++) {
+            this.executorService.execute(new PublishTask());
+        }
         startupPublisher();
     }
 
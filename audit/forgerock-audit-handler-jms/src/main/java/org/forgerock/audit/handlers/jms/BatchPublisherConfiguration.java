@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.jms;
 
@@ -44,6 +45,12 @@ public class BatchPublisherConfiguration {
     @JsonPropertyDescription("audit.handlers.jms.publisher.batch.shutdownTimeoutSec")
     private long shutdownTimeoutSec = 60L;
 
+    @JsonPropertyDescription("audit.handlers.jms.publisher.batch.pooledSessions")
+    private boolean pooledSessions = false;
+
+    @JsonPropertyDescription("audit.handlers.jms.publisher.batch.eventsPerMessage")
+    private int eventsPerMessage = 1;
+
     /**
      * Returns the maximum capacity of the publishing queue.  Execution will block if the queue size is at capacity.
      *
@@ -173,4 +180,43 @@ public class BatchPublisherConfiguration {
     public void setBatchEnabled(boolean batchEnabled) {
         this.batchEnabled = batchEnabled;
     }
+
+    /**
+     * Returns true if the worker threads publish through pooled transacted sessions, which are kept open between
+     * batches along with their producer, rather than through a new session for each batch.
+     *
+     * @return true if the sessions are pooled.
+     */
+    public boolean isPooledSessions() {
+        return pooledSessions;
+    }
+
+    /**
+     * Sets if the worker threads publish through pooled transacted sessions.
+     *
+     * @param pooledSessions true if the sessions are pooled.
+     */
+    public void setPooledSessions(boolean pooledSessions) {
+        this.pooledSessions = pooledSessions;
+    }
+
+    /**
+     * Returns the maximum count of audit events packed in a single JMS message. If greater than 1, the events of a
+     * batch are published as {@link javax.jms.BytesMessage}s, rather than as one {@link javax.jms.TextMessage} per
+     * event.
+     *
+     * @return the maximum count of audit events per JMS message.
+     */
+    public int getEventsPerMessage() {
+        return eventsPerMessage;
+    }
+
+    /**
+     * Sets the maximum count of audit events packed in a single JMS message.
+     *
+     * @param eventsPerMessage the maximum count of audit events per JMS message.
+     */
+    public void setEventsPerMessage(int eventsPerMessage) {
+        this.eventsPerMessage = eventsPerMessage;
+    }
 }
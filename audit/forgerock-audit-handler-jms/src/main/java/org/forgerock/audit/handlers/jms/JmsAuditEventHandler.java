@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.audit.handlers.jms;
@@ -21,6 +22,7 @@ import static org.forgerock.json.JsonValue.*;
 import static org.forgerock.json.resource.Responses.newResourceResponse;
 
 import javax.inject.Inject;
+import javax.jms.BytesMessage;
 import javax.jms.JMSException;
 import javax.jms.MessageProducer;
 import javax.jms.Session;
@@ -32,6 +34,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.forgerock.audit.Audit;
 import org.forgerock.audit.events.EventTopicsMetaData;
 import org.forgerock.audit.events.handlers.AuditEventHandlerBase;
+import org.forgerock.audit.handlers.jms.JmsResourceManager.PooledSession;
 import org.forgerock.json.JsonValue;
 import org.forgerock.json.resource.InternalServerErrorException;
 import org.forgerock.json.resource.NotSupportedException;
@@ -47,13 +50,23 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Publishes Audit events on a JMS Topic.
+ * <p>
+ * Each audit event is published as a {@link javax.jms.TextMessage} holding its JSON form, unless the batch publisher
+ * is configured to pack several events per message. Each message is then a {@link BytesMessage} whose
+ * {@value #EVENT_COUNT_PROPERTY} int property gives the count of events it holds, and whose body is, for each event,
+ * the length of its UTF-8 JSON form as an int, followed by that JSON form.
  */
 public class JmsAuditEventHandler extends AuditEventHandlerBase {
     private static final Logger LOGGER = LoggerFactory.getLogger(JmsAuditEventHandler.class);
     private static final ObjectMapper MAPPER = new ObjectMapper();
 
+    /** Name of the int property of a {@link BytesMessage} giving the count of audit events it holds. */
+    public static final String EVENT_COUNT_PROPERTY = "auditEventCount";
+
     private final JmsResourceManager jmsResourceManager;
     private final Publisher<JsonValue> publisher;
+    private final boolean pooledSessions;
+    private final int eventsPerMessage;
 
     /**
      * Creates a new AuditEventHandler instance that publishes JMS messages on a JMS Topic for each Audit event.
@@ -71,6 +84,9 @@ public class JmsAuditEventHandler extends AuditEventHandlerBase {
 
         super(configuration.getName(), eventTopicsMetaData, configuration.getTopics(), configuration.isEnabled());
 
+        final BatchPublisherConfiguration batch = configuration.getBatch();
+        pooledSessions = batch.isBatchEnabled() && batch.isPooledSessions();
+        eventsPerMessage = batch.isBatchEnabled() ? Math.max(1, batch.getEventsPerMessage()) : 1;
         publisher = buildPublisher(configuration);
         this.jmsResourceManager =
                 jmsContextManager == null
@@ -168,16 +184,17 @@ public class JmsAuditEventHandler extends AuditEventHandlerBase {
      *         InternalServerErrorException if unable to publish jms messages and a retry is not possible.
      */
     private void publishJmsMessages(List<JsonValue> messages) throws JMSException, InternalServerErrorException {
+        if (pooledSessions) {
+            publishJmsMessagesInPooledSession(messages);
+            return;
+        }
         Session session = null;
         try {
             session = jmsResourceManager.createSession();
             MessageProducer producer = null;
             try {
                 producer = jmsResourceManager.createProducer(session);
-                for (JsonValue message : messages) {
-                    String text = MAPPER.writeValueAsString(message.getObject());
-                    producer.send(session.createTextMessage(text));
-                }
+                sendJmsMessages(session, producer, messages);
             } finally {
                 if (null != producer) {
                     producer.close();
@@ -197,6 +214,75 @@ public class JmsAuditEventHandler extends AuditEventHandlerBase {
         }
     }
 
+    /**
+     * Publishes the list of messages in a single transaction of a pooled session.
+     *
+     * @param messages the messages to send.
+     * @throws JMSException if unable to publish jms messages and a retry is possible.
+     *         InternalServerErrorException if unable to publish jms messages and a retry is not possible.
+     */
+    private void publishJmsMessagesInPooledSession(List<JsonValue> messages)
+            throws JMSException, InternalServerErrorException {
+        final PooledSession pooledSession = jmsResourceManager.acquireSession();
+        boolean reusable = false;
+        try {
+            final Session session = pooledSession.getSession();
+            try {
+                sendJmsMessages(session, pooledSession.getProducer(), messages);
+            } catch (JsonProcessingException e) {
+                session.rollback();
+                reusable = true;
+                final String message = "Unable to publish JMS messages, messages are likely lost";
+                LOGGER.error(message, e);
+                throw new InternalServerErrorException(message, e);
+            }
+            session.commit();
+            reusable = true;
+        } catch (JMSException e) {
+            LOGGER.debug("Failed to publish messages", e);
+            throw e;
+        } finally {
+            if (reusable) {
+                jmsResourceManager.releaseSession(pooledSession);
+            } else {
+                jmsResourceManager.discardSession(pooledSession);
+            }
+        }
+    }
+
+    /**
+     * Sends the messages through a producer, either one per {@link javax.jms.TextMessage}, or packed in
+     * {@link BytesMessage}s of up to {@link BatchPublisherConfiguration#getEventsPerMessage()} messages.
+     *
+     * @param session the session of the producer.
+     * @param producer the producer.
+     * @param messages the messages to send.
+     * @throws JMSException if unable to send the jms messages.
+     * @throws JsonProcessingException if unable to serialize a message.
+     */
+    private void sendJmsMessages(Session session, MessageProducer producer, List<JsonValue> messages)
+            throws JMSException, JsonProcessingException {
+        if (eventsPerMessage == 1) {
+            for (JsonValue message : messages) {
+                String text = MAPPER.writeValueAsString(message.getObject());
+                producer.send(session.createTextMessage(text));
+            }
+            return;
+        }
+        for (int start = 0; start < messages.size(); start += eventsPerMessage) {
+            final List<JsonValue> packedMessages =
+                    messages.subList(start, Math.min(messages.size(), start + eventsPerMessage));
+            final BytesMessage bytesMessage = session.createBytesMessage();
+            bytesMessage.setIntProperty(EVENT_COUNT_PROPERTY, packedMessages.size());
+            for (JsonValue message : packedMessages) {
+                final byte[] bytes = MAPPER.writeValueAsBytes(message.getObject());
+                bytesMessage.writeInt(bytes.length);
+                bytesMessage.writeBytes(bytes);
+            }
+            producer.send(bytesMessage);
+        }
+    }
+
     /**
      * Returns NotSupportedException as query is not implemented for JMS.
      * <br/>
@@ -12,10 +12,14 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.audit.handlers.jms;
 
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
 import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
 import javax.jms.JMSException;
@@ -53,7 +57,13 @@ class JmsResourceManager {
     /**
      * The Current JMS broker connection, if open.
      */
-    private Connection connection;
+    private volatile Connection connection;
+
+    /**
+     * The pooled sessions which are not in use, most recently used first. Sessions of a closed connection are
+     * discarded when found.
+     */
+    private final Deque<PooledSession> idleSessions = new ConcurrentLinkedDeque<>();
 
     /**
      * The JMS Topic used to publish the audit TextMessages.
@@ -88,7 +98,7 @@ class JmsResourceManager {
      * Opens the connection to the JMS services with the configured session mode.
      * @throws JMSException
      */
-    public void openConnection() throws JMSException {
+    public synchronized void openConnection() throws JMSException {
         connection = connectionFactory.createConnection();
         connection.start();
         logger.debug("JMS Connection created and started");
@@ -99,7 +109,11 @@ class JmsResourceManager {
      *
      * @throws JMSException
      */
-    public void closeConnection() throws JMSException {
+    public synchronized void closeConnection() throws JMSException {
+        PooledSession pooledSession;
+        while ((pooledSession = idleSessions.pollFirst()) != null) {
+            pooledSession.close();
+        }
         if (null != connection) {
             try {
                 connection.close();
@@ -142,4 +156,105 @@ class JmsResourceManager {
         producer.setDeliveryMode(deliveryMode.getMode());
         return producer;
     }
+
+    /**
+     * Takes a transacted session, along with its producer, out of the pool of sessions of the connection. A new
+     * session is created if none is idle. The session must be returned by {@link #releaseSession(PooledSession)} once
+     * its transaction is complete, or by {@link #discardSession(PooledSession)} if it failed.
+     *
+     * @return a pooled session.
+     * @throws JMSException if trouble is encountered creating the session.
+     * @throws IllegalStateException if the connection hasn't been opened.
+     */
+    public PooledSession acquireSession() throws JMSException {
+        final Connection current = connection;
+        if (null == current) {
+            throw new IllegalStateException(
+                    "JMS Connection not available to create session. The JMS Audit Service requires a restart.");
+        }
+        PooledSession pooledSession;
+        while ((pooledSession = idleSessions.pollFirst()) != null) {
+            if (pooledSession.connection == current) {
+                return pooledSession;
+            }
+            pooledSession.close();
+        }
+        final Session session = current.createSession(true, Session.SESSION_TRANSACTED);
+        try {
+            return new PooledSession(current, session, createProducer(session));
+        } catch (JMSException e) {
+            session.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a session to the pool, after its transaction was committed or rolled back. The session is closed
+     * instead if its connection has been closed meanwhile.
+     *
+     * @param pooledSession the session to return.
+     */
+    public void releaseSession(PooledSession pooledSession) {
+        if (pooledSession.connection == connection) {
+            idleSessions.offerFirst(pooledSession);
+            // the connection may have been closed before the session was returned
+            if (pooledSession.connection != connection && idleSessions.remove(pooledSession)) {
+                pooledSession.close();
+            }
+        } else {
+            pooledSession.close();
+        }
+    }
+
+    /**
+     * Closes a session taken from the pool, which failed and cannot be used again.
+     *
+     * @param pooledSession the session to close.
+     */
+    public void discardSession(PooledSession pooledSession) {
+        pooledSession.close();
+    }
+
+    /**
+     * A transacted session of the pool, with its producer for the configured JMS topic. A pooled session is only used
+     * by one thread at a time.
+     */
+    static final class PooledSession {
+        private final Connection connection;
+        private final Session session;
+        private final MessageProducer producer;
+
+        private PooledSession(Connection connection, Session session, MessageProducer producer) {
+            this.connection = connection;
+            this.session = session;
+            this.producer = producer;
+        }
+
+        /**
+         * Returns the transacted session.
+         *
+         * @return the session.
+         */
+        Session getSession() {
+            return session;
+        }
+
+        /**
+         * Returns the producer of the session.
+         *
+         * @return the producer.
+         */
+        MessageProducer getProducer() {
+            return producer;
+        }
+
+        private void close() {
+            try {
+                // closing the session also closes its producer, and rolls back its transaction
+                session.close();
+            } catch (JMSException e) {
+                logger.debug("Unable to close pooled JMS session", e);
+            }
+        }
+    }
 }
@@ -12,7 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
- * Portions Copyright 2018 Wren Security.
+ * Portions Copyright 2018-2026 Wren Security.
  */
 
 package org.forgerock.audit.handlers.jms;
@@ -29,6 +29,8 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.atMost;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
@@ -39,6 +41,7 @@ import static org.mockito.Mockito.when;
 
 import java.util.Map;
 
+import javax.jms.BytesMessage;
 import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
 import javax.jms.Destination;
@@ -211,6 +214,70 @@ public class JmsAuditEventHandlerTest {
         verify(producer, times(messagesToSend)).send(any(TextMessage.class));
     }
 
+    /**
+     * Validates that the JMS batch publisher can pack events in bytes messages published through a pooled session.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testBatchJmsAuditEventHandlerWithPooledSessions() throws Exception {
+        // given
+        ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+        Connection connection = mock(Connection.class);
+        Session session = mock(Session.class);
+        MessageProducer producer = mock(MessageProducer.class);
+        BytesMessage bytesMessage = mock(BytesMessage.class);
+
+        when(connectionFactory.createConnection()).thenReturn(connection);
+        when(connection.createSession(anyBoolean(), anyInt())).thenReturn(session);
+        when(session.createProducer(any(Destination.class))).thenReturn(producer);
+        when(session.createBytesMessage()).thenReturn(bytesMessage);
+
+        JmsAuditEventHandlerConfiguration configuration = getBufferedConfiguration();
+        configuration.getBatch().setPooledSessions(true);
+        configuration.getBatch().setEventsPerMessage(2);
+
+        AuditEventHandler jmsAuditEventHandler =
+                new JmsAuditEventHandler(
+                        new DefaultJmsContextManager(connectionFactory, mock(Topic.class)),
+                        configuration,
+                        CORE_EVENT_TOPICS);
+        jmsAuditEventHandler.startup();
+
+        // when
+        int messagesToSend = 7;
+        for (int i = 0; i < messagesToSend; i++) {
+            jmsAuditEventHandler.publishEvent(
+                    null,
+                    "TEST_AUDIT",
+                    json(object(
+                            field("name", "TestBatchedEvent"),
+                            field("index", i))
+                    ));
+        }
+        // shutdown to clear out the queue.
+        jmsAuditEventHandler.shutdown();
+
+        // then
+        // a single worker thread reuses a single transacted session.
+        verify(connection, times(1)).createSession(true, Session.SESSION_TRANSACTED);
+        verify(session, times(1)).createProducer(any(Destination.class));
+        verify(session, atLeastOnce()).commit();
+        verify(producer, atLeastOnce()).send(bytesMessage);
+        verify(producer, times(0)).send(any(TextMessage.class));
+
+        ArgumentCaptor<Integer> countCaptor = ArgumentCaptor.forClass(Integer.class);
+        verify(bytesMessage, atLeastOnce())
+                .setIntProperty(eq(JmsAuditEventHandler.EVENT_COUNT_PROPERTY), countCaptor.capture());
+        int eventCount = 0;
+        for (int count : countCaptor.getAllValues()) {
+            assertThat(count).isBetween(1, 2);
+            eventCount += count;
+        }
+        assertThat(eventCount).isEqualTo(messagesToSend);
+        verify(bytesMessage, times(messagesToSend)).writeInt(anyInt());
+    }
+
     /**
      * Validates that the JMS Audit Event Handler configuration can be loaded by the auditServiceBuilder.
      *
@@ -0,0 +1,398 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.audit.handlers.json;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.forgerock.audit.handlers.json.JsonAuditEventHandler.OBJECT_MAPPER;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.forgerock.audit.rotation.SeekableGzip;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Sidecar index from event ID to file offset, for a newline-delimited JSON audit file. The index is stored next to
+ * the audit file, with an {@value #INDEX_FILE_SUFFIX} suffix, as a sequence of fixed-size records, each holding a
+ * 64-bit hash of an event ID and the offset of the line holding that event. Records are in file order, so lookups
+ * scan them backwards, finding recent events first, and verify each candidate line by parsing its ID.
+ * <p>
+ * The index is validated when first used, by checking that its last record matches the audit file, and is otherwise
+ * discarded. Events missing from the index, such as those written while it was being rebuilt, are indexed by reading
+ * the end of the audit file the next time the index is searched. A rebuild therefore happens lazily, on the first
+ * lookup after the index was lost.
+ * <p>
+ * The offsets of a compressed archived file are those of its uncompressed content, which is read through the channel
+ * of {@link SeekableGzip#openChannel(Path)}.
+ * <p>
+ * This class is thread-safe.
+ */
+final class EventIdIndex implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventIdIndex.class);
+
+    /** Suffix appended to the audit file name to name its index file. */
+    static final String INDEX_FILE_SUFFIX = ".idx";
+
+    /** Size of a record, which is a {@code long} hash and a {@code long} offset. */
+    static final int RECORD_SIZE = 16;
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int SCAN_BUFFER_SIZE = RECORD_SIZE * 4096;
+
+    private final Path dataPath;
+    private final Path indexPath;
+    private final String idField;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private FileChannel indexChannel;
+    private FileChannel dataChannel;
+    /** Size of the index file, in bytes. */
+    private long indexSize;
+    /** Length of the audit file up to which all events have been indexed. */
+    private long indexedLength;
+
+    /**
+     * Creates an index for the given audit file. No file is opened until the index is used.
+     *
+     * @param dataPath Audit file
+     * @param idField Name of the top-level JSON field holding the event ID
+     */
+    EventIdIndex(final Path dataPath, final String idField) {
+        this.dataPath = dataPath;
+        this.indexPath = indexPathFor(dataPath);
+        this.idField = idField;
+    }
+
+    /**
+     * Gets the path of the index file of an audit file.
+     *
+     * @param dataPath Audit file
+     * @return Index file
+     */
+    static Path indexPathFor(final Path dataPath) {
+        return dataPath.resolveSibling(dataPath.getFileName() + INDEX_FILE_SUFFIX);
+    }
+
+    /**
+     * Computes the 64-bit FNV-1a hash of an event ID.
+     *
+     * @param id Event ID
+     * @return Hash
+     */
+    static long hash(final String id) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); ++i) {
+            hash ^= id.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Appends records for events that have just been written to the audit file. Called by the writer, which does not
+     * wait if the index is busy: the events will then be indexed by the next lookup instead.
+     *
+     * @param records Records, in file order, positioned for reading
+     * @param dataStart Offset in the audit file at which the events were written
+     * @param dataEnd Length of the audit file after the events were written
+     */
+    void append(final ByteBuffer records, final long dataStart, final long dataEnd) {
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            if (!open() || dataStart > indexedLength) {
+                // a gap would make the index miss events, so leave it to the next lookup
+                return;
+            }
+            // skip any events already indexed by a lookup
+            while (records.hasRemaining() && records.getLong(records.position() + 8) < indexedLength) {
+                records.position(records.position() + RECORD_SIZE);
+            }
+            while (records.hasRemaining()) {
+                indexSize += indexChannel.write(records, indexSize);
+            }
+            indexedLength = Math.max(indexedLength, dataEnd);
+        } catch (IOException e) {
+            logger.warn("Failed to update event ID index {}", indexPath, e);
+            closeQuietly();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Finds the line of the audit file holding the event with the given ID, indexing any events that have not yet
+     * been indexed first.
+     *
+     * @param id Event ID
+     * @return The line, without its newline, or {@code null} if the event was not found
+     * @throws IOException failed to read the audit file or its index
+     */
+    String find(final String id) throws IOException {
+        lock.lock();
+        try {
+            if (!open()) {
+                return null;
+            }
+            catchUp();
+            final long hash = hash(id);
+            final ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+            long end = indexSize;
+            while (end > 0) {
+                final long start = Math.max(0, end - SCAN_BUFFER_SIZE);
+                buffer.clear();
+                buffer.limit((int) (end - start));
+                readFully(indexChannel, buffer, start);
+                for (int i = buffer.limit() - RECORD_SIZE; i >= 0; i -= RECORD_SIZE) {
+                    if (buffer.getLong(i) == hash) {
+                        final byte[] line = readLine(buffer.getLong(i + 8));
+                        if (line != null && id.equals(parseId(line, 0, line.length))) {
+                            return new String(line, UTF_8);
+                        }
+                    }
+                }
+                end = start;
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves the index file to be the index of the archived audit file, after the audit file has been rotated. The
+     * index of the new audit file will be created when next used.
+     *
+     * @param archivedDataPath Archived audit file
+     */
+    void rotate(final Path archivedDataPath) {
+        lock.lock();
+        try {
+            closeQuietly();
+            if (Files.exists(indexPath)) {
+                Files.move(indexPath, indexPathFor(archivedDataPath), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to archive event ID index {}", indexPath, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the index, which will be validated again when next used. Used when the audit file may have been
+     * replaced.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closeQuietly();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Opens and validates the index, if not already open.
+     *
+     * @return {@code false} if there is no audit file to index
+     */
+    private boolean open() throws IOException {
+        if (indexChannel != null) {
+            return true;
+        }
+        if (Files.notExists(dataPath)) {
+            return false;
+        }
+        dataChannel = SeekableGzip.openChannel(dataPath);
+        indexChannel = FileChannel.open(indexPath,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        indexSize = indexChannel.size() - indexChannel.size() % RECORD_SIZE;
+        indexedLength = 0;
+        if (indexSize != 0) {
+            // the index is valid if its last record refers to the start of a line holding that event
+            final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+            readFully(indexChannel, record, indexSize - RECORD_SIZE);
+            final long offset = record.getLong(8);
+            final byte[] line = offset < dataChannel.size() && isLineStart(offset) ? readLine(offset) : null;
+            final String id = line == null ? null : parseId(line, 0, line.length);
+            if (id != null && hash(id) == record.getLong(0)) {
+                indexedLength = offset + line.length + 1;
+            } else {
+                logger.info("Rebuilding stale event ID index {}", indexPath);
+                indexSize = 0;
+            }
+        }
+        indexChannel.truncate(indexSize);
+        return true;
+    }
+
+    /**
+     * Indexes the complete lines of the audit file after {@link #indexedLength}.
+     */
+    private void catchUp() throws IOException {
+        final long dataLength = dataChannel.size();
+        if (indexedLength >= dataLength) {
+            return;
+        }
+        final ByteBuffer records = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        int length = 0;
+        long bufferStart = indexedLength;
+        while (bufferStart + length < dataLength) {
+            final int n = dataChannel.read(ByteBuffer.wrap(buffer, length, buffer.length - length),
+                    bufferStart + length);
+            if (n <= 0) {
+                break;
+            }
+            final int scanFrom = length;
+            length += n;
+            int lineStart = 0;
+            for (int i = scanFrom; i < length; ++i) {
+                if (buffer[i] == '\n') {
+                    final String id = parseId(buffer, lineStart, i - lineStart);
+                    if (id != null) {
+                        if (!records.hasRemaining()) {
+                            writeRecords(records);
+                        }
+                        records.putLong(hash(id)).putLong(bufferStart + lineStart);
+                    }
+                    lineStart = i + 1;
+                }
+            }
+            // keep any incomplete line for the next read
+            System.arraycopy(buffer, lineStart, buffer, 0, length - lineStart);
+            bufferStart += lineStart;
+            length -= lineStart;
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+        }
+        writeRecords(records);
+        indexedLength = bufferStart;
+    }
+
+    private void writeRecords(final ByteBuffer records) throws IOException {
+        records.flip();
+        while (records.hasRemaining()) {
+            indexSize += indexChannel.write(records, indexSize);
+        }
+        records.clear();
+    }
+
+    private boolean isLineStart(final long offset) throws IOException {
+        if (offset == 0) {
+            return true;
+        }
+        final ByteBuffer previous = ByteBuffer.allocate(1);
+        readFully(dataChannel, previous, offset - 1);
+        return previous.get(0) == '\n';
+    }
+
+    /**
+     * Reads the line starting at the given offset of the audit file.
+     *
+     * @return The line, without its newline, or {@code null} if the line is incomplete
+     */
+    private byte[] readLine(final long offset) throws IOException {
+        byte[] buffer = new byte[1024];
+        int length = 0;
+        while (true) {
+            final int n = dataChannel.read(ByteBuffer.wrap(buffer, length, buffer.length - length), offset + length);
+            if (n <= 0) {
+                return null;
+            }
+            for (int i = length; i < length + n; ++i) {
+                if (buffer[i] == '\n') {
+                    return Arrays.copyOf(buffer, i);
+                }
+            }
+            length += n;
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+        }
+    }
+
+    /**
+     * Parses the event ID from a line, which is a JSON object with the ID as a top-level field.
+     *
+     * @return Event ID, or {@code null} if the line has none or is not valid JSON
+     */
+    private String parseId(final byte[] bytes, final int offset, final int length) {
+        if (length == 0) {
+            return null;
+        }
+        try (JsonParser parser = OBJECT_MAPPER.getFactory().createParser(bytes, offset, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String fieldName = parser.getCurrentName();
+                final JsonToken value = parser.nextToken();
+                if (idField.equals(fieldName)) {
+                    return value == JsonToken.VALUE_STRING ? parser.getText() : null;
+                }
+                parser.skipChildren();
+            }
+        } catch (IOException e) {
+            logger.debug("Skipping invalid line in {}", dataPath, e);
+        }
+        return null;
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+            throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            final int n = channel.read(buffer, offset);
+            if (n < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            offset += n;
+        }
+    }
+
+    private void closeQuietly() {
+        for (final Closeable closeable : new Closeable[] { indexChannel, dataChannel }) {
+            if (closeable != null) {
+                try {
+                    closeable.close();
+                } catch (IOException e) {
+                    logger.debug("Failed to close {}", closeable, e);
+                }
+            }
+        }
+        indexChannel = null;
+        dataChannel = null;
+    }
+}
@@ -12,10 +12,12 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.audit.handlers.json;
 
+import static org.forgerock.audit.query.EventBlockIndex.isQueryArchives;
 import static org.forgerock.audit.util.JsonValueUtils.JSONVALUE_FILTER_VISITOR;
 import static org.forgerock.json.JsonValue.*;
 import static org.forgerock.json.resource.ResourceException.*;
@@ -25,17 +27,22 @@ import static org.forgerock.json.resource.Responses.*;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.forgerock.audit.events.EventTopicsMetaData;
 import org.forgerock.audit.events.handlers.AuditEventHandler;
 import org.forgerock.audit.events.handlers.AuditEventHandlerBase;
+import org.forgerock.audit.events.handlers.writers.GroupCommitMetrics;
+import org.forgerock.audit.query.EventBlockIndex;
+import org.forgerock.audit.query.PagedQueryResourceHandler;
+import org.forgerock.audit.query.ReverseRecordReader;
+import org.forgerock.audit.rotation.SeekableGzip;
 import org.forgerock.audit.util.ElasticsearchUtil;
 import org.forgerock.json.JsonPointer;
 import org.forgerock.json.JsonValue;
@@ -48,6 +55,7 @@ import org.forgerock.json.resource.QueryResponse;
 import org.forgerock.json.resource.ResourceException;
 import org.forgerock.json.resource.ResourceResponse;
 import org.forgerock.services.context.Context;
+import org.forgerock.util.Function;
 import org.forgerock.util.promise.Promise;
 import org.forgerock.util.query.QueryFilter;
 
@@ -55,6 +63,12 @@ import org.forgerock.util.query.QueryFilter;
  * {@link AuditEventHandler} for persisting raw JSON events to a file.
  * <p>
  * The file format is a UTF-8 text-file, with one JSON event per line, and each line terminated by a newline character.
+ * <p>
+ * Queries skip the parts of files that cannot hold matching events, using an {@link EventBlockIndex} of each file.
+ * Archived files are also queried, oldest first, when the {@value EventBlockIndex#QUERY_ARCHIVES_PARAMETER} query
+ * parameter is {@code true}. Queries for a page of the newest events, sorted by {@code -timestamp}, read the files
+ * backwards with a {@link ReverseRecordReader} instead, and honour the paged results offset and cookie. Archived
+ * files compressed in the {@link SeekableGzip seekable gzip format} are read as if they were uncompressed.
  */
 public class JsonAuditEventHandler extends AuditEventHandlerBase {
 
@@ -64,8 +78,8 @@ public class JsonAuditEventHandler extends AuditEventHandlerBase {
      * Name of the {@code _eventId} JSON field.
      * <p>
      * When {@link #elasticsearchCompatible} is enabled, this handler renames the {@code _id} field to {@code _eventId},
-     * because {@code _id} is reserved by ElasticSearch. The operation is reversed after JSON serialization, so that
-     * other handlers will see the original field name.
+     * because {@code _id} is reserved by ElasticSearch. The field is renamed as the event is serialized, without
+     * modifying the event, so that other handlers will see the original field name.
      */
     static final String EVENT_ID_FIELD = "_eventId";
 
@@ -80,10 +94,6 @@ public class JsonAuditEventHandler extends AuditEventHandlerBase {
      */
     public static final String FLUSH_FILE_ACTION_NAME = "flush";
 
-    private static final String ID_FIELD_PATTERN_PREFIX = "\"" + FIELD_CONTENT_ID + "\"\\s*:\\s*\"";
-    private static final String EVENT_ID_FIELD_PATTERN_PREFIX = "\"" + EVENT_ID_FIELD + "\"\\s*:\\s*\"";
-    private static final String FIELD_PATTERN_SUFFIX = "\"";
-
     private final JsonFileWriter jsonFileWriter;
     private final boolean elasticsearchCompatible;
 
@@ -114,12 +124,45 @@ public class JsonAuditEventHandler extends AuditEventHandlerBase {
     @Override
     public Promise<ResourceResponse, ResourceException> publishEvent(final Context context, final String topic,
             final JsonValue event) {
+        final Promise<Void, IOException> committed;
         try {
-            jsonFileWriter.put(topic, event);
+            committed = jsonFileWriter.put(topic, event);
         } catch (Exception e) {
             return newResourceException(INTERNAL_ERROR, "Failed to add event to queue", e).asPromise();
         }
-        return newResourceResponse(event.get(FIELD_CONTENT_ID).asString(), null, event).asPromise();
+        final ResourceResponse response = newResourceResponse(event.get(FIELD_CONTENT_ID).asString(), null, event);
+        // with group commit, the event is published once committed
+        return committed.then(new Function<Void, ResourceResponse, ResourceException>() {
+            @Override
+            public ResourceResponse apply(final Void value) {
+                return response;
+            }
+        }, new Function<IOException, ResourceResponse, ResourceException>() {
+            @Override
+            public ResourceResponse apply(final IOException e) throws ResourceException {
+                throw newResourceException(INTERNAL_ERROR, "Failed to commit event", e);
+            }
+        });
+    }
+
+    /**
+     * Gets the metrics of the group commits of the file of a topic.
+     *
+     * @param topic Topic name (case-sensitive)
+     * @return Group commit metrics, or {@code null} if group commit is disabled or the topic is unrecognised
+     */
+    public GroupCommitMetrics getGroupCommitMetrics(final String topic) {
+        return jsonFileWriter.getGroupCommitMetrics(topic);
+    }
+
+    /**
+     * Gets the metrics of the writer thread of a topic, which may also write other topics.
+     *
+     * @param topic Topic name (case-sensitive)
+     * @return Writer metrics, or {@code null} if the topic is unrecognised
+     */
+    public WriterMetrics getWriterMetrics(final String topic) {
+        return jsonFileWriter.getWriterMetrics(topic);
     }
 
     @Override
@@ -129,22 +172,13 @@ public class JsonAuditEventHandler extends AuditEventHandlerBase {
         if (jsonFilePath == null) {
             return newResourceException(NOT_FOUND, "Topic not found: " + topic).asPromise();
         }
-        final String fieldPatternPrefix = elasticsearchCompatible
-                ? EVENT_ID_FIELD_PATTERN_PREFIX : ID_FIELD_PATTERN_PREFIX;
-        final Matcher idMatcher = Pattern.compile(fieldPatternPrefix + resourceId + FIELD_PATTERN_SUFFIX).matcher("");
-        String line;
-        try (final BufferedReader reader = new BufferedReader(new InputStreamReader(
-                Files.newInputStream(jsonFilePath), StandardCharsets.UTF_8))) {
-            line = reader.readLine();
-            while (line != null) {
-                if (idMatcher.reset(line).find()) {
-                    final JsonValue event = denormalizeJsonEvent(new JsonValue(
-                            OBJECT_MAPPER.readValue(line, Map.class)));
-                    return newResourceResponse(resourceId, null, event).asPromise();
-                }
-                line = reader.readLine();
+        try {
+            final String line = jsonFileWriter.readEventLine(topic, resourceId);
+            if (line == null) {
+                return newResourceException(NOT_FOUND, "Resource not found with ID: " + resourceId).asPromise();
             }
-            return newResourceException(NOT_FOUND, "Resource not found with ID: " + resourceId).asPromise();
+            final JsonValue event = denormalizeJsonEvent(new JsonValue(OBJECT_MAPPER.readValue(line, Map.class)));
+            return newResourceResponse(resourceId, null, event).asPromise();
         } catch (Exception e) {
             return newResourceException(INTERNAL_ERROR, "Failed to read json file: " + jsonFilePath, e).asPromise();
         }
@@ -153,27 +187,45 @@ public class JsonAuditEventHandler extends AuditEventHandlerBase {
     @Override
     public Promise<QueryResponse, ResourceException> queryEvents(final Context context, final String topic,
             final QueryRequest query, final QueryResourceHandler handler) {
-        final Path jsonFilePath = jsonFileWriter.getTopicFilePath(topic);
-        if (jsonFilePath == null) {
+        if (ReverseRecordReader.isNewestFirst(query)) {
+            return queryNewestEvents(topic, query, handler);
+        }
+        final List<Path> jsonFilePaths = jsonFileWriter.getTopicFilePaths(topic, isQueryArchives(query));
+        if (jsonFilePaths == null) {
             return newResourceException(NOT_FOUND, "Topic not found: " + topic).asPromise();
         }
         final QueryFilter<JsonPointer> queryFilter = query.getQueryFilter();
         int results = 0;
-        String line;
-        try (final BufferedReader reader = new BufferedReader(new InputStreamReader(
-                Files.newInputStream(jsonFilePath), StandardCharsets.UTF_8))) {
-            line = reader.readLine();
-            while (line != null) {
-                final JsonValue event = denormalizeJsonEvent(new JsonValue(OBJECT_MAPPER.readValue(line, Map.class)));
-                if (queryFilter.accept(JSONVALUE_FILTER_VISITOR, event)) {
-                    ++results;
-                    final ResourceResponse resourceResponse =
-                            newResourceResponse(event.get(FIELD_CONTENT_ID).asString(), null, event);
-                    if (!handler.handleResource(resourceResponse)) {
-                        break;
+        Path jsonFilePath = null;
+        try {
+            files:
+            for (final Path path : jsonFilePaths) {
+                jsonFilePath = SeekableGzip.findFile(path);
+                try (FileChannel channel = openIfExists(jsonFilePath)) {
+                    if (channel == null) {
+                        // archived file deleted by a retention policy since it was listed
+                        continue;
+                    }
+                    final EventBlockIndex index = new EventBlockIndex(jsonFilePath, JsonRecordCursor.FACTORY);
+                    for (final EventBlockIndex.Range range : index.findRanges(channel, queryFilter)) {
+                        final BufferedReader reader = new BufferedReader(
+                                new InputStreamReader(range.newInputStream(channel), StandardCharsets.UTF_8));
+                        String line = reader.readLine();
+                        while (line != null) {
+                            final JsonValue event =
+                                    denormalizeJsonEvent(new JsonValue(OBJECT_MAPPER.readValue(line, Map.class)));
+                            if (queryFilter.accept(JSONVALUE_FILTER_VISITOR, event)) {
+                                ++results;
+                                final ResourceResponse resourceResponse =
+                                        newResourceResponse(event.get(FIELD_CONTENT_ID).asString(), null, event);
+                                if (!handler.handleResource(resourceResponse)) {
+                                    break files;
+                                }
+                            }
+                            line = reader.readLine();
+                        }
                     }
                 }
-                line = reader.readLine();
             }
         } catch (Exception e) {
             return newResourceException(INTERNAL_ERROR, "Failed to read json file: " + jsonFilePath, e).asPromise();
@@ -181,6 +233,69 @@ public class JsonAuditEventHandler extends AuditEventHandlerBase {
         return newQueryResponse(null, CountPolicy.EXACT, results).asPromise();
     }
 
+    /**
+     * Queries a page of the newest events, reading the log-file backwards, then its archived files, newest first,
+     * only until the page is full.
+     */
+    private Promise<QueryResponse, ResourceException> queryNewestEvents(final String topic,
+            final QueryRequest query, final QueryResourceHandler handler) {
+        final List<Path> jsonFilePaths = jsonFileWriter.getTopicFilePaths(topic, false);
+        if (jsonFilePaths == null) {
+            return newResourceException(NOT_FOUND, "Topic not found: " + topic).asPromise();
+        }
+        final PagedQueryResourceHandler pagedHandler;
+        try {
+            pagedHandler = new PagedQueryResourceHandler(query, handler);
+        } catch (NumberFormatException e) {
+            return newResourceException(BAD_REQUEST, "Invalid paged results cookie", e).asPromise();
+        }
+        final QueryFilter<JsonPointer> queryFilter =
+                query.getQueryFilter() == null ? QueryFilter.<JsonPointer>alwaysTrue() : query.getQueryFilter();
+        Path jsonFilePath = jsonFilePaths.get(0);
+        try {
+            if (queryNewestEvents(jsonFilePath, queryFilter, pagedHandler)) {
+                // the archives are only listed once the log-file has been read
+                final List<Path> allFilePaths = jsonFileWriter.getTopicFilePaths(topic, true);
+                for (int i = allFilePaths.size() - 2; i >= 0; --i) {
+                    jsonFilePath = allFilePaths.get(i);
+                    if (!queryNewestEvents(jsonFilePath, queryFilter, pagedHandler)) {
+                        break;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            return newResourceException(INTERNAL_ERROR, "Failed to read json file: " + jsonFilePath, e).asPromise();
+        }
+        return newQueryResponse(pagedHandler.getPagedResultsCookie()).asPromise();
+    }
+
+    /**
+     * Reads the events of a file backwards, passing the matching events to the handler.
+     *
+     * @return {@code false} if the handler requested no more events
+     */
+    private boolean queryNewestEvents(final Path jsonFilePath, final QueryFilter<JsonPointer> queryFilter,
+            final QueryResourceHandler handler) throws IOException {
+        try (FileChannel channel = openIfExists(SeekableGzip.findFile(jsonFilePath))) {
+            if (channel == null) {
+                // archived file deleted by a retention policy since it was listed
+                return true;
+            }
+            try (ReverseRecordReader reader = new ReverseRecordReader(channel, -1, false)) {
+                while (reader.previous()) {
+                    final JsonValue event = denormalizeJsonEvent(new JsonValue(
+                            OBJECT_MAPPER.readValue(reader.getRecord(), 0, reader.getRecordLength(), Map.class)));
+                    if (queryFilter.accept(JSONVALUE_FILTER_VISITOR, event)
+                            && !handler.handleResource(
+                                    newResourceResponse(event.get(FIELD_CONTENT_ID).asString(), null, event))) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
     @Override
     public Promise<ActionResponse, ResourceException> handleAction(final Context context, final String topic,
             final ActionRequest request) {
@@ -207,6 +322,14 @@ public class JsonAuditEventHandler extends AuditEventHandlerBase {
         }
     }
 
+    private static FileChannel openIfExists(final Path path) throws IOException {
+        try {
+            return SeekableGzip.openChannel(path);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
     /**
      * Reverses all ElasticSearch JSON normalization, if {@link #elasticsearchCompatible} is enabled.
      *
@@ -12,10 +12,15 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.audit.handlers.json;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyDescription;
 import org.forgerock.audit.events.handlers.FileBasedEventHandlerConfiguration;
@@ -106,8 +111,15 @@ public class JsonAuditEventHandlerConfiguration extends FileBasedEventHandlerCon
         @JsonPropertyDescription("audit.handlers.json.buffering.writeInterval")
         private String writeInterval;
 
+        @JsonPropertyDescription("audit.handlers.json.buffering.writerPerTopic")
+        private boolean writerPerTopic;
+
+        @JsonPropertyDescription("audit.handlers.json.buffering.writerGroups")
+        private List<Set<String>> writerGroups = new ArrayList<>();
+
         /**
-         * Gets the buffer capacity, which are the maximum number of events that can be buffered.
+         * Gets the buffer capacity, which are the maximum number of events that can be buffered by each writer
+         * thread.
          *
          * @return buffer capacity
          */
@@ -116,7 +128,8 @@ public class JsonAuditEventHandlerConfiguration extends FileBasedEventHandlerCon
         }
 
         /**
-         * Sets the buffer capacity, which are the maximum number of events that can be buffered.
+         * Sets the buffer capacity, which are the maximum number of events that can be buffered by each writer
+         * thread.
          *
          * @param maxSize buffer capacity
          */
@@ -143,5 +156,43 @@ public class JsonAuditEventHandlerConfiguration extends FileBasedEventHandlerCon
         public void setWriteInterval(String writeInterval) {
             this.writeInterval = writeInterval;
         }
+
+        /**
+         * Determines if each topic that is not part of a {@link #getWriterGroups() writer group} is written by a
+         * thread of its own, from a buffer of its own, rather than sharing a single writer thread.
+         *
+         * @return {@code true} for a writer thread per topic and {@code false} otherwise
+         */
+        public boolean isWriterPerTopic() {
+            return writerPerTopic;
+        }
+
+        /**
+         * Specifies if each topic that is not part of a {@link #getWriterGroups() writer group} is written by a
+         * thread of its own, from a buffer of its own, rather than sharing a single writer thread.
+         *
+         * @param writerPerTopic {@code true} for a writer thread per topic and {@code false} otherwise
+         */
+        public void setWriterPerTopic(boolean writerPerTopic) {
+            this.writerPerTopic = writerPerTopic;
+        }
+
+        /**
+         * Gets the groups of topics that share a writer thread and its buffer, apart from the other topics.
+         *
+         * @return Groups of topic names
+         */
+        public List<Set<String>> getWriterGroups() {
+            return writerGroups;
+        }
+
+        /**
+         * Sets the groups of topics that share a writer thread and its buffer, apart from the other topics.
+         *
+         * @param writerGroups Groups of topic names
+         */
+        public void setWriterGroups(List<Set<String>> writerGroups) {
+            this.writerGroups = writerGroups;
+        }
     }
 }
@@ -0,0 +1,227 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.audit.handlers.json;
+
+import static org.forgerock.audit.handlers.json.JsonAuditEventHandler.EVENT_ID_FIELD;
+import static org.forgerock.audit.handlers.json.JsonAuditEventHandler.OBJECT_MAPPER;
+import static org.forgerock.audit.util.ElasticsearchUtil.writeNormalizedJson;
+import static org.forgerock.json.resource.ResourceResponse.FIELD_CONTENT_ID;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.forgerock.json.JsonValue;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Serializes audit events to JSON lines on the threads publishing them, into pooled {@link EventBuffer buffers}.
+ * <p>
+ * Each thread streams events through a Jackson generator of its own, which is reused for all its events, so that
+ * serializing an event allocates neither a {@code String} nor a {@code byte[]} of its own. In Elasticsearch-compatible
+ * mode, the {@code _id} field is renamed and field names are normalized as the event is written, rather than on a copy
+ * of the event. The buffer of a serialized event is owned by whoever holds it, until it is {@link #release released}
+ * once written to file.
+ * <p>
+ * This class is thread-safe.
+ */
+final class JsonEventSerializer {
+
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+    private static final int MAX_POOLED_BUFFERS = 1024;
+    /** Buffers grown beyond this size by an unusually large event are not pooled, so that they can be reclaimed. */
+    private static final int MAX_POOLED_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Generators of the publishing threads. They do not depend on the serializer, so they are shared by all
+     * serializers, and a thread keeps no serializer alive.
+     */
+    private static final ThreadLocal<ThreadGenerator> THREAD_GENERATORS = new ThreadLocal<ThreadGenerator>() {
+        @Override
+        protected ThreadGenerator initialValue() {
+            return new ThreadGenerator();
+        }
+    };
+
+    private final boolean elasticsearchCompatible;
+    private final Queue<EventBuffer> pool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    /**
+     * Creates a serializer.
+     *
+     * @param elasticsearchCompatible {@code true} to write events in the Elasticsearch-compatible format
+     */
+    JsonEventSerializer(final boolean elasticsearchCompatible) {
+        this.elasticsearchCompatible = elasticsearchCompatible;
+    }
+
+    /**
+     * Serializes an event to a JSON line, terminated by a newline character, without modifying the event.
+     *
+     * @param event Event, which must be a JSON object in Elasticsearch-compatible mode
+     * @return Buffer holding the UTF-8 encoded JSON line, which should be {@link #release released} once used
+     * @throws IOException failed to serialize the event
+     */
+    EventBuffer serialize(final JsonValue event) throws IOException {
+        final EventBuffer buffer = acquire();
+        try {
+            THREAD_GENERATORS.get().write(event, elasticsearchCompatible, buffer);
+            return buffer;
+        } catch (IOException | RuntimeException e) {
+            release(buffer);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the buffer of a serialized event to the pool, after which it must not be used.
+     *
+     * @param buffer Buffer returned by {@link #serialize(JsonValue)}
+     */
+    void release(final EventBuffer buffer) {
+        if (buffer.bytes.length > MAX_POOLED_BUFFER_SIZE) {
+            return;
+        }
+        if (pooled.incrementAndGet() <= MAX_POOLED_BUFFERS) {
+            buffer.count = 0;
+            pool.offer(buffer);
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
+
+    private EventBuffer acquire() {
+        final EventBuffer buffer = pool.poll();
+        if (buffer == null) {
+            return new EventBuffer(INITIAL_BUFFER_SIZE);
+        }
+        pooled.decrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Growable byte buffer holding a serialized event, which exposes its array.
+     */
+    static final class EventBuffer extends OutputStream {
+        private byte[] bytes;
+        private int count;
+
+        /**
+         * Creates an empty buffer.
+         *
+         * @param initialCapacity Initial capacity, in bytes
+         */
+        EventBuffer(final int initialCapacity) {
+            bytes = new byte[initialCapacity];
+        }
+
+        /**
+         * Gets the array holding the bytes of the buffer, from index {@code 0} to {@link #size()}.
+         *
+         * @return Underlying array
+         */
+        byte[] array() {
+            return bytes;
+        }
+
+        /**
+         * Gets the number of bytes in the buffer.
+         *
+         * @return Number of bytes
+         */
+        int size() {
+            return count;
+        }
+
+        @Override
+        public void write(final int b) {
+            ensureCapacity(count + 1);
+            bytes[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            ensureCapacity(count + len);
+            System.arraycopy(b, off, bytes, count, len);
+            count += len;
+        }
+
+        private void ensureCapacity(final int capacity) {
+            if (capacity > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length << 1));
+            }
+        }
+    }
+
+    /**
+     * Generator of a thread, writing through to the buffer of the event being serialized. This class is not
+     * thread-safe.
+     */
+    private static final class ThreadGenerator extends OutputStream {
+        private JsonGenerator generator;
+        private EventBuffer target;
+
+        void write(final JsonValue event, final boolean elasticsearchCompatible, final EventBuffer buffer)
+                throws IOException {
+            target = buffer;
+            try {
+                if (generator == null) {
+                    generator = OBJECT_MAPPER.getFactory().createGenerator(this);
+                    // lines are separated by newline characters only
+                    generator.setRootValueSeparator(null);
+                }
+                if (elasticsearchCompatible) {
+                    // rename _id field to be _eventId, because _id is reserved by ElasticSearch
+                    writeNormalizedJson(event, FIELD_CONTENT_ID, EVENT_ID_FIELD, generator);
+                } else {
+                    OBJECT_MAPPER.writeValue(generator, event.getObject());
+                }
+                generator.writeRaw('\n');
+                generator.flush();
+            } catch (IOException | RuntimeException e) {
+                // the generator may have been left in the middle of the event, so a new one is needed
+                final JsonGenerator failedGenerator = generator;
+                generator = null;
+                if (failedGenerator != null) {
+                    try {
+                        failedGenerator.close();
+                    } catch (IOException ex) {
+                        // cannot happen when writing to memory
+                    }
+                }
+                throw e;
+            } finally {
+                target = null;
+            }
+        }
+
+        @Override
+        public void write(final int b) {
+            target.write(b);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            target.write(b, off, len);
+        }
+    }
+}
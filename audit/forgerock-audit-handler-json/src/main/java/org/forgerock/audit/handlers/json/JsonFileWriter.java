@@ -13,17 +13,14 @@
  *
  * Copyright 2016 ForgeRock AS.
  * Portions copyright 2021 Wren Security.
+ * Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.audit.handlers.json;
 
 import static java.lang.Math.max;
-import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.forgerock.audit.batch.CommonAuditBatchConfiguration.POLLING_INTERVAL;
-import static org.forgerock.audit.handlers.json.JsonAuditEventHandler.OBJECT_MAPPER;
 import static org.forgerock.audit.handlers.json.JsonAuditEventHandler.EVENT_ID_FIELD;
-import static org.forgerock.audit.util.ElasticsearchUtil.normalizeJson;
-import static org.forgerock.audit.util.ElasticsearchUtil.renameField;
 import static org.forgerock.json.resource.ResourceResponse.FIELD_CONTENT_ID;
 import static org.forgerock.util.Reject.checkNotNull;
 import static org.forgerock.util.Utils.closeSilently;
@@ -38,25 +35,37 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
+import org.forgerock.audit.events.handlers.FileBasedEventHandlerConfiguration.GroupCommit;
+import org.forgerock.audit.events.handlers.writers.GroupCommitMetrics;
+import org.forgerock.audit.handlers.json.JsonAuditEventHandlerConfiguration.EventBufferingConfiguration;
+import org.forgerock.audit.handlers.json.JsonEventSerializer.EventBuffer;
+import org.forgerock.audit.query.EventBlockIndex;
 import org.forgerock.audit.retention.FileNamingPolicy;
 import org.forgerock.audit.retention.RetentionPolicy;
+import org.forgerock.audit.rotation.ArchiveCompressor;
 import org.forgerock.audit.rotation.RotatableObject;
 import org.forgerock.audit.rotation.RotationHooks;
 import org.forgerock.audit.rotation.RotationPolicy;
 import org.forgerock.json.JsonValue;
 import org.forgerock.util.Utils;
+import org.forgerock.util.promise.Promise;
+import org.forgerock.util.promise.PromiseImpl;
+import org.forgerock.util.promise.Promises;
 import org.forgerock.util.time.Duration;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -65,6 +74,20 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Periodically writes JSON events to a file.
+ * <p>
+ * When {@link GroupCommit group commit} is enabled, the events written by each run are forced to the storage device
+ * before the promises returned by {@link #put(String, JsonValue)} are completed, and runs happen at least as often as
+ * the maximum delay of a commit.
+ * <p>
+ * Archived files are compressed in the background by an {@link ArchiveCompressor}, when archive compression is
+ * enabled.
+ * <p>
+ * Events are serialized by the threads putting them, with a {@link JsonEventSerializer}, into pooled buffers that are
+ * queued, and returned to the pool once written.
+ * <p>
+ * Topics are written by a single thread from a single queue, unless the {@link EventBufferingConfiguration buffering
+ * configuration} gives each topic, or groups of topics, a thread and a queue of their own. Each queue has the configured
+ * capacity, and publishers of a topic only wait for room in the queue of its topic.
  */
 class JsonFileWriter {
 
@@ -72,13 +95,18 @@ class JsonFileWriter {
 
     private static final int MIN_QUEUE_SIZE = 100_000;
 
+    /** Promise of the events written without group commit, which are not forced. */
+    private static final Promise<Void, IOException> WRITTEN = Promises.newResultPromise(null);
+
     static final String LOG_FILE_NAME_SUFFIX = "audit.json";
 
-    private final boolean elasticsearchCompatible;
-    private final BlockingQueue<QueueEntry> queue;
-    private final ScheduledExecutorService scheduler;
-    private final QueueConsumer queueConsumer;
+    private final JsonEventSerializer serializer;
     private final Duration writeInterval;
+    private final boolean groupCommitEnabled;
+    /** Compressor of the archived files of all topics, or {@code null} if they are not compressed. */
+    private final ArchiveCompressor archiveCompressor;
+    private final List<TopicGroupWriter> writers;
+    private final Map<String, TopicGroupWriter> writersByTopic;
 
     /**
      * Creates a {@link JsonFileWriter}. For arguments with minimum values, the minimum will be used
@@ -91,14 +119,71 @@ class JsonFileWriter {
      */
     JsonFileWriter(final Set<String> topics, final JsonAuditEventHandlerConfiguration configuration,
             final boolean autoFlush) {
-        elasticsearchCompatible = configuration.isElasticsearchCompatible();
-        queue = new ArrayBlockingQueue<>(max(configuration.getBuffering().getMaxSize(), MIN_QUEUE_SIZE));
-        scheduler = Executors.newScheduledThreadPool(1, Utils.newThreadFactory(null, "audit-json-%d", false));
+        serializer = new JsonEventSerializer(configuration.isElasticsearchCompatible());
+        groupCommitEnabled = configuration.getGroupCommit().isEnabled();
         writeInterval = parseWriteInterval(configuration);
+        archiveCompressor = configuration.getFileRotation().buildArchiveCompressor(
+                Arrays.asList(EventIdIndex.INDEX_FILE_SUFFIX, EventBlockIndex.INDEX_FILE_SUFFIX));
         // checking for events to write on disk happens at most once a second, since {@code run()}
         // is called periodically compute how many iterations are needed beofre writing on file
-        queueConsumer = new QueueConsumer(LOG_FILE_NAME_SUFFIX, topics, configuration, autoFlush, queue, scheduler,
-                (int) Math.max(1, 1_000_000 / writeInterval.to(TimeUnit.MICROSECONDS)));
+        final int iterationsBeforeFlush = (int) Math.max(1, 1_000_000 / writeInterval.to(TimeUnit.MICROSECONDS));
+        final int queueCapacity = max(configuration.getBuffering().getMaxSize(), MIN_QUEUE_SIZE);
+
+        final List<Set<String>> topicGroups = groupTopics(topics, configuration.getBuffering());
+        final List<TopicGroupWriter> writers = new ArrayList<>(topicGroups.size());
+        final Map<String, TopicGroupWriter> writersByTopic = new HashMap<>();
+        for (final Set<String> topicGroup : topicGroups) {
+            // a single writer keeps the thread name it always had
+            final String threadName = topicGroups.size() == 1
+                    ? "audit-json-%d"
+                    : "audit-json-" + String.join("-", new TreeSet<>(topicGroup)) + "-%d";
+            final TopicGroupWriter writer = new TopicGroupWriter(topicGroup, configuration, autoFlush, queueCapacity,
+                    threadName, iterationsBeforeFlush);
+            writers.add(writer);
+            for (final String topic : topicGroup) {
+                writersByTopic.put(topic, writer);
+            }
+        }
+        this.writers = Collections.unmodifiableList(writers);
+        this.writersByTopic = Collections.unmodifiableMap(writersByTopic);
+    }
+
+    /**
+     * Groups the topics by the writer thread writing them. Topics of a configured writer group share a writer. The
+     * other topics have a writer each, if {@link EventBufferingConfiguration#isWriterPerTopic() writerPerTopic} is
+     * enabled, or else share a single writer.
+     *
+     * @param topics Supported topics
+     * @param buffering Configuration of event buffering
+     * @return Groups of topics, each written by a writer of its own
+     */
+    static List<Set<String>> groupTopics(final Set<String> topics, final EventBufferingConfiguration buffering) {
+        final List<Set<String>> topicGroups = new ArrayList<>();
+        final Set<String> remainingTopics = new LinkedHashSet<>(topics);
+        if (buffering.getWriterGroups() != null) {
+            for (final Set<String> writerGroup : buffering.getWriterGroups()) {
+                final Set<String> topicGroup = new LinkedHashSet<>();
+                for (final String topic : writerGroup) {
+                    if (remainingTopics.remove(topic)) {
+                        topicGroup.add(topic);
+                    } else {
+                        logger.warn("Ignoring topic '{}' of writer group {}, as it is unknown or already grouped",
+                                topic, writerGroup);
+                    }
+                }
+                if (!topicGroup.isEmpty()) {
+                    topicGroups.add(topicGroup);
+                }
+            }
+        }
+        if (buffering.isWriterPerTopic()) {
+            for (final String topic : remainingTopics) {
+                topicGroups.add(Collections.singleton(topic));
+            }
+        } else if (!remainingTopics.isEmpty() || topicGroups.isEmpty()) {
+            topicGroups.add(remainingTopics);
+        }
+        return topicGroups;
     }
 
     private Duration parseWriteInterval(final JsonAuditEventHandlerConfiguration configuration) {
@@ -111,7 +196,14 @@ class JsonFileWriter {
         }
         if (writeInterval == null || writeInterval.getValue() <= 0) {
             logger.info("writeInterval '{}' is invalid, so falling back to {}", writeIntervalString, POLLING_INTERVAL);
-            return POLLING_INTERVAL;
+            writeInterval = POLLING_INTERVAL;
+        }
+        if (groupCommitEnabled) {
+            // events must not wait for a run longer than the maximum delay of a commit
+            final Duration maxDelay = configuration.getGroupCommit().getMaxDelayDuration();
+            if (maxDelay.compareTo(writeInterval) < 0) {
+                return maxDelay;
+            }
         }
         return writeInterval;
     }
@@ -120,7 +212,10 @@ class JsonFileWriter {
      * Starts periodically writing JSON events to a file.
      */
     void startup() {
-        scheduler.scheduleAtFixedRate(queueConsumer, 0, writeInterval.to(TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS);
+        for (final TopicGroupWriter writer : writers) {
+            writer.scheduler.scheduleAtFixedRate(writer.queueConsumer, 0, writeInterval.to(TimeUnit.MICROSECONDS),
+                    TimeUnit.MICROSECONDS);
+        }
     }
 
     /**
@@ -128,49 +223,68 @@ class JsonFileWriter {
      * is enabled.
      */
     void shutdown() {
-        if (!scheduler.isShutdown()) {
-            queueConsumer.shutdown();
+        boolean shutdown = false;
+        for (final TopicGroupWriter writer : writers) {
+            if (!writer.scheduler.isShutdown()) {
+                writer.queueConsumer.shutdown();
+                shutdown = true;
+            }
+        }
+        if (shutdown && archiveCompressor != null) {
+            archiveCompressor.close();
         }
     }
 
     /**
-     * Inserts the specified element at the tail of this queue, and blocks if this queue is full.
+     * Inserts the specified element at the tail of the queue of its topic, and blocks if this queue is full.
      *
      * @param topic Event topic
      * @param event Event payload to index, where {@code _id} field is the identifier
+     * @return Promise completed once the event is committed, if group commit is enabled, or already completed
+     * otherwise
      * @throws InterruptedException thread interrupted while blocking on a full queue
      * @throws IOException failed to serialize JSON
      */
-    void put(final String topic, final JsonValue event) throws InterruptedException, IOException {
-        if (elasticsearchCompatible) {
-            // rename _id field to be _eventId, because _id is reserved by ElasticSearch
-            renameField(event, FIELD_CONTENT_ID, EVENT_ID_FIELD);
-            try {
-                // apply ElasticSearch JSON normalization, if necessary
-                final byte[] bytes = normalizeJson(event).getBytes(UTF_8);
-                queue.put(new QueueEntry(topic, bytes));
-            } finally {
-                // restore _id field, because original event is same instance as normalizedEvent
-                renameField(event, EVENT_ID_FIELD, FIELD_CONTENT_ID);
+    Promise<Void, IOException> put(final String topic, final JsonValue event)
+            throws InterruptedException, IOException {
+        final TopicGroupWriter writer = writersByTopic.get(topic);
+        if (writer == null) {
+            logger.warn("Unrecognised topic: " + topic);
+            return WRITTEN;
+        }
+        final JsonValue id = event.get(FIELD_CONTENT_ID);
+        final String eventId = id.isString() ? id.asString() : null;
+        // the queue takes ownership of the buffer
+        final EventBuffer buffer = serializer.serialize(event);
+        final PromiseImpl<Void, IOException> committed;
+        try {
+            if (!groupCommitEnabled) {
+                writer.put(new QueueEntry(topic, buffer, eventId, null));
+                return WRITTEN;
             }
-        } else {
-            queue.put(new QueueEntry(topic, OBJECT_MAPPER.writeValueAsBytes(event.getObject())));
+            committed = PromiseImpl.create();
+            writer.put(new QueueEntry(topic, buffer, eventId, committed));
+        } catch (InterruptedException e) {
+            serializer.release(buffer);
+            throw e;
         }
+        return committed;
     }
 
     /**
      * Requests an unscheduled rotation of the underlying JSON audit file.
      * <p>
      * Rotation is only possible when enabled in the {@link JsonAuditEventHandlerConfiguration configuration},
-     * and will happen after all preexisting events in the queue have been processed.
+     * and will happen after all preexisting events in the queue of the topic have been processed.
      *
      * @param topic Event topic
-     * @return {@code true} if rotation is enabled, and {@code false} otherwise
+     * @return {@code true} if rotation is enabled and the topic is recognised, and {@code false} otherwise
      * @throws InterruptedException thread interrupted while blocking on a full queue
      */
     boolean rotateFile(final String topic) throws InterruptedException {
-        if (queueConsumer.isRotationEnabled()) {
-            queue.put(new QueueEntry(topic, QueueEntry.ROTATE_FILE_ENTRY));
+        final TopicGroupWriter writer = writersByTopic.get(topic);
+        if (writer != null && writer.queueConsumer.isRotationEnabled()) {
+            writer.put(new QueueEntry(topic, QueueEntry.ROTATE_FILE_ENTRY, null, null));
             return true;
         }
         return false;
@@ -179,13 +293,16 @@ class JsonFileWriter {
     /**
      * Requests an unscheduled buffer-flush of the underlying JSON audit file, which is useful for testing.
      * <p>
-     * The flush will happen after all preexisting events in the queue have been processed.
+     * The flush will happen after all preexisting events in the queue of the topic have been processed.
      *
      * @param topic Event topic
      * @throws InterruptedException thread interrupted while blocking on a full queue
      */
     void flushFileBuffer(final String topic) throws InterruptedException {
-        queue.put(new QueueEntry(topic, QueueEntry.FLUSH_FILE_ENTRY));
+        final TopicGroupWriter writer = writersByTopic.get(topic);
+        if (writer != null) {
+            writer.put(new QueueEntry(topic, QueueEntry.FLUSH_FILE_ENTRY, null, null));
+        }
     }
 
     /**
@@ -195,30 +312,123 @@ class JsonFileWriter {
      * @return {@link Path} or {@code null} if topic is unrecognised
      */
     Path getTopicFilePath(final String topic) {
-        final QueueConsumer.TopicEntry topicEntry = queueConsumer.topicEntryMap.get(topic);
+        final QueueConsumer.TopicEntry topicEntry = getTopicEntry(topic);
         return topicEntry == null ? null : topicEntry.filePath;
     }
 
+    /**
+     * Gets the log-files for the given topic, optionally including its archived log-files.
+     *
+     * @param topic Topic name (case-sensitive)
+     * @param includeArchives {@code true} to include the archived log-files
+     * @return Archived log-files, oldest first, followed by the current log-file, or {@code null} if topic is
+     * unrecognised
+     */
+    List<Path> getTopicFilePaths(final String topic, final boolean includeArchives) {
+        final QueueConsumer.TopicEntry topicEntry = getTopicEntry(topic);
+        return topicEntry == null ? null : topicEntry.getFilePaths(includeArchives);
+    }
+
+    /**
+     * Finds an event that has been written to the log-file of the given topic, or to one of its archived files,
+     * using their event ID indexes. Files are searched from newest to oldest.
+     *
+     * @param topic Topic name (case-sensitive)
+     * @param eventId Event ID
+     * @return JSON line of the event, or {@code null} if the topic is unrecognised or the event was not found
+     * @throws IOException failed to read a log-file or index
+     */
+    String readEventLine(final String topic, final String eventId) throws IOException {
+        final QueueConsumer.TopicEntry topicEntry = getTopicEntry(topic);
+        return topicEntry == null ? null : topicEntry.readEventLine(eventId);
+    }
+
+    /**
+     * Gets the metrics of the group commits of the log-file of the given topic.
+     *
+     * @param topic Topic name (case-sensitive)
+     * @return Group commit metrics, or {@code null} if group commit is disabled or the topic is unrecognised
+     */
+    GroupCommitMetrics getGroupCommitMetrics(final String topic) {
+        final QueueConsumer.TopicEntry topicEntry = getTopicEntry(topic);
+        return topicEntry == null || !groupCommitEnabled ? null : topicEntry.groupCommitMetrics;
+    }
+
+    /**
+     * Gets the metrics of the writer thread of the given topic, which may also write other topics.
+     *
+     * @param topic Topic name (case-sensitive)
+     * @return Writer metrics, or {@code null} if the topic is unrecognised
+     */
+    WriterMetrics getWriterMetrics(final String topic) {
+        final TopicGroupWriter writer = writersByTopic.get(topic);
+        return writer == null ? null : writer.metrics;
+    }
+
+    private QueueConsumer.TopicEntry getTopicEntry(final String topic) {
+        final TopicGroupWriter writer = writersByTopic.get(topic);
+        return writer == null ? null : writer.queueConsumer.topicEntryMap.get(topic);
+    }
+
+    /**
+     * Writer of a group of topics, with a queue and a thread of its own, so that a burst of events of a topic does
+     * not hold back the events of the topics of other writers.
+     */
+    private final class TopicGroupWriter {
+
+        private final BlockingQueue<QueueEntry> queue;
+        private final ScheduledExecutorService scheduler;
+        private final QueueConsumer queueConsumer;
+        private final WriterMetrics metrics;
+
+        TopicGroupWriter(final Set<String> topics, final JsonAuditEventHandlerConfiguration configuration,
+                final boolean autoFlush, final int queueCapacity, final String threadName,
+                final int iterationsBeforeFlush) {
+            queue = new ArrayBlockingQueue<>(queueCapacity);
+            scheduler = Executors.newScheduledThreadPool(1, Utils.newThreadFactory(null, threadName, false));
+            metrics = new WriterMetrics(topics, queue, queueCapacity);
+            queueConsumer = new QueueConsumer(LOG_FILE_NAME_SUFFIX, topics, configuration, autoFlush, queue,
+                    serializer, archiveCompressor, metrics, scheduler, iterationsBeforeFlush);
+        }
+
+        /**
+         * Inserts an entry at the tail of the queue, blocking while the queue is full.
+         */
+        void put(final QueueEntry entry) throws InterruptedException {
+            if (!queue.offer(entry)) {
+                metrics.recordBlockedPut();
+                queue.put(entry);
+            }
+        }
+    }
+
     /**
      * A single audit-event entry.
      */
     private static class QueueEntry {
 
-        static final byte[] ROTATE_FILE_ENTRY = new byte[0];
-        static final byte[] FLUSH_FILE_ENTRY = new byte[0];
+        static final EventBuffer ROTATE_FILE_ENTRY = new EventBuffer(0);
+        static final EventBuffer FLUSH_FILE_ENTRY = new EventBuffer(0);
 
         private final String topic;
-        private final byte[] event;
+        private final EventBuffer event;
+        private final String eventId;
+        private final PromiseImpl<Void, IOException> committed;
 
         /**
          * Creates a new audit-event batch entry.
          *
          * @param topic Event topic
-         * @param event Event JSON payload
+         * @param event Event JSON line, terminated by a newline character
+         * @param eventId Event ID, or {@code null} if the event has none
+         * @param committed Promise completed once the event is committed, or {@code null} without group commit
          */
-        QueueEntry(final String topic, final byte[] event) {
+        QueueEntry(final String topic, final EventBuffer event, final String eventId,
+                final PromiseImpl<Void, IOException> committed) {
             this.topic = checkNotNull(topic);
             this.event = checkNotNull(event);
+            this.eventId = eventId;
+            this.committed = committed;
         }
 
         boolean isRotateEntry() {
@@ -238,19 +448,24 @@ class JsonFileWriter {
 
         private static final int BATCH_SIZE = 5000;
         private static final int OUTPUT_BUF_INITIAL_SIZE = 16 * 1024;
-        private static final byte[] NEWLINE_UTF_8_BYTES = "\n".getBytes(UTF_8);
 
         private final boolean flushOnShutdown;
+        private final boolean groupCommitEnabled;
+        private final long groupCommitMaxBytes;
         private final boolean rotationEnabled;
         private final boolean hasRotationOrRetentionPolicies;
         private final List<RotationPolicy> rotationPolicies;
         private final List<RetentionPolicy> retentionPolicies;
         private final Set<File> filesToDelete;
         private final BlockingQueue<QueueEntry> queue;
+        private final JsonEventSerializer serializer;
+        private final WriterMetrics metrics;
         private final ScheduledExecutorService scheduler;
         private final Map<String, TopicEntry> topicEntryMap;
         private final List<QueueEntry> drainList;
         private final int iterationsBeforeFlush;
+        /** Compressor of the archived files of all topics, or {@code null} if they are not compressed. */
+        private final ArchiveCompressor archiveCompressor;
 
         private volatile boolean shutdown;
 
@@ -263,18 +478,27 @@ class JsonFileWriter {
          * @param flushOnShutdown When {@code true}, the queue will be flushed on shutdown and when {@code false},
          * items in the queue will be dropped
          * @param queue Audit-event queue
+         * @param serializer Serializer of the events, to which their buffers are released once written
+         * @param archiveCompressor Compressor of the archived files, or {@code null} if they are not compressed
+         * @param metrics Metrics of the writer
          * @param scheduler This runnable's scheduler
          * @param iterationsBeforeFlush number of times {@code run()} is called before topic events are written on file
          */
         private QueueConsumer(final String fileNameSuffix, final Set<String> topics,
                 final JsonAuditEventHandlerConfiguration configuration, final boolean flushOnShutdown,
-                final BlockingQueue<QueueEntry> queue, final ScheduledExecutorService scheduler,
-                final int iterationsBeforeFlush) {
+                final BlockingQueue<QueueEntry> queue, final JsonEventSerializer serializer,
+                final ArchiveCompressor archiveCompressor, final WriterMetrics metrics,
+                final ScheduledExecutorService scheduler, final int iterationsBeforeFlush) {
             this.queue = queue;
+            this.serializer = serializer;
+            this.archiveCompressor = archiveCompressor;
+            this.metrics = metrics;
             this.scheduler = scheduler;
             this.flushOnShutdown = flushOnShutdown;
             this.iterationsBeforeFlush = iterationsBeforeFlush;
             drainList = new ArrayList<>(BATCH_SIZE);
+            groupCommitEnabled = configuration.getGroupCommit().isEnabled();
+            groupCommitMaxBytes = configuration.getGroupCommit().getMaxBytes();
             rotationEnabled = configuration.getFileRotation().isRotationEnabled();
             rotationPolicies = configuration.getFileRotation().buildRotationPolicies();
             retentionPolicies = configuration.getFileRetention().buildRetentionPolicies();
@@ -286,7 +510,8 @@ class JsonFileWriter {
             final Map<String, TopicEntry> topicEntryMap = new HashMap<>();
             for (final String topic : topics) {
                 final String fileName = topic + '.' + fileNameSuffix;
-                topicEntryMap.put(topic, new TopicEntry(fileName, configuration));
+                topicEntryMap.put(topic, new TopicEntry(fileName, configuration,
+                        configuration.isElasticsearchCompatible() ? EVENT_ID_FIELD : FIELD_CONTENT_ID));
             }
             this.topicEntryMap = Collections.unmodifiableMap(topicEntryMap);
         }
@@ -324,6 +549,17 @@ class JsonFileWriter {
                     }
                 } finally {
                     closeSilently(topicEntryMap.values());
+                    if (groupCommitEnabled) {
+                        // events left in the queue will never be committed
+                        final List<QueueEntry> droppedEntries = new ArrayList<>();
+                        queue.drainTo(droppedEntries);
+                        final IOException e = new IOException("JSON audit event dropped on shutdown");
+                        for (final QueueEntry entry : droppedEntries) {
+                            if (entry.committed != null) {
+                                entry.committed.handleException(e);
+                            }
+                        }
+                    }
                 }
             }
         }
@@ -341,6 +577,7 @@ class JsonFileWriter {
             try {
                 // handle one batch of events
                 final int n = queue.drainTo(drainList, BATCH_SIZE);
+                int events = 0;
                 for (int i = 0; i < n; ++i) {
                     final QueueEntry entry = drainList.get(i);
                     final TopicEntry topicEntry = topicEntryMap.get(entry.topic);
@@ -352,10 +589,23 @@ class JsonFileWriter {
                         } else if (entry.isFlushEntry()) {
                             topicEntry.flush();
                         } else {
-                            topicEntry.write(entry.event);
+                            try {
+                                topicEntry.write(entry.event, entry.eventId, entry.committed);
+                                ++events;
+                            } finally {
+                                serializer.release(entry.event);
+                            }
                         }
                     }
                 }
+                if (events > 0) {
+                    metrics.recordBatch(events);
+                }
+                if (groupCommitEnabled) {
+                    for (final TopicEntry topicEntry : topicEntryMap.values()) {
+                        topicEntry.commit();
+                    }
+                }
                 for (final TopicEntry topicEntry : topicEntryMap.values()) {
                     // no new events, so flush all file buffers, to prevent appearance that events are stuck/lost
                     if (topicEntry.currentIterationsWithoutEvents() >= iterationsBeforeFlush) {
@@ -371,8 +621,29 @@ class JsonFileWriter {
                 }
             } catch (IOException e) {
                 logger.error("JSON file write failed", e);
+                failCommits(e);
             } catch (Exception e) {
                 logger.error("Unexpected failure", e);
+                failCommits(new IOException(e));
+            }
+        }
+
+        /**
+         * Fails the commits of the events of the current batch, and of the events written to the topic buffers, which
+         * are not committed yet.
+         */
+        private void failCommits(final IOException e) {
+            if (!groupCommitEnabled) {
+                return;
+            }
+            for (final QueueEntry entry : drainList) {
+                if (entry.committed != null) {
+                    // events already committed are not affected
+                    entry.committed.handleException(e);
+                }
+            }
+            for (final TopicEntry topicEntry : topicEntryMap.values()) {
+                topicEntry.failCommits(e);
             }
         }
 
@@ -390,16 +661,29 @@ class JsonFileWriter {
          */
         private class TopicEntry implements RotatableObject, Closeable {
             private static final int FILE_BUFFER_THRESHOLD = 8 * 1024;
+            private static final int INDEX_RECORDS_INITIAL_SIZE = 256 * EventIdIndex.RECORD_SIZE;
 
             private final Path filePath;
             private final FileNamingPolicy fileNamingPolicy;
             private final ByteBufferOutputStream outputStream;
+            private final EventIdIndex eventIdIndex;
+            private final String idField;
+            private final GroupCommitMetrics groupCommitMetrics = new GroupCommitMetrics();
+            /** Promises of the events written since the last commit. */
+            private final List<PromiseImpl<Void, IOException>> pendingCommits = new ArrayList<>();
+            private long uncommittedBytes;
+            /** Object guarding the indexes of archived files, which are built by readers. */
+            private final Object archiveIndexLock = new Object();
+            /** Index records of the events in the output buffer, with offsets relative to the buffer. */
+            private ByteBuffer indexRecords = ByteBuffer.allocate(INDEX_RECORDS_INITIAL_SIZE);
             private DateTime lastRotationTime;
             private FileChannel fileChannel;
             private long positionInFile;
             private int iterationsWithoutEventsCounter;
 
-            TopicEntry(final String fileName, final JsonAuditEventHandlerConfiguration configuration) {
+            TopicEntry(final String fileName, final JsonAuditEventHandlerConfiguration configuration,
+                    final String idField) {
+                this.idField = idField;
                 try {
                     outputStream = new ByteBufferOutputStream(ByteBuffer.allocateDirect(OUTPUT_BUF_INITIAL_SIZE));
 
@@ -409,9 +693,13 @@ class JsonFileWriter {
                     }
                     filePath = directoryPath.resolve(fileName);
                     openFileChannel();
+                    eventIdIndex = new EventIdIndex(filePath, idField);
 
                     final File currentFile = filePath.toFile();
                     fileNamingPolicy = configuration.getFileRotation().buildTimeStampFileNamingPolicy(currentFile);
+                    if (archiveCompressor != null) {
+                        archiveCompressor.compressArchives(fileNamingPolicy);
+                    }
 
                     final long lastModified = currentFile.lastModified();
                     this.lastRotationTime = lastModified > 0
@@ -422,44 +710,158 @@ class JsonFileWriter {
                 }
             }
 
-            void write(final byte[] bytes) throws IOException {
+            void write(final EventBuffer event, final String eventId, final PromiseImpl<Void, IOException> committed)
+                    throws IOException {
+                if (eventId != null) {
+                    if (!indexRecords.hasRemaining()) {
+                        indexRecords.flip();
+                        indexRecords = ByteBuffer.allocate(indexRecords.capacity() * 2).put(indexRecords);
+                    }
+                    indexRecords.putLong(EventIdIndex.hash(eventId)).putLong(outputStream.byteBuffer().position());
+                }
                 // newline delimited JSON with UTF-8 character encoding
-                outputStream.write(bytes);
-                outputStream.write(NEWLINE_UTF_8_BYTES);
+                outputStream.write(event.array(), 0, event.size());
                 if (outputStream.byteBuffer().position() >= FILE_BUFFER_THRESHOLD) {
-                    outputStream.byteBuffer().flip();
-                    try {
-                        if (Files.notExists(filePath)) {
-                            openFileChannel();
-                        }
-                        // write buffer to file
-                        positionInFile += fileChannel.write(outputStream.byteBuffer(), positionInFile);
-                    } finally {
-                        outputStream.clear();
-                    }
+                    writeBuffer();
                 }
                 iterationsWithoutEventsCounter = 0;
+                if (committed != null) {
+                    pendingCommits.add(committed);
+                    uncommittedBytes += event.size();
+                    if (groupCommitMaxBytes > 0 && uncommittedBytes >= groupCommitMaxBytes) {
+                        commit();
+                    }
+                }
+            }
+
+            /**
+             * Writes the events written since the last commit to file, forces them to the storage device, and then
+             * completes their promises.
+             *
+             * @throws IOException error writing or forcing the file, after which the promises have failed
+             */
+            void commit() throws IOException {
+                if (pendingCommits.isEmpty()) {
+                    return;
+                }
+                try {
+                    if (outputStream.byteBuffer().position() != 0) {
+                        writeBuffer();
+                    }
+                    final long start = System.nanoTime();
+                    fileChannel.force(false);
+                    groupCommitMetrics.recordCommit(pendingCommits.size(), uncommittedBytes, System.nanoTime() - start);
+                } catch (IOException e) {
+                    failCommits(e);
+                    throw e;
+                }
+                for (final PromiseImpl<Void, IOException> promise : pendingCommits) {
+                    promise.handleResult(null);
+                }
+                pendingCommits.clear();
+                uncommittedBytes = 0;
+            }
+
+            /**
+             * Fails the promises of the events written since the last commit.
+             *
+             * @param e error writing or forcing the file
+             */
+            void failCommits(final IOException e) {
+                if (pendingCommits.isEmpty()) {
+                    return;
+                }
+                groupCommitMetrics.recordFailure();
+                for (final PromiseImpl<Void, IOException> promise : pendingCommits) {
+                    promise.handleException(e);
+                }
+                pendingCommits.clear();
+                uncommittedBytes = 0;
             }
 
             void flush() {
                 if (outputStream.byteBuffer().position() != 0) {
-                    // write buffer to file
-                    outputStream.byteBuffer().flip();
                     try {
-                        if (Files.notExists(filePath)) {
-                            openFileChannel();
-                        }
-                        // write buffer to file
-                        positionInFile += fileChannel.write(outputStream.byteBuffer(), positionInFile);
+                        writeBuffer();
                     } catch (IOException e) {
                         logger.error("Failed to flush file buffer", e);
-                    } finally {
-                        outputStream.clear();
                     }
                 }
                 iterationsWithoutEventsCounter = 0;
             }
 
+            /**
+             * Writes the output buffer to file, and then appends the index records of its events to the event ID
+             * index.
+             *
+             * @throws IOException error writing to file
+             */
+            private void writeBuffer() throws IOException {
+                outputStream.byteBuffer().flip();
+                try {
+                    if (Files.notExists(filePath)) {
+                        openFileChannel();
+                        // the index refers to a file that no longer exists, so have it validated again
+                        eventIdIndex.close();
+                    }
+                    // write buffer to file
+                    final long bufferPositionInFile = positionInFile;
+                    positionInFile += fileChannel.write(outputStream.byteBuffer(), positionInFile);
+                    // make record offsets absolute
+                    indexRecords.flip();
+                    for (int i = 8; i < indexRecords.limit(); i += EventIdIndex.RECORD_SIZE) {
+                        indexRecords.putLong(i, indexRecords.getLong(i) + bufferPositionInFile);
+                    }
+                    eventIdIndex.append(indexRecords, bufferPositionInFile, positionInFile);
+                } finally {
+                    outputStream.clear();
+                    indexRecords.clear();
+                }
+            }
+
+            /**
+             * Finds an event in the audit file, or in its archived files, newest first.
+             *
+             * @param eventId Event ID
+             * @return JSON line of the event, or {@code null} if not found
+             * @throws IOException error reading a file or index
+             */
+            String readEventLine(final String eventId) throws IOException {
+                final String line = eventIdIndex.find(eventId);
+                if (line != null) {
+                    return line;
+                }
+                final List<File> archivedFiles = fileNamingPolicy.listFiles();
+                synchronized (archiveIndexLock) {
+                    for (int i = archivedFiles.size() - 1; i >= 0; --i) {
+                        try (EventIdIndex archiveIndex = new EventIdIndex(archivedFiles.get(i).toPath(), idField)) {
+                            final String archivedLine = archiveIndex.find(eventId);
+                            if (archivedLine != null) {
+                                return archivedLine;
+                            }
+                        }
+                    }
+                }
+                return null;
+            }
+
+            /**
+             * Gets the audit file, optionally preceded by its archived files, oldest first.
+             *
+             * @param includeArchives {@code true} to include the archived files
+             * @return Files
+             */
+            List<Path> getFilePaths(final boolean includeArchives) {
+                final List<Path> filePaths = new ArrayList<>();
+                if (includeArchives) {
+                    for (final File archivedFile : fileNamingPolicy.listFiles()) {
+                        filePaths.add(archivedFile.toPath());
+                    }
+                }
+                filePaths.add(filePath);
+                return filePaths;
+            }
+
             @Override
             public long getBytesWritten() {
                 return positionInFile;
@@ -490,6 +892,13 @@ class JsonFileWriter {
                             if (!file.delete() && logger.isWarnEnabled()) {
                                 logger.warn("Could not delete file {}", file.getAbsolutePath());
                             }
+                            for (final Path indexPath : new Path[] { EventIdIndex.indexPathFor(file.toPath()),
+                                    EventBlockIndex.indexPathFor(file.toPath()) }) {
+                                final File indexFile = indexPath.toFile();
+                                if (indexFile.exists() && !indexFile.delete() && logger.isWarnEnabled()) {
+                                    logger.warn("Could not delete file {}", indexFile.getAbsolutePath());
+                                }
+                            }
                         }
                     }
                 }
@@ -501,10 +910,17 @@ class JsonFileWriter {
              * @throws IOException error rotating file
              */
             void rotateNow() throws IOException {
+                // events awaiting commit must be forced before their file is closed
+                commit();
                 // close and rename current file
                 fileChannel.close();
                 final Path archivedFilePath = fileNamingPolicy.getNextName().toPath();
                 Files.move(filePath, archivedFilePath);
+                eventIdIndex.rotate(archivedFilePath);
+                EventBlockIndex.archive(filePath, archivedFilePath);
+                if (archiveCompressor != null) {
+                    archiveCompressor.compress(archivedFilePath);
+                }
                 // create new file
                 openFileChannel();
                 lastRotationTime = DateTime.now(DateTimeZone.UTC);
@@ -517,6 +933,8 @@ class JsonFileWriter {
 
             @Override
             public void close() throws IOException {
+                failCommits(new IOException("JSON audit file closed before the event was committed"));
+                eventIdIndex.close();
                 fileChannel.close();
             }
 
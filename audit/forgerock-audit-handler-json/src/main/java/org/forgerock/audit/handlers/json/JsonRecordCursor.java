@@ -0,0 +1,91 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.audit.handlers.json;
+
+import static org.forgerock.audit.handlers.json.JsonAuditEventHandler.OBJECT_MAPPER;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.forgerock.audit.query.EventBlockIndex;
+import org.forgerock.audit.query.RecordCursor;
+import org.forgerock.audit.query.RecordCursorFactory;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Reads the {@link EventBlockIndex#INDEXED_FIELDS indexed fields} of the events of a newline-delimited JSON audit
+ * file, using a streaming parser which skips the other fields.
+ */
+final class JsonRecordCursor extends RecordCursor {
+
+    /** Factory of cursors over JSON audit files, which have no header. */
+    static final RecordCursorFactory FACTORY = new RecordCursorFactory() {
+        @Override
+        public RecordCursor open(final FileChannel channel, final long offset) {
+            return new JsonRecordCursor(channel, offset);
+        }
+    };
+
+    /** Value of a field which is neither a string nor {@code null}. */
+    private static final Object OTHER_VALUE = new Object();
+
+    private final Map<String, Object> fields = new HashMap<>();
+    private boolean invalid;
+
+    private JsonRecordCursor(final FileChannel channel, final long offset) {
+        // JSON strings escape newlines, so there is no need to track quotes
+        super(channel, offset, -1);
+    }
+
+    @Override
+    public Object getField(final String name) {
+        return invalid ? OTHER_VALUE : fields.get(name);
+    }
+
+    @Override
+    protected void parseRecord(final byte[] bytes, final int offset, final int length) {
+        fields.clear();
+        invalid = false;
+        try (JsonParser parser = OBJECT_MAPPER.getFactory().createParser(bytes, offset, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                invalid = true;
+                return;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String fieldName = parser.getCurrentName();
+                final JsonToken value = parser.nextToken();
+                if (EventBlockIndex.INDEXED_FIELDS.contains(fieldName)) {
+                    if (value == JsonToken.VALUE_STRING) {
+                        fields.put(fieldName, parser.getText());
+                    } else if (value == JsonToken.VALUE_NULL) {
+                        fields.put(fieldName, NULL_VALUE);
+                    } else {
+                        fields.put(fieldName, OTHER_VALUE);
+                    }
+                }
+                parser.skipChildren();
+            }
+        } catch (IOException e) {
+            // an invalid event can neither be excluded nor read by queries, so keep its block
+            invalid = true;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.audit.handlers.json;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Metrics of a writer thread of a {@link JsonAuditEventHandler}, which writes the events of a group of topics from a
+ * queue of its own: how full its queue is, how often publishers had to wait for room in it, and how many events each
+ * run of the writer wrote.
+ * <p>
+ * Batches are recorded by the writer thread, blocked puts by the publishing threads, and the metrics may be read by
+ * any thread.
+ */
+public final class WriterMetrics {
+
+    private final Set<String> topics;
+    private final Collection<?> queue;
+    private final int queueCapacity;
+    private long eventCount;
+    private long batchCount;
+    private int maxBatchSize;
+    private long blockedPutCount;
+
+    /**
+     * Creates the metrics of a writer.
+     *
+     * @param topics Topics of the writer
+     * @param queue Queue of the writer
+     * @param queueCapacity Capacity of the queue
+     */
+    WriterMetrics(final Set<String> topics, final Collection<?> queue, final int queueCapacity) {
+        this.topics = Collections.unmodifiableSet(new TreeSet<>(topics));
+        this.queue = queue;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Records a batch of events taken from the queue and written.
+     *
+     * @param events Number of events of the batch
+     */
+    synchronized void recordBatch(final int events) {
+        ++batchCount;
+        eventCount += events;
+        maxBatchSize = Math.max(maxBatchSize, events);
+    }
+
+    /**
+     * Records a publisher which had to wait for room in the full queue.
+     */
+    synchronized void recordBlockedPut() {
+        ++blockedPutCount;
+    }
+
+    /**
+     * Gets the topics written by the writer.
+     *
+     * @return Topic names, sorted
+     */
+    public Set<String> getTopics() {
+        return topics;
+    }
+
+    /**
+     * Gets the number of events and actions waiting in the queue of the writer.
+     *
+     * @return Queue size
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * Gets the capacity of the queue of the writer, beyond which publishers wait.
+     *
+     * @return Queue capacity
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Gets the number of events written.
+     *
+     * @return Number of events
+     */
+    public synchronized long getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Gets the number of non-empty batches written.
+     *
+     * @return Number of batches
+     */
+    public synchronized long getBatchCount() {
+        return batchCount;
+    }
+
+    /**
+     * Gets the largest number of events of a single batch.
+     *
+     * @return Number of events
+     */
+    public synchronized int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Gets the average number of events of a batch.
+     *
+     * @return Average number of events, or {@code 0} if nothing was written
+     */
+    public synchronized double getAverageBatchSize() {
+        return batchCount == 0 ? 0 : (double) eventCount / batchCount;
+    }
+
+    /**
+     * Gets the number of times a publisher had to wait for room in the queue.
+     *
+     * @return Number of blocked puts
+     */
+    public synchronized long getBlockedPutCount() {
+        return blockedPutCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "WriterMetrics[topics=" + topics + ", queueSize=" + queue.size() + ", queueCapacity=" + queueCapacity
+                + ", events=" + eventCount + ", batches=" + batchCount + ", maxBatchSize=" + maxBatchSize
+                + ", blockedPuts=" + blockedPutCount + "]";
+    }
+}
@@ -13,6 +13,7 @@
  *
  * Copyright 2016 ForgeRock AS.
  * Portions copyright 2021-2023 Wren Security.
+ * Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.audit.handlers.json;
@@ -30,18 +31,25 @@ import java.io.InputStream;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.forgerock.audit.events.EventTopicsMetaData;
 import org.forgerock.audit.events.handlers.AuditEventHandler;
+import org.forgerock.audit.events.handlers.writers.GroupCommitMetrics;
+import org.forgerock.audit.query.EventBlockIndex;
+import org.forgerock.audit.rotation.SeekableGzip;
 import org.forgerock.json.JsonValue;
 import org.forgerock.json.resource.ActionRequest;
 import org.forgerock.json.resource.IdentifierQueryResourceHandler;
@@ -96,6 +104,174 @@ public class JsonAuditEventHandlerTest {
         }
     }
 
+    @Test
+    public void testWriteAndReadElasticsearchCompatibleEvents() throws Exception {
+        final Path logDirectoryPath = Files.createTempDirectory(JsonAuditEventHandlerTest.class.getSimpleName());
+        AuditEventHandler handler = null;
+        try {
+            final JsonAuditEventHandlerConfiguration configuration = buildConfiguration(SMALL_EVENT_COUNT,
+                    logDirectoryPath);
+            configuration.setElasticsearchCompatible(true);
+            handler = new JsonAuditEventHandler(configuration, getEventTopicsMetaData("/events.json"));
+            handler.startup();
+
+            final JsonValue event = json(object(field("_id", "0000000001"), field("timestamp", "0000000001"),
+                    field("transactionId", "0000000001"), field("http.request", object(field("a.b", "c")))));
+            final String original = new ObjectMapper().writeValueAsString(event.getObject());
+            handler.publishEvent(null, ACCESS, event).getOrThrow();
+            // the event seen by other handlers is left as it is
+            assertThat(new ObjectMapper().writeValueAsString(event.getObject())).isEqualTo(original);
+
+            final ActionRequest actionRequest = Requests.newActionRequest(ACCESS, FLUSH_FILE_ACTION_NAME)
+                    .setAdditionalParameter(ACTION_PARAM_TARGET_HANDLER, "json");
+            handler.handleAction(null, ACCESS, actionRequest).getOrThrow();
+            Thread.sleep(SLEEP_MILLIS);
+
+            final List<String> lines = Files.readAllLines(logDirectoryPath.resolve("access.audit.json"));
+            assertThat(lines).hasSize(1);
+            final JsonValue line = json(new ObjectMapper().readValue(lines.get(0), Map.class));
+            assertThat(line.get("_eventId").asString()).isEqualTo("0000000001");
+            assertThat(line.isDefined("_id")).isFalse();
+            assertThat(line.get("http_request").get("a_b").asString()).isEqualTo("c");
+
+            final ResourceResponse response = handler.readEvent(null, ACCESS, "0000000001").getOrThrow();
+            assertThat(response.getContent().getObject()).isEqualTo(event.getObject());
+        } finally {
+            try {
+                if (handler != null) {
+                    handler.shutdown();
+                }
+            } finally {
+                deleteRecursively(logDirectoryPath);
+            }
+        }
+    }
+
+    @Test
+    public void testWriteAndRotateEventsWithWriterPerTopic() throws Exception {
+        final Path logDirectoryPath = Files.createTempDirectory(JsonAuditEventHandlerTest.class.getSimpleName());
+        JsonAuditEventHandler handler = null;
+        try {
+            final JsonAuditEventHandlerConfiguration configuration = buildConfiguration(SMALL_EVENT_COUNT,
+                    logDirectoryPath);
+            configuration.getBuffering().setWriterPerTopic(true);
+            configuration.getFileRotation().setRotationEnabled(true);
+            handler = new JsonAuditEventHandler(configuration, getEventTopicsMetaData("/events.json"));
+            handler.startup();
+
+            final String[] identifiers = generateAndPublishEvents(SMALL_EVENT_COUNT, handler);
+            for (int i = 0; i < 10; ++i) {
+                final String id = String.format("activity-%03d", i);
+                handler.publishEvent(null, ACTIVITY, json(object(field("_id", id), field("timestamp", id),
+                        field("transactionId", id)))).getOrThrow();
+            }
+            // only the access file is rotated
+            final ActionRequest rotateRequest = Requests.newActionRequest(ACCESS, ROTATE_FILE_ACTION_NAME)
+                    .setAdditionalParameter(ACTION_PARAM_TARGET_HANDLER, "json");
+            handler.handleAction(null, ACCESS, rotateRequest).getOrThrow();
+            final ActionRequest flushRequest = Requests.newActionRequest(ACTIVITY, FLUSH_FILE_ACTION_NAME)
+                    .setAdditionalParameter(ACTION_PARAM_TARGET_HANDLER, "json");
+            handler.handleAction(null, ACTIVITY, flushRequest).getOrThrow();
+
+            // sleep to make sure async-publisher-threads finished all work
+            Thread.sleep(SLEEP_MILLIS);
+
+            for (final String resourceId : identifiers) {
+                assertThat(handler.readEvent(null, ACCESS, resourceId).getOrThrow().getId()).isEqualTo(resourceId);
+            }
+            assertThat(handler.readEvent(null, ACTIVITY, "activity-009").getOrThrow().getId())
+                    .isEqualTo("activity-009");
+            assertThat(Files.size(logDirectoryPath.resolve("access.audit.json"))).isEqualTo(0L);
+            assertThat(Files.size(logDirectoryPath.resolve("activity.audit.json"))).isGreaterThan(0L);
+
+            final WriterMetrics accessMetrics = handler.getWriterMetrics(ACCESS);
+            final WriterMetrics activityMetrics = handler.getWriterMetrics(ACTIVITY);
+            assertThat(accessMetrics.getTopics()).containsExactly(ACCESS);
+            assertThat(accessMetrics.getEventCount()).isEqualTo(SMALL_EVENT_COUNT);
+            assertThat(accessMetrics.getQueueSize()).isEqualTo(0);
+            assertThat(activityMetrics.getTopics()).containsExactly(ACTIVITY);
+            assertThat(activityMetrics.getEventCount()).isEqualTo(10);
+        } finally {
+            try {
+                if (handler != null) {
+                    handler.shutdown();
+                }
+            } finally {
+                deleteRecursively(logDirectoryPath);
+            }
+        }
+    }
+
+    @Test
+    public void testGroupTopicsByWriter() {
+        final Set<String> topics = new LinkedHashSet<>(Arrays.asList("access", "activity", "authentication", "config"));
+        final JsonAuditEventHandlerConfiguration.EventBufferingConfiguration buffering =
+                new JsonAuditEventHandlerConfiguration.EventBufferingConfiguration();
+        assertThat(JsonFileWriter.groupTopics(topics, buffering)).containsExactly(topics);
+
+        buffering.setWriterGroups(Arrays.<Set<String>>asList(
+                new HashSet<>(Arrays.asList("activity", "config", "unknown"))));
+        assertThat(JsonFileWriter.groupTopics(topics, buffering)).containsExactly(
+                new HashSet<>(Arrays.asList("activity", "config")),
+                new HashSet<>(Arrays.asList("access", "authentication")));
+
+        buffering.setWriterPerTopic(true);
+        assertThat(JsonFileWriter.groupTopics(topics, buffering)).containsExactly(
+                new HashSet<>(Arrays.asList("activity", "config")),
+                Collections.singleton("access"),
+                Collections.singleton("authentication"));
+    }
+
+    @Test
+    public void testReadEventsFromRotatedFilesWithLostIndexes() throws Exception {
+        final Path logDirectoryPath = Files.createTempDirectory(JsonAuditEventHandlerTest.class.getSimpleName());
+        AuditEventHandler handler = null;
+        try {
+            final JsonAuditEventHandlerConfiguration configuration = buildConfiguration(SMALL_EVENT_COUNT,
+                    logDirectoryPath);
+            configuration.getFileRotation().setRotationEnabled(true);
+            handler = new JsonAuditEventHandler(configuration, getEventTopicsMetaData("/events.json"));
+            handler.startup();
+
+            // write events to an archived file, and to the current file
+            final String[] archivedIdentifiers = generateAndPublishEvents(SMALL_EVENT_COUNT, handler);
+            final ActionRequest actionRequest = Requests.newActionRequest(ACCESS, ROTATE_FILE_ACTION_NAME)
+                    .setAdditionalParameter(ACTION_PARAM_TARGET_HANDLER, "json");
+            handler.handleAction(null, ACCESS, actionRequest).getOrThrow();
+            final String[] identifiers = generateAndPublishEvents(SMALL_EVENT_COUNT, SMALL_EVENT_COUNT, handler);
+
+            // sleep to make sure async-publisher-thread finished all work
+            Thread.sleep(SLEEP_MILLIS);
+
+            // indexes are rebuilt when missing
+            try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(logDirectoryPath,
+                    "*" + EventIdIndex.INDEX_FILE_SUFFIX)) {
+                for (Path path : directoryStream) {
+                    Files.delete(path);
+                }
+            }
+
+            for (final String resourceId : archivedIdentifiers) {
+                final Promise<ResourceResponse, ResourceException> response = handler.readEvent(null, ACCESS,
+                        resourceId);
+                assertThat(resourceId).isEqualTo(response.getOrThrow().getId());
+            }
+            for (final String resourceId : identifiers) {
+                final Promise<ResourceResponse, ResourceException> response = handler.readEvent(null, ACCESS,
+                        resourceId);
+                assertThat(resourceId).isEqualTo(response.getOrThrow().getId());
+            }
+        } finally {
+            try {
+                if (handler != null) {
+                    handler.shutdown();
+                }
+            } finally {
+                deleteRecursively(logDirectoryPath);
+            }
+        }
+    }
+
     @Test
     public void testWriteAndQueryEvents() throws Exception {
         // perform a normal query test
@@ -108,9 +284,212 @@ public class JsonAuditEventHandlerTest {
         writeAndQueryEvents(LARGE_EVENT_COUNT, true);
     }
 
+    @Test
+    public void testQueryEventsUsingBlockIndexes() throws Exception {
+        final Path logDirectoryPath = Files.createTempDirectory(JsonAuditEventHandlerTest.class.getSimpleName());
+        AuditEventHandler handler = null;
+        try {
+            final int eventCount = 3 * SMALL_EVENT_COUNT;
+            final JsonAuditEventHandlerConfiguration configuration = buildConfiguration(eventCount,
+                    logDirectoryPath);
+            configuration.getFileRotation().setRotationEnabled(true);
+            handler = new JsonAuditEventHandler(configuration, getEventTopicsMetaData("/events.json"));
+            handler.startup();
+
+            // write events to an archived file, and to the current file
+            generateAndPublishEvents(eventCount, handler);
+            final ActionRequest actionRequest = Requests.newActionRequest(ACCESS, ROTATE_FILE_ACTION_NAME)
+                    .setAdditionalParameter(ACTION_PARAM_TARGET_HANDLER, "json");
+            handler.handleAction(null, ACCESS, actionRequest).getOrThrow();
+            generateAndPublishEvents(eventCount, eventCount, handler);
+
+            // sleep to make sure async-publisher-thread finished all work
+            Thread.sleep(SLEEP_MILLIS);
+
+            final String timestampRange = "/timestamp ge \"0000001500\" and /timestamp lt \"0000004500\"";
+            assertThat(countQueryResults(handler, timestampRange, false)).isEqualTo(1500);
+            assertThat(countQueryResults(handler, timestampRange, true)).isEqualTo(3000);
+            // queries again, now that the indexes exist
+            assertThat(countQueryResults(handler, timestampRange, true)).isEqualTo(3000);
+            assertThat(countQueryResults(handler, "/transactionId eq \"0000000042\"", true)).isEqualTo(1);
+            assertThat(countQueryResults(handler, "/transactionId eq \"0000000042\"", false)).isEqualTo(0);
+            assertThat(countQueryResults(handler, "/timestamp sw \"000000499\"", true)).isEqualTo(10);
+        } finally {
+            try {
+                if (handler != null) {
+                    handler.shutdown();
+                }
+            } finally {
+                deleteRecursively(logDirectoryPath);
+            }
+        }
+    }
+
+    @Test
+    public void testQueryNewestEventsSpillsIntoArchives() throws Exception {
+        final Path logDirectoryPath = Files.createTempDirectory(JsonAuditEventHandlerTest.class.getSimpleName());
+        AuditEventHandler handler = null;
+        try {
+            final JsonAuditEventHandlerConfiguration configuration = buildConfiguration(SMALL_EVENT_COUNT,
+                    logDirectoryPath);
+            configuration.getFileRotation().setRotationEnabled(true);
+            handler = new JsonAuditEventHandler(configuration, getEventTopicsMetaData("/events.json"));
+            handler.startup();
+
+            // write events to an archived file, and to the current file
+            generateAndPublishEvents(SMALL_EVENT_COUNT, handler);
+            final ActionRequest actionRequest = Requests.newActionRequest(ACCESS, ROTATE_FILE_ACTION_NAME)
+                    .setAdditionalParameter(ACTION_PARAM_TARGET_HANDLER, "json");
+            handler.handleAction(null, ACCESS, actionRequest).getOrThrow();
+            generateAndPublishEvents(SMALL_EVENT_COUNT, 100, handler);
+
+            // sleep to make sure async-publisher-thread finished all work
+            Thread.sleep(SLEEP_MILLIS);
+
+            final List<String> ids = new ArrayList<>();
+            final QueryRequest firstPage = Requests.newQueryRequest(ACCESS)
+                    .setQueryFilter(QueryFilters.parse("true"))
+                    .addSortKey("-timestamp")
+                    .setPageSize(150);
+            final QueryResponse firstResponse = handler.queryEvents(null, ACCESS, firstPage, resource -> {
+                ids.add(resource.getId());
+                return true;
+            }).getOrThrow();
+            assertThat(firstResponse.getPagedResultsCookie()).isEqualTo("150");
+            assertThat(ids).hasSize(150);
+            assertThat(ids.get(0)).isEqualTo("0000001099");
+            assertThat(ids.get(100)).isEqualTo("0000000999");
+            assertThat(ids.get(149)).isEqualTo("0000000950");
+
+            ids.clear();
+            final QueryRequest secondPage = Requests.copyOfQueryRequest(firstPage)
+                    .setQueryFilter(QueryFilters.parse("/transactionId le \"0000000005\""))
+                    .setPagedResultsCookie("2");
+            final QueryResponse secondResponse = handler.queryEvents(null, ACCESS, secondPage, resource -> {
+                ids.add(resource.getId());
+                return true;
+            }).getOrThrow();
+            assertThat(secondResponse.getPagedResultsCookie()).isNull();
+            assertThat(ids).containsExactly("0000000003", "0000000002", "0000000001", "0000000000");
+        } finally {
+            try {
+                if (handler != null) {
+                    handler.shutdown();
+                }
+            } finally {
+                deleteRecursively(logDirectoryPath);
+            }
+        }
+    }
+
+    @Test
+    public void testQueryAndReadEventsFromCompressedArchives() throws Exception {
+        final Path logDirectoryPath = Files.createTempDirectory(JsonAuditEventHandlerTest.class.getSimpleName());
+        AuditEventHandler handler = null;
+        try {
+            final JsonAuditEventHandlerConfiguration configuration = buildConfiguration(SMALL_EVENT_COUNT,
+                    logDirectoryPath);
+            configuration.getFileRotation().setRotationEnabled(true);
+            configuration.getFileRotation().setArchiveCompression("gzip");
+            configuration.getFileRotation().setArchiveCompressionBlockSize(4096);
+            handler = new JsonAuditEventHandler(configuration, getEventTopicsMetaData("/events.json"));
+            handler.startup();
+
+            // write events to an archived file, and to the current file
+            final String[] archivedIdentifiers = generateAndPublishEvents(SMALL_EVENT_COUNT, handler);
+            final ActionRequest actionRequest = Requests.newActionRequest(ACCESS, ROTATE_FILE_ACTION_NAME)
+                    .setAdditionalParameter(ACTION_PARAM_TARGET_HANDLER, "json");
+            handler.handleAction(null, ACCESS, actionRequest).getOrThrow();
+            generateAndPublishEvents(SMALL_EVENT_COUNT, 100, handler);
+
+            // wait for the archive to be compressed
+            final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+            while (countFiles(logDirectoryPath, "access.audit.json-*" + SeekableGzip.FILE_SUFFIX) == 0
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(SLEEP_MILLIS);
+            }
+            Thread.sleep(SLEEP_MILLIS);
+            assertThat(countFiles(logDirectoryPath, "access.audit.json-*" + SeekableGzip.FILE_SUFFIX)).isEqualTo(1);
+            assertThat(countFiles(logDirectoryPath, "*" + SeekableGzip.FILE_SUFFIX + EventIdIndex.INDEX_FILE_SUFFIX))
+                    .isEqualTo(1);
+
+            for (final String resourceId : archivedIdentifiers) {
+                final Promise<ResourceResponse, ResourceException> response = handler.readEvent(null, ACCESS,
+                        resourceId);
+                assertThat(resourceId).isEqualTo(response.getOrThrow().getId());
+            }
+            assertThat(countQueryResults(handler, "true", true)).isEqualTo(SMALL_EVENT_COUNT + 100);
+            final String timestampRange = "/timestamp ge \"0000000500\" and /timestamp lt \"0000001050\"";
+            assertThat(countQueryResults(handler, timestampRange, true)).isEqualTo(550);
+
+            final List<String> ids = new ArrayList<>();
+            final QueryRequest request = Requests.newQueryRequest(ACCESS)
+                    .setQueryFilter(QueryFilters.parse("true"))
+                    .addSortKey("-timestamp")
+                    .setPageSize(150);
+            handler.queryEvents(null, ACCESS, request, resource -> {
+                ids.add(resource.getId());
+                return true;
+            }).getOrThrow();
+            assertThat(ids).hasSize(150);
+            assertThat(ids.get(100)).isEqualTo("0000000999");
+            assertThat(ids.get(149)).isEqualTo("0000000950");
+        } finally {
+            try {
+                if (handler != null) {
+                    handler.shutdown();
+                }
+            } finally {
+                deleteRecursively(logDirectoryPath);
+            }
+        }
+    }
+
     /**
      * Test that shutdown on non-started handler does not halt the thread.
      */
+    @Test
+    public void testGroupCommitPublishesEventsOnceWritten() throws Exception {
+        final Path logDirectoryPath = Files.createTempDirectory(JsonAuditEventHandlerTest.class.getSimpleName());
+        JsonAuditEventHandler handler = null;
+        try {
+            final JsonAuditEventHandlerConfiguration configuration = buildConfiguration(SMALL_EVENT_COUNT,
+                    logDirectoryPath);
+            configuration.getBuffering().setWriteInterval("1 hour");
+            configuration.getGroupCommit().setEnabled(true);
+            configuration.getGroupCommit().setMaxDelay("5 ms");
+            handler = new JsonAuditEventHandler(configuration, getEventTopicsMetaData("/events.json"));
+            handler.startup();
+
+            final List<Promise<ResourceResponse, ResourceException>> promises = new ArrayList<>();
+            for (int i = 0; i < SMALL_EVENT_COUNT; ++i) {
+                final String id = String.format("%010d", i);
+                final JsonValue event = json(object(field("_id", id), field("timestamp", id)));
+                promises.add(handler.publishEvent(null, ACCESS, event));
+            }
+            for (final Promise<ResourceResponse, ResourceException> promise : promises) {
+                promise.getOrThrow(10, TimeUnit.SECONDS);
+            }
+
+            // published events are in the file, without flushing its buffer
+            final Path filePath = logDirectoryPath.resolve(ACCESS + '.' + JsonFileWriter.LOG_FILE_NAME_SUFFIX);
+            assertThat(Files.readAllLines(filePath)).hasSize(SMALL_EVENT_COUNT);
+            final GroupCommitMetrics metrics = handler.getGroupCommitMetrics(ACCESS);
+            assertThat(metrics.getEventCount()).isEqualTo(SMALL_EVENT_COUNT);
+            assertThat(metrics.getCommitCount()).isGreaterThan(0);
+            assertThat(metrics.getFailedCommitCount()).isEqualTo(0);
+            assertThat(handler.getGroupCommitMetrics(ACTIVITY).getCommitCount()).isEqualTo(0);
+        } finally {
+            try {
+                if (handler != null) {
+                    handler.shutdown();
+                }
+            } finally {
+                deleteRecursively(logDirectoryPath);
+            }
+        }
+    }
+
     @Test
     public void testUnevenShutdown() throws Exception {
         final AuditEventHandler handler = new JsonAuditEventHandler(
@@ -180,7 +559,9 @@ public class JsonAuditEventHandlerTest {
                     int logCount = 0;
                     try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(logDirectoryPath)) {
                         for (Path path : directoryStream) {
-                            if (path.toString().contains(ACCESS + '.' + JsonFileWriter.LOG_FILE_NAME_SUFFIX)) {
+                            if (path.toString().contains(ACCESS + '.' + JsonFileWriter.LOG_FILE_NAME_SUFFIX)
+                                    && !path.toString().endsWith(EventIdIndex.INDEX_FILE_SUFFIX)
+                                    && !path.toString().endsWith(EventBlockIndex.INDEX_FILE_SUFFIX)) {
                                 ++logCount;
                             }
                         }
@@ -194,9 +575,14 @@ public class JsonAuditEventHandlerTest {
     }
 
     private String[] generateAndPublishEvents(final int eventCount, final AuditEventHandler handler) throws Exception {
+        return generateAndPublishEvents(0, eventCount, handler);
+    }
+
+    private String[] generateAndPublishEvents(final int firstEvent, final int eventCount,
+            final AuditEventHandler handler) throws Exception {
         final String[] identifiers = new String[eventCount];
         for (int i = 0; i < identifiers.length; ++i) {
-            final String id = String.format("%010d", i);
+            final String id = String.format("%010d", firstEvent + i);
             final JsonValue event = json(object(
                     field("_id", id), field("timestamp", id), field("transactionId", id)));
             identifiers[i] = handler.publishEvent(null, ACCESS, event).get().getId();
@@ -209,6 +595,29 @@ public class JsonAuditEventHandlerTest {
         return identifiers;
     }
 
+    private int countQueryResults(final AuditEventHandler handler, final String queryFilter,
+            final boolean queryArchives) throws Exception {
+        final QueryRequest queryRequest = Requests.newQueryRequest(ACCESS)
+                .setQueryFilter(QueryFilters.parse(queryFilter))
+                .setAdditionalParameter(EventBlockIndex.QUERY_ARCHIVES_PARAMETER, String.valueOf(queryArchives));
+        final AtomicInteger count = new AtomicInteger();
+        handler.queryEvents(null, ACCESS, queryRequest, resource -> {
+            count.incrementAndGet();
+            return true;
+        }).getOrThrow();
+        return count.get();
+    }
+
+    private int countFiles(final Path directory, final String glob) throws Exception {
+        int count = 0;
+        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory, glob)) {
+            for (Path path : directoryStream) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
     private JsonAuditEventHandlerConfiguration buildConfiguration(final int eventCount, final Path logDirectoryPath) {
         final JsonAuditEventHandlerConfiguration configuration = new JsonAuditEventHandlerConfiguration();
         configuration.setName("json");
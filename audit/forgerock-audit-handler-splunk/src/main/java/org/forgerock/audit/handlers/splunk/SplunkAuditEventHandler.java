@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.splunk;
 
@@ -23,23 +24,31 @@ import static org.forgerock.util.promise.Promises.newExceptionPromise;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.file.Paths;
 import java.util.UUID;
 
 import org.forgerock.audit.Audit;
 import org.forgerock.audit.events.EventTopicsMetaData;
 import org.forgerock.audit.events.handlers.AuditEventHandlerBase;
-import org.forgerock.audit.events.handlers.buffering.BatchConsumer;
 import org.forgerock.audit.events.handlers.buffering.BatchException;
+import org.forgerock.audit.events.handlers.buffering.BatchPayload;
 import org.forgerock.audit.events.handlers.buffering.BatchPublisher;
 import org.forgerock.audit.events.handlers.buffering.BatchPublisherFactory;
 import org.forgerock.audit.events.handlers.buffering.BatchPublisherFactoryImpl;
+import org.forgerock.audit.events.handlers.buffering.BufferedBatchPublisher;
+import org.forgerock.audit.events.handlers.buffering.RingBufferBatchPublisher;
+import org.forgerock.audit.events.handlers.buffering.RingBufferMetrics;
+import org.forgerock.audit.events.handlers.buffering.ByteBatchConsumer;
 import org.forgerock.audit.handlers.splunk.SplunkAuditEventHandlerConfiguration.BufferingConfiguration;
 import org.forgerock.audit.handlers.splunk.SplunkAuditEventHandlerConfiguration.ConnectionConfiguration;
 import org.forgerock.http.Client;
 import org.forgerock.http.HttpApplicationException;
 import org.forgerock.http.apache.async.AsyncHttpClientProvider;
 import org.forgerock.http.handler.HttpClientHandler;
+import org.forgerock.http.header.ContentEncodingHeader;
+import org.forgerock.http.header.ContentLengthHeader;
 import org.forgerock.http.header.ContentTypeHeader;
+import org.forgerock.http.io.IO;
 import org.forgerock.http.protocol.Request;
 import org.forgerock.http.protocol.Response;
 import org.forgerock.http.protocol.Responses;
@@ -58,13 +67,14 @@ import org.forgerock.util.Options;
 import org.forgerock.util.promise.Promise;
 import org.forgerock.util.time.Duration;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * Audit event handler that writes out to Splunk's HTTP event collector RAW endpoint.
  */
-public final class SplunkAuditEventHandler extends AuditEventHandlerBase implements BatchConsumer {
+public final class SplunkAuditEventHandler extends AuditEventHandlerBase implements ByteBatchConsumer {
 
     /*
      * Value is used to initialize the size of buffers, but if the value
@@ -132,7 +142,17 @@ public final class SplunkAuditEventHandler extends AuditEventHandlerBase impleme
         if (publisherFactory == null) {
             publisherFactory = new BatchPublisherFactoryImpl();
         }
-        batchPublisher = publisherFactory.newBufferedPublisher(this)
+        final BufferedBatchPublisher.Builder publisherBuilder;
+        if (bufferingConfiguration.isRingBuffer()) {
+            publisherBuilder = publisherFactory.newRingBufferPublisher(this)
+                    .overflowPolicy(bufferingConfiguration.getOverflowPolicy())
+                    .waitStrategy(bufferingConfiguration.getWaitStrategy())
+                    .spillDirectory(isNullOrEmpty(bufferingConfiguration.getSpillDirectory()) ? null
+                            : Paths.get(bufferingConfiguration.getSpillDirectory()));
+        } else {
+            publisherBuilder = publisherFactory.newBufferedPublisher(this);
+        }
+        batchPublisher = publisherBuilder
                 .capacity(bufferingConfiguration.getMaxSize())
                 .writeInterval(writeInterval)
                 .maxBatchEvents(bufferingConfiguration.getMaxBatchedEvents())
@@ -159,6 +179,17 @@ public final class SplunkAuditEventHandler extends AuditEventHandlerBase impleme
         }
     }
 
+    /**
+     * Gets the metrics of the ring buffer holding the events waiting to be sent to Splunk.
+     *
+     * @return Ring buffer metrics, or {@code null} if the events are not buffered in a ring buffer
+     */
+    public RingBufferMetrics getRingBufferMetrics() {
+        return batchPublisher instanceof RingBufferBatchPublisher
+                ? ((RingBufferBatchPublisher) batchPublisher).getMetrics()
+                : null;
+    }
+
     @Override
     public Promise<ResourceResponse, ResourceException> publishEvent(final Context context,
             final String topic, final JsonValue event) {
@@ -203,20 +234,65 @@ public final class SplunkAuditEventHandler extends AuditEventHandlerBase impleme
 
     @Override
     public Promise<Void, BatchException> publishBatch(final String payload) {
-        final Request request = new Request();
-        request.setMethod("POST");
+        final Request request;
+        try {
+            request = newBatchRequest();
+        } catch (URISyntaxException e) {
+            return newExceptionPromise(new BatchException("Incorrect URI " + serviceUrl, e));
+        }
+        request.setEntity(payload);
+        return sendBatch(request);
+    }
+
+    @Override
+    public BatchPayload newBatchPayload(final int initialCapacity) {
+        return new BatchPayload(OBJECT_MAPPER.getFactory(), initialCapacity, configuration.getBuffering().isGzip());
+    }
+
+    @Override
+    public void addToBatch(final String topic, final JsonValue event, final BatchPayload payload)
+            throws BatchException {
+        event.put("_topic", topic);
 
         try {
-            request.setUri(serviceUrl);
+            final JsonGenerator generator = payload.getJsonGenerator();
+            generator.writeObject(event.getObject());
+            generator.writeRaw('\n');
+        } catch (final IOException e) {
+            throw new BatchException("Unable to write event object as JSON", e);
+        } finally {
+            event.remove("_topic");
+        }
+    }
+
+    @Override
+    public Promise<Void, BatchException> publishBatch(final BatchPayload payload) {
+        final Request request;
+        try {
+            request = newBatchRequest();
         } catch (URISyntaxException e) {
             return newExceptionPromise(new BatchException("Incorrect URI " + serviceUrl, e));
         }
+        request.getHeaders().put(ContentLengthHeader.NAME, payload.size());
+        if (payload.isCompressed()) {
+            request.getHeaders().put(ContentEncodingHeader.NAME, "gzip");
+        }
+        request.getEntity().setRawContentInputStream(
+                IO.newBranchingInputStream(payload.newInputStream(), IO.newTemporaryStorage()));
+        return sendBatch(request);
+    }
 
+    private Request newBatchRequest() throws URISyntaxException {
+        final Request request = new Request();
+        request.setMethod("POST");
+        request.setUri(serviceUrl);
         request.getHeaders().put(ContentTypeHeader.NAME, "application/json; charset=UTF-8");
         request.getHeaders().put("Authorization", "Splunk " + configuration.getAuthzToken());
         request.getHeaders().put("X-Splunk-Request-Channel", channelId);
-        request.setEntity(payload);
+        return request;
+    }
 
+    private Promise<Void, BatchException> sendBatch(final Request request) {
         return client.send(request).then(
                 closeSilently(new Function<Response, Void, BatchException>() {
 
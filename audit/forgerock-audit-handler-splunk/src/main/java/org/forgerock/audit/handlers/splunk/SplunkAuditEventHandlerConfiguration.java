@@ -12,10 +12,13 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.splunk;
 
 import org.forgerock.audit.events.handlers.EventHandlerConfiguration;
+import org.forgerock.audit.events.handlers.buffering.RingBufferBatchPublisher.OverflowPolicy;
+import org.forgerock.audit.events.handlers.buffering.RingBufferBatchPublisher.WaitStrategy;
 
 import com.fasterxml.jackson.annotation.JsonPropertyDescription;
 
@@ -188,6 +191,21 @@ public final class SplunkAuditEventHandlerConfiguration extends EventHandlerConf
         @JsonPropertyDescription("audit.handlers.splunk.buffering.maxBatchedEvents")
         private int maxBatchedEvents;
 
+        @JsonPropertyDescription("audit.handlers.splunk.buffering.ringBuffer")
+        private boolean ringBuffer;
+
+        @JsonPropertyDescription("audit.handlers.splunk.buffering.overflowPolicy")
+        private OverflowPolicy overflowPolicy;
+
+        @JsonPropertyDescription("audit.handlers.splunk.buffering.waitStrategy")
+        private WaitStrategy waitStrategy;
+
+        @JsonPropertyDescription("audit.handlers.splunk.buffering.spillDirectory")
+        private String spillDirectory;
+
+        @JsonPropertyDescription("audit.handlers.splunk.buffering.gzip")
+        private boolean gzip;
+
         /**
          * Gets the buffer capacity, which are the maximum number of events that can be buffered.
          *
@@ -244,6 +262,101 @@ public final class SplunkAuditEventHandlerConfiguration extends EventHandlerConf
         public void setMaxBatchedEvents(final int maxBatchedEvents) {
             this.maxBatchedEvents = maxBatchedEvents;
         }
+
+        /**
+         * Indicates if events are buffered in a lock-free ring buffer rather than a blocking queue.
+         *
+         * @return {@code true} if the ring buffer is used
+         */
+        public boolean isRingBuffer() {
+            return ringBuffer;
+        }
+
+        /**
+         * Sets whether events are buffered in a lock-free ring buffer rather than a blocking queue.
+         *
+         * @param ringBuffer
+         *         {@code true} to use the ring buffer
+         */
+        public void setRingBuffer(final boolean ringBuffer) {
+            this.ringBuffer = ringBuffer;
+        }
+
+        /**
+         * Gets what to do with events when the ring buffer is full.
+         *
+         * @return the overflow policy, or {@code null} to drop events
+         */
+        public OverflowPolicy getOverflowPolicy() {
+            return overflowPolicy;
+        }
+
+        /**
+         * Sets what to do with events when the ring buffer is full.
+         *
+         * @param overflowPolicy
+         *         the overflow policy
+         */
+        public void setOverflowPolicy(final OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+        }
+
+        /**
+         * Gets how the ring buffer consumer thread waits for events.
+         *
+         * @return the wait strategy, or {@code null} for {@link WaitStrategy#BLOCKING}
+         */
+        public WaitStrategy getWaitStrategy() {
+            return waitStrategy;
+        }
+
+        /**
+         * Sets how the ring buffer consumer thread waits for events.
+         *
+         * @param waitStrategy
+         *         the wait strategy
+         */
+        public void setWaitStrategy(final WaitStrategy waitStrategy) {
+            this.waitStrategy = waitStrategy;
+        }
+
+        /**
+         * Gets the directory to which events are spilled when the ring buffer is full.
+         *
+         * @return the spill directory
+         */
+        public String getSpillDirectory() {
+            return spillDirectory;
+        }
+
+        /**
+         * Sets the directory to which events are spilled when the ring buffer is full.
+         *
+         * @param spillDirectory
+         *         the spill directory
+         */
+        public void setSpillDirectory(final String spillDirectory) {
+            this.spillDirectory = spillDirectory;
+        }
+
+        /**
+         * Indicates if batches are gzip-compressed before they are sent to Splunk.
+         *
+         * @return {@code true} if batches are compressed
+         */
+        public boolean isGzip() {
+            return gzip;
+        }
+
+        /**
+         * Sets whether batches are gzip-compressed before they are sent to Splunk.
+         *
+         * @param gzip
+         *         {@code true} to gzip-compress batches
+         */
+        public void setGzip(final boolean gzip) {
+            this.gzip = gzip;
+        }
     }
 
 }
@@ -28,8 +28,11 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import org.forgerock.audit.events.EventTopicsMetaData;
@@ -41,6 +44,8 @@ import org.forgerock.audit.handlers.splunk.SplunkAuditEventHandlerConfiguration.
 import org.forgerock.audit.handlers.splunk.SplunkAuditEventHandlerConfiguration.ConnectionConfiguration;
 import org.forgerock.http.Client;
 import org.forgerock.http.Handler;
+import org.forgerock.http.header.ContentEncodingHeader;
+import org.forgerock.http.header.ContentLengthHeader;
 import org.forgerock.http.protocol.Request;
 import org.forgerock.http.protocol.Response;
 import org.forgerock.http.protocol.Status;
@@ -56,6 +61,8 @@ import org.forgerock.services.context.Context;
 import org.forgerock.util.promise.NeverThrowsException;
 import org.forgerock.util.promise.Promise;
 import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -64,6 +71,7 @@ import org.testng.annotations.Test;
  */
 public final class SplunkAuditEventHandlerTest {
 
+    private SplunkAuditEventHandlerConfiguration configuration;
     private SplunkAuditEventHandler splunkHandler;
     private BatchPublisherFactory publisherFactory;
     private BatchPublisher publisher;
@@ -82,7 +90,7 @@ public final class SplunkAuditEventHandlerTest {
         connectionConfiguration.setHost("localhost");
         connectionConfiguration.setUseSSL(false);
 
-        SplunkAuditEventHandlerConfiguration configuration = new SplunkAuditEventHandlerConfiguration();
+        configuration = new SplunkAuditEventHandlerConfiguration();
         configuration.setAuthzToken("abc-def-ghi");
         configuration.setName("test");
         configuration.setTopics(singleton("access"));
@@ -195,6 +203,59 @@ public final class SplunkAuditEventHandlerTest {
         assertThat(request.getMethod()).isEqualTo("POST");
     }
 
+    @Test
+    public void eventsWrittenToBatchPayloadArePostedToEndpoint() throws Exception {
+        assertEventsWrittenToBatchPayloadArePostedToEndpoint(false);
+    }
+
+    @Test
+    public void eventsWrittenToGzippedBatchPayloadArePostedToEndpoint() throws Exception {
+        assertEventsWrittenToBatchPayloadArePostedToEndpoint(true);
+    }
+
+    private void assertEventsWrittenToBatchPayloadArePostedToEndpoint(final boolean gzip) throws Exception {
+        // Given
+        configuration.getBuffering().setGzip(gzip);
+        final List<Request> requests = new ArrayList<>();
+        final List<String> contents = new ArrayList<>();
+        final List<Integer> rawContentLengths = new ArrayList<>();
+        when(handler.handle(isA(Context.class), isA(Request.class))).thenAnswer(
+                new Answer<Promise<Response, NeverThrowsException>>() {
+                    @Override
+                    public Promise<Response, NeverThrowsException> answer(InvocationOnMock invocation)
+                            throws Throwable {
+                        // the buffer of the payload is reused once the request has completed, so read it now
+                        final Request request = (Request) invocation.getArguments()[1];
+                        final ByteArrayOutputStream rawContent = new ByteArrayOutputStream();
+                        requests.add(request);
+                        contents.add(request.getEntity().getString());
+                        request.getEntity().copyRawContentTo(rawContent);
+                        rawContentLengths.add(rawContent.size());
+                        return Response.newResponsePromise(new Response(Status.OK));
+                    }
+                });
+        final BatchPublisher bytePublisher = BufferedBatchPublisher.newBuilder(splunkHandler).autoFlush(true).build();
+
+        // When
+        bytePublisher.startup();
+        bytePublisher.offer("access", json(object(field("_id", "1"))));
+        bytePublisher.offer("access", json(object(field("_id", "2"))));
+        bytePublisher.shutdown();
+
+        // Then
+        final StringBuilder content = new StringBuilder();
+        for (int i = 0; i < requests.size(); i++) {
+            final Request request = requests.get(i);
+            assertThat(request.getUri().toString()).isEqualTo("http://localhost:8088/services/collector/raw");
+            assertThat(request.getHeaders().get(ContentLengthHeader.NAME).getFirstValue())
+                    .isEqualTo(String.valueOf(rawContentLengths.get(i)));
+            assertThat(request.getHeaders().get(ContentEncodingHeader.NAME) != null).isEqualTo(gzip);
+            content.append(contents.get(i));
+        }
+        assertThat(content.toString())
+                .isEqualTo("{\"_id\":\"1\",\"_topic\":\"access\"}\n{\"_id\":\"2\",\"_topic\":\"access\"}\n");
+    }
+
     @Test(expectedExceptions = BatchException.class)
     public void batchExceptionThrownWhenPostedPayloadIsRejected() throws BatchException {
         // Given
@@ -13,6 +13,7 @@
  *
  * Copyright 2013 Cybernetica AS
  * Portions copyright 2014-2015 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.syslog;
 
@@ -21,9 +22,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
@@ -47,8 +47,8 @@ class AsynchronousSyslogPublisher implements SyslogPublisher {
 
     /** SyslogConnection through which buffered messages are sent. */
     private final SyslogConnection connection;
-    /** Queue to store unpublished records. */
-    private final BlockingQueue<byte[]> queue;
+    /** Queue to store unpublished records, which are encoded by the writer. */
+    private final BlockingQueue<String> queue;
     /** Single threaded executor which runs the WriterTask. */
     private final ExecutorService executorService;
     /** Flag for notifying the WriterTask to exit. */
@@ -82,7 +82,7 @@ class AsynchronousSyslogPublisher implements SyslogPublisher {
         while (!stopRequested) {
             // Put request on queue for writer
             try {
-                queue.put(syslogMessage.getBytes(StandardCharsets.UTF_8));
+                queue.put(syslogMessage);
                 break;
             } catch (InterruptedException e) {
                 // We expect this to happen. Just ignore it and hopefully
@@ -117,21 +117,29 @@ class AsynchronousSyslogPublisher implements SyslogPublisher {
         }
     }
 
-    private void publishBufferedMessages(List<byte[]> syslogMessages) {
-        for (byte[] syslogMessage : syslogMessages) {
+    /**
+     * Sends the messages together, through the current connection. The connection is only replaced if sending fails,
+     * in which case the messages are sent once more through a new connection.
+     */
+    private void publishBufferedMessages(List<String> syslogMessages) {
+        try {
+            sendBufferedMessages(syslogMessages);
+        } catch (IOException ex) {
+            logger.debug("Error when writing messages, retrying on a new connection", ex);
+            connection.close();
             try {
-                connection.reconnect();
-                connection.send(syslogMessage);
-            } catch (IOException ex) {
-                logger.error("Error when writing a message, message size: " + syslogMessage.length, ex);
+                sendBufferedMessages(syslogMessages);
+            } catch (IOException retryEx) {
+                logger.error("Error when writing messages, message count: " + syslogMessages.size(), retryEx);
                 connection.close();
             }
         }
-        try {
-            connection.flush();
-        } catch (IOException ex) {
-            logger.error("Error when flushing the connection", ex);
-        }
+    }
+
+    private void sendBufferedMessages(List<String> syslogMessages) throws IOException {
+        connection.reconnect();
+        connection.send(syslogMessages);
+        connection.flush();
     }
 
     /**
@@ -144,16 +152,16 @@ class AsynchronousSyslogPublisher implements SyslogPublisher {
          */
         @Override
         public void run() {
-            List<byte[]> drainList = new ArrayList<>(CAPACITY);
+            List<String> drainList = new ArrayList<>(CAPACITY);
 
             boolean interrupted = false;
             while (!stopRequested || !queue.isEmpty()) {
                 try {
                     queue.drainTo(drainList, CAPACITY);
                     if (drainList.isEmpty()) {
-                        byte[] message = queue.poll(POLLING_TIMEOUT, POLLING_TIMEOUT_UNIT);
+                        String message = queue.poll(POLLING_TIMEOUT, POLLING_TIMEOUT_UNIT);
                         if (message != null) {
-                            publishBufferedMessages(Arrays.asList(message));
+                            publishBufferedMessages(Collections.singletonList(message));
                         }
                     } else {
                         publishBufferedMessages(drainList);
@@ -0,0 +1,177 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.audit.handlers.syslog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+
+/**
+ * A {@link SyslogConnection} implementation that publishes Syslog messages using the TCP protocol, through a
+ * {@link SocketChannel}.
+ * <p>
+ * The messages are framed as described by {@link TcpSyslogConnection#send(byte[])}, and encoded into a set of
+ * reusable buffers, which are written by a single gathering write once they are all full, or when the connection is
+ * flushed. This class is not thread-safe.
+ */
+class NioTcpSyslogConnection implements SyslogConnection {
+
+    private static final Logger logger = LoggerFactory.getLogger(NioTcpSyslogConnection.class);
+
+    /** Size of each buffer of framed messages. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /** Number of buffers of framed messages, which are written together. */
+    private static final int BUFFER_COUNT = 16;
+    /** Maximum length of the MSG-LEN and SP of a frame. */
+    private static final int MAX_HEADER_LENGTH = 11;
+
+    private final SocketAddress socketAddress;
+    private final int connectTimeout; // ms
+    private final SyslogMessageEncoder encoder = new SyslogMessageEncoder();
+    private final ByteBuffer[] buffers = new ByteBuffer[BUFFER_COUNT];
+    /** Index of the buffer being filled. */
+    private int current;
+    private SocketChannel channel;
+
+    NioTcpSyslogConnection(InetSocketAddress socketAddress, int connectTimeout) {
+        this.socketAddress = socketAddress;
+        this.connectTimeout = connectTimeout;
+        for (int i = 0; i < BUFFER_COUNT; i++) {
+            buffers[i] = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+    }
+
+    @Override
+    public void reconnect() throws IOException {
+        if (channel == null) {
+            connect();
+        } else if (!channel.isConnected() || !channel.isOpen()) {
+            close();
+            connect();
+        }
+    }
+
+    private void connect() throws IOException {
+        final SocketChannel socketChannel = SocketChannel.open();
+        try {
+            socketChannel.socket().connect(socketAddress, connectTimeout);
+            socketChannel.socket().setKeepAlive(true);
+        } catch (IOException e) {
+            socketChannel.close();
+            throw e;
+        }
+        channel = socketChannel;
+    }
+
+    @Override
+    public void send(byte[] syslogMessage) throws IOException {
+        putFrame(ByteBuffer.wrap(syslogMessage));
+    }
+
+    @Override
+    public void send(List<String> syslogMessages) throws IOException {
+        for (String syslogMessage : syslogMessages) {
+            putFrame(encoder.encode(syslogMessage));
+        }
+    }
+
+    /**
+     * Copies the framed message into the buffers, writing them first if they are full.
+     *
+     * @param message The message, from its position to its limit.
+     */
+    private void putFrame(ByteBuffer message) throws IOException {
+        if (channel == null) {
+            throw new IllegalStateException("TCP connection must be established before calling send");
+        }
+        if (buffers[current].remaining() < MAX_HEADER_LENGTH) {
+            nextBuffer();
+        }
+        putLength(buffers[current], message.remaining());
+        buffers[current].put((byte) ' ');
+        while (message.hasRemaining()) {
+            if (!buffers[current].hasRemaining()) {
+                nextBuffer();
+            }
+            final ByteBuffer buffer = buffers[current];
+            final int length = Math.min(buffer.remaining(), message.remaining());
+            final int limit = message.limit();
+            message.limit(message.position() + length);
+            buffer.put(message);
+            message.limit(limit);
+        }
+    }
+
+    private void nextBuffer() throws IOException {
+        if (++current == BUFFER_COUNT) {
+            flush();
+        }
+    }
+
+    /** Writes the ASCII digits of a positive length, without creating a String. */
+    private static void putLength(ByteBuffer buffer, int length) {
+        int divisor = 1;
+        while (length / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            buffer.put((byte) ('0' + length / divisor % 10));
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        final int count = Math.min(current + 1, BUFFER_COUNT);
+        try {
+            if (channel != null) {
+                for (int i = 0; i < count; i++) {
+                    buffers[i].flip();
+                }
+                while (buffers[count - 1].hasRemaining()) {
+                    channel.write(buffers, 0, count);
+                }
+            }
+        } finally {
+            for (int i = 0; i < count; i++) {
+                buffers[i].clear();
+            }
+            current = 0;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            flush();
+        } catch (IOException e) {
+            logger.warn("Error when flushing the connection", e);
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException closeException) {
+                logger.warn("Unable to close Syslog TCP connection", closeException);
+            }
+        }
+        channel = null;
+    }
+}
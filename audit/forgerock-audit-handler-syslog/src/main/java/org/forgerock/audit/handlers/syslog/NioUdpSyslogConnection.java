@@ -0,0 +1,81 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.audit.handlers.syslog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.List;
+
+/**
+ * A {@link SyslogConnection} implementation that publishes Syslog messages using the UDP protocol, through a
+ * {@link DatagramChannel}. Each message is sent as a datagram of its own, encoded into a reusable buffer. This class
+ * is not thread-safe.
+ */
+class NioUdpSyslogConnection implements SyslogConnection {
+
+    private static final Logger logger = LoggerFactory.getLogger(NioUdpSyslogConnection.class);
+
+    private final SocketAddress socketAddress;
+    private final SyslogMessageEncoder encoder = new SyslogMessageEncoder();
+    private DatagramChannel channel;
+
+    NioUdpSyslogConnection(InetSocketAddress socketAddress) {
+        this.socketAddress = socketAddress;
+    }
+
+    @Override
+    public void reconnect() throws IOException {
+        if (channel == null || !channel.isOpen()) {
+            // not connected, so that the datagrams are sent whether or not the server is listening, as with UDP sockets
+            channel = DatagramChannel.open();
+        }
+    }
+
+    @Override
+    public void send(byte[] syslogMessage) throws IOException {
+        channel.send(ByteBuffer.wrap(syslogMessage), socketAddress);
+    }
+
+    @Override
+    public void send(List<String> syslogMessages) throws IOException {
+        for (String syslogMessage : syslogMessages) {
+            channel.send(encoder.encode(syslogMessage), socketAddress);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        // do nothing
+    }
+
+    @Override
+    public void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("Unable to close Syslog UDP channel", e);
+            }
+        }
+        channel = null;
+    }
+}
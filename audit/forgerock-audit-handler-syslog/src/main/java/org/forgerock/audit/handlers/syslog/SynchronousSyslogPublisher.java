@@ -13,13 +13,14 @@
  *
  * Copyright 2013 Cybernetica AS
  * Portions copyright 2014-2015 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.syslog;
 
 import org.forgerock.util.Reject;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 
 /**
  * SyslogPublisher that transmits messages using the current thread.
@@ -43,7 +44,7 @@ class SynchronousSyslogPublisher implements SyslogPublisher {
     @Override
     public void publishMessage(String syslogMessage) throws IOException {
         connection.reconnect();
-        connection.send(syslogMessage.getBytes(StandardCharsets.UTF_8));
+        connection.send(Collections.singletonList(syslogMessage));
         connection.flush();
     }
 
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.syslog;
 
@@ -71,6 +72,9 @@ public class SyslogAuditEventHandlerConfiguration extends EventHandlerConfigurat
     @JsonPropertyDescription("audit.handlers.syslog.connectTimeout")
     private int connectTimeout;
 
+    @JsonPropertyDescription("audit.handlers.syslog.nio")
+    private boolean nio;
+
     @JsonProperty(required = true)
     @JsonPropertyDescription("audit.handlers.syslog.facility")
     private Facility facility;
@@ -163,6 +167,26 @@ public class SyslogAuditEventHandlerConfiguration extends EventHandlerConfigurat
         this.connectTimeout = connectTimeout;
     }
 
+    /**
+     * Indicates if messages are transmitted through NIO channels, which encode the messages into reusable buffers,
+     * and write the buffered messages to TCP connections together.
+     *
+     * @return {@code true} if NIO channels are used.
+     */
+    public boolean isNio() {
+        return nio;
+    }
+
+    /**
+     * Sets if messages are transmitted through NIO channels.
+     *
+     * @param nio
+     *          {@code true} if NIO channels are used.
+     */
+    public void setNio(boolean nio) {
+        this.nio = nio;
+    }
+
     /**
      * Returns the facility constant that should be applied to all Syslog messages.
      *
@@ -13,10 +13,12 @@
  *
  * Copyright 2013 Cybernetica AS
  * Portions copyright 2014-2015 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.syslog;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * Abstraction over Syslog connection types such as TCP or UDP.
@@ -27,6 +29,14 @@ interface SyslogConnection extends AutoCloseable {
 
     void send(byte[] syslogMessage) throws IOException;
 
+    /**
+     * Sends several Syslog messages, which may be buffered until {@link #flush()}.
+     *
+     * @param syslogMessages The messages, which are encoded as UTF-8.
+     * @throws IOException If the messages could not be sent.
+     */
+    void send(List<String> syslogMessages) throws IOException;
+
     void flush() throws IOException;
 
     void close();
@@ -0,0 +1,75 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.audit.handlers.syslog;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes Syslog messages as UTF-8 into a reusable buffer, rather than into a new byte array per message. The buffer
+ * grows to fit the largest message. This class is not thread-safe.
+ */
+class SyslogMessageEncoder {
+
+    private static final int INITIAL_CAPACITY = 4 * 1024;
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+
+    /**
+     * Encodes a message.
+     *
+     * @param syslogMessage The message.
+     * @return The buffer holding the encoded message, from its position to its limit, which is only valid until the
+     *         next message is encoded.
+     */
+    ByteBuffer encode(String syslogMessage) {
+        final int maxLength = (int) Math.min(Integer.MAX_VALUE,
+                (long) Math.ceil(syslogMessage.length() * (double) encoder.maxBytesPerChar()));
+        if (buffer.capacity() < maxLength) {
+            buffer = ByteBuffer.allocate(Math.max(maxLength, buffer.capacity() * 2));
+        }
+        buffer.clear();
+        encoder.reset();
+        final CharBuffer chars = CharBuffer.wrap(syslogMessage);
+        CoderResult result = encoder.encode(chars, buffer, true);
+        if (!result.isUnderflow()) {
+            throwUnchecked(result);
+        }
+        result = encoder.flush(buffer);
+        if (!result.isUnderflow()) {
+            throwUnchecked(result);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void throwUnchecked(CoderResult result) {
+        try {
+            result.throwException();
+        } catch (CharacterCodingException e) {
+            // the buffer fits the largest encoding, and errors are replaced
+            throw new IllegalStateException("Unable to encode Syslog message", e);
+        }
+    }
+}
@@ -13,6 +13,7 @@
  *
  * Copyright 2013 Cybernetica AS
  * Portions copyright 2014-2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.syslog;
 
@@ -27,6 +28,7 @@ import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketAddress;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 /**
  * A {@link SyslogConnection} implementation that publishes Syslog messages using the TCP protocol.
@@ -92,6 +94,13 @@ class TcpSyslogConnection implements SyslogConnection {
         outputStream.write(syslogMessage);
     }
 
+    @Override
+    public void send(List<String> syslogMessages) throws IOException {
+        for (String syslogMessage : syslogMessages) {
+            send(syslogMessage.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
     @Override
     public void flush() throws IOException {
         if (outputStream != null) {
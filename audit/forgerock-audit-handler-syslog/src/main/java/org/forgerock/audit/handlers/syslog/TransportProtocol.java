@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.syslog;
 
@@ -30,7 +31,9 @@ public enum TransportProtocol {
     TCP {
         @Override
         SyslogConnection getSyslogConnection(InetSocketAddress socket, SyslogAuditEventHandlerConfiguration config) {
-            return new TcpSyslogConnection(socket, config.getConnectTimeout());
+            return config.isNio()
+                    ? new NioTcpSyslogConnection(socket, config.getConnectTimeout())
+                    : new TcpSyslogConnection(socket, config.getConnectTimeout());
         }
     },
 
@@ -40,7 +43,9 @@ public enum TransportProtocol {
     UDP {
         @Override
         SyslogConnection getSyslogConnection(InetSocketAddress socket, SyslogAuditEventHandlerConfiguration config) {
-            return new UdpSyslogConnection(socket);
+            return config.isNio()
+                    ? new NioUdpSyslogConnection(socket)
+                    : new UdpSyslogConnection(socket);
         }
     };
 
@@ -13,6 +13,7 @@
  *
  * Copyright 2013 Cybernetica AS
  * Portions copyright 2014-2015 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.audit.handlers.syslog;
 
@@ -21,6 +22,8 @@ import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 /**
  * A {@link SyslogConnection} implementation that publishes Syslog messages using the UDP protocol.
@@ -47,6 +50,13 @@ class UdpSyslogConnection implements SyslogConnection {
         datagramSocket.send(packet);
     }
 
+    @Override
+    public void send(List<String> syslogMessages) throws IOException {
+        for (String syslogMessage : syslogMessages) {
+            send(syslogMessage.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
     @Override
     public void flush() throws IOException {
         // do nothing
@@ -0,0 +1,121 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.audit.handlers.syslog;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.testng.annotations.Test;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@SuppressWarnings("javadoc")
+public class NioSyslogConnectionTest {
+
+    @Test
+    public void tcpConnectionShouldFrameBufferedMessages() throws Exception {
+        // given
+        final List<String> messages = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            messages.add("<134>1 - - - - - - message é " + i);
+        }
+        // spans several of the buffers of the connection
+        messages.add(new String(new char[300 * 1024]).replace('\0', 'x'));
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            final Future<List<String>> received = executor.submit(readFrames(serverSocket));
+            final NioTcpSyslogConnection connection = new NioTcpSyslogConnection(
+                    new InetSocketAddress("localhost", serverSocket.getLocalPort()), 1000);
+
+            // when
+            connection.reconnect();
+            connection.send(messages.subList(0, 500));
+            connection.flush();
+            connection.send(messages.subList(500, messages.size()));
+            connection.send("last".getBytes(UTF_8));
+            connection.close();
+
+            // then
+            final List<String> expected = new ArrayList<>(messages);
+            expected.add("last");
+            assertThat(received.get()).isEqualTo(expected);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void udpConnectionShouldSendOneDatagramPerMessage() throws Exception {
+        // given
+        try (DatagramSocket datagramSocket = new DatagramSocket(0)) {
+            final NioUdpSyslogConnection connection = new NioUdpSyslogConnection(
+                    new InetSocketAddress("localhost", datagramSocket.getLocalPort()));
+
+            // when
+            connection.reconnect();
+            connection.send(Arrays.asList("first é", "second"));
+            connection.close();
+
+            // then
+            final DatagramPacket packet = new DatagramPacket(new byte[100], 100);
+            datagramSocket.receive(packet);
+            assertThat(new String(packet.getData(), 0, packet.getLength(), UTF_8)).isEqualTo("first é");
+            datagramSocket.receive(packet);
+            assertThat(new String(packet.getData(), 0, packet.getLength(), UTF_8)).isEqualTo("second");
+        }
+    }
+
+    private static Callable<List<String>> readFrames(final ServerSocket serverSocket) {
+        return new Callable<List<String>>() {
+            @Override
+            public List<String> call() throws Exception {
+                final List<String> frames = new ArrayList<>();
+                try (Socket socket = serverSocket.accept();
+                     DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+                    while (true) {
+                        int length = 0;
+                        int c;
+                        while ((c = in.read()) != ' ') {
+                            if (c < 0) {
+                                return frames;
+                            }
+                            length = length * 10 + c - '0';
+                        }
+                        final byte[] frame = new byte[length];
+                        in.readFully(frame);
+                        frames.add(new String(frame, UTF_8));
+                    }
+                } catch (EOFException e) {
+                    return frames;
+                }
+            }
+        };
+    }
+}
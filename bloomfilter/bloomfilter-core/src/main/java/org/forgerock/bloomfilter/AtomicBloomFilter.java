@@ -13,33 +13,33 @@
  */
 
 // Portions Copyrighted 2015 ForgeRock AS.
+// Portions Copyright 2026 Wren Security.
 
 package org.forgerock.bloomfilter;
 
 import org.wrensecurity.guava.common.hash.Funnel;
-import org.wrensecurity.guava.common.hash.Hashing;
-import org.wrensecurity.guava.common.primitives.Longs;
 
 import javax.annotation.concurrent.ThreadSafe;
 import java.util.Collection;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * A BloomFilter that stores elements in an {@link AtomicLongArray} and uses atomic compare-and-swap operations to
- * ensure thread safety.
+ * ensure thread safety. The number of set bits is tracked with a {@link SetBitCounter} so that concurrent writers
+ * do not all contend on a single counter.
  */
 @ThreadSafe
-final class AtomicBloomFilter<T> implements BloomFilter<T> {
+final class AtomicBloomFilter<T>
+        implements HashedBloomFilter<T>, SaturationAwareBloomFilter<T>, MergeableBloomFilter<T> {
     private static final int BITS_PER_WORD = 64;
 
     private final long capacity;
     private final double falsePositiveProbability;
     private final AtomicLongArray bits;
-    private final AtomicLong bitCount = new AtomicLong(0);
     private final Funnel<? super T> funnel;
     private final int numHashFunctions;
     private final long bitSize;
+    private final SetBitCounter bitCount;
 
     /**
      * Constructs an atomic bloom filter with the given parameters.
@@ -59,16 +59,19 @@ final class AtomicBloomFilter<T> implements BloomFilter<T> {
         int arraySize = (int) Math.ceil((double) bitSize / (double) BITS_PER_WORD);
         this.bits = new AtomicLongArray(arraySize);
         this.numHashFunctions = BloomFilterStatistics.optimalNumberOfHashFunctions(bitSize, capacity);
+        // expectedFpp = (bitCount / bitSize)^k >= fpp  <=>  bitCount >= bitSize * fpp^(1/k)
+        // The number of set bits at which the expected false positive probability reaches the configured one
+        this.bitCount = new SetBitCounter(
+                (long) Math.ceil(bitSize * Math.pow(falsePositiveProbability, 1.0d / numHashFunctions)));
     }
 
     @Override
     public void add(final T element) {
         // Implementation derived from Guava MURMUR128_MITZ_64 in BloomFilterStrategies
-        byte[] hashBytes = Hashing.murmur3_128().hashObject(element, funnel).asBytes();
-        long hash1 = lowerEight(hashBytes);
-        long hash2 = upperEight(hashBytes);
+        final HashedElement<T> hashed = new HashedElement<T>(element, funnel);
+        final long hash2 = hashed.getHash2();
 
-        long combinedHash = hash1;
+        long combinedHash = hashed.getHash1();
 
         for (int i = 1; i <= numHashFunctions; ++i) {
             set((combinedHash & Long.MAX_VALUE) % bitSize);
@@ -86,12 +89,26 @@ final class AtomicBloomFilter<T> implements BloomFilter<T> {
 
     @Override
     public boolean mightContain(final T element) {
+        return mightContain(new HashedElement<T>(element, funnel));
+    }
+
+    /**
+     * Checks membership using the pre-computed hash of the element, provided that it was hashed with the same funnel
+     * as this bloom filter.
+     *
+     * @param element the hashed element to check for membership in this set.
+     * @return {@code false} if the element is definitely not in the set, or {@code true} if it might be.
+     */
+    @Override
+    public boolean mightContain(final HashedElement<T> element) {
+        if (element.getFunnel() != funnel) {
+            return mightContain(new HashedElement<T>(element.getElement(), funnel));
+        }
+
         // Implementation derived from Guava MURMUR128_MITZ_64 in BloomFilterStrategies
-        byte[] hashBytes = Hashing.murmur3_128().hashObject(element, funnel).asBytes();
-        long hash1 = lowerEight(hashBytes);
-        long hash2 = upperEight(hashBytes);
+        final long hash2 = element.getHash2();
 
-        long combinedHash = hash1;
+        long combinedHash = element.getHash1();
 
         for (int i = 1; i <= numHashFunctions; ++i) {
             if (!get((combinedHash & Long.MAX_VALUE) % bitSize)) {
@@ -104,20 +121,77 @@ final class AtomicBloomFilter<T> implements BloomFilter<T> {
     }
 
     double expectedFpp() {
-        return Math.pow((double)bitCount.get() / (double)bitSize, this.numHashFunctions);
+        return expectedFpp(bitCount.sum());
+    }
 
+    private double expectedFpp(final long setBits) {
+        return Math.pow((double) setBits / (double) bitSize, this.numHashFunctions);
+    }
+
+    /**
+     * Reads the saturation flag cached by the {@link SetBitCounter}, which is considerably cheaper than
+     * {@link #getStatistics()} and does not sum the striped counter.
+     */
+    @Override
+    public boolean isSaturated() {
+        return bitCount.isSaturated();
     }
 
     @Override
     public BloomFilterStatistics getStatistics() {
-        double expectedFpp = expectedFpp();
+        // Read the striped counter once so that both estimates are consistent
+        final long setBits = bitCount.sum();
+        double expectedFpp = expectedFpp(setBits);
         // Estimate the current cardinality of the bloom filter
-        long cardinality = (long) -((bitSize * Math.log(1.0d - bitCount.get()/(double)bitSize)) / numHashFunctions);
+        long cardinality = (long) -((bitSize * Math.log(1.0d - setBits/(double)bitSize)) / numHashFunctions);
 
         return new BloomFilterStatistics(falsePositiveProbability, expectedFpp, capacity, bitSize, Long.MAX_VALUE,
                 capacity - cardinality);
     }
 
+    @Override
+    public BloomFilterSnapshot snapshot() {
+        final long[] words = new long[bits.length()];
+        for (int i = 0; i < words.length; ++i) {
+            words[i] = bits.get(i);
+        }
+        return BloomFilterSnapshot.of(new BloomFilterSnapshot.Bucket(0, BloomFilterSnapshot.STANDARD_LAYOUT,
+                capacity, falsePositiveProbability, bitSize, numHashFunctions, Long.MAX_VALUE, words));
+    }
+
+    @Override
+    public void merge(final BloomFilterSnapshot snapshot) {
+        final long[] words = snapshot.onlyBucket().wordsFor(BloomFilterSnapshot.STANDARD_LAYOUT, bitSize,
+                numHashFunctions, bits.length());
+        for (int i = 0; i < words.length; ++i) {
+            if (words[i] != 0L) {
+                or(i, words[i]);
+            }
+        }
+        bitCount.refresh();
+    }
+
+    @Override
+    public void merge(final MergeableBloomFilter<T> other) {
+        merge(other.snapshot());
+    }
+
+    /**
+     * Atomically sets the given bits in the word at the given index.
+     *
+     * @param word the index of the word to update.
+     * @param mask the bits to set.
+     */
+    private void or(final int word, final long mask) {
+        long prev, next;
+        do {
+            prev = bits.get(word);
+            next = prev | mask;
+        } while (prev != next && !bits.compareAndSet(word, prev, next));
+
+        bitCount.add(Long.bitCount(next) - Long.bitCount(prev));
+    }
+
     /**
      * Atomically sets the bit at the given index.
      *
@@ -136,7 +210,7 @@ final class AtomicBloomFilter<T> implements BloomFilter<T> {
         } while (changed && !bits.compareAndSet(bucket, prev, next));
 
         if (changed) {
-            bitCount.incrementAndGet();
+            bitCount.increment(index);
         }
 
         return changed;
@@ -151,12 +225,4 @@ final class AtomicBloomFilter<T> implements BloomFilter<T> {
         // Based on Guava BloomFilterStrategies.BitArray, but adapted to AtomicLongArray.
         return (bits.get((int) (index >>> 6)) & 1L << (int) index) != 0L;
     }
-
-    private long lowerEight(byte[] bytes) {
-        return Longs.fromBytes(bytes[7], bytes[6], bytes[5], bytes[4], bytes[3], bytes[2], bytes[1], bytes[0]);
-    }
-
-    private long upperEight(byte[] bytes) {
-        return Longs.fromBytes(bytes[15], bytes[14], bytes[13], bytes[12], bytes[11], bytes[10], bytes[9], bytes[8]);
-    }
 }
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.bloomfilter;
@@ -24,10 +25,12 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.concurrent.ThreadSafe;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * A bloom filter decorator that batches up writes in an internal buffer and applies them once the buffer is full via
@@ -35,16 +38,30 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * memory usage) of the {@link CopyOnWriteBloomFilter} by amortizing the cost of the array copy over a large number
  * of modifications. The implementation ensures that the buffer is also considered during any read requests,
  * eliminating the possibility of false negatives.
+ * <p/>
+ * A flush swaps in a fresh, empty buffer and hands the full one to the delegate as a whole, so nothing is copied or
+ * removed element-by-element. Until the delegate has absorbed it, the full buffer remains visible to readers as the
+ * {@code flushing} buffer.
  *
  * @param <T> the type of elements stored in this bloom filter.
  */
 @ThreadSafe
-final class BatchingBloomFilter<T> implements BloomFilter<T> {
+final class BatchingBloomFilter<T>
+        implements HashedBloomFilter<T>, MergeableBloomFilter<T>, BucketedBloomFilter<T> {
     private static final Logger LOGGER = LoggerFactory.getLogger(BatchingBloomFilter.class);
     private final BloomFilter<T> delegate;
     @VisibleForTesting
     final int batchSize;
-    private final Collection<T> buffer;
+
+    /** The buffer that new elements are added to. */
+    private final AtomicReference<Buffer<T>> current;
+
+    /**
+     * The buffer that is currently being written to the delegate, if any. This is published before the buffer is
+     * swapped out of {@link #current} and cleared only once the delegate contains all of its elements, so readers that
+     * check {@code current}, then {@code flushing}, then the delegate never miss an element.
+     */
+    private volatile Buffer<T> flushing;
 
     /**
      * Indicates that a buffer flush is in progress. Ensures mutual exclusion of other writer threads.
@@ -63,7 +80,7 @@ final class BatchingBloomFilter<T> implements BloomFilter<T> {
         Reject.ifFalse(batchSize > 0, "Batch size must be > 0");
         this.delegate = delegate;
         this.batchSize = batchSize;
-        this.buffer = Collections.newSetFromMap(new ConcurrentHashMap<T, Boolean>(batchSize));
+        this.current = new AtomicReference<Buffer<T>>(new Buffer<T>(batchSize));
     }
 
     /**
@@ -74,27 +91,37 @@ final class BatchingBloomFilter<T> implements BloomFilter<T> {
      */
     @Override
     public void add(final T element) {
-        boolean changed = buffer.add(element);
-        if (changed) {
-            // Determine if the buffer needs to be flushed to the underlying bloom filter
-            if (buffer.size() >= batchSize && bufferFlushInProgress.compareAndSet(false, true)) {
-                try {
-                    // Copy the buffer into a temporary buffer so that we do not lose updates during the flush.
-                    // We use a Set here to speed up the buffer.removeAll method below, which is a hot-spot.
-                    final Set<T> tmp = new HashSet<T>(buffer);
-                    int size = tmp.size();
-                    if (size >= batchSize) {
-                        LOGGER.debug("Flushing buffer: size={}", size);
-                        delegate.addAll(tmp);
-                        buffer.removeAll(tmp);
-                    }
-                } finally {
-                    bufferFlushInProgress.set(false);
-                }
+        final Buffer<T> buffer = current.get();
+        final boolean changed = buffer.elements.add(element);
+        if (current.get() != buffer) {
+            // The buffer was swapped out while we were adding to it, so the flush may already have passed over this
+            // element (or over another thread's add of it). Write it through to be sure: adding twice is harmless.
+            delegate.add(element);
+        } else if (changed && buffer.size.incrementAndGet() >= batchSize
+                && bufferFlushInProgress.compareAndSet(false, true)) {
+            try {
+                flush(buffer);
+            } finally {
+                bufferFlushInProgress.set(false);
             }
         }
     }
 
+    private void flush(final Buffer<T> full) {
+        flushing = full;
+        if (!current.compareAndSet(full, new Buffer<T>(batchSize))) {
+            // Already flushed by another thread
+            flushing = null;
+            return;
+        }
+        LOGGER.debug("Flushing buffer: size={}", full.size.get());
+        try {
+            delegate.addAll(full.elements);
+        } finally {
+            flushing = null;
+        }
+    }
+
     /**
      * Adds the entire collection of elements directly to the underlying Bloom Filter. No buffering is done in this
      * case.
@@ -109,8 +136,22 @@ final class BatchingBloomFilter<T> implements BloomFilter<T> {
 
     @Override
     public boolean mightContain(final T element) {
-        // Always check the buffer first to ensure no false negatives during a buffer flush
-        return buffer.contains(element) || delegate.mightContain(element);
+        // Always check the buffers first to ensure no false negatives during a buffer flush
+        return isBuffered(element) || delegate.mightContain(element);
+    }
+
+    @Override
+    public boolean mightContain(final HashedElement<T> element) {
+        return isBuffered(element.getElement()) || element.mightBeContainedIn(delegate);
+    }
+
+    private boolean isBuffered(final T element) {
+        // The order of these reads matters: see flushing
+        if (current.get().elements.contains(element)) {
+            return true;
+        }
+        final Buffer<T> inFlight = flushing;
+        return inFlight != null && inFlight.elements.contains(element);
     }
 
     @Override
@@ -119,7 +160,65 @@ final class BatchingBloomFilter<T> implements BloomFilter<T> {
         final BloomFilterStatistics stats = delegate.getStatistics();
         return new BloomFilterStatistics(stats.getConfiguredFalsePositiveProbability(),
                 stats.getExpectedFalsePositiveProbability(), stats.getCapacity(), stats.getBitSize(),
-                stats.getExpiryTime(), stats.getEstimatedRemainingCapacity() - buffer.size());
+                stats.getExpiryTime(), stats.getEstimatedRemainingCapacity() - current.get().size.get());
+    }
+
+    /**
+     * Returns the statistics of each bucket of the underlying bloom filter, or of the underlying bloom filter itself
+     * if it does not consist of several buckets. Elements that are still buffered are not included.
+     */
+    @Override
+    public List<BloomFilterStatistics> getBucketStatistics() {
+        if (delegate instanceof BucketedBloomFilter) {
+            return ((BucketedBloomFilter<T>) delegate).getBucketStatistics();
+        }
+        return Collections.singletonList(delegate.getStatistics());
+    }
+
+    @Override
+    public long getBucketsCreated() {
+        if (delegate instanceof BucketedBloomFilter) {
+            return ((BucketedBloomFilter<T>) delegate).getBucketsCreated();
+        }
+        return 1L;
+    }
+
+    /**
+     * Takes a snapshot of the underlying bloom filter. Elements that are still buffered are not included.
+     */
+    @Override
+    public BloomFilterSnapshot snapshot() {
+        return mergeableDelegate().snapshot();
+    }
+
+    @Override
+    public void merge(final BloomFilterSnapshot snapshot) {
+        mergeableDelegate().merge(snapshot);
+    }
+
+    @Override
+    public void merge(final MergeableBloomFilter<T> other) {
+        merge(other.snapshot());
+    }
+
+    private MergeableBloomFilter<T> mergeableDelegate() {
+        if (!(delegate instanceof MergeableBloomFilter)) {
+            throw new UnsupportedOperationException("Bloom filter does not support snapshots: " + delegate);
+        }
+        return (MergeableBloomFilter<T>) delegate;
+    }
+
+    /**
+     * A set of buffered elements together with its size. The size is counted separately, as
+     * {@link ConcurrentHashMap#size()} must sum over all of the map's counter cells.
+     */
+    private static final class Buffer<T> {
+        private final Set<T> elements;
+        private final AtomicInteger size = new AtomicInteger();
+
+        Buffer(final int batchSize) {
+            this.elements = Collections.newSetFromMap(new ConcurrentHashMap<T, Boolean>(batchSize));
+        }
     }
 
     @Override
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.bloomfilter;
@@ -21,15 +22,18 @@ import static java.lang.Math.min;
 
 import org.forgerock.util.Reject;
 import org.forgerock.util.time.TimeService;
+import org.wrensecurity.guava.common.hash.Funnel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.concurrent.ThreadSafe;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 
@@ -48,7 +52,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
  * @see GeometricSeriesBloomFilterPool
  */
 @ThreadSafe
-final class BloomFilterChain<T> implements BloomFilter<T> {
+final class BloomFilterChain<T> implements HashedBloomFilter<T>, MergeableBloomFilter<T>, BucketedBloomFilter<T> {
     private static final Logger LOGGER = LoggerFactory.getLogger(BloomFilterChain.class);
 
     private static final double FILL_FACTOR = 0.9d;
@@ -56,17 +60,38 @@ final class BloomFilterChain<T> implements BloomFilter<T> {
     private final List<BloomFilter<T>> chain = new CopyOnWriteArrayList<BloomFilter<T>>();
     private final BloomFilterPool<T> pool;
     private final TimeService clock;
+    private final Funnel<? super T> funnel;
+    /** The number of buckets added to the chain. Only modified while synchronized on the chain. */
+    private volatile long bucketsCreated;
 
     /**
      * Creates an initially empty filter chain.
      *
      * @param pool the pool from which to get new Bloom Filters for subsequent elements in the chain.
      * @param clock the clock to use for determining if a bloom filter has expired.
+     * @param funnel the funnel used to hash elements once for all the buckets of the chain.
      */
-    BloomFilterChain(final BloomFilterPool<T> pool, final TimeService clock) {
-        Reject.ifNull(pool, clock);
+    BloomFilterChain(final BloomFilterPool<T> pool, final TimeService clock, final Funnel<? super T> funnel) {
+        this(pool, clock, funnel, Collections.<BloomFilter<T>>emptyList());
+    }
+
+    /**
+     * Creates a filter chain that initially consists of the given buckets, which must already have been taken from
+     * the pool (e.g., buckets re-attached after a restart).
+     *
+     * @param pool the pool from which to get new Bloom Filters for subsequent elements in the chain.
+     * @param clock the clock to use for determining if a bloom filter has expired.
+     * @param funnel the funnel used to hash elements once for all the buckets of the chain.
+     * @param initialBuckets the initial buckets in the chain, oldest first.
+     */
+    BloomFilterChain(final BloomFilterPool<T> pool, final TimeService clock, final Funnel<? super T> funnel,
+                     final List<BloomFilter<T>> initialBuckets) {
+        Reject.ifNull(pool, clock, funnel, initialBuckets);
         this.pool = pool;
         this.clock = clock;
+        this.funnel = funnel;
+        this.chain.addAll(initialBuckets);
+        this.bucketsCreated = initialBuckets.size();
     }
 
     /**
@@ -110,15 +135,28 @@ final class BloomFilterChain<T> implements BloomFilter<T> {
     }
 
     /**
-     * Checks each bloom filter in the chain to see if any of them might contain the given element.
+     * Checks each bloom filter in the chain to see if any of them might contain the given element. The element is
+     * hashed at most once for the whole chain.
      *
      * @param element the element to check for membership in this set.
      * @return {@code true} if any of the filters in the chain might contain the given element.
      */
     @Override
     public boolean mightContain(final T element) {
+        return mightContain(new HashedElement<T>(element, funnel));
+    }
+
+    /**
+     * Checks each bloom filter in the chain to see if any of them might contain the given element, passing the same
+     * hashed element to each bucket so that the element is hashed at most once for the whole chain.
+     *
+     * @param element the hashed element to check for membership in this set.
+     * @return {@code true} if any of the filters in the chain might contain the given element.
+     */
+    @Override
+    public boolean mightContain(final HashedElement<T> element) {
         for (BloomFilter<T> bucket : chain) {
-            if (bucket.mightContain(element)) {
+            if (element.mightBeContainedIn(bucket)) {
                 return true;
             }
         }
@@ -152,9 +190,97 @@ final class BloomFilterChain<T> implements BloomFilter<T> {
                 remainingCapacity);
     }
 
+    @Override
+    public List<BloomFilterStatistics> getBucketStatistics() {
+        final List<BloomFilterStatistics> result = new ArrayList<BloomFilterStatistics>(chain.size());
+        for (BloomFilter<T> bucket : chain) {
+            result.add(bucket.getStatistics());
+        }
+        return result;
+    }
+
+    @Override
+    public long getBucketsCreated() {
+        return bucketsCreated;
+    }
+
+    /**
+     * Takes a snapshot of every bucket in the chain, numbered according to their position in the pool so that they
+     * can be matched up with the buckets of a peer's chain.
+     */
+    @Override
+    public BloomFilterSnapshot snapshot() {
+        final List<BloomFilterSnapshot.Bucket> buckets = new ArrayList<BloomFilterSnapshot.Bucket>(chain.size());
+        // Synchronize so that buckets are not released back to the pool while we take the snapshot
+        synchronized (chain) {
+            for (BloomFilter<T> bucket : chain) {
+                buckets.add(mergeable(bucket).snapshot().onlyBucket().withBucketNumber(pool.getBucketNumber(bucket)));
+            }
+        }
+        return new BloomFilterSnapshot(buckets);
+    }
+
+    /**
+     * Merges each bucket in the snapshot into the bucket with the same position in the pool, taking that bucket from
+     * the pool and adding it to the chain if it is not already present. Buckets in the snapshot that have already
+     * expired are ignored unless the corresponding bucket is already present.
+     * <p/>
+     * Buckets taken from the pool are inserted before the last bucket of the chain, rather than appended, so that local
+     * inserts keep going to the current last bucket instead of a peer's bucket that may be older or nearly saturated.
+     * If the chain is empty, the merged buckets are appended in order, so that the last bucket of the peer becomes
+     * the last bucket of the chain.
+     */
+    @Override
+    public void merge(final BloomFilterSnapshot snapshot) {
+        synchronized (chain) {
+            final boolean append = chain.isEmpty();
+            for (BloomFilterSnapshot.Bucket incoming : snapshot.getBuckets()) {
+                final BloomFilterSnapshot single = BloomFilterSnapshot.of(incoming.withBucketNumber(0));
+                final BloomFilter<T> existing = findBucket(incoming.getBucketNumber());
+                if (existing != null) {
+                    mergeable(existing).merge(single);
+                } else if (incoming.getExpiryTime() >= clock.now()) {
+                    final BloomFilter<T> bucket;
+                    try {
+                        bucket = pool.take(incoming.getBucketNumber());
+                    } catch (NoSuchElementException e) {
+                        throw new IllegalArgumentException("Incompatible bloom filter snapshot", e);
+                    }
+                    LOGGER.debug("Adding bucket number {} from snapshot", incoming.getBucketNumber());
+                    mergeable(bucket).merge(single);
+                    chain.add(append ? chain.size() : chain.size() - 1, bucket);
+                    bucketsCreated++;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void merge(final MergeableBloomFilter<T> other) {
+        merge(other.snapshot());
+    }
+
+    private BloomFilter<T> findBucket(final int bucketNumber) {
+        for (BloomFilter<T> bucket : chain) {
+            if (pool.getBucketNumber(bucket) == bucketNumber) {
+                return bucket;
+            }
+        }
+        return null;
+    }
+
+    private MergeableBloomFilter<T> mergeable(final BloomFilter<T> bucket) {
+        if (!(bucket instanceof MergeableBloomFilter)) {
+            throw new UnsupportedOperationException("Bloom filter does not support snapshots: " + bucket);
+        }
+        return (MergeableBloomFilter<T>) bucket;
+    }
+
     /**
      * Returns a reference to the last bucket in the chain, creating a new bucket if the chain is empty or if the
-     * last bucket is saturated. Additionally, this method will release any buckets that have expired.
+     * last bucket is saturated. Additionally, this method will release any buckets that have expired. This is called
+     * on every insert, so saturation is checked via {@link BloomFilterStatistics#isSaturated(BloomFilter)} rather than
+     * by taking a full statistics snapshot.
      */
     private BloomFilter<T> lastBucket() {
         BloomFilter<T> lastBucket = null;
@@ -162,7 +288,7 @@ final class BloomFilterChain<T> implements BloomFilter<T> {
         if (it.hasPrevious()) {
             lastBucket = it.previous();
         }
-        if (lastBucket == null || lastBucket.getStatistics().isSaturated()) {
+        if (lastBucket == null || BloomFilterStatistics.isSaturated(lastBucket)) {
             // Synchronize to ensure atomicity (double-checked locking). Chain.listIterator().previous() is volatile
             // read.
             synchronized (chain) {
@@ -187,10 +313,11 @@ final class BloomFilterChain<T> implements BloomFilter<T> {
                 if (it.hasPrevious()) {
                     lastBucket = it.previous();
                 }
-                if (lastBucket == null || lastBucket.getStatistics().isSaturated()) {
+                if (lastBucket == null || BloomFilterStatistics.isSaturated(lastBucket)) {
                     LOGGER.debug("Adding new bucket: {}", lastBucket);
                     lastBucket = pool.nextAvailable();
                     chain.add(lastBucket);
+                    bucketsCreated++;
                 }
             }
         }
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.bloomfilter;
@@ -31,6 +32,23 @@ interface BloomFilterPool<T> {
      */
     BloomFilter<T> nextAvailable();
 
+    /**
+     * Takes the bloom filter at a specific position in the pool, for example to hold the contents of the
+     * corresponding bucket of a peer's bloom filter.
+     *
+     * @param bucketNumber the position of the bloom filter in the pool.
+     * @throws NoSuchElementException if that bloom filter has already been taken or is beyond the size of the pool.
+     */
+    BloomFilter<T> take(int bucketNumber);
+
+    /**
+     * Returns the position in the pool of a bloom filter that has been taken from it.
+     *
+     * @param bloomFilter a bloom filter that has been taken from the pool and not yet released.
+     * @throws IllegalArgumentException if the bloom filter was not taken from this pool.
+     */
+    int getBucketNumber(BloomFilter<T> bloomFilter);
+
     /**
      * Releases a bloom filter back to the pool to be reused.
      *
@@ -0,0 +1,386 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.bloomfilter;
+
+import org.forgerock.util.Reject;
+
+import javax.annotation.concurrent.Immutable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A point-in-time copy of the bit-vectors of a {@link MergeableBloomFilter}, which can be written to a stream and
+ * merged into a compatible bloom filter on another node. A snapshot consists of one {@link Bucket} per bucket of the
+ * bloom filter, identified by its position in the geometric series of a scalable or rolling bloom filter (always 0 for
+ * a fixed-capacity bloom filter), together with the parameters and expiry time of that bucket.
+ * <p/>
+ * As merging is a bitwise-OR, it is enough to ship the bits that have been set since the last snapshot was shipped.
+ * Use {@link #deltaSince(BloomFilterSnapshot)} to compute such a delta, which for a lightly loaded filter is much
+ * smaller than a full snapshot once encoded.
+ * <p/>
+ * The binary encoding (see {@link #writeTo(OutputStream)}) only includes runs of non-zero 64-bit words, so sparse
+ * filters and deltas are cheap to transmit. Several snapshots may be written one after another to the same stream.
+ */
+@Immutable
+public final class BloomFilterSnapshot {
+    /** Buckets in which the bits of each element are spread over the whole bit-vector. */
+    static final byte STANDARD_LAYOUT = 0;
+    /** Buckets in which the bits of each element are set within a single block (see {@link BlockedBloomFilter}). */
+    static final byte BLOCKED_LAYOUT = 1;
+
+    private static final int MAGIC = 0x57424653; // "WBFS"
+    private static final byte VERSION = 1;
+
+    /**
+     * The default maximum size, in bits, of a bucket read by {@link #readFrom(InputStream)}: 2^31 bits, or 256 MiB,
+     * which is enough for a bucket of about 200 million elements at a false positive probability of 1%.
+     */
+    public static final long DEFAULT_MAX_BIT_SIZE = 1L << 31;
+
+    private final List<Bucket> buckets;
+
+    BloomFilterSnapshot(final List<Bucket> buckets) {
+        this.buckets = Collections.unmodifiableList(new ArrayList<Bucket>(buckets));
+    }
+
+    /**
+     * Creates a snapshot consisting of a single bucket.
+     */
+    static BloomFilterSnapshot of(final Bucket bucket) {
+        return new BloomFilterSnapshot(Collections.singletonList(bucket));
+    }
+
+    /**
+     * Returns the buckets in this snapshot.
+     *
+     * @return an unmodifiable list of the buckets in this snapshot.
+     */
+    public List<Bucket> getBuckets() {
+        return buckets;
+    }
+
+    /**
+     * Returns the only bucket in this snapshot, for merging into a fixed-capacity bloom filter.
+     *
+     * @throws IllegalArgumentException if this snapshot does not contain exactly one bucket.
+     */
+    Bucket onlyBucket() {
+        Reject.ifFalse(buckets.size() == 1, "Snapshot must contain exactly one bucket");
+        return buckets.get(0);
+    }
+
+    /**
+     * Computes the delta between this snapshot and a previous snapshot of the same bloom filter. The delta contains
+     * only those bits that are set in this snapshot but not in the previous one, and omits buckets that have not
+     * changed at all. Merging the delta into a bloom filter that has already absorbed the previous snapshot has the
+     * same effect as merging this snapshot.
+     *
+     * @param previous the previous snapshot of the same bloom filter.
+     * @return the delta since the previous snapshot.
+     */
+    public BloomFilterSnapshot deltaSince(final BloomFilterSnapshot previous) {
+        Reject.ifNull(previous);
+        final List<Bucket> delta = new ArrayList<Bucket>(buckets.size());
+        for (Bucket bucket : buckets) {
+            final Bucket old = previous.findCompatible(bucket);
+            if (old == null) {
+                delta.add(bucket);
+                continue;
+            }
+            final long[] words = new long[bucket.words.length];
+            boolean changed = bucket.expiryTime != old.expiryTime;
+            for (int i = 0; i < words.length; ++i) {
+                words[i] = bucket.words[i] & ~old.words[i];
+                changed |= words[i] != 0L;
+            }
+            if (changed) {
+                delta.add(new Bucket(bucket.bucketNumber, bucket.layout, bucket.capacity,
+                        bucket.falsePositiveProbability, bucket.bitSize, bucket.numHashFunctions, bucket.expiryTime,
+                        words));
+            }
+        }
+        return new BloomFilterSnapshot(delta);
+    }
+
+    private Bucket findCompatible(final Bucket bucket) {
+        for (Bucket candidate : buckets) {
+            if (candidate.bucketNumber == bucket.bucketNumber && candidate.isCompatibleWith(bucket)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes this snapshot to the given stream in a compact binary format. The stream is not closed.
+     *
+     * @param out the stream to write the snapshot to.
+     * @throws IOException if an error occurs writing to the stream.
+     */
+    public void writeTo(final OutputStream out) throws IOException {
+        final DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeInt(buckets.size());
+        for (Bucket bucket : buckets) {
+            bucket.writeTo(data);
+        }
+        data.flush();
+    }
+
+    /**
+     * Reads a snapshot previously written by {@link #writeTo(OutputStream)} from the given stream, rejecting buckets
+     * of more than {@link #DEFAULT_MAX_BIT_SIZE} bits. The stream is not closed, and is positioned immediately after
+     * the snapshot.
+     *
+     * @param in the stream to read the snapshot from.
+     * @return the snapshot.
+     * @throws IOException if an error occurs reading from the stream, or if it does not contain a valid snapshot.
+     * @see #readFrom(InputStream, long)
+     */
+    public static BloomFilterSnapshot readFrom(final InputStream in) throws IOException {
+        return readFrom(in, DEFAULT_MAX_BIT_SIZE);
+    }
+
+    /**
+     * Reads a snapshot previously written by {@link #writeTo(OutputStream)} from the given stream. The stream is not
+     * closed, and is positioned immediately after the snapshot.
+     * <p/>
+     * The size of each bucket is read from the stream, which may come from an untrusted peer, so it is checked against
+     * the given maximum before the bit-vector of the bucket is allocated. This should be the size of the largest bucket
+     * of the bloom filter the snapshot is to be merged into, as no larger bucket could be merged anyway.
+     *
+     * @param in the stream to read the snapshot from.
+     * @param maxBitSize the maximum size, in bits, of a bucket of the snapshot.
+     * @return the snapshot.
+     * @throws IOException if an error occurs reading from the stream, or if it does not contain a valid snapshot.
+     */
+    public static BloomFilterSnapshot readFrom(final InputStream in, final long maxBitSize) throws IOException {
+        Reject.ifFalse(maxBitSize > 0, "Max bit size must be > 0");
+        final DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a bloom filter snapshot");
+        }
+        final byte version = data.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported bloom filter snapshot version: " + version);
+        }
+        final int bucketCount = data.readInt();
+        if (bucketCount < 0) {
+            throw new IOException("Corrupt bloom filter snapshot: bucket count=" + bucketCount);
+        }
+        final List<Bucket> buckets = new ArrayList<Bucket>(Math.min(bucketCount, 64));
+        for (int i = 0; i < bucketCount; ++i) {
+            buckets.add(Bucket.readFrom(data, maxBitSize));
+        }
+        return new BloomFilterSnapshot(buckets);
+    }
+
+    @Override
+    public String toString() {
+        return "BloomFilterSnapshot" + buckets;
+    }
+
+    /**
+     * The bit-vector and parameters of a single bucket of a bloom filter.
+     */
+    @Immutable
+    public static final class Bucket {
+        private final int bucketNumber;
+        private final byte layout;
+        private final long capacity;
+        private final double falsePositiveProbability;
+        private final long bitSize;
+        private final int numHashFunctions;
+        private final long expiryTime;
+        private final long[] words;
+
+        Bucket(final int bucketNumber, final byte layout, final long capacity, final double falsePositiveProbability,
+               final long bitSize, final int numHashFunctions, final long expiryTime, final long[] words) {
+            this.bucketNumber = bucketNumber;
+            this.layout = layout;
+            this.capacity = capacity;
+            this.falsePositiveProbability = falsePositiveProbability;
+            this.bitSize = bitSize;
+            this.numHashFunctions = numHashFunctions;
+            this.expiryTime = expiryTime;
+            this.words = words;
+        }
+
+        /**
+         * Returns a copy of this bucket with a different bucket number.
+         */
+        Bucket withBucketNumber(final int newBucketNumber) {
+            return new Bucket(newBucketNumber, layout, capacity, falsePositiveProbability, bitSize, numHashFunctions,
+                    expiryTime, words);
+        }
+
+        /**
+         * Returns a copy of this bucket with a different expiry time.
+         */
+        Bucket withExpiryTime(final long newExpiryTime) {
+            return new Bucket(bucketNumber, layout, capacity, falsePositiveProbability, bitSize, numHashFunctions,
+                    newExpiryTime, words);
+        }
+
+        /**
+         * The position of this bucket in the geometric series of a scalable or rolling bloom filter.
+         */
+        public int getBucketNumber() {
+            return bucketNumber;
+        }
+
+        /**
+         * The expected number of insertions into this bucket.
+         */
+        public long getCapacity() {
+            return capacity;
+        }
+
+        /**
+         * The configured false positive probability of this bucket.
+         */
+        public double getFalsePositiveProbability() {
+            return falsePositiveProbability;
+        }
+
+        /**
+         * The size of the bit-vector of this bucket, in bits.
+         */
+        public long getBitSize() {
+            return bitSize;
+        }
+
+        /**
+         * The number of hash functions (bits set per element) of this bucket.
+         */
+        public int getNumHashFunctions() {
+            return numHashFunctions;
+        }
+
+        /**
+         * The latest expiry time of any element in this bucket, in milliseconds since the epoch.
+         */
+        public long getExpiryTime() {
+            return expiryTime;
+        }
+
+        /**
+         * Returns the bit-vector of this bucket, after checking that it can be merged into a bucket with the given
+         * layout and parameters. The returned array must not be modified.
+         *
+         * @throws IllegalArgumentException if the bucket is not compatible.
+         */
+        long[] wordsFor(final byte layout, final long bitSize, final int numHashFunctions, final int wordCount) {
+            Reject.ifFalse(this.layout == layout && this.bitSize == bitSize
+                            && this.numHashFunctions == numHashFunctions && words.length == wordCount,
+                    "Incompatible bloom filter snapshot");
+            return words;
+        }
+
+        private boolean isCompatibleWith(final Bucket other) {
+            return layout == other.layout && bitSize == other.bitSize && numHashFunctions == other.numHashFunctions
+                    && words.length == other.words.length;
+        }
+
+        private void writeTo(final DataOutputStream out) throws IOException {
+            out.writeInt(bucketNumber);
+            out.writeByte(layout);
+            out.writeLong(capacity);
+            out.writeDouble(falsePositiveProbability);
+            out.writeLong(bitSize);
+            out.writeInt(numHashFunctions);
+            out.writeLong(expiryTime);
+            out.writeInt(words.length);
+
+            int runCount = 0;
+            for (int i = 0; i < words.length; ++i) {
+                if (words[i] != 0L && (i == 0 || words[i - 1] == 0L)) {
+                    runCount++;
+                }
+            }
+            out.writeInt(runCount);
+
+            // Each run of non-zero words is written as its start index, length and then the words themselves
+            int i = 0;
+            while (i < words.length) {
+                if (words[i] == 0L) {
+                    i++;
+                    continue;
+                }
+                int end = i;
+                while (end < words.length && words[end] != 0L) {
+                    end++;
+                }
+                out.writeInt(i);
+                out.writeInt(end - i);
+                for (; i < end; ++i) {
+                    out.writeLong(words[i]);
+                }
+            }
+        }
+
+        private static Bucket readFrom(final DataInputStream in, final long maxBitSize) throws IOException {
+            final int bucketNumber = in.readInt();
+            final byte layout = in.readByte();
+            final long capacity = in.readLong();
+            final double falsePositiveProbability = in.readDouble();
+            final long bitSize = in.readLong();
+            final int numHashFunctions = in.readInt();
+            final long expiryTime = in.readLong();
+            final int wordCount = in.readInt();
+            if (bitSize <= 0 || bitSize > maxBitSize) {
+                throw new IOException("Bloom filter snapshot bucket too large: bitSize=" + bitSize + ", max="
+                        + maxBitSize);
+            }
+            if (wordCount != (bitSize + Long.SIZE - 1) / Long.SIZE) {
+                throw new IOException("Corrupt bloom filter snapshot: bitSize=" + bitSize + ", words=" + wordCount);
+            }
+
+            final long[] words = new long[wordCount];
+            final int runCount = in.readInt();
+            for (int run = 0; run < runCount; ++run) {
+                final int start = in.readInt();
+                final int length = in.readInt();
+                if (start < 0 || length < 0 || length > wordCount - start) {
+                    throw new IOException("Corrupt bloom filter snapshot: run " + start + "+" + length);
+                }
+                for (int i = start; i < start + length; ++i) {
+                    words[i] = in.readLong();
+                }
+            }
+            return new Bucket(bucketNumber, layout, capacity, falsePositiveProbability, bitSize, numHashFunctions,
+                    expiryTime, words);
+        }
+
+        @Override
+        public String toString() {
+            return "{bucketNumber=" + bucketNumber
+                    + ", capacity=" + capacity
+                    + ", falsePositiveProbability=" + falsePositiveProbability
+                    + ", bitSize=" + bitSize
+                    + ", expiryTime=" + expiryTime
+                    + '}';
+        }
+    }
+}
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.bloomfilter;
@@ -176,6 +177,91 @@ public final class BloomFilterStatistics {
         return expectedFalsePositiveProbability >= configuredFalsePositiveProbability;
     }
 
+    /**
+     * Calculates the false positive probability of a <em>blocked</em> bloom filter, in which all of the bits for an
+     * element are set within a single block. The number of elements that hash to each block is Poisson distributed,
+     * so some blocks are more heavily loaded than average, making the filter less accurate than a standard bloom filter
+     * of the same size. See Putze, Sanders and Singler, <em>Cache-, Hash- and Space-Efficient Bloom Filters</em>,
+     * 2007.
+     *
+     * @param bitSize the total size of the bit-vector in bits.
+     * @param blockSize the size of each block in bits.
+     * @param numHashFunctions the number of bits set per element.
+     * @param cardinality the number of elements in the filter.
+     * @return the probability of false positives.
+     */
+    static double blockedFalsePositiveProbability(final long bitSize, final int blockSize,
+                                                  final int numHashFunctions, final double cardinality) {
+        final double meanPerBlock = cardinality * blockSize / bitSize;
+        if (meanPerBlock <= 0.0d) {
+            return 0.0d;
+        }
+        if (meanPerBlock > blockSize) {
+            // Hopelessly over-saturated: almost every bit of almost every block is set
+            return 1.0d;
+        }
+        final double logMean = Math.log(meanPerBlock);
+        final double logBitUnset = Math.log1p(-1.0d / blockSize);
+        final int maxElementsPerBlock = (int) Math.ceil(meanPerBlock + 10.0d * Math.sqrt(meanPerBlock) + 10.0d);
+
+        // Sum over i of Poisson(i; meanPerBlock) * fpp of a standard bloom filter of blockSize bits holding i elements.
+        // Poisson probabilities are computed in log-space to avoid underflow for heavily loaded filters.
+        double logPoisson = -meanPerBlock;
+        double fpp = 0.0d;
+        for (int i = 1; i <= maxElementsPerBlock; ++i) {
+            logPoisson += logMean - Math.log(i);
+            final double blockFpp = Math.pow(-Math.expm1(numHashFunctions * i * logBitUnset), numHashFunctions);
+            fpp += Math.exp(logPoisson) * blockFpp;
+        }
+        return Math.min(fpp, 1.0d);
+    }
+
+    /**
+     * Calculates the size of a blocked bloom filter (in bits, rounded up to a whole number of blocks) that achieves
+     * the given false positive probability for the given capacity. This is somewhat larger than
+     * {@link #optimumBitSize(long, double)}.
+     *
+     * @param capacity the expected number of insertions into the bloom filter.
+     * @param falsePositiveProbability the desired probability of false positives.
+     * @param blockSize the size of each block in bits.
+     * @return the number of bits to use for the blocked bloom filter.
+     */
+    static long optimumBlockedBitSize(final long capacity, final double falsePositiveProbability,
+                                      final int blockSize) {
+        final long minimum = optimumBitSize(capacity, falsePositiveProbability);
+        final long step = Math.max(blockSize, minimum / 64);
+        long bitSize = roundUpToBlock(Math.max(minimum, blockSize), blockSize);
+        // Bounded in case the requested probability cannot be reached with the given block size
+        for (int i = 0; i < 256; ++i) {
+            final int numHashFunctions = optimalNumberOfHashFunctions(bitSize, capacity);
+            if (blockedFalsePositiveProbability(bitSize, blockSize, numHashFunctions, capacity)
+                    <= falsePositiveProbability) {
+                break;
+            }
+            bitSize = roundUpToBlock(bitSize + step, blockSize);
+        }
+        return bitSize;
+    }
+
+    private static long roundUpToBlock(final long bitSize, final int blockSize) {
+        return ((bitSize + blockSize - 1) / blockSize) * blockSize;
+    }
+
+    /**
+     * Determines whether the given bloom filter is saturated, avoiding a full statistics snapshot if the filter
+     * supports a cheaper check.
+     *
+     * @param filter the bloom filter to check.
+     * @return {@code true} if the bloom filter is saturated.
+     * @see SaturationAwareBloomFilter
+     */
+    static boolean isSaturated(final BloomFilter<?> filter) {
+        if (filter instanceof SaturationAwareBloomFilter) {
+            return ((SaturationAwareBloomFilter<?>) filter).isSaturated();
+        }
+        return filter.getStatistics().isSaturated();
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) {
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.bloomfilter;
@@ -22,6 +23,8 @@ import org.forgerock.util.Reject;
 import org.forgerock.util.annotations.VisibleForTesting;
 import org.forgerock.util.time.TimeService;
 
+import java.nio.file.Path;
+
 /**
  * Factory methods for creating bloom filters with various requirements.
  */
@@ -153,6 +156,23 @@ public final class BloomFilters {
             return new ScalableBloomFilterBuilder<T>(this).withMaximumNumberOfBuckets(maximumNumberOfBuckets);
         }
 
+        /**
+         * Stores the buckets of a scalable or rolling bloom filter in memory-mapped files in the given directory, one
+         * file per bucket. This keeps the (potentially large) bit-vectors off the Java heap, and allows the bloom
+         * filter to be re-attached with its existing contents and expiry times when it is next built with the same
+         * directory, funnel and sizing parameters, for example after a restart. Files that do not match the current
+         * configuration are discarded. Mapped buckets always use atomic compare-and-set operations, as with
+         * {@link ConcurrencyStrategy#ATOMIC}: the default {@link ConcurrencyStrategy#COPY_ON_WRITE} strategy is
+         * replaced, and building the bloom filter fails if the {@link ConcurrencyStrategy#SYNCHRONIZED} or
+         * {@link ConcurrencyStrategy#BLOCKED} strategy is requested. The directory must not be shared by more than one
+         * bloom filter at a time.
+         *
+         * @param directory the directory in which to store bucket files. It is created if it does not exist.
+         */
+        public ScalableBloomFilterBuilder<T> withStorageDirectory(final Path directory) {
+            return new ScalableBloomFilterBuilder<T>(this).withStorageDirectory(directory);
+        }
+
         /**
          * Strategy for determining when elements of a rolling bloom filter have expired. Used to determine when all
          * elements in a bucket have expired and so can be released.
@@ -212,6 +232,20 @@ public final class BloomFilters {
             return new RollingBloomFilterBuilder<T>(this);
         }
 
+        /**
+         * Forces the bloom filter to be a fixed-capacity Counting Bloom Filter, from which elements can be removed as
+         * well as added. Each bit is replaced by a 4-bit counter, so a counting bloom filter uses four times the
+         * memory of other bloom filters with the same capacity and false positive probability, but allows short-lived
+         * elements to be dropped individually rather than waiting for a whole bucket of a rolling bloom filter to
+         * expire. Counting bloom filters always use atomic compare-and-set operations, so the concurrency strategy is
+         * ignored.
+         *
+         * @see DeletableBloomFilter
+         */
+        public CountingBloomFilterBuilder<T> counting() {
+            return new CountingBloomFilterBuilder<T>(this);
+        }
+
         /**
          * Builds the bloom filter with the configured options.
          *
@@ -231,6 +265,60 @@ public final class BloomFilters {
 
     }
 
+    /**
+     * Builder pattern for Counting Bloom Filters, which are fixed-capacity bloom filters that support removal of
+     * elements.
+     *
+     * @param <T> the type of elements contained in this bloom filter.
+     */
+    public static final class CountingBloomFilterBuilder<T> extends BloomFilterBuilder<T> {
+
+        CountingBloomFilterBuilder(final BloomFilterBuilder<T> toCopy) {
+            super(toCopy);
+        }
+
+        @Override
+        public CountingBloomFilterBuilder<T> withInitialCapacity(final int capacity) {
+            super.withInitialCapacity(capacity);
+            return this;
+        }
+
+        @Override
+        public CountingBloomFilterBuilder<T> withFalsePositiveProbability(final double fpp) {
+            super.withFalsePositiveProbability(fpp);
+            return this;
+        }
+
+        @Override
+        public CountingBloomFilterBuilder<T> withConcurrencyStrategy(final ConcurrencyStrategy strategy) {
+            super.withConcurrencyStrategy(strategy);
+            return this;
+        }
+
+        /**
+         * Write batching is not supported by counting bloom filters, as an element could be removed while it was
+         * still buffered and then be added afterwards.
+         *
+         * @param batchSize must be 0.
+         */
+        @Override
+        public CountingBloomFilterBuilder<T> withWriteBatchSize(final int batchSize) {
+            Reject.ifFalse(batchSize == 0, "Write batching is not supported by counting bloom filters");
+            return this;
+        }
+
+        @Override
+        public DeletableBloomFilter<T> build() {
+            Reject.ifFalse(writeBatchSize == 0, "Write batching is not supported by counting bloom filters");
+            return buildBloomFilter();
+        }
+
+        @Override
+        DeletableBloomFilter<T> buildBloomFilter() {
+            return new CountingBloomFilter<T>(funnel, initialCapacity, falsePositiveProbability);
+        }
+    }
+
     /**
      * Builder pattern for Scalable Bloom Filters.
      *
@@ -242,6 +330,7 @@ public final class BloomFilters {
         double capacityGrowthFactor = 2.0d;
         double falsePositiveProbabilityScaleFactor = 0.8d;
         int maxNumberOfBuckets = Integer.MAX_VALUE;
+        Path storageDirectory = null;
 
         ScalableBloomFilterBuilder(final BloomFilterBuilder<T> toCopy) {
             super(toCopy);
@@ -250,6 +339,7 @@ public final class BloomFilters {
                 this.capacityGrowthFactor = sbf.capacityGrowthFactor;
                 this.falsePositiveProbabilityScaleFactor = sbf.falsePositiveProbabilityScaleFactor;
                 this.maxNumberOfBuckets = sbf.maxNumberOfBuckets;
+                this.storageDirectory = sbf.storageDirectory;
             }
         }
 
@@ -275,6 +365,13 @@ public final class BloomFilters {
             return this;
         }
 
+        @Override
+        public ScalableBloomFilterBuilder<T> withStorageDirectory(final Path directory) {
+            Reject.ifNull(directory);
+            this.storageDirectory = directory;
+            return this;
+        }
+
         @Override
         BloomFilter<T> buildBloomFilter() {
             return new RollingBloomFilterBuilder<T>(this).withExpiryStrategy(NeverExpires.<T>strategy())
@@ -313,6 +410,9 @@ public final class BloomFilters {
         @Override
         BloomFilter<T> buildBloomFilter() {
             Reject.ifNull(expiryStrategy, "No expiry strategy specified");
+            Reject.ifTrue(storageDirectory != null && concurrencyStrategy != ConcurrencyStrategy.COPY_ON_WRITE
+                    && concurrencyStrategy != ConcurrencyStrategy.ATOMIC,
+                    "Buckets stored in a directory always use the ATOMIC concurrency strategy");
             return new ConcurrentRollingBloomFilter<T>(this);
         }
     }
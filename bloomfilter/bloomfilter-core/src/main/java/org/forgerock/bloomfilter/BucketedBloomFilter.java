@@ -0,0 +1,45 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.bloomfilter;
+
+import java.util.List;
+
+/**
+ * A bloom filter that is made up of a chain of buckets, such as a scalable or rolling bloom filter, and which exposes
+ * the statistics of each bucket for monitoring. {@link #getStatistics()} only reports the aggregate over all buckets,
+ * which hides which bucket is saturated and how quickly the chain is growing.
+ *
+ * @param <T> the type of elements contained in the bloom filter.
+ */
+public interface BucketedBloomFilter<T> extends BloomFilter<T> {
+
+    /**
+     * Returns the statistics of each bucket currently in the chain, oldest first. The estimated number of elements in
+     * a bucket is its capacity minus its estimated remaining capacity.
+     *
+     * @return the statistics of each bucket.
+     */
+    List<BloomFilterStatistics> getBucketStatistics();
+
+    /**
+     * Returns the total number of buckets that have been added to the chain since this bloom filter was created,
+     * including buckets that have since expired and been released.
+     *
+     * @return the number of buckets created.
+     */
+    long getBucketsCreated();
+}
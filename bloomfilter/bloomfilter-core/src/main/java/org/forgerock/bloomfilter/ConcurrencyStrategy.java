@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.bloomfilter;
@@ -76,6 +77,25 @@ public enum ConcurrencyStrategy {
                 }
             };
         }
+    },
+
+    /**
+     * Uses the same atomic compare-and-set (CAS) approach as {@link #ATOMIC}, but lays out the bits as a
+     * <em>blocked</em> bloom filter, in which all bits for an element lie within a single cache-line sized block. This
+     * reduces the number of cache misses per lookup from one per hash function to one, which greatly improves read
+     * performance for large bloom filters that do not fit in the CPU cache. The trade-off is a slightly higher false
+     * positive probability for a given size, which is compensated for by using a little more memory (typically 5-15%).
+     */
+    BLOCKED {
+        @Override
+        <T> BloomFilterFactory<T> getFactory(final Funnel<? super T> funnel) {
+            return new BloomFilterFactory<T>() {
+                @Override
+                public BloomFilter<T> create(final long expectedInsertions, final double falsePositiveProbability) {
+                    return new BlockedBloomFilter<T>(funnel, expectedInsertions, falsePositiveProbability);
+                }
+            };
+        }
     }
     ;
 
@@ -12,16 +12,20 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.bloomfilter;
 
 import org.forgerock.util.Reject;
+import org.wrensecurity.guava.common.hash.Funnel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.concurrent.ThreadSafe;
+import java.nio.file.Path;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * A thread-safe implementation of a Bloom Filter that can expand over time to accommodate arbitrary numbers of
@@ -35,24 +39,38 @@ import java.util.Collection;
  * locking (at the cost of reducing read performance).
  */
 @ThreadSafe
-public final class ConcurrentRollingBloomFilter<T> implements BloomFilter<T> {
+public final class ConcurrentRollingBloomFilter<T>
+        implements HashedBloomFilter<T>, MergeableBloomFilter<T>, BucketedBloomFilter<T> {
     private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrentRollingBloomFilter.class);
 
     private final BloomFilterChain<T> bucketChain;
     private final BloomFilterPool<T> bucketPool;
     private final ConcurrencyStrategy concurrencyStrategy;
+    private final Funnel<? super T> funnel;
+    private final Path storageDirectory;
 
     ConcurrentRollingBloomFilter(final BloomFilters.RollingBloomFilterBuilder<T> builder) {
-        this.concurrencyStrategy = builder.concurrencyStrategy;
-
-        BloomFilterFactory<T> factory = concurrencyStrategy.<T>getFactory(builder.funnel);
-        if (builder.expiryStrategy != BloomFilters.NeverExpires.strategy()) {
-            factory = new ExpiringBloomFilterFactory<T>(factory, builder.expiryStrategy);
+        this.funnel = builder.funnel;
+        this.storageDirectory = builder.storageDirectory;
+
+        BloomFilterFactory<T> factory;
+        if (builder.storageDirectory != null) {
+            // Mapped buckets track their own expiry times and always use atomic compare-and-set operations
+            this.concurrencyStrategy = ConcurrencyStrategy.ATOMIC;
+            factory = new MappedBloomFilterFactory<T>(builder.funnel, builder.expiryStrategy,
+                    builder.storageDirectory);
+        } else {
+            this.concurrencyStrategy = builder.concurrencyStrategy;
+            factory = concurrencyStrategy.<T>getFactory(builder.funnel);
+            if (builder.expiryStrategy != BloomFilters.NeverExpires.strategy()) {
+                factory = new ExpiringBloomFilterFactory<T>(factory, builder.expiryStrategy);
+            }
         }
-        this.bucketPool = new GeometricSeriesBloomFilterPool<T>(factory, builder.maxNumberOfBuckets,
-                builder.initialCapacity, builder.capacityGrowthFactor,
+        final GeometricSeriesBloomFilterPool<T> pool = new GeometricSeriesBloomFilterPool<T>(factory,
+                builder.maxNumberOfBuckets, builder.initialCapacity, builder.capacityGrowthFactor,
                 builder.falsePositiveProbability, builder.falsePositiveProbabilityScaleFactor);
-        this.bucketChain = new BloomFilterChain<T>(bucketPool, builder.clock);
+        this.bucketPool = pool;
+        this.bucketChain = new BloomFilterChain<T>(pool, builder.clock, builder.funnel, pool.reattach());
     }
 
     private static final class ExpiringBloomFilterFactory<T> implements BloomFilterFactory<T> {
@@ -88,6 +106,11 @@ public final class ConcurrentRollingBloomFilter<T> implements BloomFilter<T> {
 
     @Override
     public boolean mightContain(final T element) {
+        return bucketChain.mightContain(new HashedElement<T>(element, funnel));
+    }
+
+    @Override
+    public boolean mightContain(final HashedElement<T> element) {
         return bucketChain.mightContain(element);
     }
 
@@ -96,11 +119,38 @@ public final class ConcurrentRollingBloomFilter<T> implements BloomFilter<T> {
         return bucketChain.getStatistics();
     }
 
+    @Override
+    public List<BloomFilterStatistics> getBucketStatistics() {
+        return bucketChain.getBucketStatistics();
+    }
+
+    @Override
+    public long getBucketsCreated() {
+        return bucketChain.getBucketsCreated();
+    }
+
+    @Override
+    public BloomFilterSnapshot snapshot() {
+        return bucketChain.snapshot();
+    }
+
+    @Override
+    public void merge(final BloomFilterSnapshot snapshot) {
+        Reject.ifNull(snapshot);
+        bucketChain.merge(snapshot);
+    }
+
+    @Override
+    public void merge(final MergeableBloomFilter<T> other) {
+        Reject.ifNull(other);
+        bucketChain.merge(other.snapshot());
+    }
 
     @Override
     public String toString() {
         return "ConcurrentRollingBloomFilter{" +
                 "concurrencyStrategy=" + concurrencyStrategy +
+                ", storageDirectory=" + storageDirectory +
                 ", bucketChain=" + bucketChain +
                 ", bucketPool=" + bucketPool +
                 '}';
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.bloomfilter;
@@ -30,7 +31,7 @@ import java.util.concurrent.atomic.AtomicReference;
  * additions to the set.
  */
 @ThreadSafe
-final class CopyOnWriteBloomFilter<T> implements BloomFilter<T> {
+final class CopyOnWriteBloomFilter<T> implements SaturationAwareBloomFilter<T> {
     private static final Logger LOGGER = LoggerFactory.getLogger(CopyOnWriteBloomFilter.class);
     private final long capacity;
     private final double falsePositiveProbability;
@@ -82,6 +83,11 @@ final class CopyOnWriteBloomFilter<T> implements BloomFilter<T> {
         return bloomFilterAtomicReference.get().mightContain(element);
     }
 
+    @Override
+    public boolean isSaturated() {
+        return bloomFilterAtomicReference.get().expectedFpp() >= falsePositiveProbability;
+    }
+
     @Override
     public BloomFilterStatistics getStatistics() {
         final double expectedFpp = bloomFilterAtomicReference.get().expectedFpp();
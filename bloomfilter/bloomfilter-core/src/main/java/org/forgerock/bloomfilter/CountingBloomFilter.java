@@ -0,0 +1,207 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.bloomfilter;
+
+import org.wrensecurity.guava.common.hash.Funnel;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counting bloom filter, which replaces each bit of an {@link AtomicBloomFilter} with a 4-bit counter so that
+ * elements can be removed again. Sixteen counters are packed into each word of an {@link AtomicLongArray} and updated
+ * with atomic compare-and-swap operations. The counters are sized and indexed exactly as the bits of an
+ * {@link AtomicBloomFilter} with the same capacity and false positive probability, so the false positive probability
+ * is the same at four times the memory.
+ * <p/>
+ * A counter that reaches its maximum value sticks there and is never decremented, as its true count is no longer
+ * known. With the optimal number of hash functions this is vanishingly unlikely, and at worst leaves a few bits set
+ * that should have been cleared.
+ */
+@ThreadSafe
+final class CountingBloomFilter<T>
+        implements DeletableBloomFilter<T>, HashedBloomFilter<T>, SaturationAwareBloomFilter<T> {
+    static final int BITS_PER_COUNTER = 4;
+    private static final int COUNTERS_PER_WORD = Long.SIZE / BITS_PER_COUNTER;
+    private static final long MAX_COUNT = (1L << BITS_PER_COUNTER) - 1L;
+
+    private final long capacity;
+    private final double falsePositiveProbability;
+    private final AtomicLongArray counters;
+    /** The number of non-zero counters, equivalent to the number of set bits in a standard bloom filter. */
+    private final SetBitCounter nonZeroCount;
+    private final Funnel<? super T> funnel;
+    private final int numHashFunctions;
+    private final long counterCount;
+
+    /**
+     * Constructs a counting bloom filter with the given parameters.
+     *
+     * @param funnel the funnel to use for serialising objects for hashing.
+     * @param capacity the desired capacity of the bloom filter.
+     * @param falsePositiveProbability the overall false positive probability to maintain.
+     */
+    CountingBloomFilter(final Funnel<? super T> funnel,
+                        final long capacity,
+                        final double falsePositiveProbability) {
+        this.funnel = funnel;
+        this.capacity = capacity;
+        this.falsePositiveProbability = falsePositiveProbability;
+
+        this.counterCount = BloomFilterStatistics.optimumBitSize(capacity, falsePositiveProbability);
+        this.counters = new AtomicLongArray((int) ((counterCount + COUNTERS_PER_WORD - 1) / COUNTERS_PER_WORD));
+        this.numHashFunctions = BloomFilterStatistics.optimalNumberOfHashFunctions(counterCount, capacity);
+        // The number of non-zero counters at which the expected false positive probability reaches the configured one
+        this.nonZeroCount = new SetBitCounter(
+                (long) Math.ceil(counterCount * Math.pow(falsePositiveProbability, 1.0d / numHashFunctions)));
+    }
+
+    @Override
+    public void add(final T element) {
+        // Implementation derived from Guava MURMUR128_MITZ_64 in BloomFilterStrategies
+        final HashedElement<T> hashed = new HashedElement<T>(element, funnel);
+        final long hash2 = hashed.getHash2();
+
+        long combinedHash = hashed.getHash1();
+
+        for (int i = 1; i <= numHashFunctions; ++i) {
+            increment((combinedHash & Long.MAX_VALUE) % counterCount);
+            combinedHash += hash2;
+        }
+    }
+
+    @Override
+    public void addAll(final Collection<? extends T> elements) {
+        for (T element : elements) {
+            add(element);
+        }
+    }
+
+    @Override
+    public boolean remove(final T element) {
+        final HashedElement<T> hashed = new HashedElement<T>(element, funnel);
+        if (!mightContain(hashed)) {
+            return false;
+        }
+
+        final long hash2 = hashed.getHash2();
+
+        long combinedHash = hashed.getHash1();
+
+        for (int i = 1; i <= numHashFunctions; ++i) {
+            decrement((combinedHash & Long.MAX_VALUE) % counterCount);
+            combinedHash += hash2;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean mightContain(final T element) {
+        return mightContain(new HashedElement<T>(element, funnel));
+    }
+
+    @Override
+    public boolean mightContain(final HashedElement<T> element) {
+        if (element.getFunnel() != funnel) {
+            return mightContain(new HashedElement<T>(element.getElement(), funnel));
+        }
+
+        // Implementation derived from Guava MURMUR128_MITZ_64 in BloomFilterStrategies
+        final long hash2 = element.getHash2();
+
+        long combinedHash = element.getHash1();
+
+        for (int i = 1; i <= numHashFunctions; ++i) {
+            if (count((combinedHash & Long.MAX_VALUE) % counterCount) == 0L) {
+                return false;
+            }
+            combinedHash += hash2;
+        }
+
+        return true;
+    }
+
+    private double expectedFpp(final long nonZero) {
+        return Math.pow((double) nonZero / (double) counterCount, this.numHashFunctions);
+    }
+
+    @Override
+    public boolean isSaturated() {
+        return nonZeroCount.isSaturated();
+    }
+
+    @Override
+    public BloomFilterStatistics getStatistics() {
+        final long nonZero = nonZeroCount.sum();
+        double expectedFpp = expectedFpp(nonZero);
+        // Estimate the current cardinality of the bloom filter
+        long cardinality = (long) -((counterCount * Math.log(1.0d - nonZero/(double)counterCount)) / numHashFunctions);
+
+        return new BloomFilterStatistics(falsePositiveProbability, expectedFpp, capacity,
+                counterCount * BITS_PER_COUNTER, Long.MAX_VALUE, capacity - cardinality);
+    }
+
+    /**
+     * Atomically increments the counter at the given index, unless it is already at its maximum value.
+     *
+     * @param index the index of the counter to increment.
+     */
+    void increment(final long index) {
+        final int word = (int) (index / COUNTERS_PER_WORD);
+        final int shift = (int) (index % COUNTERS_PER_WORD) * BITS_PER_COUNTER;
+        long prev, count;
+        do {
+            prev = counters.get(word);
+            count = (prev >>> shift) & MAX_COUNT;
+        } while (count != MAX_COUNT && !counters.compareAndSet(word, prev, prev + (1L << shift)));
+
+        if (count == 0L) {
+            nonZeroCount.increment(index);
+        }
+    }
+
+    /**
+     * Atomically decrements the counter at the given index, unless it is zero or has stuck at its maximum value.
+     *
+     * @param index the index of the counter to decrement.
+     */
+    void decrement(final long index) {
+        final int word = (int) (index / COUNTERS_PER_WORD);
+        final int shift = (int) (index % COUNTERS_PER_WORD) * BITS_PER_COUNTER;
+        long prev, count;
+        do {
+            prev = counters.get(word);
+            count = (prev >>> shift) & MAX_COUNT;
+        } while (count != 0L && count != MAX_COUNT && !counters.compareAndSet(word, prev, prev - (1L << shift)));
+
+        if (count == 1L) {
+            nonZeroCount.decrement(index);
+        }
+    }
+
+    /**
+     * Reads the counter at the given index.
+     *
+     * @param index the index of the counter to read.
+     * @return the current value of the counter.
+     */
+    long count(final long index) {
+        final int shift = (int) (index % COUNTERS_PER_WORD) * BITS_PER_COUNTER;
+        return (counters.get((int) (index / COUNTERS_PER_WORD)) >>> shift) & MAX_COUNT;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.bloomfilter;
+
+/**
+ * A bloom filter from which individual elements can be removed again, so that short-lived elements do not have to be
+ * kept until a whole bucket of a rolling bloom filter expires. Use
+ * {@link BloomFilters.BloomFilterBuilder#counting()} to build one.
+ * <p/>
+ * An element must only be removed if it is known to have been added (for instance, because the definitive set that
+ * the bloom filter summarises has just dropped it). Removing an element that was never added, or removing an element
+ * more times than it was added, can remove the bits of other elements and so introduce false negatives.
+ *
+ * @param <T> the type of elements contained in the bloom filter.
+ */
+public interface DeletableBloomFilter<T> extends BloomFilter<T> {
+
+    /**
+     * Removes one occurrence of the specified element from this set. After a call to this method, subsequent calls
+     * to {@link #mightContain(Object)} for the same element will return {@code false}, unless it has been added more
+     * than once or is a false positive.
+     *
+     * @param element the element to remove from this set.
+     * @return {@code false} if the element was definitely not in the set, and so nothing was removed, otherwise
+     * {@code true}.
+     */
+    boolean remove(T element);
+}
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.bloomfilter;
@@ -25,13 +26,16 @@ import java.util.Collection;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * A Bloom Filter decorator that can expire when the youngest element within it expires.
+ * A Bloom Filter decorator that can expire when the youngest element within it expires. If the delegate is a
+ * {@link MappedBloomFilter} then the latest expiry time is also recorded in its header, so that it survives a restart.
  */
 @ThreadSafe
-final class ExpiringBloomFilter<T> implements BloomFilter<T> {
+final class ExpiringBloomFilter<T>
+        implements HashedBloomFilter<T>, SaturationAwareBloomFilter<T>, MergeableBloomFilter<T> {
     private static final Logger LOGGER = LoggerFactory.getLogger(ExpiringBloomFilter.class);
     private final BloomFilter<T> delegate;
     private final ExpiryStrategy<T> expiryStrategy;
+    private final MappedBloomFilter<T> mappedDelegate;
 
     private final AtomicLong latestExpiryTime = new AtomicLong(Long.MIN_VALUE);
 
@@ -40,6 +44,10 @@ final class ExpiringBloomFilter<T> implements BloomFilter<T> {
         Reject.ifNull(delegate, expiryStrategy);
         this.delegate = delegate;
         this.expiryStrategy = expiryStrategy;
+        this.mappedDelegate = delegate instanceof MappedBloomFilter ? (MappedBloomFilter<T>) delegate : null;
+        if (mappedDelegate != null) {
+            latestExpiryTime.set(mappedDelegate.getExpiryTime());
+        }
     }
 
     @Override
@@ -59,6 +67,17 @@ final class ExpiringBloomFilter<T> implements BloomFilter<T> {
         return expiryStrategy.expiryTime(element) <= latestExpiryTime.get() && delegate.mightContain(element);
     }
 
+    @Override
+    public boolean mightContain(final HashedElement<T> element) {
+        return expiryStrategy.expiryTime(element.getElement()) <= latestExpiryTime.get()
+                && element.mightBeContainedIn(delegate);
+    }
+
+    @Override
+    public boolean isSaturated() {
+        return BloomFilterStatistics.isSaturated(delegate);
+    }
+
     @Override
     public BloomFilterStatistics getStatistics() {
         final BloomFilterStatistics stats = delegate.getStatistics();
@@ -70,6 +89,32 @@ final class ExpiringBloomFilter<T> implements BloomFilter<T> {
                 stats.getEstimatedRemainingCapacity());
     }
 
+    @Override
+    public BloomFilterSnapshot snapshot() {
+        final BloomFilterSnapshot.Bucket bucket = mergeableDelegate().snapshot().onlyBucket();
+        return BloomFilterSnapshot.of(bucket.withExpiryTime(latestExpiryTime.get()));
+    }
+
+    @Override
+    public void merge(final BloomFilterSnapshot snapshot) {
+        final MergeableBloomFilter<T> mergeable = mergeableDelegate();
+        // Extend the expiry time first, so that merged elements are never reported as expired
+        updateExpiryTime(snapshot.onlyBucket().getExpiryTime());
+        mergeable.merge(snapshot);
+    }
+
+    @Override
+    public void merge(final MergeableBloomFilter<T> other) {
+        merge(other.snapshot());
+    }
+
+    private MergeableBloomFilter<T> mergeableDelegate() {
+        if (!(delegate instanceof MergeableBloomFilter)) {
+            throw new UnsupportedOperationException("Bloom filter does not support snapshots: " + delegate);
+        }
+        return (MergeableBloomFilter<T>) delegate;
+    }
+
     /**
      * Atomic update of the latest expiry time.
      * @param newExpiryTime the candidate new latest expiry time.
@@ -84,6 +129,10 @@ final class ExpiringBloomFilter<T> implements BloomFilter<T> {
             changed = newExpiryTime > oldExpiryTime;
         } while (changed && !latestExpiryTime.compareAndSet(oldExpiryTime, newExpiryTime));
 
+        if (changed && mappedDelegate != null) {
+            mappedDelegate.updateExpiryTime(newExpiryTime);
+        }
+
         LOGGER.debug("Updated expiry timestamp after {} attempts: new={}, old={}, changed?={}", attempts, newExpiryTime,
                 oldExpiryTime, changed);
     }
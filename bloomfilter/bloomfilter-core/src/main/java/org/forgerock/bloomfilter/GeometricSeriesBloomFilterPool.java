@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.bloomfilter;
@@ -24,8 +25,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.TreeSet;
@@ -55,10 +58,15 @@ import java.util.TreeSet;
  * href="http://www.sciencedirect.com/science/article/pii/S0020019006003127">Scalable Bloom Filters</a> by Almeida et
  * al., <em>Information Processing Letters</em>, 101(6), p.255&ndash;261, 2007. We add the ability to remove buckets
  * from the chain and later reuse them, resulting in what we call <em>Rolling Bloom Filters</em>.
+ * <p/>
+ * If the factory is a {@link PersistentBloomFilterFactory}, then buckets persisted by a previous process can be
+ * re-attached with {@link #reattach()}, and released buckets are destroyed.
  */
 @ThreadSafe
 final class GeometricSeriesBloomFilterPool<T> implements BloomFilterPool<T> {
     private static final Logger LOGGER = LoggerFactory.getLogger(GeometricSeriesBloomFilterPool.class);
+    /** Relative tolerance when matching persisted false positive probabilities, which may differ in the last bits. */
+    private static final double FPP_TOLERANCE = 1.0e-9d;
     private final BloomFilterFactory<T> factory;
     private final BitSet bucketNumbers;
     private final int maxBuckets;
@@ -131,9 +139,31 @@ final class GeometricSeriesBloomFilterPool<T> implements BloomFilterPool<T> {
             bucketNumbers.set(bucketNumber);
         }
 
-        final long capacity = (long) (initialCapacity * pow(capacityGrowthFactor, bucketNumber));
-        final double fpp =
-                initialFalsePositiveProbability * pow(falsePositiveProbabilityScaleFactor, bucketNumber);
+        return create(bucketNumber);
+    }
+
+    @Override
+    public BloomFilter<T> take(final int bucketNumber) {
+        synchronized (bucketNumbers) {
+            if (bucketNumber < 0 || bucketNumber >= maxBuckets || bucketNumbers.get(bucketNumber)) {
+                throw new NoSuchElementException("Bucket number not available: " + bucketNumber);
+            }
+            bucketNumbers.set(bucketNumber);
+        }
+
+        return create(bucketNumber);
+    }
+
+    @Override
+    public int getBucketNumber(final BloomFilter<T> bloomFilter) {
+        final Integer bucketNumber = takenBucketNumbers.get(bloomFilter);
+        Reject.ifTrue(bucketNumber == null, "Bloom filter was not taken from this pool");
+        return bucketNumber;
+    }
+
+    private BloomFilter<T> create(final int bucketNumber) {
+        final long capacity = capacity(bucketNumber);
+        final double fpp = falsePositiveProbability(bucketNumber);
 
         LOGGER.debug("Creating BloomFilter number {} with capacity={}, fpp={}", bucketNumber, capacity, fpp);
 
@@ -150,13 +180,72 @@ final class GeometricSeriesBloomFilterPool<T> implements BloomFilterPool<T> {
      */
     @Override
     public void release(BloomFilter<T> released) {
-        final int bucketNumber = takenBucketNumbers.get(released);
+        final int bucketNumber = takenBucketNumbers.remove(released);
         LOGGER.debug("Releasing bucket number {}", bucketNumber);
+        if (factory instanceof PersistentBloomFilterFactory) {
+            ((PersistentBloomFilterFactory<T>) factory).destroy(released);
+        }
         synchronized (bucketNumbers) {
             bucketNumbers.clear(bucketNumber);
         }
     }
 
+    /**
+     * Re-attaches the buckets persisted by a previous process, if the factory supports persistence. Each bucket is
+     * matched to the element of the geometric series with the same capacity and false positive probability, and that
+     * element is marked as taken. Buckets that do not belong to the series (e.g., because the configuration has
+     * changed since they were created) are destroyed. This should be called before any buckets are taken from the
+     * pool.
+     *
+     * @return the re-attached buckets, oldest first, or an empty list if the factory does not support persistence.
+     */
+    List<BloomFilter<T>> reattach() {
+        final List<BloomFilter<T>> reattached = new ArrayList<BloomFilter<T>>();
+        if (!(factory instanceof PersistentBloomFilterFactory)) {
+            return reattached;
+        }
+        final PersistentBloomFilterFactory<T> persistentFactory = (PersistentBloomFilterFactory<T>) factory;
+        for (BloomFilter<T> bucket : persistentFactory.reattach()) {
+            final int bucketNumber = bucketNumberOf(bucket.getStatistics());
+            synchronized (bucketNumbers) {
+                if (bucketNumber < 0 || bucketNumbers.get(bucketNumber)) {
+                    LOGGER.warn("Discarding persisted bucket that does not match pool configuration: {}", bucket);
+                    persistentFactory.destroy(bucket);
+                    continue;
+                }
+                bucketNumbers.set(bucketNumber);
+            }
+            LOGGER.debug("Re-attached BloomFilter number {}", bucketNumber);
+            takenBucketNumbers.put(bucket, bucketNumber);
+            reattached.add(bucket);
+        }
+        return reattached;
+    }
+
+    /**
+     * Finds the element of the geometric series with the capacity and false positive probability of the given
+     * statistics, or returns -1 if there is none.
+     */
+    private int bucketNumberOf(final BloomFilterStatistics stats) {
+        final double fpp = stats.getConfiguredFalsePositiveProbability();
+        // The false positive probability strictly decreases along the series, so we can stop once we have passed it
+        for (int i = 0; i < maxBuckets && falsePositiveProbability(i) >= fpp * (1.0d - FPP_TOLERANCE); ++i) {
+            if (capacity(i) == stats.getCapacity()
+                    && Math.abs(falsePositiveProbability(i) - fpp) <= fpp * FPP_TOLERANCE) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private long capacity(final int bucketNumber) {
+        return (long) (initialCapacity * pow(capacityGrowthFactor, bucketNumber));
+    }
+
+    private double falsePositiveProbability(final int bucketNumber) {
+        return initialFalsePositiveProbability * pow(falsePositiveProbabilityScaleFactor, bucketNumber);
+    }
+
     @Override
     public double getOverallFalsePositiveProbability() {
         return initialFalsePositiveProbability / (1.0d - falsePositiveProbabilityScaleFactor);
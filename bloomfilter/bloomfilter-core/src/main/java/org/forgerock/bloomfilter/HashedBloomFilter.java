@@ -0,0 +1,36 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.bloomfilter;
+
+/**
+ * A bloom filter that can be probed with an element whose hash has already been computed. Composite filters (chains,
+ * expiring and batching decorators) implement this interface to pass a single {@link HashedElement} down to each of
+ * their buckets, so that a lookup costs one hash calculation regardless of the length of the chain.
+ *
+ * @param <T> the type of elements contained in the bloom filter.
+ */
+interface HashedBloomFilter<T> extends BloomFilter<T> {
+
+    /**
+     * Checks if the given pre-hashed element <em>might</em> be a member of this set.
+     *
+     * @param element the hashed element to check for membership in this set.
+     * @return {@code false} if the element is definitely not in the set, or {@code true} if it might be.
+     * @see #mightContain(Object)
+     */
+    boolean mightContain(HashedElement<T> element);
+}
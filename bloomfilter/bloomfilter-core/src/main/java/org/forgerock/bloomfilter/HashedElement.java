@@ -0,0 +1,116 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.bloomfilter;
+
+import org.forgerock.util.Reject;
+import org.wrensecurity.guava.common.hash.Funnel;
+import org.wrensecurity.guava.common.hash.Hashing;
+import org.wrensecurity.guava.common.primitives.Longs;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * An element together with its lazily computed 128-bit murmur hash. Passing a hashed element down a chain of bloom
+ * filters ensures that the element is hashed at most once, no matter how many buckets are probed. Buckets that hash
+ * elements internally (such as those backed by Guava bloom filters) simply use the raw element instead.
+ * <p/>
+ * Instances are intended to be created per-operation and confined to a single thread.
+ *
+ * @param <T> the type of the element.
+ * @see HashedBloomFilter
+ */
+@NotThreadSafe
+final class HashedElement<T> {
+    private final T element;
+    private final Funnel<? super T> funnel;
+    private boolean hashed;
+    private long hash1;
+    private long hash2;
+
+    /**
+     * Constructs a hashed element. The hash itself is not computed until first requested.
+     *
+     * @param element the element to hash.
+     * @param funnel the funnel to use for serialising the element for hashing.
+     */
+    HashedElement(final T element, final Funnel<? super T> funnel) {
+        Reject.ifNull(funnel);
+        this.element = element;
+        this.funnel = funnel;
+    }
+
+    /**
+     * The raw element.
+     */
+    T getElement() {
+        return element;
+    }
+
+    /**
+     * The funnel used to compute the hash. Bloom filters must only use the pre-computed hash if they were configured
+     * with the same funnel.
+     */
+    Funnel<? super T> getFunnel() {
+        return funnel;
+    }
+
+    /**
+     * The lower 64 bits of the murmur3 128-bit hash of the element.
+     */
+    long getHash1() {
+        ensureHashed();
+        return hash1;
+    }
+
+    /**
+     * The upper 64 bits of the murmur3 128-bit hash of the element.
+     */
+    long getHash2() {
+        ensureHashed();
+        return hash2;
+    }
+
+    /**
+     * Checks whether the given bloom filter might contain this element, using the pre-computed hash if the filter
+     * supports it.
+     *
+     * @param filter the bloom filter to check.
+     * @return the result of {@link BloomFilter#mightContain(Object)} for this element.
+     */
+    boolean mightBeContainedIn(final BloomFilter<T> filter) {
+        if (filter instanceof HashedBloomFilter) {
+            return ((HashedBloomFilter<T>) filter).mightContain(this);
+        }
+        return filter.mightContain(element);
+    }
+
+    private void ensureHashed() {
+        if (!hashed) {
+            // Implementation derived from Guava MURMUR128_MITZ_64 in BloomFilterStrategies
+            final byte[] bytes = Hashing.murmur3_128().hashObject(element, funnel).asBytes();
+            hash1 = Longs.fromBytes(bytes[7], bytes[6], bytes[5], bytes[4], bytes[3], bytes[2], bytes[1], bytes[0]);
+            hash2 = Longs.fromBytes(bytes[15], bytes[14], bytes[13], bytes[12], bytes[11], bytes[10], bytes[9],
+                    bytes[8]);
+            hashed = true;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "HashedElement{element=" + element + '}';
+    }
+}
@@ -0,0 +1,362 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.bloomfilter;
+
+import org.forgerock.util.Reject;
+import org.wrensecurity.guava.common.hash.Funnel;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Collection;
+
+/**
+ * A bloom filter whose bits are stored off-heap in a direct or memory-mapped {@link ByteBuffer}, rather than in an
+ * {@link java.util.concurrent.atomic.AtomicLongArray}. The bit-vector is accessed with the same compare-and-swap
+ * algorithm as {@link AtomicBloomFilter}, via a {@link VarHandle} view of the buffer.
+ * <p/>
+ * The buffer starts with a fixed-size header recording the parameters of the filter, the latest expiry time of any
+ * element added to it and a sequence number giving the order in which buckets were created. When the buffer is
+ * mapped from a file, the filter can therefore be re-attached by a later process with
+ * {@link #attach(Funnel, ByteBuffer)}. The funnel is not recorded, so it is up to the caller to re-attach with the
+ * same funnel that was used to populate the filter.
+ * <p/>
+ * Header layout (little-endian):
+ * <pre>
+ *     0  long   magic number
+ *     8  int    format version
+ *     12 int    number of hash functions
+ *     16 long   capacity
+ *     24 double configured false positive probability
+ *     32 long   size of the bit-vector in bits
+ *     40 long   latest expiry time (milliseconds since the epoch)
+ *     48 long   sequence number
+ *     56 long   reserved
+ *     64        bit-vector
+ * </pre>
+ */
+@ThreadSafe
+final class MappedBloomFilter<T>
+        implements HashedBloomFilter<T>, SaturationAwareBloomFilter<T>, MergeableBloomFilter<T> {
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class,
+            ByteOrder.LITTLE_ENDIAN);
+
+    private static final long MAGIC = 0x5752454E42464D31L; // "WRENBFM1"
+    private static final int VERSION = 1;
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 8;
+    private static final int NUM_HASH_FUNCTIONS_OFFSET = 12;
+    private static final int CAPACITY_OFFSET = 16;
+    private static final int FPP_OFFSET = 24;
+    private static final int BIT_SIZE_OFFSET = 32;
+    private static final int EXPIRY_TIME_OFFSET = 40;
+    private static final int SEQUENCE_OFFSET = 48;
+    /** Size of the header in bytes. The bit-vector starts immediately afterwards. */
+    static final int HEADER_SIZE = 64;
+
+    private final ByteBuffer buffer;
+    private final Funnel<? super T> funnel;
+    private final long capacity;
+    private final double falsePositiveProbability;
+    private final int numHashFunctions;
+    private final long bitSize;
+    private final long sequence;
+    private final SetBitCounter bitCount;
+
+    private MappedBloomFilter(final Funnel<? super T> funnel, final ByteBuffer buffer) {
+        this.funnel = funnel;
+        this.buffer = buffer;
+        this.capacity = buffer.getLong(CAPACITY_OFFSET);
+        this.falsePositiveProbability = buffer.getDouble(FPP_OFFSET);
+        this.numHashFunctions = buffer.getInt(NUM_HASH_FUNCTIONS_OFFSET);
+        this.bitSize = buffer.getLong(BIT_SIZE_OFFSET);
+        this.sequence = buffer.getLong(SEQUENCE_OFFSET);
+        // The number of set bits at which the expected false positive probability reaches the configured one
+        this.bitCount = new SetBitCounter(
+                (long) Math.ceil(bitSize * Math.pow(falsePositiveProbability, 1.0d / numHashFunctions)));
+    }
+
+    /**
+     * Initialises a new, empty bloom filter in the given buffer, which must be at least
+     * {@link #bufferSize(long, double)} bytes long and aligned to an 8-byte boundary. Any existing contents of the
+     * buffer are overwritten.
+     *
+     * @param funnel the funnel to use for serialising objects for hashing.
+     * @param buffer the direct or memory-mapped buffer in which to store the bloom filter.
+     * @param capacity the desired capacity of the bloom filter.
+     * @param falsePositiveProbability the overall false positive probability to maintain.
+     * @param sequence the sequence number to record in the header.
+     * @param <T> the type of elements contained in the bloom filter.
+     * @return the new bloom filter.
+     */
+    static <T> MappedBloomFilter<T> create(final Funnel<? super T> funnel, final ByteBuffer buffer,
+                                           final long capacity, final double falsePositiveProbability,
+                                           final long sequence) {
+        Reject.ifNull(funnel, buffer);
+        final long bitSize = BloomFilterStatistics.optimumBitSize(capacity, falsePositiveProbability);
+        Reject.ifFalse(buffer.capacity() >= bufferSize(bitSize), "Buffer is too small for the bloom filter");
+        Reject.ifFalse(buffer.alignmentOffset(0, Long.BYTES) == 0, "Buffer must be aligned to 8 bytes");
+
+        final ByteBuffer bytes = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < bufferSize(bitSize); i += Long.BYTES) {
+            bytes.putLong(i, 0L);
+        }
+        bytes.putInt(VERSION_OFFSET, VERSION);
+        bytes.putInt(NUM_HASH_FUNCTIONS_OFFSET, BloomFilterStatistics.optimalNumberOfHashFunctions(bitSize, capacity));
+        bytes.putLong(CAPACITY_OFFSET, capacity);
+        bytes.putDouble(FPP_OFFSET, falsePositiveProbability);
+        bytes.putLong(BIT_SIZE_OFFSET, bitSize);
+        bytes.putLong(EXPIRY_TIME_OFFSET, Long.MIN_VALUE);
+        bytes.putLong(SEQUENCE_OFFSET, sequence);
+        // Write the magic number last so that a partially initialised buffer is never re-attached
+        LONGS.setVolatile(bytes, MAGIC_OFFSET, MAGIC);
+
+        return new MappedBloomFilter<T>(funnel, bytes);
+    }
+
+    /**
+     * Re-attaches to a bloom filter previously initialised in the given buffer by
+     * {@link #create(Funnel, ByteBuffer, long, double, long)}, typically by a previous process.
+     *
+     * @param funnel the funnel that was used to populate the bloom filter.
+     * @param buffer the direct or memory-mapped buffer containing the bloom filter.
+     * @param <T> the type of elements contained in the bloom filter.
+     * @return the re-attached bloom filter.
+     * @throws IllegalArgumentException if the buffer does not contain a valid bloom filter.
+     */
+    static <T> MappedBloomFilter<T> attach(final Funnel<? super T> funnel, final ByteBuffer buffer) {
+        Reject.ifNull(funnel, buffer);
+        Reject.ifFalse(buffer.capacity() >= HEADER_SIZE, "Buffer is too small to contain a bloom filter");
+        Reject.ifFalse(buffer.alignmentOffset(0, Long.BYTES) == 0, "Buffer must be aligned to 8 bytes");
+
+        final ByteBuffer bytes = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        Reject.ifFalse((long) LONGS.getVolatile(bytes, MAGIC_OFFSET) == MAGIC, "Not a bloom filter");
+        Reject.ifFalse(bytes.getInt(VERSION_OFFSET) == VERSION, "Unsupported bloom filter format version");
+        final long bitSize = bytes.getLong(BIT_SIZE_OFFSET);
+        Reject.ifFalse(bitSize > 0 && bytes.capacity() >= bufferSize(bitSize), "Truncated bloom filter");
+
+        final MappedBloomFilter<T> bloomFilter = new MappedBloomFilter<T>(funnel, bytes);
+        bloomFilter.bitCount.add(bloomFilter.countSetBits());
+        bloomFilter.bitCount.refresh();
+        return bloomFilter;
+    }
+
+    /**
+     * Calculates the size of the buffer required to hold a bloom filter with the given parameters.
+     *
+     * @param capacity the desired capacity of the bloom filter.
+     * @param falsePositiveProbability the overall false positive probability to maintain.
+     * @return the required buffer size in bytes.
+     * @throws IllegalArgumentException if the bloom filter would be too large for a single buffer.
+     */
+    static int bufferSize(final long capacity, final double falsePositiveProbability) {
+        return bufferSize(BloomFilterStatistics.optimumBitSize(capacity, falsePositiveProbability));
+    }
+
+    private static int bufferSize(final long bitSize) {
+        final long size = HEADER_SIZE + ((bitSize + Long.SIZE - 1) / Long.SIZE) * Long.BYTES;
+        Reject.ifFalse(size <= Integer.MAX_VALUE, "Bloom filter is too large to be stored in a single buffer");
+        return (int) size;
+    }
+
+    @Override
+    public void add(final T element) {
+        // Implementation derived from Guava MURMUR128_MITZ_64 in BloomFilterStrategies
+        final HashedElement<T> hashed = new HashedElement<T>(element, funnel);
+        final long hash2 = hashed.getHash2();
+
+        long combinedHash = hashed.getHash1();
+
+        for (int i = 1; i <= numHashFunctions; ++i) {
+            set((combinedHash & Long.MAX_VALUE) % bitSize);
+            combinedHash += hash2;
+        }
+    }
+
+    @Override
+    public void addAll(final Collection<? extends T> elements) {
+        for (T element : elements) {
+            add(element);
+        }
+    }
+
+    @Override
+    public boolean mightContain(final T element) {
+        return mightContain(new HashedElement<T>(element, funnel));
+    }
+
+    @Override
+    public boolean mightContain(final HashedElement<T> element) {
+        if (element.getFunnel() != funnel) {
+            return mightContain(new HashedElement<T>(element.getElement(), funnel));
+        }
+
+        final long hash2 = element.getHash2();
+
+        long combinedHash = element.getHash1();
+
+        for (int i = 1; i <= numHashFunctions; ++i) {
+            if (!get((combinedHash & Long.MAX_VALUE) % bitSize)) {
+                return false;
+            }
+            combinedHash += hash2;
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean isSaturated() {
+        return bitCount.isSaturated();
+    }
+
+    @Override
+    public BloomFilterStatistics getStatistics() {
+        final long setBits = bitCount.sum();
+        final double expectedFpp = Math.pow((double) setBits / (double) bitSize, numHashFunctions);
+        final long cardinality = (long) -((bitSize * Math.log(1.0d - setBits / (double) bitSize)) / numHashFunctions);
+
+        return new BloomFilterStatistics(falsePositiveProbability, expectedFpp, capacity, bitSize, Long.MAX_VALUE,
+                capacity - cardinality);
+    }
+
+    /**
+     * Takes a snapshot using the same layout as {@link AtomicBloomFilter}, so that snapshots can be exchanged between
+     * mapped and heap-based bloom filters with the same parameters.
+     */
+    @Override
+    public BloomFilterSnapshot snapshot() {
+        final long[] words = new long[wordCount()];
+        for (int i = 0; i < words.length; ++i) {
+            words[i] = (long) LONGS.getVolatile(buffer, HEADER_SIZE + i * Long.BYTES);
+        }
+        return BloomFilterSnapshot.of(new BloomFilterSnapshot.Bucket(0, BloomFilterSnapshot.STANDARD_LAYOUT,
+                capacity, falsePositiveProbability, bitSize, numHashFunctions, Long.MAX_VALUE, words));
+    }
+
+    @Override
+    public void merge(final BloomFilterSnapshot snapshot) {
+        final long[] words = snapshot.onlyBucket().wordsFor(BloomFilterSnapshot.STANDARD_LAYOUT, bitSize,
+                numHashFunctions, wordCount());
+        for (int i = 0; i < words.length; ++i) {
+            if (words[i] != 0L) {
+                or(HEADER_SIZE + i * Long.BYTES, words[i]);
+            }
+        }
+        bitCount.refresh();
+    }
+
+    @Override
+    public void merge(final MergeableBloomFilter<T> other) {
+        merge(other.snapshot());
+    }
+
+    /**
+     * Returns the latest expiry time recorded in the header, or {@link Long#MIN_VALUE} if none has been recorded.
+     */
+    long getExpiryTime() {
+        return (long) LONGS.getVolatile(buffer, EXPIRY_TIME_OFFSET);
+    }
+
+    /**
+     * Atomically records the given expiry time in the header if it is later than the one currently recorded, so that
+     * it survives a restart.
+     *
+     * @param expiryTime the candidate new latest expiry time.
+     */
+    void updateExpiryTime(final long expiryTime) {
+        long prev;
+        do {
+            prev = getExpiryTime();
+        } while (expiryTime > prev && !LONGS.compareAndSet(buffer, EXPIRY_TIME_OFFSET, prev, expiryTime));
+    }
+
+    /**
+     * Returns the sequence number recorded in the header when this bloom filter was created.
+     */
+    long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Atomically sets the bit at the given index.
+     *
+     * @param index the index of the bit to set.
+     * @return true if the bits changed as a result of setting this index.
+     */
+    private boolean set(final long index) {
+        boolean changed;
+        long prev, next;
+        final int offset = wordOffset(index);
+        do {
+            prev = (long) LONGS.getVolatile(buffer, offset);
+            next = prev | 1L << (int) index;
+            changed = (prev != next);
+        } while (changed && !LONGS.compareAndSet(buffer, offset, prev, next));
+
+        if (changed) {
+            bitCount.increment(index);
+        }
+
+        return changed;
+    }
+
+    /**
+     * Atomically sets the given bits in the word at the given byte offset.
+     *
+     * @param offset the offset of the word to update.
+     * @param mask the bits to set.
+     */
+    private void or(final int offset, final long mask) {
+        long prev, next;
+        do {
+            prev = (long) LONGS.getVolatile(buffer, offset);
+            next = prev | mask;
+        } while (prev != next && !LONGS.compareAndSet(buffer, offset, prev, next));
+
+        bitCount.add(Long.bitCount(next) - Long.bitCount(prev));
+    }
+
+    private boolean get(final long index) {
+        return ((long) LONGS.getVolatile(buffer, wordOffset(index)) & 1L << (int) index) != 0L;
+    }
+
+    private static int wordOffset(final long index) {
+        return HEADER_SIZE + (int) (index >>> 6) * Long.BYTES;
+    }
+
+    private int wordCount() {
+        return (bufferSize(bitSize) - HEADER_SIZE) / Long.BYTES;
+    }
+
+    private long countSetBits() {
+        long count = 0L;
+        final int end = bufferSize(bitSize);
+        for (int offset = HEADER_SIZE; offset < end; offset += Long.BYTES) {
+            count += Long.bitCount((long) LONGS.getVolatile(buffer, offset));
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "MappedBloomFilter" + getStatistics();
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.bloomfilter;
+
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Collections.synchronizedMap;
+
+import org.forgerock.util.Reject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wrensecurity.guava.common.hash.Funnel;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Creates {@link MappedBloomFilter}s backed by memory-mapped files in a storage directory, one file per bucket. The
+ * bit-vectors therefore live outside of the Java heap, and the buckets (together with their expiry times) can be
+ * re-attached after a restart.
+ * <p/>
+ * Mapped files are not explicitly unmapped when a bucket is destroyed: the file is deleted and the mapping is
+ * released when the buffer is garbage collected.
+ *
+ * @param <T> the type of elements to be contained in the bloom filter.
+ */
+@ThreadSafe
+final class MappedBloomFilterFactory<T> implements PersistentBloomFilterFactory<T> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedBloomFilterFactory.class);
+    private static final String FILE_PREFIX = "bucket-";
+    private static final String FILE_SUFFIX = ".bloom";
+
+    private final Funnel<? super T> funnel;
+    private final ExpiryStrategy<T> expiryStrategy;
+    private final Path directory;
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final Map<BloomFilter<T>, Path> files = synchronizedMap(new IdentityHashMap<BloomFilter<T>, Path>());
+
+    /**
+     * Constructs the factory.
+     *
+     * @param funnel the funnel to use for serialising objects for hashing.
+     * @param expiryStrategy the strategy for determining element expiry time, or
+     * {@link BloomFilters.NeverExpires} if elements never expire.
+     * @param directory the directory in which to store the bucket files. It is created if it does not exist.
+     */
+    MappedBloomFilterFactory(final Funnel<? super T> funnel, final ExpiryStrategy<T> expiryStrategy,
+                             final Path directory) {
+        Reject.ifNull(funnel, expiryStrategy, directory);
+        this.funnel = funnel;
+        this.expiryStrategy = expiryStrategy;
+        this.directory = directory;
+    }
+
+    @Override
+    public BloomFilter<T> create(final long expectedInsertions, final double falsePositiveProbability) {
+        final long sequence = nextSequence.getAndIncrement();
+        final Path file = directory.resolve(FILE_PREFIX + sequence + FILE_SUFFIX);
+        final int size = MappedBloomFilter.bufferSize(expectedInsertions, falsePositiveProbability);
+        LOGGER.debug("Creating bucket file {} of {} bytes", file, size);
+        try {
+            Files.createDirectories(directory);
+            final MappedByteBuffer buffer = map(file, size, true);
+            return register(MappedBloomFilter.<T>create(funnel, buffer, expectedInsertions, falsePositiveProbability,
+                    sequence), file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create bloom filter file " + file, e);
+        }
+    }
+
+    /**
+     * Re-attaches all bucket files in the storage directory. Files that cannot be read or do not contain a valid
+     * bloom filter are logged and deleted.
+     */
+    @Override
+    public List<BloomFilter<T>> reattach() {
+        final List<MappedBloomFilter<T>> attached = new ArrayList<MappedBloomFilter<T>>();
+        final Map<MappedBloomFilter<T>, Path> attachedFiles = new IdentityHashMap<MappedBloomFilter<T>, Path>();
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+                for (Path file : stream) {
+                    try {
+                        final MappedByteBuffer buffer = map(file, Files.size(file), false);
+                        final MappedBloomFilter<T> bucket = MappedBloomFilter.attach(funnel, buffer);
+                        attached.add(bucket);
+                        attachedFiles.put(bucket, file);
+                    } catch (IOException | IllegalArgumentException e) {
+                        LOGGER.warn("Discarding unreadable bloom filter file {}", file, e);
+                        delete(file);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to list bloom filter files in " + directory, e);
+            }
+        }
+
+        attached.sort(Comparator.comparingLong(MappedBloomFilter::getSequence));
+        final List<BloomFilter<T>> result = new ArrayList<BloomFilter<T>>(attached.size());
+        for (MappedBloomFilter<T> bucket : attached) {
+            nextSequence.accumulateAndGet(bucket.getSequence() + 1, Math::max);
+            result.add(register(bucket, attachedFiles.get(bucket)));
+        }
+        LOGGER.debug("Re-attached {} bucket files from {}", result.size(), directory);
+        return result;
+    }
+
+    @Override
+    public void destroy(final BloomFilter<T> bloomFilter) {
+        final Path file = files.remove(bloomFilter);
+        if (file != null) {
+            LOGGER.debug("Deleting bucket file {}", file);
+            delete(file);
+        }
+    }
+
+    private BloomFilter<T> register(final MappedBloomFilter<T> bucket, final Path file) {
+        BloomFilter<T> result = bucket;
+        if (expiryStrategy != BloomFilters.NeverExpires.<T>strategy()) {
+            result = new ExpiringBloomFilter<T>(bucket, expiryStrategy);
+        }
+        files.put(result, file);
+        return result;
+    }
+
+    private static MappedByteBuffer map(final Path file, final long size, final boolean create) throws IOException {
+        // The mapping remains valid after the channel is closed
+        try (FileChannel channel = create
+                ? FileChannel.open(file, CREATE_NEW, READ, WRITE)
+                : FileChannel.open(file, READ, WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private static void delete(final Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to delete bloom filter file {}", file, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MappedBloomFilterFactory{directory=" + directory + '}';
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.bloomfilter;
+
+/**
+ * A bloom filter whose contents can be copied into a {@link BloomFilterSnapshot} and merged with those of another,
+ * compatible, bloom filter. This allows several nodes to replicate the contents of a bloom filter between each other
+ * without replaying every element: each node periodically ships a snapshot (or a
+ * {@link BloomFilterSnapshot#deltaSince(BloomFilterSnapshot) delta}) to its peers, which merge it into their own
+ * bloom filter.
+ * <p/>
+ * Two bloom filters are compatible if they were built with the same funnel and sizing parameters, and with either the
+ * {@link ConcurrencyStrategy#ATOMIC ATOMIC} strategy (or a storage directory) on both sides, or the
+ * {@link ConcurrencyStrategy#BLOCKED BLOCKED} strategy on both sides. Bloom filters built with other concurrency
+ * strategies do not support snapshots.
+ *
+ * @param <T> the type of elements contained in the bloom filter.
+ */
+public interface MergeableBloomFilter<T> extends BloomFilter<T> {
+
+    /**
+     * Takes a snapshot of the current contents of this bloom filter. Elements added concurrently with the snapshot
+     * may or may not be included.
+     *
+     * @return a snapshot of the bit-vectors and parameters of this bloom filter.
+     * @throws UnsupportedOperationException if this bloom filter was built with a concurrency strategy that does not
+     * support snapshots.
+     */
+    BloomFilterSnapshot snapshot();
+
+    /**
+     * Merges the given snapshot into this bloom filter, such that {@link #mightContain(Object)} subsequently returns
+     * {@code true} for every element contained in the bloom filter from which the snapshot was taken. This is a
+     * bitwise-OR of the bit-vectors of corresponding buckets, so merging the same snapshot more than once has no
+     * further effect. The expiry time of each bucket is extended to that of the corresponding bucket in the snapshot,
+     * if later.
+     * <p/>
+     * Note that merging increases the number of bits set in each bucket, and hence its false positive probability.
+     *
+     * @param snapshot the snapshot to merge into this bloom filter.
+     * @throws IllegalArgumentException if the snapshot is not compatible with this bloom filter.
+     * @throws UnsupportedOperationException if this bloom filter was built with a concurrency strategy that does not
+     * support snapshots.
+     */
+    void merge(BloomFilterSnapshot snapshot);
+
+    /**
+     * Merges the contents of another, compatible, bloom filter into this one. Equivalent to
+     * {@code merge(other.snapshot())}.
+     *
+     * @param other the bloom filter to merge into this bloom filter.
+     * @throws IllegalArgumentException if the other bloom filter is not compatible with this bloom filter.
+     * @throws UnsupportedOperationException if either bloom filter was built with a concurrency strategy that does
+     * not support snapshots.
+     */
+    void merge(MergeableBloomFilter<T> other);
+}
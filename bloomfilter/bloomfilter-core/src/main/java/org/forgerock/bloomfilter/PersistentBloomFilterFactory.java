@@ -0,0 +1,44 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.bloomfilter;
+
+import java.util.List;
+
+/**
+ * A {@link BloomFilterFactory} whose bloom filters outlive the process that created them, allowing a
+ * {@link GeometricSeriesBloomFilterPool} to re-attach the buckets of a rolling bloom filter at startup rather than
+ * rebuilding them from scratch.
+ *
+ * @param <T> the type of elements to be contained in the bloom filter.
+ */
+interface PersistentBloomFilterFactory<T> extends BloomFilterFactory<T> {
+    /**
+     * Re-attaches all bloom filters persisted by a previous process. This should be called at most once, before any
+     * new bloom filters are created.
+     *
+     * @return the persisted bloom filters, in the order in which they were created (oldest first).
+     */
+    List<BloomFilter<T>> reattach();
+
+    /**
+     * Discards the persisted state of a bloom filter created or re-attached by this factory, so that it is not
+     * re-attached by a later process. The bloom filter may still be queried until it is no longer referenced.
+     *
+     * @param bloomFilter the bloom filter to discard.
+     */
+    void destroy(BloomFilter<T> bloomFilter);
+}
@@ -0,0 +1,38 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.bloomfilter;
+
+/**
+ * A bloom filter that can determine whether it is saturated without building a full {@link BloomFilterStatistics}
+ * snapshot. {@link BloomFilterChain} checks the saturation of its last bucket on every insert, so this check should
+ * avoid allocation and expensive floating point operations.
+ *
+ * @param <T> the type of elements contained in the bloom filter.
+ * @see BloomFilterStatistics#isSaturated(BloomFilter)
+ */
+interface SaturationAwareBloomFilter<T> extends BloomFilter<T> {
+
+    /**
+     * Determines whether this bloom filter has exceeded its configured false positive probability. The result must
+     * not report saturation before {@code getStatistics().isSaturated()} does, but may lag behind it by a few
+     * elements (see {@link SetBitCounter}).
+     *
+     * @return {@code true} if no more elements should be inserted into this bloom filter.
+     * @see BloomFilterStatistics#isSaturated()
+     */
+    boolean isSaturated();
+}
@@ -0,0 +1,114 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.bloomfilter;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the set bits (or non-zero counters) of a bloom filter, and tracks whether that count has reached the
+ * saturation threshold of the filter.
+ * <p/>
+ * The count is striped with a {@link LongAdder} so that concurrent writers do not contend on a single counter. Summing
+ * the adder reads every one of its cells, so {@link #isSaturated()} reads a cached flag instead. The flag is refreshed
+ * by the writing threads, which only sum the adder for about one in every {@code sampleInterval} bits that they
+ * set, chosen by the index of the bit. Saturation is therefore detected a few dozen bits late on average, which is
+ * negligible next to the thousands of bits of the threshold.
+ */
+@ThreadSafe
+final class SetBitCounter {
+    /** The largest number of set bits between two refreshes of the saturation flag, on average. */
+    private static final long MAX_SAMPLE_INTERVAL = 64L;
+    /** Limits the lag of the saturation flag to about 1/1024th of the threshold for smaller filters. */
+    private static final int THRESHOLD_SAMPLE_SHIFT = 10;
+
+    private final LongAdder count = new LongAdder();
+    private final long saturationCount;
+    private final long sampleMask;
+    private volatile boolean saturated;
+
+    /**
+     * Constructs a counter with no set bits.
+     *
+     * @param saturationCount the number of set bits at which the bloom filter is saturated.
+     */
+    SetBitCounter(final long saturationCount) {
+        this.saturationCount = saturationCount;
+        final long sampleInterval = Math.max(1L,
+                Math.min(MAX_SAMPLE_INTERVAL, saturationCount >>> THRESHOLD_SAMPLE_SHIFT));
+        this.sampleMask = Long.highestOneBit(sampleInterval) - 1L;
+    }
+
+    /**
+     * Records that the bit at the given index has been set.
+     *
+     * @param index the index of the bit, used to decide whether to refresh the saturation flag.
+     */
+    void increment(final long index) {
+        count.increment();
+        if (!saturated && (index & sampleMask) == 0L) {
+            refresh();
+        }
+    }
+
+    /**
+     * Records that the bit at the given index has been cleared.
+     *
+     * @param index the index of the bit, used to decide whether to refresh the saturation flag.
+     */
+    void decrement(final long index) {
+        count.decrement();
+        if (saturated && (index & sampleMask) == 0L) {
+            refresh();
+        }
+    }
+
+    /**
+     * Records that several bits have been set at once, e.g., when merging. The saturation flag is not refreshed, so
+     * {@link #refresh()} must be called once all the bits have been recorded.
+     *
+     * @param delta the number of newly set bits.
+     */
+    void add(final long delta) {
+        count.add(delta);
+    }
+
+    /**
+     * Sums the number of set bits. This reads every cell of the striped counter.
+     *
+     * @return the current number of set bits.
+     */
+    long sum() {
+        return count.sum();
+    }
+
+    /**
+     * Reads the cached saturation flag, without summing the striped counter.
+     *
+     * @return {@code true} if the number of set bits had reached the saturation threshold when last refreshed.
+     */
+    boolean isSaturated() {
+        return saturated;
+    }
+
+    /**
+     * Refreshes the saturation flag from the sum of the striped counter.
+     */
+    void refresh() {
+        saturated = count.sum() >= saturationCount;
+    }
+}
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.bloomfilter;
@@ -27,7 +28,7 @@ import java.util.Collection;
  * A fully synchronized bloom filter implementation.
  */
 @ThreadSafe
-final class SynchronizedBloomFilter<T> implements BloomFilter<T> {
+final class SynchronizedBloomFilter<T> implements SaturationAwareBloomFilter<T> {
     private static final Logger LOGGER = LoggerFactory.getLogger(SynchronizedBloomFilter.class);
     private final long capacity;
     private final double falsePositiveProbability;
@@ -61,6 +62,11 @@ final class SynchronizedBloomFilter<T> implements BloomFilter<T> {
         return bloomFilter.mightContain(element);
     }
 
+    @Override
+    public synchronized boolean isSaturated() {
+        return bloomFilter.expectedFpp() >= falsePositiveProbability;
+    }
+
     @Override
     public synchronized BloomFilterStatistics getStatistics() {
         final double expectedFpp = bloomFilter.expectedFpp();
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 
 /**
@@ -74,13 +75,36 @@
  * org.forgerock.bloomfilter.BloomFilters.BloomFilterBuilder#withExpiryStrategy(org.forgerock.bloomfilter.ExpiryStrategy)}
  * method to configure how elements in your Bloom Filter will expire. By default, elements do not expire.
  *
+ * <p>
+ * The buckets of scalable and rolling Bloom Filters can be stored in memory-mapped files, rather than on the Java
+ * heap, using the {@link
+ * org.forgerock.bloomfilter.BloomFilters.BloomFilterBuilder#withStorageDirectory(java.nio.file.Path)} builder method.
+ * This reduces garbage collection overhead for large filters, and allows a filter to be re-attached with its existing
+ * contents when it is rebuilt after a restart, rather than being repopulated from scratch.
+ *
+ * <p>
+ * Elements cannot normally be removed from a Bloom Filter. Where short-lived elements need to be dropped individually,
+ * use the {@link org.forgerock.bloomfilter.BloomFilters.BloomFilterBuilder#counting()} builder method to create a
+ * fixed-capacity {@link org.forgerock.bloomfilter.DeletableBloomFilter}, which supports removal at the cost of four
+ * times the memory.
+ *
+ * <h3>Replication</h3>
+ *
+ * <p>
+ * Bloom filters built with the ATOMIC or BLOCKED concurrency strategies (or a storage directory) implement {@link
+ * org.forgerock.bloomfilter.MergeableBloomFilter}. Their contents can be captured in a {@link
+ * org.forgerock.bloomfilter.BloomFilterSnapshot}, written to a stream in a compact binary format, and merged into a
+ * compatible bloom filter on another node with a bitwise-OR. Shipping only the {@link
+ * org.forgerock.bloomfilter.BloomFilterSnapshot#deltaSince(org.forgerock.bloomfilter.BloomFilterSnapshot) delta}
+ * since the previous snapshot keeps the cost of frequent replication low.
+ *
  * <h3>Concurrency Strategies</h3>
  *
  * <p>
  * The implementations provided are currently all thread-safe, and adopt a flexible approach to concurrency control.
  *
  * <p>
- * Two concurrency strategies are currently supported:
+ * The following concurrency strategies are currently supported:
  * <ul>
  *     <li><em>SYNCHRONIZED</em> - uses synchronized blocks to ensure mutual exclusion of critical sections. For
  *     fixed-capacity bloom filters all methods are mutually exclusive. For scalable and rolling bloom filters,
@@ -93,6 +117,14 @@
  *     create additional temporary garbage and pressure on the garbage collector. Suitable for situations in which
  *     read performance (mightContain) is paramount and writes are relatively rare (and can tolerate increased
  *     latency).</li>
+ *
+ *     <li><em>ATOMIC</em> - uses atomic compare-and-set operations over a shared bit-vector, providing excellent read
+ *     and write performance without locking.</li>
+ *
+ *     <li><em>BLOCKED</em> - a variant of ATOMIC that stores all of the bits for an element within a single
+ *     cache-line sized block, so that each lookup touches only one cache line. Recommended for large bloom filters
+ *     (several megabytes or more) where lookup latency is dominated by cache misses. Uses slightly more memory than
+ *     ATOMIC for the same false positive probability.</li>
  * </ul>
  *
  * <p>
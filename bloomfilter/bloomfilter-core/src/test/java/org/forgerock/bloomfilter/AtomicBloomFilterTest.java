@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.bloomfilter;
@@ -64,4 +65,41 @@ public class AtomicBloomFilterTest {
         }
         return results;
     }
-}
\ No newline at end of file
+
+    @Test(dataProvider = "randomInts")
+    public void shouldAgreeWithPreHashedLookups(int value) {
+        bloomFilter.add(value);
+        assertThat(bloomFilter.mightContain(new HashedElement<Integer>(value, FUNNEL))).isTrue();
+        assertThat(bloomFilter.mightContain(new HashedElement<Integer>(value + 1, FUNNEL)))
+                .isEqualTo(bloomFilter.mightContain(value + 1));
+    }
+
+    @Test
+    public void shouldReportSaturationConsistentlyWithStatistics() {
+        final AtomicBloomFilter<Integer> filter =
+                new AtomicBloomFilter<Integer>(FUNNEL, CAPACITY, FALSE_POSITIVE_PROBABILITY);
+        int i = 0;
+        while (!filter.isSaturated()) {
+            assertThat(filter.getStatistics().isSaturated()).isFalse();
+            filter.add(i++);
+        }
+        assertThat(filter.getStatistics().isSaturated()).isTrue();
+    }
+
+    @Test
+    public void shouldDetectSaturationOfLargeFilterShortlyAfterStatistics() {
+        // Large enough for the saturation flag to only be refreshed on a sample of the set bits
+        final AtomicBloomFilter<Integer> filter =
+                new AtomicBloomFilter<Integer>(FUNNEL, 100000, FALSE_POSITIVE_PROBABILITY);
+        int i = 0;
+        while (!filter.getStatistics().isSaturated()) {
+            assertThat(filter.isSaturated()).isFalse();
+            filter.add(i++);
+        }
+        final int saturatedAt = i;
+        while (!filter.isSaturated()) {
+            filter.add(i++);
+        }
+        assertThat(i - saturatedAt).isLessThan(200);
+    }
+}
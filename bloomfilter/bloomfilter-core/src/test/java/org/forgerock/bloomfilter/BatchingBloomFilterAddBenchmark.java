@@ -0,0 +1,87 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.bloomfilter;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.wrensecurity.guava.common.hash.Funnels;
+
+/**
+ * Measures multi-threaded {@link BloomFilter#add(Object)} throughput of a write-batching bloom filter as the write
+ * batch size varies. A batch size of 0 disables write batching, as a baseline.
+ * <p/>
+ * Run with {@code java -cp <test classpath> org.forgerock.bloomfilter.BatchingBloomFilterAddBenchmark [threads]}
+ * (default: the number of processors).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchingBloomFilterAddBenchmark {
+    private static final int CAPACITY = 10000000;
+
+    @Param({ "0", "10", "100", "1000", "10000" })
+    private int writeBatchSize;
+
+    @Param({ "ATOMIC", "COPY_ON_WRITE" })
+    private ConcurrencyStrategy concurrencyStrategy;
+
+    private BloomFilter<Long> bloomFilter;
+
+    /**
+     * Creates a fresh filter for each iteration, so that it does not become saturated.
+     */
+    @Setup(Level.Iteration)
+    public void createBloomFilter() {
+        bloomFilter = BloomFilters.create(Funnels.longFunnel())
+                .withInitialCapacity(CAPACITY)
+                .withConcurrencyStrategy(concurrencyStrategy)
+                .withWriteBatchSize(writeBatchSize)
+                .build();
+    }
+
+    @Benchmark
+    public void add() {
+        bloomFilter.add(ThreadLocalRandom.current().nextLong());
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int threads = args.length > 0
+                ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        new Runner(new OptionsBuilder()
+                .include(BatchingBloomFilterAddBenchmark.class.getSimpleName())
+                .threads(threads)
+                .build()).run();
+    }
+}
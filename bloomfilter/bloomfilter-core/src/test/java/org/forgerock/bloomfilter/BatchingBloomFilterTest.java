@@ -22,6 +22,7 @@ import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
+import org.wrensecurity.guava.common.hash.Funnels;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
@@ -32,6 +33,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 @SuppressWarnings("unchecked")
 public class BatchingBloomFilterTest {
@@ -96,6 +98,44 @@ public class BatchingBloomFilterTest {
         verify(mockDelegate).mightContain(1);
     }
 
+    @Test
+    public void shouldNotReportFalseNegativesWhileFlushing() throws Exception {
+        // Given
+        final BatchingBloomFilter<Integer> filter = new BatchingBloomFilter<Integer>(
+                new AtomicBloomFilter<Integer>(Funnels.integerFunnel(), 100000, 0.01d), BATCH_SIZE);
+        final int threadCount = 4;
+        final List<Integer> falseNegatives = new CopyOnWriteArrayList<Integer>();
+        final Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; ++t) {
+            final int offset = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = offset; i < 20000; i += threadCount) {
+                        filter.add(i);
+                        if (!filter.mightContain(i)) {
+                            falseNegatives.add(i);
+                        }
+                    }
+                }
+            });
+        }
+
+        // When
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Then
+        assertThat(falseNegatives).isEmpty();
+        for (int i = 0; i < 20000; ++i) {
+            assertThat(filter.mightContain(i)).isTrue();
+        }
+    }
+
     /**
      * Wrapper to ensure that arguments to the addAll method are copied before passing to the delegate. This is
      * because Mockito only captures arguments by reference, so we can otherwise only verify the final state of the
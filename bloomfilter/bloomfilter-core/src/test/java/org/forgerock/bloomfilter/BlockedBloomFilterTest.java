@@ -0,0 +1,120 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.bloomfilter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.wrensecurity.guava.common.hash.Funnel;
+import org.wrensecurity.guava.common.hash.Funnels;
+
+import java.util.Random;
+
+public class BlockedBloomFilterTest {
+    private static final Funnel<Integer> FUNNEL = Funnels.integerFunnel();
+    private static final long CAPACITY = 100;
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.02d;
+
+    private BlockedBloomFilter<Integer> bloomFilter;
+
+    @BeforeClass
+    public void createBloomFilter() {
+        bloomFilter = new BlockedBloomFilter<Integer>(FUNNEL, CAPACITY, FALSE_POSITIVE_PROBABILITY);
+    }
+
+    @Test
+    public void shouldUseSpecifiedFalsePositiveProbability() {
+        assertThat(bloomFilter.getStatistics().getConfiguredFalsePositiveProbability())
+                .isEqualTo(FALSE_POSITIVE_PROBABILITY);
+    }
+
+    @Test
+    public void shouldUseSpecifiedCapacity() {
+        assertThat(bloomFilter.getStatistics().getCapacity()).isEqualTo(CAPACITY);
+    }
+
+    @Test
+    public void shouldUseWholeNumberOfBlocks() {
+        assertThat(bloomFilter.getStatistics().getBitSize() % BlockedBloomFilter.BLOCK_SIZE).isZero();
+    }
+
+    @Test(dataProvider = "randomInts", invocationCount = 16, threadPoolSize = 16)
+    public void shouldNotLoseUpdates(int value) {
+        bloomFilter.add(value);
+        assertThat(bloomFilter.mightContain(value)).isTrue();
+    }
+
+    @Test
+    public void shouldUseMoreBitsThanStandardBloomFilter() {
+        final long capacity = 100000;
+        final BlockedBloomFilter<Integer> blocked =
+                new BlockedBloomFilter<Integer>(FUNNEL, capacity, FALSE_POSITIVE_PROBABILITY);
+        assertThat(blocked.getStatistics().getBitSize())
+                .isGreaterThan(BloomFilterStatistics.optimumBitSize(capacity, FALSE_POSITIVE_PROBABILITY));
+    }
+
+    @Test
+    public void shouldReportActualFalsePositiveProbabilityAtCapacity() {
+        // Given
+        final int capacity = 100000;
+        final BlockedBloomFilter<Integer> blocked =
+                new BlockedBloomFilter<Integer>(FUNNEL, capacity, FALSE_POSITIVE_PROBABILITY);
+        for (int i = 0; i < capacity; ++i) {
+            blocked.add(i);
+        }
+
+        // When
+        int falsePositives = 0;
+        final int trials = 200000;
+        for (int i = capacity; i < capacity + trials; ++i) {
+            if (blocked.mightContain(i)) {
+                falsePositives++;
+            }
+        }
+
+        // Then
+        final double observedFpp = (double) falsePositives / trials;
+        final double expectedFpp = blocked.getStatistics().getExpectedFalsePositiveProbability();
+        assertThat(expectedFpp).isCloseTo(FALSE_POSITIVE_PROBABILITY, within(FALSE_POSITIVE_PROBABILITY / 5));
+        assertThat(observedFpp).isCloseTo(expectedFpp, within(expectedFpp / 5));
+    }
+
+    @Test
+    public void shouldReportSaturationConsistentlyWithStatistics() {
+        final BlockedBloomFilter<Integer> filter =
+                new BlockedBloomFilter<Integer>(FUNNEL, CAPACITY, FALSE_POSITIVE_PROBABILITY);
+        int i = 0;
+        while (!filter.isSaturated()) {
+            assertThat(filter.getStatistics().isSaturated()).isFalse();
+            filter.add(i++);
+        }
+        assertThat(filter.getStatistics().isSaturated()).isTrue();
+    }
+
+    @DataProvider
+    public Object[][] randomInts() {
+        final Random random = new Random();
+        final Object[][] results = new Object[100][1];
+        for (int i = 0; i < results.length; ++i) {
+            results[i][0] = random.nextInt();
+        }
+        return results;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.bloomfilter;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.wrensecurity.guava.common.hash.Funnels;
+
+/**
+ * Measures multi-threaded {@link BloomFilter#add(Object)} throughput, for both a single atomic bucket and a rolling
+ * bloom filter, to show how writes scale with the number of concurrent threads.
+ * <p/>
+ * Run with {@code java -cp <test classpath> org.forgerock.bloomfilter.BloomFilterAddThroughputBenchmark [maxThreads]},
+ * which runs the benchmark with 1, 2, 4, ... threads up to {@code maxThreads} (default: the number of processors).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BloomFilterAddThroughputBenchmark {
+    private static final int CAPACITY = 10000000;
+
+    @Param({ "ATOMIC", "BLOCKED", "SYNCHRONIZED" })
+    private ConcurrencyStrategy concurrencyStrategy;
+
+    private BloomFilter<Long> bucket;
+    private BloomFilter<Long> rolling;
+
+    /**
+     * Creates fresh filters for each iteration, so that the rolling filter does not grow without bound.
+     */
+    @Setup(Level.Iteration)
+    public void createBloomFilters() {
+        bucket = concurrencyStrategy.getFactory(Funnels.longFunnel()).create(CAPACITY, 0.01d);
+        rolling = BloomFilters.create(Funnels.longFunnel())
+                .withInitialCapacity(CAPACITY / 10)
+                .withConcurrencyStrategy(concurrencyStrategy)
+                .scalable()
+                .build();
+    }
+
+    @Benchmark
+    public void addToBucket() {
+        bucket.add(ThreadLocalRandom.current().nextLong());
+    }
+
+    @Benchmark
+    public void addToRollingFilter() {
+        rolling.add(ThreadLocalRandom.current().nextLong());
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int maxThreads = args.length > 0
+                ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            new Runner(new OptionsBuilder()
+                    .include(BloomFilterAddThroughputBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build()).run();
+        }
+    }
+}
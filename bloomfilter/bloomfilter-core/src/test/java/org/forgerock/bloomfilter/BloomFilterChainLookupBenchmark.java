@@ -0,0 +1,92 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.bloomfilter;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.wrensecurity.guava.common.hash.Funnels;
+
+/**
+ * Measures the latency of {@link BloomFilter#mightContain(Object)} on a rolling bloom filter as the number of buckets
+ * in the chain grows. Lookups of absent elements probe every bucket in the chain, so should only grow with the cost of
+ * the bit tests and not with the cost of hashing.
+ * <p/>
+ * Run with {@code java -cp <test classpath> org.forgerock.bloomfilter.BloomFilterChainLookupBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BloomFilterChainLookupBenchmark {
+    private static final int BUCKET_CAPACITY = 10000;
+
+    @Param({ "1", "2", "5", "10", "20" })
+    private int bucketCount;
+
+    @Param({ "ATOMIC", "BLOCKED", "SYNCHRONIZED", "COPY_ON_WRITE" })
+    private ConcurrencyStrategy concurrencyStrategy;
+
+    private BloomFilter<Long> bloomFilter;
+    private long present;
+    private long absent;
+
+    @Setup
+    public void createBloomFilter() {
+        bloomFilter = BloomFilters.create(Funnels.longFunnel())
+                .withInitialCapacity(BUCKET_CAPACITY)
+                .withConcurrencyStrategy(concurrencyStrategy)
+                .withCapacityGrowthFactor(1.0d)
+                .build();
+
+        // With a growth factor of 1 every bucket has the same capacity, so fill until the chain has enough buckets
+        long element = 0L;
+        while (bloomFilter.getStatistics().getCapacity() < (long) bucketCount * BUCKET_CAPACITY) {
+            bloomFilter.add(element++);
+        }
+        present = element / 2;
+        absent = -1L;
+    }
+
+    @Benchmark
+    public boolean mightContainAbsent() {
+        return bloomFilter.mightContain(absent);
+    }
+
+    @Benchmark
+    public boolean mightContainPresent() {
+        return bloomFilter.mightContain(present);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(BloomFilterChainLookupBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -12,20 +12,28 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.bloomfilter;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 import org.forgerock.util.time.TimeService;
+import org.wrensecurity.guava.common.hash.Funnels;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.util.List;
+
 public class BloomFilterChainTest {
     private static final BloomFilterStatistics SATURATED = new BloomFilterStatistics(0.01d, 0.02d, 1, 1, 1, 0);
 
@@ -38,12 +46,18 @@ public class BloomFilterChainTest {
     @Mock
     private BloomFilter<Integer> mockBloomFilter;
 
+    @Captor
+    private ArgumentCaptor<HashedElement<Integer>> firstElement;
+
+    @Captor
+    private ArgumentCaptor<HashedElement<Integer>> secondElement;
+
     private BloomFilterChain<Integer> testChain;
 
     @BeforeMethod
     public void setup() {
         MockitoAnnotations.initMocks(this);
-        testChain = new BloomFilterChain<Integer>(mockPool, mockClock);
+        testChain = new BloomFilterChain<Integer>(mockPool, mockClock, Funnels.integerFunnel());
     }
 
     @Test
@@ -92,4 +106,104 @@ public class BloomFilterChainTest {
         // Then
         verify(mockPool).release(mockBloomFilter);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldReportStatisticsOfEachBucket() {
+        // Given
+        @SuppressWarnings("unchecked")
+        BloomFilter<Integer> newBucket = mock(BloomFilter.class);
+        final BloomFilterStatistics unsaturated = new BloomFilterStatistics(0.01d, 0.001d, 10, 100, 1, 5);
+        given(mockPool.nextAvailable()).willReturn(mockBloomFilter, newBucket);
+        given(mockBloomFilter.getStatistics()).willReturn(SATURATED);
+        given(newBucket.getStatistics()).willReturn(unsaturated);
+        testChain.add(1);
+        testChain.add(2);
+
+        // When
+        final List<BloomFilterStatistics> result = testChain.getBucketStatistics();
+
+        // Then
+        assertThat(result).containsExactly(SATURATED, unsaturated);
+        assertThat(testChain.getBucketsCreated()).isEqualTo(2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldInsertMergedBucketsBeforeLastBucket() {
+        // Given
+        MergeableBloomFilter<Integer> peerBucket = mock(MergeableBloomFilter.class);
+        given(mockPool.nextAvailable()).willReturn(mockBloomFilter);
+        given(mockBloomFilter.getStatistics()).willReturn(new BloomFilterStatistics(0.01d, 0.001d, 10, 100, 1, 5));
+        given(mockPool.getBucketNumber(mockBloomFilter)).willReturn(0);
+        given(mockPool.take(1)).willReturn(peerBucket);
+        testChain.add(1);
+        final BloomFilterSnapshot snapshot = BloomFilterSnapshot.of(new BloomFilterSnapshot.Bucket(1,
+                BloomFilterSnapshot.STANDARD_LAYOUT, 100L, 0.01d, Long.SIZE, 3, Long.MAX_VALUE, new long[1]));
+
+        // When
+        testChain.merge(snapshot);
+        testChain.add(2);
+
+        // Then
+        verify(mockBloomFilter).add(2);
+        verify(peerBucket, never()).add(2);
+        assertThat(testChain.getBucketsCreated()).isEqualTo(2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldPassSameHashedElementToEachBucket() {
+        // Given
+        HashedBloomFilter<Integer> first = mock(HashedBloomFilter.class);
+        HashedBloomFilter<Integer> second = mock(HashedBloomFilter.class);
+        given(mockPool.nextAvailable()).willReturn(first, second);
+        given(first.getStatistics()).willReturn(SATURATED);
+        testChain.add(1);
+        testChain.add(2);
+        HashedElement<Integer> element = new HashedElement<Integer>(42, Funnels.integerFunnel());
+
+        // When
+        testChain.mightContain(element);
+
+        // Then
+        verify(first).mightContain(element);
+        verify(second).mightContain(element);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldHashRawElementOnceForAllBuckets() {
+        // Given
+        HashedBloomFilter<Integer> first = mock(HashedBloomFilter.class);
+        HashedBloomFilter<Integer> second = mock(HashedBloomFilter.class);
+        given(mockPool.nextAvailable()).willReturn(first, second);
+        given(first.getStatistics()).willReturn(SATURATED);
+        testChain.add(1);
+        testChain.add(2);
+
+        // When
+        testChain.mightContain(42);
+
+        // Then
+        verify(first).mightContain(firstElement.capture());
+        verify(second).mightContain(secondElement.capture());
+        verify(first, never()).mightContain(42);
+        assertThat(secondElement.getValue()).isSameAs(firstElement.getValue());
+        assertThat(firstElement.getValue().getElement()).isEqualTo(42);
+    }
+
+    @Test
+    public void shouldFallBackToRawElementForOtherBuckets() {
+        // Given
+        given(mockPool.nextAvailable()).willReturn(mockBloomFilter);
+        testChain.add(1);
+        given(mockBloomFilter.mightContain(42)).willReturn(true);
+
+        // When
+        boolean result = testChain.mightContain(new HashedElement<Integer>(42, Funnels.integerFunnel()));
+
+        // Then
+        verify(mockBloomFilter).mightContain(42);
+        assertThat(result).isTrue();
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.bloomfilter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.wrensecurity.guava.common.hash.Funnels.integerFunnel;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+public class BloomFilterSnapshotTest {
+    private static final long LATEST_EXPIRY_TIME = Long.MAX_VALUE / 2;
+    private static final ExpiryStrategy<Integer> EXPIRY_STRATEGY = new ExpiryStrategy<Integer>() {
+        @Override
+        public long expiryTime(Integer it) {
+            return LATEST_EXPIRY_TIME - 1000 + it;
+        }
+    };
+
+    @DataProvider
+    public Object[][] mergeableStrategies() {
+        return new Object[][] {
+                { ConcurrencyStrategy.ATOMIC },
+                { ConcurrencyStrategy.BLOCKED }
+        };
+    }
+
+    @Test(dataProvider = "mergeableStrategies")
+    public void shouldMergeFixedCapacityBloomFilters(ConcurrencyStrategy strategy) {
+        // Given
+        final MergeableBloomFilter<Integer> source = fixed(strategy);
+        final MergeableBloomFilter<Integer> target = fixed(strategy);
+        for (int i = 0; i < 100; ++i) {
+            source.add(i);
+        }
+
+        // When
+        target.merge(source);
+
+        // Then
+        for (int i = 0; i < 100; ++i) {
+            assertThat(target.mightContain(i)).isTrue();
+        }
+        assertThat(target.getStatistics().toString()).isEqualTo(source.getStatistics().toString());
+    }
+
+    @Test(dataProvider = "mergeableStrategies")
+    public void shouldMergeRollingBloomFiltersBucketByBucket(ConcurrencyStrategy strategy) {
+        // Given
+        final MergeableBloomFilter<Integer> source = rolling(strategy);
+        final MergeableBloomFilter<Integer> target = rolling(strategy);
+        for (int i = 0; i < 1000; ++i) {
+            source.add(i);
+        }
+        target.add(-1);
+
+        // When
+        target.merge(source.snapshot());
+
+        // Then
+        for (int i = -1; i < 1000; ++i) {
+            assertThat(target.mightContain(i)).isTrue();
+        }
+        assertThat(target.snapshot().getBuckets()).hasSameSizeAs(source.snapshot().getBuckets());
+        assertThat(target.getStatistics().getExpiryTime()).isEqualTo(LATEST_EXPIRY_TIME - 1);
+    }
+
+    @Test
+    public void shouldAppendMergedBucketsInOrderToEmptyChain() {
+        // Given
+        final MergeableBloomFilter<Integer> source = rolling(ConcurrencyStrategy.ATOMIC);
+        final MergeableBloomFilter<Integer> target = rolling(ConcurrencyStrategy.ATOMIC);
+        for (int i = 0; i < 1000; ++i) {
+            source.add(i);
+        }
+
+        // When
+        target.merge(source.snapshot());
+
+        // Then
+        assertThat(bucketStatistics(target).toString()).isEqualTo(bucketStatistics(source).toString());
+    }
+
+    @Test
+    public void shouldRoundTripThroughBinaryEncoding() throws IOException {
+        // Given
+        final MergeableBloomFilter<Integer> source = rolling(ConcurrencyStrategy.ATOMIC);
+        for (int i = 0; i < 1000; ++i) {
+            source.add(i);
+        }
+        final BloomFilterSnapshot snapshot = source.snapshot();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        snapshot.writeTo(out);
+        snapshot.writeTo(out);
+        final ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        final BloomFilterSnapshot first = BloomFilterSnapshot.readFrom(in);
+        final BloomFilterSnapshot second = BloomFilterSnapshot.readFrom(in);
+
+        // Then
+        assertThat(in.available()).isZero();
+        assertThat(first.toString()).isEqualTo(snapshot.toString());
+        assertThat(second.toString()).isEqualTo(snapshot.toString());
+        final MergeableBloomFilter<Integer> target = rolling(ConcurrencyStrategy.ATOMIC);
+        target.merge(first);
+        for (int i = 0; i < 1000; ++i) {
+            assertThat(target.mightContain(i)).isTrue();
+        }
+    }
+
+    @Test
+    public void shouldOnlyIncludeNewBitsInDelta() throws IOException {
+        // Given
+        final MergeableBloomFilter<Integer> source = rolling(ConcurrencyStrategy.ATOMIC);
+        final MergeableBloomFilter<Integer> target = rolling(ConcurrencyStrategy.ATOMIC);
+        for (int i = 0; i < 1000; ++i) {
+            source.add(i);
+        }
+        final BloomFilterSnapshot first = source.snapshot();
+        target.merge(first);
+        source.add(1000);
+
+        // When
+        final BloomFilterSnapshot delta = source.snapshot().deltaSince(first);
+        target.merge(delta);
+
+        // Then
+        assertThat(delta.getBuckets()).hasSize(1);
+        assertThat(encodedSize(delta)).isLessThan(encodedSize(first));
+        assertThat(target.mightContain(1000)).isTrue();
+    }
+
+    @Test
+    public void shouldProduceEmptyDeltaWhenUnchanged() {
+        final MergeableBloomFilter<Integer> source = rolling(ConcurrencyStrategy.ATOMIC);
+        source.add(42);
+        final BloomFilterSnapshot snapshot = source.snapshot();
+        assertThat(source.snapshot().deltaSince(snapshot).getBuckets()).isEmpty();
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectIncompatibleSnapshot() {
+        fixed(ConcurrencyStrategy.ATOMIC).merge(fixed(ConcurrencyStrategy.BLOCKED));
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void shouldNotSupportSnapshotsOfGuavaBackedBuckets() {
+        final MergeableBloomFilter<Integer> bf = rolling(ConcurrencyStrategy.SYNCHRONIZED);
+        bf.add(42);
+        bf.snapshot();
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void shouldRejectStreamsThatAreNotSnapshots() throws IOException {
+        BloomFilterSnapshot.readFrom(new ByteArrayInputStream(new byte[16]));
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void shouldRejectBucketsLargerThanMaximumBitSize() throws IOException {
+        // Given
+        final MergeableBloomFilter<Integer> source = fixed(ConcurrencyStrategy.ATOMIC);
+        source.add(42);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        source.snapshot().writeTo(out);
+
+        // When
+        BloomFilterSnapshot.readFrom(new ByteArrayInputStream(out.toByteArray()), Long.SIZE);
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void shouldRejectWordCountInconsistentWithBitSize() throws IOException {
+        // Given
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(0x57424653);
+        data.writeByte(1);
+        data.writeInt(1);
+        data.writeInt(0); // bucket number
+        data.writeByte(BloomFilterSnapshot.STANDARD_LAYOUT);
+        data.writeLong(100L); // capacity
+        data.writeDouble(0.01d); // false positive probability
+        data.writeLong(Long.SIZE); // bit size
+        data.writeInt(3); // number of hash functions
+        data.writeLong(LATEST_EXPIRY_TIME);
+        data.writeInt(Integer.MAX_VALUE); // word count
+        data.writeInt(0); // run count
+
+        // When
+        BloomFilterSnapshot.readFrom(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static MergeableBloomFilter<Integer> fixed(ConcurrencyStrategy strategy) {
+        return (MergeableBloomFilter<Integer>) BloomFilters.<Integer>create(integerFunnel())
+                .withConcurrencyStrategy(strategy).withInitialCapacity(100).build();
+    }
+
+    private static MergeableBloomFilter<Integer> rolling(ConcurrencyStrategy strategy) {
+        return (MergeableBloomFilter<Integer>) BloomFilters.<Integer>create(integerFunnel())
+                .withConcurrencyStrategy(strategy).withInitialCapacity(100).rolling()
+                .withExpiryStrategy(EXPIRY_STRATEGY).build();
+    }
+
+    private static List<BloomFilterStatistics> bucketStatistics(MergeableBloomFilter<Integer> bloomFilter) {
+        return ((BucketedBloomFilter<Integer>) bloomFilter).getBucketStatistics();
+    }
+
+    private static int encodedSize(BloomFilterSnapshot snapshot) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshot.writeTo(out);
+        return out.size();
+    }
+}
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.bloomfilter;
@@ -25,6 +26,10 @@ import org.forgerock.util.time.TimeService;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 public class BloomFiltersTest {
 
     @Test
@@ -189,6 +194,9 @@ public class BloomFiltersTest {
             case ATOMIC:
                 assertThat(bf).isInstanceOf(AtomicBloomFilter.class);
                 break;
+            case BLOCKED:
+                assertThat(bf).isInstanceOf(BlockedBloomFilter.class);
+                break;
             default:
                 throw new IllegalArgumentException("Unknown strategy: " + strategy);
         }
@@ -279,12 +287,100 @@ public class BloomFiltersTest {
         BloomFilters.create(integerFunnel()).withExpiryStrategy(null);
     }
 
+    @Test
+    public void shouldBuildCountingBloomFilters() {
+        // When
+        final DeletableBloomFilter<Integer> bf = BloomFilters.create(integerFunnel()).counting()
+                .withInitialCapacity(100).withFalsePositiveProbability(0.001d).build();
+
+        // Then
+        assertThat(bf).isInstanceOf(CountingBloomFilter.class);
+        assertThat(bf.getStatistics().getCapacity()).isEqualTo(100);
+        assertThat(bf.getStatistics().getConfiguredFalsePositiveProbability()).isEqualTo(0.001d);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectWriteBatchingForCountingBloomFilters() {
+        BloomFilters.create(integerFunnel()).withWriteBatchSize(10).counting().build();
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void shouldRejectNullStorageDirectory() {
+        BloomFilters.create(integerFunnel()).withStorageDirectory(null);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectBlockedConcurrencyStrategyForStoredBuckets() throws Exception {
+        final Path directory = Files.createTempDirectory("bloomfilter");
+        try {
+            BloomFilters.create(integerFunnel()).withConcurrencyStrategy(ConcurrencyStrategy.BLOCKED)
+                    .withStorageDirectory(directory).build();
+        } finally {
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void shouldReportAtomicConcurrencyStrategyForStoredBuckets() throws Exception {
+        final Path directory = Files.createTempDirectory("bloomfilter");
+        try {
+            final BloomFilter<Integer> bloomFilter =
+                    BloomFilters.create(integerFunnel()).withStorageDirectory(directory).build();
+            assertThat(bloomFilter.toString()).contains("concurrencyStrategy=ATOMIC");
+        } finally {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void shouldReattachStoredBucketsWhenRebuilt() throws Exception {
+        // Given
+        final Path directory = Files.createTempDirectory("bloomfilter");
+        final ExpiryStrategy<Integer> expiryStrategy = new ExpiryStrategy<Integer>() {
+            @Override
+            public long expiryTime(Integer it) {
+                return Long.MAX_VALUE - it;
+            }
+        };
+        final BloomFilters.RollingBloomFilterBuilder<Integer> builder = BloomFilters.<Integer>create(integerFunnel())
+                .withInitialCapacity(100).withStorageDirectory(directory).rolling()
+                .withExpiryStrategy(expiryStrategy);
+        try {
+            final BloomFilter<Integer> original = builder.build();
+            for (int i = 0; i < 500; ++i) {
+                original.add(i);
+            }
+
+            // When
+            final BloomFilter<Integer> reattached = builder.build();
+
+            // Then
+            for (int i = 0; i < 500; ++i) {
+                assertThat(reattached.mightContain(i)).isTrue();
+            }
+            assertThat(reattached.getStatistics().toString()).isEqualTo(original.getStatistics().toString());
+        } finally {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
     @DataProvider
     public Object[][] concurrencyStrategies() {
         return new Object[][] {
                 { ConcurrencyStrategy.COPY_ON_WRITE },
                 { ConcurrencyStrategy.SYNCHRONIZED },
-                { ConcurrencyStrategy.ATOMIC }
+                { ConcurrencyStrategy.ATOMIC },
+                { ConcurrencyStrategy.BLOCKED }
         };
     }
 
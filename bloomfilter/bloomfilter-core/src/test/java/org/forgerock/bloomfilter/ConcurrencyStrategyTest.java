@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.bloomfilter;
@@ -39,11 +40,14 @@ public class ConcurrencyStrategyTest {
                 .create(capacity, fpp);
         BloomFilter<Integer> atomicBf = ConcurrencyStrategy.ATOMIC.<Integer>getFactory(funnel)
                 .create(capacity, fpp);
+        BloomFilter<Integer> blockedBf = ConcurrencyStrategy.BLOCKED.<Integer>getFactory(funnel)
+                .create(capacity, fpp);
 
         // Then
         assertThat(cowBf).isInstanceOf(CopyOnWriteBloomFilter.class);
         assertThat(syncBf).isInstanceOf(SynchronizedBloomFilter.class);
         assertThat(atomicBf).isInstanceOf(AtomicBloomFilter.class);
+        assertThat(blockedBf).isInstanceOf(BlockedBloomFilter.class);
     }
 
     @Test(dataProvider = "strategies")
@@ -68,7 +72,8 @@ public class ConcurrencyStrategyTest {
         return new Object[][] {
                 { ConcurrencyStrategy.COPY_ON_WRITE },
                 { ConcurrencyStrategy.SYNCHRONIZED },
-                { ConcurrencyStrategy.ATOMIC }
+                { ConcurrencyStrategy.ATOMIC },
+                { ConcurrencyStrategy.BLOCKED }
         };
     }
 }
\ No newline at end of file
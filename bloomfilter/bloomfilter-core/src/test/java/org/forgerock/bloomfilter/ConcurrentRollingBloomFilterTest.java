@@ -12,7 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015 ForgeRock AS.
- * Portions copyright 2023 Wren Security
+ * Portions copyright 2023-2026 Wren Security
  */
 
 package org.forgerock.bloomfilter;
@@ -51,7 +51,8 @@ public class ConcurrentRollingBloomFilterTest {
         return new Object[][] {
                 {ConcurrencyStrategy.COPY_ON_WRITE},
                 {ConcurrencyStrategy.SYNCHRONIZED},
-                {ConcurrencyStrategy.ATOMIC}
+                {ConcurrencyStrategy.ATOMIC},
+                {ConcurrencyStrategy.BLOCKED}
         };
     }
 
@@ -0,0 +1,113 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.bloomfilter;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.wrensecurity.guava.common.hash.Funnels;
+
+/**
+ * Compares the add and lookup cost of a {@link CountingBloomFilter} against an {@link AtomicBloomFilter} with the
+ * same capacity and false positive probability, and the cost of removing elements from the former.
+ * <p/>
+ * Run with {@code java -cp <test classpath> org.forgerock.bloomfilter.CountingBloomFilterBenchmark}, which first
+ * prints the memory used by each filter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class CountingBloomFilterBenchmark {
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01d;
+
+    @Param({ "1000000", "10000000" })
+    private int capacity;
+
+    @Param({ "false", "true" })
+    private boolean counting;
+
+    private BloomFilter<Long> bloomFilter;
+
+    /**
+     * Creates a half-full filter for each iteration, so that repeated adds do not saturate it.
+     */
+    @Setup(Level.Iteration)
+    public void createBloomFilter() {
+        bloomFilter = create(counting, capacity);
+        for (long i = 0; i < capacity / 2; ++i) {
+            bloomFilter.add(i);
+        }
+    }
+
+    @Benchmark
+    public void add() {
+        bloomFilter.add(ThreadLocalRandom.current().nextLong());
+    }
+
+    @Benchmark
+    public boolean mightContainPresent() {
+        return bloomFilter.mightContain((long) ThreadLocalRandom.current().nextInt(capacity / 2));
+    }
+
+    @Benchmark
+    public boolean mightContainRandom() {
+        return bloomFilter.mightContain(ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Adds and then removes a random element, leaving the filter unchanged. Only meaningful for counting filters.
+     */
+    @Benchmark
+    public boolean addAndRemove() {
+        final long element = ThreadLocalRandom.current().nextLong();
+        bloomFilter.add(element);
+        return counting && ((DeletableBloomFilter<Long>) bloomFilter).remove(element);
+    }
+
+    private static BloomFilter<Long> create(final boolean counting, final int capacity) {
+        return counting
+                ? new CountingBloomFilter<Long>(Funnels.longFunnel(), capacity, FALSE_POSITIVE_PROBABILITY)
+                : new AtomicBloomFilter<Long>(Funnels.longFunnel(), capacity, FALSE_POSITIVE_PROBABILITY);
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (int capacity : new int[] { 1000000, 10000000 }) {
+            for (boolean counting : new boolean[] { false, true }) {
+                System.out.printf("capacity=%d, counting=%b: %d bytes%n", capacity, counting,
+                        create(counting, capacity).getStatistics().getBitSize() / Byte.SIZE);
+            }
+        }
+        new Runner(new OptionsBuilder().include(CountingBloomFilterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
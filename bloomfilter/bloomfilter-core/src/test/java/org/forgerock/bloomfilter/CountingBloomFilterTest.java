@@ -0,0 +1,133 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.bloomfilter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.wrensecurity.guava.common.hash.Funnel;
+import org.wrensecurity.guava.common.hash.Funnels;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+public class CountingBloomFilterTest {
+    private static final Funnel<Integer> FUNNEL = Funnels.integerFunnel();
+    private static final long CAPACITY = 100;
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.02d;
+
+    private final CountingBloomFilter<Integer> bloomFilter =
+            new CountingBloomFilter<Integer>(FUNNEL, CAPACITY, FALSE_POSITIVE_PROBABILITY);
+
+    @DataProvider
+    public Object[][] randomInts() {
+        final Random random = new Random();
+        final Object[][] results = new Object[100][1];
+        for (int i = 0; i < results.length; ++i) {
+            results[i][0] = random.nextInt();
+        }
+        return results;
+    }
+
+    @Test(dataProvider = "randomInts", invocationCount = 16, threadPoolSize = 16)
+    public void shouldNotLoseUpdates(int value) {
+        bloomFilter.add(value);
+        assertThat(bloomFilter.mightContain(value)).isTrue();
+    }
+
+    @Test
+    public void shouldUseFourTimesTheMemoryOfAnAtomicBloomFilter() {
+        final AtomicBloomFilter<Integer> atomic =
+                new AtomicBloomFilter<Integer>(FUNNEL, CAPACITY, FALSE_POSITIVE_PROBABILITY);
+        assertThat(bloomFilter.getStatistics().getBitSize())
+                .isEqualTo(atomic.getStatistics().getBitSize() * CountingBloomFilter.BITS_PER_COUNTER);
+    }
+
+    @Test
+    public void shouldForgetRemovedElements() {
+        // Given
+        final CountingBloomFilter<Integer> filter =
+                new CountingBloomFilter<Integer>(FUNNEL, CAPACITY, FALSE_POSITIVE_PROBABILITY);
+        for (int i = 0; i < CAPACITY; ++i) {
+            filter.add(i);
+        }
+
+        // When
+        for (int i = 0; i < CAPACITY; ++i) {
+            assertThat(filter.remove(i)).isTrue();
+        }
+
+        // Then
+        for (int i = 0; i < CAPACITY; ++i) {
+            assertThat(filter.mightContain(i)).isFalse();
+        }
+        assertThat(filter.getStatistics().getExpectedFalsePositiveProbability()).isZero();
+    }
+
+    @Test
+    public void shouldKeepElementsThatWereAddedTwice() {
+        // Given
+        final CountingBloomFilter<Integer> filter =
+                new CountingBloomFilter<Integer>(FUNNEL, CAPACITY, FALSE_POSITIVE_PROBABILITY);
+        filter.add(42);
+        filter.add(42);
+
+        // When
+        filter.remove(42);
+
+        // Then
+        assertThat(filter.mightContain(42)).isTrue();
+    }
+
+    @Test
+    public void shouldNotRemoveElementsThatAreDefinitelyAbsent() {
+        final CountingBloomFilter<Integer> filter =
+                new CountingBloomFilter<Integer>(FUNNEL, CAPACITY, FALSE_POSITIVE_PROBABILITY);
+        assertThat(filter.remove(42)).isFalse();
+    }
+
+    @Test
+    public void shouldStickAtMaximumCount() {
+        // Given
+        final CountingBloomFilter<Integer> filter =
+                new CountingBloomFilter<Integer>(FUNNEL, CAPACITY, FALSE_POSITIVE_PROBABILITY);
+        for (int i = 0; i < 20; ++i) {
+            filter.increment(7);
+        }
+
+        // When
+        for (int i = 0; i < 20; ++i) {
+            filter.decrement(7);
+        }
+
+        // Then
+        assertThat(filter.count(7)).isEqualTo(15L);
+        assertThat(filter.count(6)).isZero();
+        assertThat(filter.count(8)).isZero();
+    }
+
+    @Test
+    public void shouldReportSaturationConsistentlyWithStatistics() {
+        final CountingBloomFilter<Integer> filter =
+                new CountingBloomFilter<Integer>(FUNNEL, CAPACITY, FALSE_POSITIVE_PROBABILITY);
+        for (int i = 0; i < CAPACITY * 2; ++i) {
+            assertThat(filter.isSaturated()).isEqualTo(filter.getStatistics().isSaturated());
+            filter.add(i);
+        }
+        assertThat(filter.isSaturated()).isTrue();
+    }
+}
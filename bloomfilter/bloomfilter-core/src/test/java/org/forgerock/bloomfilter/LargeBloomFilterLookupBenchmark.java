@@ -0,0 +1,80 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.bloomfilter;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.wrensecurity.guava.common.hash.Funnels;
+
+/**
+ * Measures the latency of {@link BloomFilter#mightContain(Object)} on single bloom filters that are much larger than
+ * the CPU cache, where lookup cost is dominated by cache misses rather than hashing.
+ * <p/>
+ * Run with {@code java -cp <test classpath> org.forgerock.bloomfilter.LargeBloomFilterLookupBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class LargeBloomFilterLookupBenchmark {
+
+    @Param({ "1000000", "10000000" })
+    private int capacity;
+
+    @Param({ "ATOMIC", "BLOCKED" })
+    private ConcurrencyStrategy concurrencyStrategy;
+
+    private BloomFilter<Long> bloomFilter;
+
+    @Setup
+    public void createBloomFilter() {
+        bloomFilter = concurrencyStrategy.getFactory(Funnels.longFunnel()).create(capacity, 0.001d);
+        for (long i = 0; i < capacity; ++i) {
+            bloomFilter.add(i);
+        }
+    }
+
+    @Benchmark
+    public boolean mightContainPresent() {
+        return bloomFilter.mightContain((long) ThreadLocalRandom.current().nextInt(capacity));
+    }
+
+    @Benchmark
+    public boolean mightContainRandom() {
+        return bloomFilter.mightContain(ThreadLocalRandom.current().nextLong());
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(LargeBloomFilterLookupBenchmark.class.getSimpleName()).build()).run();
+    }
+}
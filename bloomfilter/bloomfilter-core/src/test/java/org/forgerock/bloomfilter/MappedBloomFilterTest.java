@@ -0,0 +1,126 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.bloomfilter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.wrensecurity.guava.common.hash.Funnel;
+import org.wrensecurity.guava.common.hash.Funnels;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+public class MappedBloomFilterTest {
+    private static final Funnel<Integer> FUNNEL = Funnels.integerFunnel();
+    private static final long CAPACITY = 100;
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.02d;
+
+    private ByteBuffer buffer;
+    private MappedBloomFilter<Integer> bloomFilter;
+
+    @BeforeMethod
+    public void createBloomFilter() {
+        buffer = ByteBuffer.allocateDirect(MappedBloomFilter.bufferSize(CAPACITY, FALSE_POSITIVE_PROBABILITY));
+        bloomFilter = MappedBloomFilter.create(FUNNEL, buffer, CAPACITY, FALSE_POSITIVE_PROBABILITY, 42L);
+    }
+
+    @Test
+    public void shouldUseSpecifiedFalsePositiveProbability() {
+        assertThat(bloomFilter.getStatistics().getConfiguredFalsePositiveProbability())
+                .isEqualTo(FALSE_POSITIVE_PROBABILITY);
+    }
+
+    @Test
+    public void shouldUseSpecifiedCapacity() {
+        assertThat(bloomFilter.getStatistics().getCapacity()).isEqualTo(CAPACITY);
+    }
+
+    @Test
+    public void shouldUseSameBitSizeAsAtomicBloomFilter() {
+        assertThat(bloomFilter.getStatistics().getBitSize())
+                .isEqualTo(new AtomicBloomFilter<Integer>(FUNNEL, CAPACITY, FALSE_POSITIVE_PROBABILITY)
+                        .getStatistics().getBitSize());
+    }
+
+    @Test(dataProvider = "randomInts")
+    public void shouldContainAddedElements(int value) {
+        bloomFilter.add(value);
+        assertThat(bloomFilter.mightContain(value)).isTrue();
+        assertThat(bloomFilter.mightContain(new HashedElement<Integer>(value, FUNNEL))).isTrue();
+    }
+
+    @Test
+    public void shouldReattachExistingContents() {
+        // Given
+        for (int i = 0; i < CAPACITY; ++i) {
+            bloomFilter.add(i);
+        }
+        bloomFilter.updateExpiryTime(1234L);
+
+        // When
+        final MappedBloomFilter<Integer> reattached = MappedBloomFilter.attach(FUNNEL, buffer);
+
+        // Then
+        for (int i = 0; i < CAPACITY; ++i) {
+            assertThat(reattached.mightContain(i)).isTrue();
+        }
+        assertThat(reattached.getExpiryTime()).isEqualTo(1234L);
+        assertThat(reattached.getSequence()).isEqualTo(42L);
+        assertThat(reattached.getStatistics().toString()).isEqualTo(bloomFilter.getStatistics().toString());
+    }
+
+    @Test
+    public void shouldOnlyIncreaseExpiryTime() {
+        bloomFilter.updateExpiryTime(10L);
+        bloomFilter.updateExpiryTime(5L);
+        assertThat(bloomFilter.getExpiryTime()).isEqualTo(10L);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectBufferWithoutBloomFilter() {
+        MappedBloomFilter.attach(FUNNEL, ByteBuffer.allocateDirect(MappedBloomFilter.HEADER_SIZE));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectBufferThatIsTooSmall() {
+        MappedBloomFilter.create(FUNNEL, ByteBuffer.allocateDirect(MappedBloomFilter.HEADER_SIZE), CAPACITY,
+                FALSE_POSITIVE_PROBABILITY, 0L);
+    }
+
+    @Test
+    public void shouldReportSaturationConsistentlyWithStatistics() {
+        int i = 0;
+        while (!bloomFilter.isSaturated()) {
+            assertThat(bloomFilter.getStatistics().isSaturated()).isFalse();
+            bloomFilter.add(i++);
+        }
+        assertThat(bloomFilter.getStatistics().isSaturated()).isTrue();
+    }
+
+    @DataProvider
+    public Object[][] randomInts() {
+        final Random random = new Random();
+        final Object[][] results = new Object[100][1];
+        for (int i = 0; i < results.length; ++i) {
+            results[i][0] = random.nextInt();
+        }
+        return results;
+    }
+}
@@ -12,12 +12,14 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.bloomfilter.monitoring;
 
 import javax.management.MXBean;
 import java.util.Date;
+import java.util.List;
 
 /**
  * Operations for monitoring and management of Bloom Filter implementations.
@@ -30,4 +32,43 @@ public interface BloomFilterMXBean {
     long getEstimatedRemainingCapacity();
     long getMemorySizeKB();
     Date getExpiryTime();
+
+    /**
+     * The number of buckets currently in the bloom filter. Fixed-capacity bloom filters have a single bucket.
+     */
+    int getBucketCount();
+
+    /**
+     * The total number of buckets created since the bloom filter was created.
+     */
+    long getBucketsCreated();
+
+    /**
+     * The rate at which buckets have been created over the period covered by
+     * {@link #getFalsePositiveProbabilityHistory()}, in buckets per hour.
+     */
+    double getBucketCreationRatePerHour();
+
+    /**
+     * The occupancy and expiry of each bucket currently in the bloom filter, oldest first.
+     */
+    List<BloomFilterMetrics.Bucket> getBuckets();
+
+    /**
+     * Periodic samples of the expected and configured false positive probability, oldest first. A sample is taken
+     * whenever these metrics are read, at most once per sampling interval.
+     */
+    List<BloomFilterMetrics.Sample> getFalsePositiveProbabilityHistory();
+
+    /**
+     * The minimum interval between samples of the false positive probability history, in milliseconds.
+     */
+    long getSamplingIntervalMillis();
+
+    /**
+     * Sets the minimum interval between samples of the false positive probability history.
+     *
+     * @param intervalMillis the sampling interval in milliseconds. Must be greater than 0.
+     */
+    void setSamplingIntervalMillis(long intervalMillis);
 }
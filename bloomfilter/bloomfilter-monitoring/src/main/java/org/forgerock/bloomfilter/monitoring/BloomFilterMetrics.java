@@ -0,0 +1,384 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.bloomfilter.monitoring;
+
+import org.forgerock.bloomfilter.BloomFilterStatistics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point-in-time snapshot of the metrics gathered by a {@link BloomFilterMonitor}, for scrapers that pull metrics
+ * rather than reading them over JMX. See {@link BloomFilterMonitor#getMetrics()}.
+ */
+public final class BloomFilterMetrics {
+    private final Date timestamp;
+    private final BloomFilterStatistics statistics;
+    private final List<Bucket> buckets;
+    private final long bucketsCreated;
+    private final double bucketCreationRatePerHour;
+    private final List<Sample> falsePositiveProbabilityHistory;
+    private final Map<String, Latency> latencies;
+
+    BloomFilterMetrics(final long timestamp, final BloomFilterStatistics statistics, final List<Bucket> buckets,
+                       final long bucketsCreated, final double bucketCreationRatePerHour,
+                       final List<Sample> falsePositiveProbabilityHistory, final Map<String, Latency> latencies) {
+        this.timestamp = new Date(timestamp);
+        this.statistics = statistics;
+        this.buckets = Collections.unmodifiableList(new ArrayList<Bucket>(buckets));
+        this.bucketsCreated = bucketsCreated;
+        this.bucketCreationRatePerHour = bucketCreationRatePerHour;
+        this.falsePositiveProbabilityHistory =
+                Collections.unmodifiableList(new ArrayList<Sample>(falsePositiveProbabilityHistory));
+        this.latencies = Collections.unmodifiableMap(new LinkedHashMap<String, Latency>(latencies));
+    }
+
+    /**
+     * The time at which this snapshot was taken.
+     */
+    public Date getTimestamp() {
+        return new Date(timestamp.getTime());
+    }
+
+    /**
+     * The aggregate statistics of the whole bloom filter.
+     */
+    public BloomFilterStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * The occupancy and expiry of each bucket of the bloom filter, oldest first. A fixed-capacity bloom filter is
+     * reported as a single bucket.
+     */
+    public List<Bucket> getBuckets() {
+        return buckets;
+    }
+
+    /**
+     * The total number of buckets created since the bloom filter was created.
+     */
+    public long getBucketsCreated() {
+        return bucketsCreated;
+    }
+
+    /**
+     * The rate at which buckets have been created over the period covered by the
+     * {@link #getFalsePositiveProbabilityHistory() history}, in buckets per hour.
+     */
+    public double getBucketCreationRatePerHour() {
+        return bucketCreationRatePerHour;
+    }
+
+    /**
+     * Periodic samples of the expected and configured false positive probability, oldest first.
+     */
+    public List<Sample> getFalsePositiveProbabilityHistory() {
+        return falsePositiveProbabilityHistory;
+    }
+
+    /**
+     * The call latency distribution of each monitored method, keyed by method name.
+     */
+    public Map<String, Latency> getLatencies() {
+        return latencies;
+    }
+
+    @Override
+    public String toString() {
+        return "{ \"timestamp\": " + timestamp.getTime() +
+                ", \"statistics\": " + statistics +
+                ", \"buckets\": " + buckets +
+                ", \"bucketsCreated\": " + bucketsCreated +
+                ", \"bucketCreationRatePerHour\": " + bucketCreationRatePerHour +
+                ", \"falsePositiveProbabilityHistory\": " + falsePositiveProbabilityHistory +
+                ", \"latencies\": " + toJson(latencies) +
+                " }";
+    }
+
+    private static String toJson(final Map<String, Latency> latencies) {
+        final StringBuilder sb = new StringBuilder("{");
+        for (Map.Entry<String, Latency> entry : latencies.entrySet()) {
+            if (sb.length() > 1) {
+                sb.append(',');
+            }
+            sb.append(" \"").append(entry.getKey()).append("\": ").append(entry.getValue());
+        }
+        return sb.append(" }").toString();
+    }
+
+    /**
+     * The occupancy and expiry of a single bucket of a bloom filter.
+     */
+    public static final class Bucket {
+        private final long capacity;
+        private final long estimatedOccupancy;
+        private final double configuredFalsePositiveProbability;
+        private final double expectedFalsePositiveProbability;
+        private final long memorySizeKB;
+        private final Date expiryTime;
+
+        Bucket(final BloomFilterStatistics statistics) {
+            this.capacity = statistics.getCapacity();
+            this.estimatedOccupancy = Math.max(0L, capacity - statistics.getEstimatedRemainingCapacity());
+            this.configuredFalsePositiveProbability = statistics.getConfiguredFalsePositiveProbability();
+            this.expectedFalsePositiveProbability = statistics.getExpectedFalsePositiveProbability();
+            this.memorySizeKB = statistics.getBitSize() / (8L * 1024L);
+            this.expiryTime = new Date(statistics.getExpiryTime());
+        }
+
+        /**
+         * The expected number of insertions into this bucket.
+         */
+        public long getCapacity() {
+            return capacity;
+        }
+
+        /**
+         * The estimated number of elements inserted into this bucket.
+         */
+        public long getEstimatedOccupancy() {
+            return estimatedOccupancy;
+        }
+
+        /**
+         * The estimated number of elements inserted into this bucket as a fraction of its capacity.
+         */
+        public double getOccupancyRatio() {
+            return (double) estimatedOccupancy / (double) capacity;
+        }
+
+        /**
+         * The configured false positive probability of this bucket.
+         */
+        public double getConfiguredFalsePositiveProbability() {
+            return configuredFalsePositiveProbability;
+        }
+
+        /**
+         * The false positive probability of this bucket, given the number of bits currently set.
+         */
+        public double getExpectedFalsePositiveProbability() {
+            return expectedFalsePositiveProbability;
+        }
+
+        /**
+         * The memory used by this bucket, in kilobytes.
+         */
+        public long getMemorySizeKB() {
+            return memorySizeKB;
+        }
+
+        /**
+         * The latest expiry time of any element in this bucket.
+         */
+        public Date getExpiryTime() {
+            return new Date(expiryTime.getTime());
+        }
+
+        @Override
+        public String toString() {
+            return "{ \"capacity\": " + capacity +
+                    ", \"estimatedOccupancy\": " + estimatedOccupancy +
+                    ", \"configuredFalsePositiveProbability\": " + configuredFalsePositiveProbability +
+                    ", \"expectedFalsePositiveProbability\": " + expectedFalsePositiveProbability +
+                    ", \"memorySizeKB\": " + memorySizeKB +
+                    ", \"expiryTime\": " + expiryTime.getTime() +
+                    " }";
+        }
+    }
+
+    /**
+     * A sample of the false positive probability and size of a bloom filter at a point in time.
+     */
+    public static final class Sample {
+        private final long timestamp;
+        private final double configuredFalsePositiveProbability;
+        private final double expectedFalsePositiveProbability;
+        private final int bucketCount;
+        private final long bucketsCreated;
+
+        Sample(final long timestamp, final BloomFilterStatistics statistics, final int bucketCount,
+               final long bucketsCreated) {
+            this.timestamp = timestamp;
+            this.configuredFalsePositiveProbability = statistics.getConfiguredFalsePositiveProbability();
+            this.expectedFalsePositiveProbability = statistics.getExpectedFalsePositiveProbability();
+            this.bucketCount = bucketCount;
+            this.bucketsCreated = bucketsCreated;
+        }
+
+        /**
+         * The time at which the sample was taken.
+         */
+        public Date getTimestamp() {
+            return new Date(timestamp);
+        }
+
+        long getTimestampMillis() {
+            return timestamp;
+        }
+
+        /**
+         * The configured false positive probability of the bloom filter.
+         */
+        public double getConfiguredFalsePositiveProbability() {
+            return configuredFalsePositiveProbability;
+        }
+
+        /**
+         * The expected false positive probability of the bloom filter at the time of the sample.
+         */
+        public double getExpectedFalsePositiveProbability() {
+            return expectedFalsePositiveProbability;
+        }
+
+        /**
+         * The number of buckets in the bloom filter at the time of the sample.
+         */
+        public int getBucketCount() {
+            return bucketCount;
+        }
+
+        /**
+         * The total number of buckets created up to the time of the sample.
+         */
+        public long getBucketsCreated() {
+            return bucketsCreated;
+        }
+
+        @Override
+        public String toString() {
+            return "{ \"timestamp\": " + timestamp +
+                    ", \"configuredFalsePositiveProbability\": " + configuredFalsePositiveProbability +
+                    ", \"expectedFalsePositiveProbability\": " + expectedFalsePositiveProbability +
+                    ", \"bucketCount\": " + bucketCount +
+                    ", \"bucketsCreated\": " + bucketsCreated +
+                    " }";
+        }
+    }
+
+    /**
+     * A summary of the call latency distribution of a monitored method.
+     */
+    public static final class Latency {
+        private final TimeUnit timeUnit;
+        private final long count;
+        private final long minimum;
+        private final long median;
+        private final long percentile90;
+        private final long percentile99;
+        private final long percentile99Point9;
+        private final long maximum;
+        private final double mean;
+
+        Latency(final TimeUnit timeUnit, final long count, final long minimum, final long median,
+                final long percentile90, final long percentile99, final long percentile99Point9, final long maximum,
+                final double mean) {
+            this.timeUnit = timeUnit;
+            this.count = count;
+            this.minimum = minimum;
+            this.median = median;
+            this.percentile90 = percentile90;
+            this.percentile99 = percentile99;
+            this.percentile99Point9 = percentile99Point9;
+            this.maximum = maximum;
+            this.mean = mean;
+        }
+
+        /**
+         * The units used for all times.
+         */
+        public TimeUnit getTimeUnit() {
+            return timeUnit;
+        }
+
+        /**
+         * The number of calls recorded.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * The minimum call time.
+         */
+        public long getMinimumTime() {
+            return minimum;
+        }
+
+        /**
+         * The median call time.
+         */
+        public long getMedianTime() {
+            return median;
+        }
+
+        /**
+         * The 90th percentile call time.
+         */
+        public long get90thPercentileTime() {
+            return percentile90;
+        }
+
+        /**
+         * The 99th percentile call time.
+         */
+        public long get99thPercentileTime() {
+            return percentile99;
+        }
+
+        /**
+         * The 99.9th percentile call time.
+         */
+        public long get99Point9thPercentileTime() {
+            return percentile99Point9;
+        }
+
+        /**
+         * The maximum call time.
+         */
+        public long getMaximumTime() {
+            return maximum;
+        }
+
+        /**
+         * The mean call time.
+         */
+        public double getMeanTime() {
+            return mean;
+        }
+
+        @Override
+        public String toString() {
+            return "{ \"count\": " + count +
+                    ", \"units\": \"" + timeUnit + '"' +
+                    ", \"min\": " + minimum +
+                    ", \"median\": " + median +
+                    ", \"90%\": " + percentile90 +
+                    ", \"99%\": " + percentile99 +
+                    ", \"99.9%\": " + percentile99Point9 +
+                    ", \"max\": " + maximum +
+                    ", \"mean\": " + mean +
+                    " }";
+        }
+    }
+}
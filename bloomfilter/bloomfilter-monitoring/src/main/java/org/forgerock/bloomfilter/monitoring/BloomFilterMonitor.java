@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.bloomfilter.monitoring;
@@ -24,6 +25,8 @@ import org.HdrHistogram.Histogram;
 import org.HdrHistogram.Recorder;
 import org.forgerock.bloomfilter.BloomFilter;
 import org.forgerock.bloomfilter.BloomFilterStatistics;
+import org.forgerock.bloomfilter.BucketedBloomFilter;
+import org.forgerock.util.Reject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,14 +41,27 @@ import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.io.UnsupportedEncodingException;
 import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Generic Bloom Filter JMX monitoring.
+ * <p/>
+ * Besides call latencies, the monitor reports the occupancy and expiry of each bucket of scalable and rolling bloom
+ * filters, the rate at which buckets are created, and a history of the expected false positive probability. The
+ * latter are sampled when the metrics are read, at most once per {@link #setSamplingIntervalMillis(long) sampling
+ * interval}, so that nothing but latency recording is added to the add and lookup paths. The same metrics are
+ * available without JMX from {@link #getMetrics()}.
  */
 public final class BloomFilterMonitor<T> implements BloomFilterMXBean, BloomFilter<T> {
     private static final Logger LOGGER = LoggerFactory.getLogger(BloomFilterMonitor.class);
@@ -57,6 +73,8 @@ public final class BloomFilterMonitor<T> implements BloomFilterMXBean, BloomFilt
     private static final int SIGNIFICANT_DIGITS = 3;
 
     private static final String OBJECT_NAME_TEMPLATE = "%s:type=%s,name=%s";
+    // 2 hours of history at the default sampling interval
+    private static final int MAX_HISTORY_SIZE = 120;
 
     private final BloomFilter<T> delegate;
 
@@ -64,6 +82,9 @@ public final class BloomFilterMonitor<T> implements BloomFilterMXBean, BloomFilt
     private final LiveMethodCallStatistics addAllStats = new LiveMethodCallStatistics("addAll");
     private final LiveMethodCallStatistics mightContainStats = new LiveMethodCallStatistics("mightContain");
 
+    private final Deque<BloomFilterMetrics.Sample> history = new ArrayDeque<BloomFilterMetrics.Sample>();
+    private volatile long samplingIntervalMillis = TimeUnit.MINUTES.toMillis(1);
+
     public BloomFilterMonitor(final BloomFilter<T> delegate) {
         this.delegate = delegate;
     }
@@ -170,6 +191,114 @@ public final class BloomFilterMonitor<T> implements BloomFilterMXBean, BloomFilt
         return new Date(getStatistics().getExpiryTime());
     }
 
+    @Override
+    public int getBucketCount() {
+        return bucketStatistics().size();
+    }
+
+    @Override
+    public long getBucketsCreated() {
+        return bucketsCreated();
+    }
+
+    @Override
+    public double getBucketCreationRatePerHour() {
+        return bucketCreationRatePerHour(sampleHistory());
+    }
+
+    @Override
+    public List<BloomFilterMetrics.Bucket> getBuckets() {
+        return buckets(bucketStatistics());
+    }
+
+    @Override
+    public List<BloomFilterMetrics.Sample> getFalsePositiveProbabilityHistory() {
+        return sampleHistory();
+    }
+
+    @Override
+    public long getSamplingIntervalMillis() {
+        return samplingIntervalMillis;
+    }
+
+    @Override
+    public void setSamplingIntervalMillis(final long intervalMillis) {
+        Reject.ifFalse(intervalMillis > 0, "Sampling interval must be > 0");
+        this.samplingIntervalMillis = intervalMillis;
+    }
+
+    /**
+     * Takes a snapshot of all metrics gathered by this monitor, for scrapers that do not use JMX. Like the MXBean
+     * attributes, this also samples the false positive probability history if the sampling interval has elapsed.
+     *
+     * @return a snapshot of the current metrics.
+     */
+    public BloomFilterMetrics getMetrics() {
+        final List<BloomFilterMetrics.Sample> samples = sampleHistory();
+        final Map<String, BloomFilterMetrics.Latency> latencies =
+                new LinkedHashMap<String, BloomFilterMetrics.Latency>();
+        latencies.put(addStats.name, addStats.getLatency());
+        latencies.put(addAllStats.name, addAllStats.getLatency());
+        latencies.put(mightContainStats.name, mightContainStats.getLatency());
+        return new BloomFilterMetrics(System.currentTimeMillis(), getStatistics(), buckets(bucketStatistics()),
+                bucketsCreated(), bucketCreationRatePerHour(samples), samples, latencies);
+    }
+
+    private List<BloomFilterStatistics> bucketStatistics() {
+        if (delegate instanceof BucketedBloomFilter) {
+            return ((BucketedBloomFilter<T>) delegate).getBucketStatistics();
+        }
+        return Collections.singletonList(delegate.getStatistics());
+    }
+
+    private long bucketsCreated() {
+        if (delegate instanceof BucketedBloomFilter) {
+            return ((BucketedBloomFilter<T>) delegate).getBucketsCreated();
+        }
+        return 1L;
+    }
+
+    private static List<BloomFilterMetrics.Bucket> buckets(final List<BloomFilterStatistics> bucketStatistics) {
+        final List<BloomFilterMetrics.Bucket> buckets =
+                new ArrayList<BloomFilterMetrics.Bucket>(bucketStatistics.size());
+        for (BloomFilterStatistics stats : bucketStatistics) {
+            buckets.add(new BloomFilterMetrics.Bucket(stats));
+        }
+        return buckets;
+    }
+
+    /**
+     * Records a new sample if the sampling interval has elapsed since the last one, and returns the history.
+     */
+    private List<BloomFilterMetrics.Sample> sampleHistory() {
+        synchronized (history) {
+            final long now = System.currentTimeMillis();
+            final BloomFilterMetrics.Sample last = history.peekLast();
+            if (last == null || now - last.getTimestampMillis() >= samplingIntervalMillis) {
+                if (history.size() == MAX_HISTORY_SIZE) {
+                    history.removeFirst();
+                }
+                history.addLast(new BloomFilterMetrics.Sample(now, getStatistics(), getBucketCount(),
+                        bucketsCreated()));
+            }
+            return new ArrayList<BloomFilterMetrics.Sample>(history);
+        }
+    }
+
+    private static double bucketCreationRatePerHour(final List<BloomFilterMetrics.Sample> samples) {
+        if (samples.size() < 2) {
+            return 0.0d;
+        }
+        final BloomFilterMetrics.Sample first = samples.get(0);
+        final BloomFilterMetrics.Sample last = samples.get(samples.size() - 1);
+        final long elapsedMillis = last.getTimestampMillis() - first.getTimestampMillis();
+        if (elapsedMillis <= 0) {
+            return 0.0d;
+        }
+        return (last.getBucketsCreated() - first.getBucketsCreated()) * (double) TimeUnit.HOURS.toMillis(1)
+                / elapsedMillis;
+    }
+
     /**
      * Maintains live on-going statistics on method call timing latencies. An HdrHistogram {@link Recorder} is used
      * to keep track of live performance data. A snapshot is taken periodically according to the update interval and
@@ -307,6 +436,20 @@ public final class BloomFilterMonitor<T> implements BloomFilterMXBean, BloomFilt
             return overallHistogram;
         }
 
+        /**
+         * Summarises the latency distribution, first folding in any values recorded since the last update so that
+         * pull-based scrapers always see current data.
+         */
+        BloomFilterMetrics.Latency getLatency() {
+            final Histogram histogram = getSnapshot(true);
+            synchronized (overallHistogram) {
+                return new BloomFilterMetrics.Latency(getTimeUnit(), histogram.getTotalCount(),
+                        histogram.getMinValue(), histogram.getValueAtPercentile(50.0d),
+                        histogram.getValueAtPercentile(90.0d), histogram.getValueAtPercentile(99.0d),
+                        histogram.getValueAtPercentile(99.9d), histogram.getMaxValue(), histogram.getMean());
+            }
+        }
+
         @Override
         public long getUpdateIntervalMillis() {
             return updateIntervalMillis;
@@ -366,6 +509,7 @@ public final class BloomFilterMonitor<T> implements BloomFilterMXBean, BloomFilt
                 ", \"add\": " + addStats +
                 ", \"addAll\": " + addAllStats +
                 ", \"mightContain\": " + mightContainStats +
+                ", \"buckets\": " + getBuckets() +
                 " }";
     }
 }
@@ -12,10 +12,12 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015 ForgeRock AS.
+ * Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.bloomfilter.monitoring;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
 import org.forgerock.bloomfilter.BloomFilter;
@@ -88,4 +90,42 @@ public class BloomFilterMonitorTest {
             throw error.get();
         }
     }
+
+    @Test
+    public void shouldReportMetricsOfEachBucket() throws Exception {
+        // Given
+        final BloomFilterMonitor<Integer> monitor = new BloomFilterMonitor<Integer>(
+                BloomFilters.<Integer>create(Funnels.integerFunnel())
+                        .withConcurrencyStrategy(ConcurrencyStrategy.ATOMIC)
+                        .withInitialCapacity(100)
+                        .scalable()
+                        .build());
+        monitor.setSamplingIntervalMillis(1);
+        monitor.getMetrics();
+
+        // When
+        for (int i = 0; i < 1000; ++i) {
+            monitor.add(i);
+            monitor.mightContain(i);
+        }
+        Thread.sleep(10);
+        final BloomFilterMetrics metrics = monitor.getMetrics();
+
+        // Then
+        assertTrue(metrics.getBuckets().size() > 1);
+        assertEquals(metrics.getBuckets().size(), monitor.getBucketCount());
+        assertEquals(metrics.getBucketsCreated(), (long) metrics.getBuckets().size());
+        assertTrue(metrics.getBuckets().get(0).getOccupancyRatio() > 0.5d);
+        assertTrue(metrics.getBucketCreationRatePerHour() > 0.0d);
+        assertEquals(metrics.getFalsePositiveProbabilityHistory().size(), 2);
+        assertEquals(metrics.getLatencies().get("add").getCount(), 1000L);
+    }
+
+    @Test
+    public void shouldReportFixedCapacityBloomFiltersAsSingleBucket() {
+        final BloomFilterMonitor<Integer> monitor = new BloomFilterMonitor<Integer>(
+                BloomFilters.<Integer>create(Funnels.integerFunnel()).build());
+        assertEquals(monitor.getBucketCount(), 1);
+        assertEquals(monitor.getBuckets().get(0).getCapacity(), 1000L);
+    }
 }
\ No newline at end of file